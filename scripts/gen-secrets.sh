@@ -22,17 +22,30 @@ create_secret() {
   fi
 }
 
+create_jwt_key() {
+  local dir="$1"
+  local kid="${JWT_KID:-$(date +%Y%m)}"
+  mkdir -p "$dir"
+  if [ -s "$dir/$kid.key" ] && [ "${FORCE_REGEN:-0}" != "1" ]; then
+    echo "Skip (exists): $dir/$kid.key"
+  else
+    openssl genpkey -algorithm EC -pkeyopt ec_paramgen_curve:P-256 -out "$dir/$kid.key"
+    openssl pkey -in "$dir/$kid.key" -pubout -out "$dir/$kid.pub"
+    echo "Generated: $dir/$kid.key ($dir/$kid.pub) -> security.jwt.signing.active-kid=$kid"
+  fi
+}
+
 # Dev secrets
 create_secret "$DEV_DIR/mysql_password"
 create_secret "$DEV_DIR/mysql_root_password"
-create_secret "$DEV_DIR/jwt_secret"
+create_jwt_key "$DEV_DIR/jwt-keys"
 
 # Docker secrets
 create_secret "$DOCKER_DIR/mysql_password"
 create_secret "$DOCKER_DIR/mysql_root_password"
-create_secret "$DOCKER_DIR/jwt_secret"
+create_jwt_key "$DOCKER_DIR/jwt-keys"
 
 echo
 echo "Secrets prêts."
 echo "Utilisation local IntelliJ: APP_SECRETS_DIR=./secrets/dev (par défaut via application.yml)"
-echo "Utilisation docker-compose: secrets montés dans /run/secrets"
\ No newline at end of file
+echo "Utilisation docker-compose: clés JWT de $DOCKER_DIR/jwt-keys montées dans /run/secrets/jwt-keys (JWT_KEYS_DIR, SECURITY_JWT_SIGNING_ACTIVE_KID)"
\ No newline at end of file
@@ -0,0 +1,32 @@
+-- Partitionnement mensuel de la table messages sur sent_at (MySQL 8), à exécuter une fois.
+--
+-- MySQL impose que toute clé unique contienne la colonne de partitionnement : la clé
+-- primaire devient (id, sent_at), id restant unique grâce à l'AUTO_INCREMENT.
+--
+-- Les partitions sont calculées à partir du mois courant : les lignes antérieures restent
+-- dans p_old (archivées par DELETE), puis viennent le mois courant et le suivant.
+-- MessageArchiveService crée ensuite les mois suivants en découpant p_future et archive
+-- chaque mois clos par DROP PARTITION.
+--
+-- Les bornes sont exprimées dans le fuseau de l'application (celui de la JVM) : régler le
+-- fuseau de la session avant l'exécution s'il diffère de celui du serveur MySQL, par exemple
+-- SET time_zone = 'Europe/Paris';
+
+ALTER TABLE messages
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, sent_at);
+
+SET @current_month = DATE(DATE_FORMAT(NOW(), '%Y-%m-01'));
+SET @next_month = @current_month + INTERVAL 1 MONTH;
+SET @following_month = @current_month + INTERVAL 2 MONTH;
+
+SET @ddl = CONCAT(
+    'ALTER TABLE messages PARTITION BY RANGE COLUMNS (sent_at) (',
+    'PARTITION p_old VALUES LESS THAN (''', @current_month, ' 00:00:00''), ',
+    'PARTITION ', DATE_FORMAT(@current_month, 'p%Y%m'), ' VALUES LESS THAN (''', @next_month, ' 00:00:00''), ',
+    'PARTITION ', DATE_FORMAT(@next_month, 'p%Y%m'), ' VALUES LESS THAN (''', @following_month, ' 00:00:00''), ',
+    'PARTITION p_future VALUES LESS THAN (MAXVALUE))');
+
+PREPARE partition_messages FROM @ddl;
+EXECUTE partition_messages;
+DEALLOCATE PREPARE partition_messages;
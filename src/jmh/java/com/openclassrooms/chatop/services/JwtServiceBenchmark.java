@@ -0,0 +1,65 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.repositories.RevokedTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de l'émission et de la vérification d'un token ES256 par {@link JwtService}.
+ *
+ * <p>{@code isTokenValid} est appelé à chaque requête authentifiée : vérification de la
+ * signature, lecture des claims et test du filtre de révocation (vide ici, comme pour la
+ * grande majorité des tokens).</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private JwtService jwtService;
+    private UserDetails userDetails;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        // La base n'est lue qu'au démarrage (load) : le repository n'est jamais appelé ici
+        TokenRevocationService tokenRevocationService = new TokenRevocationService(
+                Mockito.mock(RevokedTokenRepository.class), 100_000);
+        jwtService = new JwtService(tokenRevocationService, Mockito.mock(CacheInvalidationBus.class),
+                new JwtKeyRing("bench-key", JwtKeyRing.generateKeyPair(), Map.of()), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 86_400_000L);
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 604_800_000L);
+        userDetails = new User("owner@test.com", "password", List.of());
+        token = jwtService.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(userDetails);
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return jwtService.isTokenValid(token, userDetails);
+    }
+}
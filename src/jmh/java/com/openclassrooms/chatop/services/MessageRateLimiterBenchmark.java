@@ -0,0 +1,89 @@
+package com.openclassrooms.chatop.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût d'un appel à {@link MessageRateLimiter#tryAcquire(Long)} sous contention.
+ *
+ * <p>Le débit configuré est très élevé : la plupart des appels consomment un jeton et font
+ * donc un compare-and-set. Trois scénarios :</p>
+ * <ul>
+ *     <li>{@code sameSender} : autant de threads que de cœurs sur un seul seau (contention
+ *     maximale sur le CAS) ;</li>
+ *     <li>{@code distinctSenders} : autant de threads que de cœurs, répartis sur 10 000 expéditeurs ;</li>
+ *     <li>{@code sweepUnderLoad} : trois threads d'envoi pendant qu'un quatrième balaie la table
+ *     ({@link MessageRateLimiter#evictIdle()}), comme le fait la tâche planifiée.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageRateLimiterBenchmark {
+    private static final int SENDERS = 10_000;
+
+    private MessageRateLimiter limiter;
+
+    @Setup
+    public void setUp() {
+        limiter = new MessageRateLimiter(Integer.MAX_VALUE, 1_000, 100_000);
+    }
+
+    /** Expéditeurs parcourus par un thread, décalés d'un thread à l'autre. */
+    @State(Scope.Thread)
+    public static class Sender {
+        private long next;
+
+        @Setup
+        public void setUp(ThreadParams threadParams) {
+            next = threadParams.getThreadIndex();
+        }
+
+        long nextId() {
+            return next++ % SENDERS;
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long sameSender() {
+        return limiter.tryAcquire(1L);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long distinctSenders(Sender sender) {
+        return limiter.tryAcquire(sender.nextId());
+    }
+
+    @Benchmark
+    @Group("sweepUnderLoad")
+    @GroupThreads(3)
+    public long acquire(Sender sender) {
+        return limiter.tryAcquire(sender.nextId());
+    }
+
+    @Benchmark
+    @Group("sweepUnderLoad")
+    @GroupThreads(1)
+    public void sweep() {
+        limiter.evictIdle();
+    }
+}
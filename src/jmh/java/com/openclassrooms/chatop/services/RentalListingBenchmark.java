@@ -0,0 +1,104 @@
+package com.openclassrooms.chatop.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.chatop.dtos.RentalListItemDto;
+import com.openclassrooms.chatop.dtos.RentalListResponse;
+import com.openclassrooms.chatop.entities.Rental;
+import com.openclassrooms.chatop.repositories.RentalRepository;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de {@code GET /api/rentals} hors base de données : conversion des entités en
+ * {@link RentalListItemDto} par {@link RentalService#findAllRentals()}, formatage des dates
+ * et sérialisation JSON de la {@link RentalListResponse}.
+ *
+ * <p>Le repository renvoie une liste de locations synthétiques déjà chargée ; l'ObjectMapper
+ * est configuré comme celui de Spring Boot ({@link Jackson2ObjectMapperBuilder}).</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RentalListingBenchmark {
+    private static final Instant CREATED_AT = Instant.parse("2026-01-15T10:00:00Z");
+
+    @Benchmark
+    public List<RentalListItemDto> findAllRentals(Listing listing) {
+        return listing.rentalService.findAllRentals();
+    }
+
+    @Benchmark
+    public byte[] serializeRentalList(Listing listing) throws JsonProcessingException {
+        return listing.objectMapper.writeValueAsBytes(listing.response);
+    }
+
+    @Benchmark
+    public String formatDate(DateState state) {
+        return RentalService.DATE_FORMAT.format(state.date);
+    }
+
+    /** Liste de {@code rentals} locations synthétiques. */
+    @State(Scope.Benchmark)
+    public static class Listing {
+        @Param({"20", "1000"})
+        private int rentals;
+
+        private RentalService rentalService;
+        private ObjectMapper objectMapper;
+        private RentalListResponse response;
+
+        @Setup
+        public void setUp() {
+            List<Rental> fixtures = new ArrayList<>(rentals);
+            for (long id = 1; id <= rentals; id++) {
+                fixtures.add(rental(id));
+            }
+            // stubOnly : les appels ne sont pas enregistrés, la mémoire du mock reste stable
+            RentalRepository repo = Mockito.mock(RentalRepository.class, Mockito.withSettings().stubOnly());
+            Mockito.when(repo.findAll()).thenReturn(fixtures);
+            rentalService = new RentalService(repo, null, null, null);
+            objectMapper = Jackson2ObjectMapperBuilder.json().build();
+            response = new RentalListResponse(rentalService.findAllRentals());
+        }
+    }
+
+    /** Date lue dans un état, pour que le formatage ne soit pas replié à la compilation. */
+    @State(Scope.Thread)
+    public static class DateState {
+        private Instant date = CREATED_AT;
+    }
+
+    private static Rental rental(long id) {
+        Rental rental = new Rental();
+        rental.setId(id);
+        rental.setOwnerId(id % 50 + 1);
+        rental.setName("Rental " + id);
+        rental.setSurface(20 + id % 80);
+        rental.setPrice(BigDecimal.valueOf(400 + id % 1600));
+        rental.setDescription("Bright apartment close to the station, fully furnished, with a balcony. #" + id);
+        rental.setCreatedAt(CREATED_AT.plus(id, ChronoUnit.HOURS));
+        rental.setUpdatedAt(CREATED_AT.plus(id * 2, ChronoUnit.HOURS));
+        return rental;
+    }
+}
@@ -0,0 +1,152 @@
+package com.openclassrooms.chatop.loadtest;
+
+import com.openclassrooms.chatop.entities.User;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Jeu de données synthétique inséré par lots dans une base vierge : utilisateurs, locations
+ * avec image, messages et fils de conversation correspondants.
+ *
+ * <p>Les utilisateurs passent par Hibernate (identifiants tirés de sa séquence) ; le mot de passe
+ * de tous les comptes, {@value #PASSWORD}, n'est haché qu'une fois. Locations et messages sont
+ * insérés en JDBC par lots de {@value #BATCH_SIZE} lignes, et les conversations calculées en une
+ * requête à partir des messages.</p>
+ */
+class DatasetGenerator {
+    static final String PASSWORD = "password123";
+    private static final int BATCH_SIZE = 500;
+    private static final Duration HISTORY = Duration.ofDays(90);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final PasswordEncoder passwordEncoder;
+    private final SplittableRandom random;
+
+    DatasetGenerator(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, EntityManager entityManager,
+                     PasswordEncoder passwordEncoder, long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManager = entityManager;
+        this.passwordEncoder = passwordEncoder;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @param users nombre d'utilisateurs
+     * @param rentals nombre de locations, réparties entre les utilisateurs
+     * @param messages nombre de messages, envoyés par des utilisateurs au propriétaire d'une location
+     * @param pictureSize taille de l'image de chaque location, en octets
+     * @return les identifiants insérés
+     */
+    Dataset generate(int users, int rentals, int messages, int pictureSize) {
+        List<Long> userIds = insertUsers(users);
+        insertRentals(rentals, pictureSize, userIds);
+        List<long[]> rentalOwners = jdbcTemplate.query("SELECT id, owner_id FROM rentals ORDER BY id",
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)});
+        insertMessages(messages, userIds, rentalOwners);
+        jdbcTemplate.update("INSERT INTO conversations (rental_id, sender_id, owner_id, last_message_id, last_message_at, "
+                + "unread_count) SELECT rental_id, sender_id, recipient_id, MAX(id), MAX(sent_at), COUNT(*) "
+                + "FROM messages GROUP BY rental_id, sender_id, recipient_id");
+        return new Dataset(userIds, rentalOwners);
+    }
+
+    private List<Long> insertUsers(int count) {
+        String hash = passwordEncoder.encode(PASSWORD);
+        List<Long> ids = new ArrayList<>(count);
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(BATCH_SIZE);
+            for (int i = 0; i < count; i++) {
+                User user = new User();
+                user.setName("User " + i);
+                user.setEmail(Dataset.email(i));
+                user.setPassword(hash);
+                entityManager.persist(user);
+                ids.add(user.getId());
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+        return ids;
+    }
+
+    private void insertRentals(int count, int pictureSize, List<Long> ownerIds) {
+        byte[] picture = picture(pictureSize);
+        Instant now = Instant.now();
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            Timestamp createdAt = Timestamp.from(now.minusSeconds(random.nextLong(HISTORY.toSeconds())));
+            batch.add(new Object[]{"Rental " + i, 15 + random.nextInt(150), BigDecimal.valueOf(300 + random.nextInt(3000)),
+                    "Synthetic rental " + i + ", furnished, close to public transport.", picture, "image/jpeg",
+                    "rental-" + i + ".jpg", (long) picture.length, ownerIds.get(random.nextInt(ownerIds.size())),
+                    createdAt, createdAt});
+            if (batch.size() == BATCH_SIZE || i == count - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO rentals (name, surface, price, description, picture, "
+                        + "picture_content_type, picture_filename, picture_size, owner_id, created_at, updated_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void insertMessages(int count, List<Long> userIds, List<long[]> rentalOwners) {
+        Instant now = Instant.now();
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            long[] rental = rentalOwners.get(random.nextInt(rentalOwners.size()));
+            long senderId = userIds.get(random.nextInt(userIds.size()));
+            if (senderId == rental[1] && userIds.size() > 1) {
+                senderId = userIds.get((userIds.indexOf(senderId) + 1) % userIds.size());
+            }
+            batch.add(new Object[]{"Hello, is rental " + rental[0] + " still available? #" + i, senderId, rental[1],
+                    rental[0], Timestamp.from(now.minusSeconds(random.nextLong(HISTORY.toSeconds())))});
+            if (batch.size() == BATCH_SIZE || i == count - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO messages (content, sender_id, recipient_id, rental_id, sent_at) "
+                        + "VALUES (?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /** Octets aléatoires précédés de l'en-tête JPEG : l'image n'est jamais décodée. */
+    private byte[] picture(int size) {
+        byte[] picture = new byte[Math.max(size, 4)];
+        random.nextBytes(picture);
+        picture[0] = (byte) 0xFF;
+        picture[1] = (byte) 0xD8;
+        picture[2] = (byte) 0xFF;
+        picture[3] = (byte) 0xE0;
+        return picture;
+    }
+
+    /**
+     * Identifiants du jeu de données.
+     *
+     * @param userIds identifiants des utilisateurs, dans l'ordre de leur e-mail
+     * @param rentalOwners couples (identifiant de location, identifiant du propriétaire)
+     */
+    record Dataset(List<Long> userIds, List<long[]> rentalOwners) {
+
+        /**
+         * @param index rang de l'utilisateur
+         * @return l'e-mail de l'utilisateur
+         */
+        static String email(int index) {
+            return "user" + index + "@loadtest.local";
+        }
+    }
+}
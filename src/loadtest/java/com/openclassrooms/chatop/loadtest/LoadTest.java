@@ -0,0 +1,266 @@
+package com.openclassrooms.chatop.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.chatop.ChatopApplication;
+import com.openclassrooms.chatop.loadtest.DatasetGenerator.Dataset;
+import com.openclassrooms.chatop.loadtest.OpenModelDriver.Endpoint;
+import com.openclassrooms.chatop.loadtest.OpenModelDriver.EndpointResult;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Test de charge de bout en bout : démarre {@link ChatopApplication} sur une base embarquée
+ * (H2 en mode MySQL, ou la base de {@code loadtest.jdbc-url}), y insère un jeu de données
+ * synthétique puis envoie un mélange de requêtes HTTP au débit demandé.
+ *
+ * <p>Le rapport donne, par endpoint, le débit servi, les erreurs, les arrivées abandonnées et
+ * les centiles de latence ; la distribution complète de chaque endpoint est écrite au format
+ * HdrHistogram ({@code .hgrm}) dans {@code loadtest.output-dir}.</p>
+ *
+ * <p>Paramètres (propriétés système, valeurs par défaut dans le profil Maven {@code loadtest}) :
+ * taille du jeu de données ({@code loadtest.users}, {@code .rentals}, {@code .messages},
+ * {@code .picture-size}), nombre de sessions connectées avant la mesure ({@code .sessions}),
+ * débit d'arrivée en requêtes/s ({@code .rate}), chauffe et mesure en secondes
+ * ({@code .warmup}, {@code .duration}), mélange ({@code .mix}, par exemple
+ * {@code login:5,list:10,get:40,picture:35,message:10}). Toute propriété de l'application
+ * passée en {@code -D} s'applique à l'instance testée.</p>
+ */
+public class LoadTest {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final Settings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SplittableRandom random;
+
+    LoadTest(Settings settings) {
+        this.settings = settings;
+        this.random = new SplittableRandom(settings.seed());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest(Settings.fromSystemProperties()).run();
+    }
+
+    void run() throws Exception {
+        Path workDir = Files.createTempDirectory("chatop-loadtest");
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ChatopApplication.class)
+                .run(applicationArguments(workDir))) {
+            long seedStart = System.nanoTime();
+            Dataset dataset = seed(context);
+            System.out.printf("Seeded %,d users, %,d rentals, %,d messages in %.1f s%n", settings.users(),
+                    settings.rentals(), settings.messages(), (System.nanoTime() - seedStart) / 1e9);
+
+            URI base = URI.create("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort());
+            ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+            try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(REQUEST_TIMEOUT).executor(executor).build()) {
+                List<Session> sessions = login(client, base, dataset);
+                OpenModelDriver driver = new OpenModelDriver(client, endpoints(base, dataset, sessions),
+                        settings.maxInFlight(), settings.seed());
+                System.out.printf("Driving %,.0f req/s for %d s after a %d s warmup%n", settings.rate(),
+                        settings.duration().toSeconds(), settings.warmup().toSeconds());
+                report(driver.run(settings.rate(), settings.warmup(), settings.duration()));
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Propriétés de l'instance testée, en arguments de ligne de commande : une propriété système
+     * du même nom l'emporte.
+     */
+    private String[] applicationArguments(Path workDir) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.url", settings.jdbcUrl());
+        properties.put("spring.datasource.username", settings.jdbcUsername());
+        properties.put("spring.datasource.password", settings.jdbcPassword());
+        if (settings.jdbcUrl().startsWith("jdbc:h2:")) {
+            properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+            properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        }
+        // Clé de signature éphémère, sauf si security.jwt.signing.keys-dir est fourni
+        properties.put("spring.profiles.active", "dev");
+        properties.put("server.port", "0");
+        properties.put("management.server.port", "0");
+        properties.put("logging.level.root", "WARN");
+        // Mesure de la capacité, pas de la limite d'envoi par utilisateur
+        properties.put("messages.rate-limit.per-minute", "0");
+        properties.put("notifications.spool-dir", workDir.resolve("spool").toString());
+        properties.put("notifications.digest.state-file", workDir.resolve("pending-digests.json").toString());
+        properties.put("outbox.ndjson-dir", workDir.resolve("outbox").toString());
+        return properties.entrySet().stream()
+                .filter(property -> System.getProperty(property.getKey()) == null)
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+    }
+
+    private Dataset seed(ConfigurableApplicationContext context) {
+        DatasetGenerator generator = new DatasetGenerator(context.getBean(JdbcTemplate.class),
+                new TransactionTemplate(context.getBean(PlatformTransactionManager.class)),
+                SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class)),
+                context.getBean(PasswordEncoder.class), settings.seed());
+        return generator.generate(settings.users(), settings.rentals(), settings.messages(), settings.pictureSize());
+    }
+
+    /**
+     * Connecte les premiers utilisateurs : leurs tokens servent aux requêtes authentifiées.
+     */
+    private List<Session> login(HttpClient client, URI base, Dataset dataset) throws Exception {
+        int count = Math.min(settings.sessions(), dataset.userIds().size());
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            responses.add(client.sendAsync(loginRequest(base, i), HttpResponse.BodyHandlers.ofString()));
+        }
+        List<Session> sessions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            HttpResponse<String> response = responses.get(i).get();
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Login of " + Dataset.email(i) + " failed: " + response.statusCode());
+            }
+            sessions.add(new Session(dataset.userIds().get(i),
+                    objectMapper.readTree(response.body()).get("token").asText()));
+        }
+        return sessions;
+    }
+
+    private List<Endpoint> endpoints(URI base, Dataset dataset, List<Session> sessions) {
+        List<long[]> rentals = dataset.rentalOwners();
+        List<Endpoint> endpoints = new ArrayList<>();
+        settings.mix().forEach((name, weight) -> endpoints.add(new Endpoint(name, weight, switch (name) {
+            case "login" -> () -> loginRequest(base, random.nextInt(dataset.userIds().size()));
+            case "list" -> () -> authenticated(base.resolve("/api/rentals"), pick(sessions)).GET().build();
+            case "get" -> () -> authenticated(base.resolve("/api/rentals/" + pick(rentals)[0]), pick(sessions)).GET().build();
+            case "picture" -> () -> request(base.resolve("/api/rentals/" + pick(rentals)[0] + "/picture")).GET().build();
+            case "message" -> () -> {
+                Session session = pick(sessions);
+                return authenticated(base.resolve("/api/messages"), session)
+                        .header("Content-Type", "application/json")
+                        .POST(json(Map.of("message", "Is it still available?", "user_id", session.userId(),
+                                "rental_id", pick(rentals)[0])))
+                        .build();
+            };
+            default -> throw new IllegalArgumentException("Unknown endpoint in loadtest.mix: " + name);
+        })));
+        return endpoints;
+    }
+
+    private HttpRequest loginRequest(URI base, int userIndex) {
+        return request(base.resolve("/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(json(Map.of("email", Dataset.email(userIndex), "password", DatasetGenerator.PASSWORD)))
+                .build();
+    }
+
+    private HttpRequest.BodyPublisher json(Map<String, Object> body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static HttpRequest.Builder authenticated(URI uri, Session session) {
+        return request(uri).header("Authorization", "Bearer " + session.token());
+    }
+
+    private static HttpRequest.Builder request(URI uri) {
+        return HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT);
+    }
+
+    private <T> T pick(List<T> items) {
+        return items.get(random.nextInt(items.size()));
+    }
+
+    private void report(Map<String, EndpointResult> results) throws IOException {
+        Files.createDirectories(settings.outputDir());
+        System.out.printf("%n%-10s %10s %8s %8s %10s %9s %9s %9s %9s %9s%n", "endpoint", "responses", "errors",
+                "dropped", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, EndpointResult> entry : results.entrySet()) {
+            EndpointResult result = entry.getValue();
+            System.out.printf("%-10s %,10d %,8d %,8d %,10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", entry.getKey(),
+                    result.latencies().getTotalCount(), result.errors(), result.dropped(), result.throughput(),
+                    result.latencyMillis(50), result.latencyMillis(90), result.latencyMillis(99),
+                    result.latencyMillis(99.9), result.latencies().getMaxValue() / 1e6);
+            try (PrintStream out = new PrintStream(
+                    Files.newOutputStream(settings.outputDir().resolve(entry.getKey() + ".hgrm")))) {
+                // Distribution en millisecondes
+                result.latencies().outputPercentileDistribution(out, 1e6);
+            }
+        }
+        System.out.printf("%nLatency distributions written to %s%n", settings.outputDir().toAbsolutePath());
+    }
+
+    /**
+     * Utilisateur connecté.
+     *
+     * @param userId identifiant de l'utilisateur
+     * @param token son token d'accès
+     */
+    private record Session(long userId, String token) {
+    }
+
+    /**
+     * Paramètres du test de charge.
+     */
+    record Settings(int users, int rentals, int messages, int pictureSize, int sessions, double rate,
+                    Duration warmup, Duration duration, int maxInFlight, Map<String, Integer> mix,
+                    String jdbcUrl, String jdbcUsername, String jdbcPassword, Path outputDir, long seed) {
+
+        static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("loadtest.users", 1000),
+                    Integer.getInteger("loadtest.rentals", 1000),
+                    Integer.getInteger("loadtest.messages", 20000),
+                    Integer.getInteger("loadtest.picture-size", 32768),
+                    Integer.getInteger("loadtest.sessions", 100),
+                    Double.parseDouble(System.getProperty("loadtest.rate", "200")),
+                    Duration.ofSeconds(Long.getLong("loadtest.warmup", 10)),
+                    Duration.ofSeconds(Long.getLong("loadtest.duration", 30)),
+                    Integer.getInteger("loadtest.max-in-flight", 10000),
+                    parseMix(System.getProperty("loadtest.mix", "login:5,list:10,get:40,picture:35,message:10")),
+                    System.getProperty("loadtest.jdbc-url", "jdbc:h2:mem:loadtest;MODE=MySQL;DB_CLOSE_DELAY=-1"),
+                    System.getProperty("loadtest.jdbc-username", "sa"),
+                    System.getProperty("loadtest.jdbc-password", ""),
+                    Path.of(System.getProperty("loadtest.output-dir", "target/loadtest")),
+                    Long.getLong("loadtest.seed", 42));
+        }
+
+        static Map<String, Integer> parseMix(String mix) {
+            Map<String, Integer> weights = new LinkedHashMap<>();
+            for (String entry : mix.split(",")) {
+                String[] parts = entry.trim().split(":");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("Invalid loadtest.mix entry: " + entry);
+                }
+                weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+            }
+            return weights;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.openclassrooms.chatop.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Génère la charge en modèle ouvert : les requêtes arrivent selon un processus de Poisson au
+ * débit demandé, qu'elles aient été servies ou non, comme des clients indépendants.
+ *
+ * <p>La latence est mesurée depuis l'instant d'arrivée prévu et non depuis l'envoi : un retard du
+ * générateur ou du serveur est compté en entier (pas d'omission coordonnée). Les requêtes arrivées
+ * pendant la chauffe ne sont pas mesurées. Au-delà de {@code maxInFlight} requêtes en cours, les
+ * arrivées suivantes sont abandonnées et comptées comme telles.</p>
+ */
+class OpenModelDriver {
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final HttpClient client;
+    private final List<Endpoint> endpoints;
+    private final int totalWeight;
+    private final SplittableRandom random;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenModelDriver(HttpClient client, List<Endpoint> endpoints, int maxInFlight, long seed) {
+        this.client = client;
+        this.endpoints = endpoints;
+        this.totalWeight = endpoints.stream().mapToInt(Endpoint::weight).sum();
+        this.maxInFlight = maxInFlight;
+        this.random = new SplittableRandom(seed);
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("The workload mix has no endpoint with a positive weight");
+        }
+    }
+
+    /**
+     * Envoie les requêtes pendant la chauffe puis la mesure, et attend les réponses en cours.
+     *
+     * @param rate débit d'arrivée, en requêtes par seconde
+     * @param warmup durée de chauffe, non mesurée
+     * @param duration durée de mesure
+     * @return les résultats par endpoint, dans l'ordre du mélange
+     */
+    Map<String, EndpointResult> run(double rate, Duration warmup, Duration duration) {
+        Map<Endpoint, Stats> stats = new LinkedHashMap<>();
+        endpoints.forEach(endpoint -> stats.put(endpoint, new Stats()));
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        long next = start;
+        while (true) {
+            // Intervalles exponentiels : arrivées de Poisson
+            next += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+            if (next - end >= 0) {
+                break;
+            }
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Endpoint endpoint = pick();
+            Stats endpointStats = stats.get(endpoint);
+            boolean measured = next - measureFrom >= 0;
+            if (inFlight.get() >= maxInFlight) {
+                if (measured) {
+                    endpointStats.dropped.increment();
+                }
+                continue;
+            }
+            send(endpoint.request().get(), next, measured ? endpointStats : null);
+        }
+
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (inFlight.get() > 0 && System.nanoTime() - drainDeadline < 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        Map<String, EndpointResult> results = new LinkedHashMap<>();
+        stats.forEach((endpoint, endpointStats) -> results.put(endpoint.name(), new EndpointResult(
+                endpointStats.latencies.getIntervalHistogram(), endpointStats.errors.sum(),
+                endpointStats.dropped.sum(), duration)));
+        return results;
+    }
+
+    private void send(HttpRequest request, long intendedStart, Stats stats) {
+        inFlight.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+            long latency = System.nanoTime() - intendedStart;
+            inFlight.decrementAndGet();
+            if (stats == null) {
+                return;
+            }
+            if (failure == null && response.statusCode() < 400) {
+                stats.latencies.recordValue(latency);
+            } else {
+                stats.errors.increment();
+            }
+        });
+    }
+
+    private Endpoint pick() {
+        int draw = random.nextInt(totalWeight);
+        for (Endpoint endpoint : endpoints) {
+            draw -= endpoint.weight();
+            if (draw < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException("unreachable");
+    }
+
+    /**
+     * Une opération du mélange.
+     *
+     * @param name nom affiché dans le rapport
+     * @param weight poids relatif dans le mélange
+     * @param request fabrique des requêtes, appelée par le seul thread générateur
+     */
+    record Endpoint(String name, int weight, Supplier<HttpRequest> request) {
+    }
+
+    /**
+     * Résultat mesuré d'un endpoint.
+     *
+     * @param latencies latences des réponses réussies, en nanosecondes
+     * @param errors réponses 4xx/5xx, délais dépassés et erreurs de connexion
+     * @param dropped arrivées abandonnées, faute de place parmi les requêtes en cours
+     * @param duration durée de mesure
+     */
+    record EndpointResult(Histogram latencies, long errors, long dropped, Duration duration) {
+
+        /**
+         * @return le débit de réponses réussies, en requêtes par seconde
+         */
+        double throughput() {
+            return latencies.getTotalCount() / (duration.toNanos() / 1e9);
+        }
+
+        /**
+         * @param percentile centile, entre 0 et 100
+         * @return la latence à ce centile, en millisecondes
+         */
+        double latencyMillis(double percentile) {
+            return latencies.getValueAtPercentile(percentile) / 1e6;
+        }
+    }
+
+    private static final class Stats {
+        // Écritures sans attente depuis les threads de réponse du client HTTP
+        private final Recorder latencies = new Recorder(3);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+    }
+}
@@ -0,0 +1,75 @@
+package com.openclassrooms.chatop.configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.openclassrooms.chatop.entities.Rental;
+import com.openclassrooms.chatop.entities.User;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration du cache de second niveau d'Hibernate (Caffeine, local à l'instance).
+ *
+ * <p>Chaque région est bornée à {@code entity-cache.max-entries} entrées et une entrée expire
+ * {@code entity-cache.ttl} ms après son écriture. Une modification faite par une autre instance
+ * est évincée par {@link com.openclassrooms.chatop.services.CacheInvalidationBus} ; le TTL borne
+ * la péremption si une invalidation est perdue. Hibernate refuse de démarrer si une entité déclare
+ * une région absente d'ici.</p>
+ */
+@Configuration
+public class EntityCacheConfiguration {
+    /** Régions du cache de second niveau. */
+    public static final List<String> REGIONS = List.of(Rental.CACHE_REGION, User.CACHE_REGION, User.EMAIL_CACHE_REGION);
+
+    /**
+     * Fournit le gestionnaire des régions du cache de second niveau.
+     *
+     * @param maxEntries nombre maximal d'entrées par région
+     * @param ttlMillis durée de vie d'une entrée en millisecondes
+     * @return le gestionnaire de cache, propre à ce contexte applicatif
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager(
+            @Value("${entity-cache.max-entries:10000}") long maxEntries,
+            @Value("${entity-cache.ttl:600000}") long ttlMillis
+    ) {
+        // URI propre au contexte : deux contextes d'un même JVM (tests) ne partagent pas leurs régions
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("chatop-entity-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+        for (String region : REGIONS) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maxEntries));
+            configuration.setExpireAfterWrite(OptionalLong.of(TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+            cacheManager.createCache(region, configuration);
+        }
+        return cacheManager;
+    }
+
+    /**
+     * Active le cache de second niveau d'Hibernate sur ce gestionnaire.
+     *
+     * @param entityCacheManager le gestionnaire des régions
+     * @return la personnalisation des propriétés Hibernate
+     */
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(CacheManager entityCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+}
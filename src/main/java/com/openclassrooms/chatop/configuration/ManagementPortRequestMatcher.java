@@ -0,0 +1,42 @@
+package com.openclassrooms.chatop.configuration;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reconnaît les requêtes reçues sur le port de management (management.server.port).
+ *
+ * <p>Les endpoints Actuator (santé, métriques Prometheus) ne sont servis que sur ce port,
+ * lié à une interface interne (management.server.address) : ils y sont accessibles sans
+ * token, alors que sur le port de l'API ils ne sont jamais publics. Le port est relevé au
+ * démarrage du serveur de management, ce qui couvre un port aléatoire (0).</p>
+ */
+@Component
+public class ManagementPortRequestMatcher implements RequestMatcher, ApplicationListener<WebServerInitializedEvent> {
+    static final String MANAGEMENT_NAMESPACE = "management";
+
+    private volatile int port = -1;
+
+    @Override
+    public void onApplicationEvent(WebServerInitializedEvent event) {
+        if (MANAGEMENT_NAMESPACE.equals(event.getApplicationContext().getServerNamespace())) {
+            port = event.getWebServer().getPort();
+        }
+    }
+
+    @Override
+    public boolean matches(HttpServletRequest request) {
+        int managementPort = port;
+        return managementPort > 0 && request.getLocalPort() == managementPort;
+    }
+
+    /**
+     * @return le port de management, ou -1 tant qu'il n'est pas démarré (ou s'il se confond avec celui de l'API)
+     */
+    public int getPort() {
+        return port;
+    }
+}
@@ -0,0 +1,112 @@
+package com.openclassrooms.chatop.configuration;
+
+import com.openclassrooms.chatop.services.CacheInvalidationBus;
+import com.openclassrooms.chatop.services.EntityCacheStatistics;
+import com.openclassrooms.chatop.services.MessageStreamHub;
+import com.openclassrooms.chatop.services.NotificationDigestService;
+import com.openclassrooms.chatop.services.OutboxDispatcher;
+import com.openclassrooms.chatop.services.ReadConsistencyService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration des métriques exportées sur {@code /actuator/prometheus}.
+ *
+ * <p>Les métriques de Spring Boot (latence par route {@code http.server.requests}, appels des
+ * repositories {@code spring.data.repository.invocations}, pools Hikari {@code hikaricp.*}) sont
+ * complétées ici par l'état des files, caches et tâches de fond de l'application, lu à chaque
+ * collecte. Toutes les étiquettes prennent un nombre borné de valeurs.</p>
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    /**
+     * Borne le nombre de routes distinctes de {@code http.server.requests} : au-delà, les
+     * nouvelles valeurs de {@code uri} sont ignorées plutôt que de faire grossir l'export.
+     *
+     * @param maxUriTags nombre maximal de valeurs de l'étiquette uri
+     * @return le filtre de métriques
+     */
+    @Bean
+    public MeterFilter httpUriTagLimit(@Value("${metrics.http.max-uri-tags:100}") int maxUriTags) {
+        return MeterFilter.maximumAllowableTags("http.server.requests", "uri", maxUriTags, MeterFilter.deny());
+    }
+
+    /**
+     * Expose les compteurs et jauges des services qui ne les enregistrent pas eux-mêmes
+     * (l'écriture différée des messages enregistre les siens).
+     *
+     * @param streamHub le hub des flux temps réel
+     * @param digests les récapitulatifs de notification en attente
+     * @param outbox la publication de l'outbox
+     * @param invalidationBus le bus d'invalidation des caches
+     * @param cacheStatistics les statistiques du cache de second niveau
+     * @param readConsistency le suivi du retard du réplica
+     * @param replicaEnabled true si un réplica de lecture est configuré
+     * @return le binder des métriques applicatives
+     */
+    @Bean
+    public MeterBinder applicationMeters(
+            MessageStreamHub streamHub,
+            NotificationDigestService digests,
+            OutboxDispatcher outbox,
+            CacheInvalidationBus invalidationBus,
+            EntityCacheStatistics cacheStatistics,
+            ReadConsistencyService readConsistency,
+            @Value("${datasource.replica.enabled:false}") boolean replicaEnabled
+    ) {
+        return registry -> {
+            Gauge.builder("messages.stream.subscribers", streamHub, MessageStreamHub::getSubscriberCount)
+                    .description("Open Server-Sent Events streams")
+                    .register(registry);
+            Gauge.builder("notifications.digest.pending", digests, NotificationDigestService::getPendingCount)
+                    .description("Recipients with a pending notification digest")
+                    .register(registry);
+
+            FunctionCounter.builder("outbox.events.published", outbox, OutboxDispatcher::getPublishedEvents)
+                    .description("Outbox events published by this instance")
+                    .register(registry);
+            FunctionCounter.builder("outbox.batches.failed", outbox, OutboxDispatcher::getFailedBatches)
+                    .description("Outbox batches rolled back after a sink failure")
+                    .register(registry);
+            Gauge.builder("outbox.events.pending", outbox, OutboxDispatcher::getPendingEvents)
+                    .description("Outbox events waiting for publication")
+                    .register(registry);
+
+            FunctionCounter.builder("cache.invalidation.applied", invalidationBus, CacheInvalidationBus::getAppliedEntries)
+                    .description("Cache invalidations from other instances applied locally")
+                    .register(registry);
+            Gauge.builder("cache.invalidation.cursor", invalidationBus, CacheInvalidationBus::getCursor)
+                    .description("Last cache invalidation id processed")
+                    .register(registry);
+
+            for (String region : cacheStatistics.getRegions()) {
+                FunctionCounter.builder("hibernate.second.level.cache.requests", cacheStatistics,
+                                statistics -> statistics.getHitCount(region))
+                        .description("Second-level cache lookups")
+                        .tags("region", region, "result", "hit")
+                        .register(registry);
+                FunctionCounter.builder("hibernate.second.level.cache.requests", cacheStatistics,
+                                statistics -> statistics.getMissCount(region))
+                        .description("Second-level cache lookups")
+                        .tags("region", region, "result", "miss")
+                        .register(registry);
+            }
+
+            if (replicaEnabled) {
+                TimeGauge.builder("datasource.replica.lag", readConsistency, TimeUnit.MILLISECONDS,
+                                ReadConsistencyService::getReplicaLagMillis)
+                        .description("Replication lag of the read replica, from its heartbeat")
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,47 @@
+package com.openclassrooms.chatop.configuration;
+
+import com.openclassrooms.chatop.services.ReadConsistencyService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Filtre orientant vers la base principale les lectures d'un client dont la dernière écriture
+ * n'a pas encore atteint le réplica (en-tête {@code Consistency-Token}).
+ */
+@Component
+public class ReadConsistencyFilter extends OncePerRequestFilter {
+    private final ReadConsistencyService readConsistencyService;
+
+    /**
+     * Constructeur du filtre de cohérence des lectures.
+     *
+     * @param readConsistencyService le service de cohérence des lectures
+     */
+    public ReadConsistencyFilter(ReadConsistencyService readConsistencyService) {
+        this.readConsistencyService = readConsistencyService;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        if (!readConsistencyService.pinIfStale(request.getHeader(ReadConsistencyService.HEADER))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            readConsistencyService.unpin();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.openclassrooms.chatop.configuration;
+
+import com.openclassrooms.chatop.services.ReadConsistencyService;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Source de données orientant chaque connexion vers la base principale ou le réplica de lecture.
+ *
+ * <p>Seules les transactions en lecture seule ouvertes par un service
+ * ({@code @Transactional(readOnly = true)}) lisent le réplica, et seulement si
+ * {@link ReadConsistencyService#isReplicaReadable()} l'autorise. Les transactions en lecture
+ * seule ouvertes par défaut par les repositories Spring Data restent sur la base principale :
+ * une lecture suivie d'une écriture dans la même requête ne doit pas voir un état en retard.</p>
+ *
+ * <p>La décision est prise à l'obtention de la connexion : la source doit être enveloppée dans
+ * un {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, pour que la
+ * connexion ne soit demandée qu'à la première requête SQL, une fois la transaction décrite.</p>
+ */
+class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    /** Préfixe du nom des transactions ouvertes par les services de l'application. */
+    private static final String SERVICE_TRANSACTION_PREFIX = "com.openclassrooms.chatop.services.";
+
+    private final ReadConsistencyService readConsistencyService;
+
+    ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReadConsistencyService readConsistencyService) {
+        this.readConsistencyService = readConsistencyService;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String transactionName = TransactionSynchronizationManager.getCurrentTransactionName();
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && transactionName != null && transactionName.startsWith(SERVICE_TRANSACTION_PREFIX)
+                && readConsistencyService.isReplicaReadable()) {
+            return Route.REPLICA;
+        }
+        return Route.PRIMARY;
+    }
+
+    enum Route {
+        PRIMARY, REPLICA
+    }
+}
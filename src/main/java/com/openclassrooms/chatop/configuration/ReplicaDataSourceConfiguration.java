@@ -0,0 +1,85 @@
+package com.openclassrooms.chatop.configuration;
+
+import com.openclassrooms.chatop.services.ReadConsistencyService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Configuration des sources de données lorsqu'un réplica de lecture est déclaré.
+ *
+ * <p>Activée par {@code datasource.replica.enabled=true}. La base principale reste configurée
+ * par {@code spring.datasource.*} ; le réplica par {@code datasource.replica.*}. La source de
+ * données utilisée par JPA et JdbcTemplate oriente chaque transaction vers l'une ou l'autre
+ * (voir {@link ReadWriteRoutingDataSource}).</p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration {
+
+    /**
+     * Fournit le pool de la base principale.
+     *
+     * @param properties les propriétés {@code spring.datasource.*}
+     * @return le pool de connexions à la base principale
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Fournit le pool du réplica de lecture, dont les connexions sont en lecture seule.
+     *
+     * @param url URL JDBC du réplica
+     * @param username utilisateur du réplica
+     * @param password mot de passe du réplica
+     * @param maximumPoolSize taille maximale du pool du réplica
+     * @return le pool de connexions au réplica
+     */
+    @Bean
+    public HikariDataSource replicaDataSource(
+            @Value("${datasource.replica.url}") String url,
+            @Value("${datasource.replica.username:}") String username,
+            @Value("${datasource.replica.password:}") String password,
+            @Value("${datasource.replica.maximum-pool-size:20}") int maximumPoolSize
+    ) {
+        HikariDataSource replica = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(url).username(username).password(password).build();
+        replica.setPoolName("replica");
+        replica.setMaximumPoolSize(maximumPoolSize);
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    /**
+     * Fournit la source de données de l'application, orientée par transaction.
+     *
+     * @param primary le pool de la base principale
+     * @param replica le pool du réplica
+     * @param readConsistencyService le service décidant si le réplica peut être lu
+     * @return la source de données utilisée par JPA et JdbcTemplate
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") DataSource primary,
+            @Qualifier("replicaDataSource") DataSource replica,
+            ReadConsistencyService readConsistencyService
+    ) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, readConsistencyService);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
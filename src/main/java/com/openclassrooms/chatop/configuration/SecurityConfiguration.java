@@ -1,7 +1,12 @@
 package com.openclassrooms.chatop.configuration;
 
+import com.openclassrooms.chatop.services.ReadConsistencyService;
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -18,23 +23,88 @@ import java.util.List;
 @Configuration
 @EnableWebSecurity
 public class SecurityConfiguration {
+    /**
+     * Routes publiques à fort trafic, servies par une chaîne de filtres minimale
+     * qui ne traite jamais de token.
+     */
+    static final String[] PUBLIC_FAST_PATHS = {
+            "/api/rentals/*/picture",
+            "/.well-known/jwks.json",
+            "/v3/api-docs/**",
+            "/swagger-ui/**",
+            "/swagger-ui.html"
+    };
+
     private final AuthenticationProvider authenticationProvider;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final ManagementPortRequestMatcher managementPort;
 
     public SecurityConfiguration(
             JwtAuthenticationFilter jwtAuthenticationFilter,
-            AuthenticationProvider authenticationProvider
+            AuthenticationProvider authenticationProvider,
+            ManagementPortRequestMatcher managementPort
     ) {
         this.authenticationProvider = authenticationProvider;
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.managementPort = managementPort;
     }
 
 
+    /**
+     * Chaîne de filtres minimale pour les routes publiques à fort trafic.
+     *
+     * - Ne s'applique qu'aux routes de PUBLIC_FAST_PATHS (images, JWKS, Swagger).
+     * - N'inclut pas le filtre JWT : un en-tête Authorization éventuel n'est ni décodé
+     *   ni vérifié, et aucune requête n'est faite sur la table des utilisateurs.
+     * - Désactive CSRF, logout, cache de requête et gestion de session.
+     * - Désactivable avec security.fast-path.enabled=false : ces routes repassent
+     *   alors par la chaîne principale.
+     *
+     * @param http l'objet HttpSecurity à configurer
+     * @return la SecurityFilterChain des routes publiques
+     * @throws Exception en cas d'erreur de configuration
+     */
+    @Bean
+    @Order(1)
+    @ConditionalOnProperty(name = "security.fast-path.enabled", havingValue = "true", matchIfMissing = true)
+    public SecurityFilterChain publicFastPathFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher(PUBLIC_FAST_PATHS)
+                .csrf(csrf -> csrf.disable())
+                .logout(logout -> logout.disable())
+                .requestCache(cache -> cache.disable())
+                .sessionManagement(session -> session.disable())
+                .authorizeHttpRequests(auth -> auth.anyRequest().permitAll());
+
+        return http.build();
+    }
+
+    /**
+     * Empêche l'enregistrement automatique du filtre JWT comme filtre servlet.
+     *
+     * <p>Étant un @Component, le filtre serait sinon exécuté sur toutes les requêtes,
+     * y compris celles servies par la chaîne rapide. Il ne s'exécute ainsi que dans
+     * la chaîne de sécurité principale.</p>
+     *
+     * @param filter le filtre d'authentification JWT
+     * @return l'enregistrement désactivé du filtre
+     */
+    @Bean
+    public FilterRegistrationBean<JwtAuthenticationFilter> jwtAuthenticationFilterRegistration(JwtAuthenticationFilter filter) {
+        FilterRegistrationBean<JwtAuthenticationFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     /**
      * Configure la chaîne de filtres de sécurité pour l'application.
      *
      * - Désactive la protection CSRF (adapté pour les API REST stateless).
      * - Autorise l'accès sans authentification aux endpoints sous /api/auth/**.
+     * - Autorise les requêtes reçues sur le port de management (endpoints Actuator) :
+     *   sur le port de l'API, /actuator/** reste soumis à l'authentification.
+     * - Autorise la page /error afin que les statuts d'erreur (ex. 429) ne soient pas masqués par un 403.
+     * - Autorise les dispatchs ASYNC, qui terminent une réponse (ex. flux SSE) autorisée à son ouverture.
      * - Exige l'authentification pour toutes les autres requêtes.
      * - Définit la gestion de session en mode STATELESS (aucune session côté serveur).
      * - Ajoute le filtre d'authentification JWT avant le filtre UsernamePasswordAuthenticationFilter.
@@ -44,17 +114,25 @@ public class SecurityConfiguration {
      * @throws Exception en cas d'erreur de configuration
      */
     @Bean
+    @Order(2)
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
                 .authorizeHttpRequests(auth -> auth
+                        // Fin d'une réponse asynchrone (flux SSE) déjà autorisée à son ouverture
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/api/auth/register",
                                 "/api/auth/login",
+                                "/api/auth/refresh",
+                                "/.well-known/jwks.json",
                                 "/v3/api-docs/**",
                                 "/swagger-ui/**",
-                                "/swagger-ui.html"
+                                "/swagger-ui.html",
+                                "/error"
                         ).permitAll()
+                        // Actuator : uniquement sur le port de management, lié à une interface interne
+                        .requestMatchers(managementPort).permitAll()
                         .requestMatchers("/api/rentals/*/picture").permitAll()
                         .requestMatchers("/api/**").authenticated()
                         .anyRequest().authenticated()
@@ -73,7 +151,8 @@ public class SecurityConfiguration {
      *
      * - Définit les origines autorisées pour les requêtes CORS.
      * - Spécifie les méthodes HTTP autorisées (GET, POST).
-     * - Spécifie les en-têtes autorisés (Authorization, Content-Type).
+     * - Spécifie les en-têtes autorisés (Authorization, Content-Type, Consistency-Token).
+     * - Expose l'en-tête Consistency-Token des réponses d'écriture.
      * - Enregistre la configuration CORS pour tous les chemins (/**).
      *
      * @return une instance de CorsConfigurationSource configurée
@@ -89,7 +168,8 @@ public class SecurityConfiguration {
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
 
         // Définit les en-têtes autorisés
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type"));
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", ReadConsistencyService.HEADER));
+        configuration.setExposedHeaders(List.of(ReadConsistencyService.HEADER));
 
         // Crée une source de configuration basée sur les URL
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
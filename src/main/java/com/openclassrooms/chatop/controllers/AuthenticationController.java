@@ -3,6 +3,7 @@ package com.openclassrooms.chatop.controllers;
 import com.openclassrooms.chatop.dtos.LoginUserDto;
 import com.openclassrooms.chatop.dtos.LoginResponse;
 import com.openclassrooms.chatop.dtos.MeResponse;
+import com.openclassrooms.chatop.dtos.RefreshTokenDto;
 import com.openclassrooms.chatop.dtos.RegisterUserDto;
 import com.openclassrooms.chatop.entities.User;
 import com.openclassrooms.chatop.services.AuthenticationService;
@@ -14,8 +15,11 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
+import java.util.Map;
+
 /**
  * Contrôleur pour la gestion de l'authentification des utilisateurs.
  */
@@ -45,32 +49,70 @@ public class AuthenticationController {
      * Inscrit un nouvel utilisateur.
      *
      * @param registerUserDto les informations d'inscription de l'utilisateur
-     * @return l'utilisateur créé
+     * @return les tokens de l'utilisateur créé, ou 409 si l'email est déjà inscrit
      */
     @PostMapping("/register")
     public ResponseEntity<LoginResponse> register(@Valid @RequestBody RegisterUserDto registerUserDto) {
         User registeredUser = authenticationService.signup(registerUserDto);
-        String jwtToken = jwtService.generateToken(registeredUser);
-        LoginResponse loginResponse = new LoginResponse();
-        loginResponse.setToken(jwtToken);
-        loginResponse.setExpiresIn(jwtService.getExpirationTime());
-        return ResponseEntity.ok(loginResponse);
+        if (registeredUser == null) {
+            return ResponseEntity.status(409).build();
+        }
+        return ResponseEntity.ok(buildLoginResponse(registeredUser));
     }
 
     /**
      * Authentifie un utilisateur et retourne un token JWT.
      *
      * @param loginUserDto les informations de connexion de l'utilisateur
+     * @param request la requête HTTP, utilisée pour identifier l'IP du client
      * @return la réponse contenant le token JWT et la durée d'expiration
      */
     @PostMapping("/login")
-    public ResponseEntity<LoginResponse> authenticate(@Valid @RequestBody LoginUserDto loginUserDto) {
-        User authenticatedUser = authenticationService.authenticate(loginUserDto);
-        String jwtToken = jwtService.generateToken(authenticatedUser);
-        LoginResponse loginResponse = new LoginResponse();
-        loginResponse.setToken(jwtToken);
-        loginResponse.setExpiresIn(jwtService.getExpirationTime());
-        return ResponseEntity.ok(loginResponse);
+    public ResponseEntity<LoginResponse> authenticate(
+            @Valid @RequestBody LoginUserDto loginUserDto,
+            HttpServletRequest request
+    ) {
+        User authenticatedUser = authenticationService.authenticate(loginUserDto, request.getRemoteAddr());
+        return ResponseEntity.ok(buildLoginResponse(authenticatedUser));
+    }
+
+    /**
+     * Renouvelle la paire de tokens à partir d'un refresh token.
+     *
+     * <p>Le refresh token présenté est révoqué (rotation) : il ne peut servir qu'une fois.</p>
+     *
+     * @param refreshTokenDto le refresh token obtenu lors de la connexion ou du dernier renouvellement
+     * @return une nouvelle paire de tokens, ou 401 si le refresh token est invalide ou déjà utilisé
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<LoginResponse> refresh(@Valid @RequestBody RefreshTokenDto refreshTokenDto) {
+        User user = authenticationService.refresh(refreshTokenDto.getRefreshToken());
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return ResponseEntity.ok(buildLoginResponse(user));
+    }
+
+    /**
+     * Déconnecte l'utilisateur en révoquant son token courant et, s'il est fourni, son refresh token.
+     *
+     * @param request la requête HTTP portant l'en-tête Authorization
+     * @param refreshTokenDto le refresh token à révoquer (optionnel)
+     * @return un message de confirmation
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(
+            HttpServletRequest request,
+            @RequestBody(required = false) RefreshTokenDto refreshTokenDto
+    ) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            jwtService.revokeToken(authHeader.substring(7));
+        }
+        if (refreshTokenDto != null && refreshTokenDto.getRefreshToken() != null) {
+            jwtService.revokeToken(refreshTokenDto.getRefreshToken());
+        }
+        return ResponseEntity.ok(Map.of("message", "Logged out !"));
     }
 
     /**
@@ -105,4 +147,12 @@ public class AuthenticationController {
 
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    private LoginResponse buildLoginResponse(User user) {
+        LoginResponse loginResponse = new LoginResponse();
+        loginResponse.setToken(jwtService.generateToken(user));
+        loginResponse.setExpiresIn(jwtService.getExpirationTime());
+        loginResponse.setRefreshToken(jwtService.generateRefreshToken(user));
+        return loginResponse;
+    }
+}
@@ -0,0 +1,107 @@
+package com.openclassrooms.chatop.controllers;
+
+import com.openclassrooms.chatop.dtos.ConversationListResponse;
+import com.openclassrooms.chatop.entities.User;
+import com.openclassrooms.chatop.services.ConversationService;
+import com.openclassrooms.chatop.services.UserService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Contrôleur REST pour les fils de conversation.
+ *
+ * <p>Endpoints disponibles :</p>
+ * <ul>
+ *   <li>GET /api/conversations : Liste les conversations de l'utilisateur avec leurs messages non lus</li>
+ *   <li>POST /api/conversations/{id}/read : Marque une conversation comme lue</li>
+ * </ul>
+ *
+ * <p>Sécurité : Tous les endpoints requièrent une authentification.</p>
+ *
+ * @author OpenClassrooms
+ * @version 1.0
+ * @since 1.0
+ */
+@RestController
+@RequestMapping("/api/conversations")
+public class ConversationController {
+
+    private final ConversationService conversationService;
+    private final UserService userService;
+
+    /**
+     * Constructeur du contrôleur des conversations.
+     *
+     * @param conversationService le service des conversations
+     * @param userService le service de gestion des utilisateurs
+     */
+    public ConversationController(ConversationService conversationService, UserService userService) {
+        this.conversationService = conversationService;
+        this.userService = userService;
+    }
+
+    /**
+     * Endpoint GET pour lister les conversations de l'utilisateur authentifié.
+     *
+     * <p>Par défaut, retourne les conversations reçues en tant que propriétaire, avec leur
+     * nombre de messages non lus. Avec {@code role=sender}, retourne celles que l'utilisateur
+     * a ouvertes en écrivant à des propriétaires. La liste est paginée : la page suivante
+     * s'obtient en repassant le {@code next_cursor} de la réponse.</p>
+     *
+     * @param role owner (par défaut) ou sender
+     * @param cursor curseur de la page précédente, absent pour la première page
+     * @param size nombre de conversations par page (20 par défaut, 100 au maximum)
+     * @return ResponseEntity contenant la page de conversations,
+     *         401 si l'utilisateur n'est pas authentifié,
+     *         400 si le rôle est inconnu ou le curseur invalide
+     */
+    @GetMapping
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getConversations(
+            @RequestParam(defaultValue = "owner") String role,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + ConversationService.DEFAULT_PAGE_SIZE) int size) {
+        User user = currentUser();
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        if (!"owner".equals(role) && !"sender".equals(role)) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("message", "Unknown role"));
+        }
+        ConversationListResponse page = conversationService.findConversations(user.getId(), "owner".equals(role),
+                cursor, size);
+        if (page == null) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("message", "Invalid cursor"));
+        }
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Endpoint POST pour marquer tous les messages d'une conversation comme lus.
+     *
+     * @param id identifiant de la conversation
+     * @return ResponseEntity avec un message de confirmation si succès,
+     *         401 si l'utilisateur n'est pas authentifié,
+     *         404 si la conversation n'existe pas ou n'appartient pas à l'utilisateur
+     */
+    @PostMapping("/{id}/read")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> markRead(@PathVariable Long id) {
+        User user = currentUser();
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        if (!conversationService.markRead(id, user.getId())) {
+            return ResponseEntity.status(404).body(java.util.Map.of("message", "Conversation not found"));
+        }
+        return ResponseEntity.ok(java.util.Map.of("message", "Conversation marked as read !"));
+    }
+
+    private User currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return userService.findByEmail(authentication.getName());
+    }
+}
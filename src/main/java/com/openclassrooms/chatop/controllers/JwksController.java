@@ -0,0 +1,48 @@
+package com.openclassrooms.chatop.controllers;
+
+import com.openclassrooms.chatop.services.JwtKeyRing;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Contrôleur exposant les clés publiques de vérification des JWT.
+ *
+ * <p>Endpoints disponibles :</p>
+ * <ul>
+ *   <li>GET /.well-known/jwks.json : JSON Web Key Set des clés ES256 acceptées</li>
+ * </ul>
+ *
+ * <p>Sécurité : endpoint public, destiné aux autres nœuds et services qui vérifient
+ * les tokens émis par l'API.</p>
+ */
+@RestController
+public class JwksController {
+
+    private final JwtKeyRing keyRing;
+
+    /**
+     * Constructeur du contrôleur JWKS.
+     *
+     * @param keyRing le trousseau de clés JWT
+     */
+    public JwksController(JwtKeyRing keyRing) {
+        this.keyRing = keyRing;
+    }
+
+    /**
+     * Retourne le JSON Web Key Set des clés publiques actuellement acceptées.
+     *
+     * @return le JWKS, cacheable quelques minutes par les clients
+     */
+    @GetMapping(value = "/.well-known/jwks.json", produces = "application/json")
+    public ResponseEntity<Map<String, Object>> getJwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+                .body(keyRing.getJwks());
+    }
+}
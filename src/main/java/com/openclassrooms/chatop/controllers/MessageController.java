@@ -1,16 +1,26 @@
 package com.openclassrooms.chatop.controllers;
 
+import com.openclassrooms.chatop.dtos.CreateInquiryDto;
 import com.openclassrooms.chatop.dtos.CreateMessageDto;
+import com.openclassrooms.chatop.dtos.MessagePageResponse;
 import com.openclassrooms.chatop.entities.Message;
 import com.openclassrooms.chatop.entities.User;
+import com.openclassrooms.chatop.services.IdempotencyService;
+import com.openclassrooms.chatop.services.MessageRateLimiter;
 import com.openclassrooms.chatop.services.MessageService;
+import com.openclassrooms.chatop.services.MessageStreamHub;
+import com.openclassrooms.chatop.services.ReadConsistencyService;
 import com.openclassrooms.chatop.services.UserService;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * Contrôleur REST pour la gestion des messages.
@@ -22,6 +32,10 @@ import org.springframework.web.bind.annotation.*;
  * <p>Endpoints disponibles :</p>
  * <ul>
  *   <li>POST /api/messages : Envoie un message au propriétaire d'une location</li>
+ *   <li>POST /api/messages/inquiries : Envoie un même message aux propriétaires de plusieurs locations</li>
+ *   <li>GET /api/messages/inbox : Liste paginée des messages reçus</li>
+ *   <li>GET /api/messages/outbox : Liste paginée des messages envoyés</li>
+ *   <li>GET /api/messages/stream : Flux temps réel (SSE) des messages reçus</li>
  * </ul>
  * 
  * <p>Sécurité : Tous les endpoints requièrent une authentification.</p>
@@ -36,16 +50,39 @@ public class MessageController {
     
     private final MessageService messageService;
     private final UserService userService;
+    private final MessageStreamHub messageStreamHub;
+    private final MessageRateLimiter messageRateLimiter;
+    private final IdempotencyService idempotencyService;
+    private final ReadConsistencyService readConsistencyService;
+    private final long streamTimeoutMillis;
 
     /**
      * Constructeur du contrôleur des messages.
      * 
      * @param messageService le service de gestion des messages
      * @param userService le service de gestion des utilisateurs
+     * @param messageStreamHub le hub de diffusion temps réel des messages
+     * @param messageRateLimiter le limiteur de débit d'envoi par expéditeur
+     * @param idempotencyService le service de traitement idempotent des créations
+     * @param readConsistencyService le service émettant le jeton de fraîcheur des écritures
+     * @param streamTimeoutMillis durée maximale d'une connexion SSE avant reconnexion du client
      */
-    public MessageController(MessageService messageService, UserService userService) {
+    public MessageController(
+            MessageService messageService,
+            UserService userService,
+            MessageStreamHub messageStreamHub,
+            MessageRateLimiter messageRateLimiter,
+            IdempotencyService idempotencyService,
+            ReadConsistencyService readConsistencyService,
+            @Value("${messages.stream.timeout:1800000}") long streamTimeoutMillis
+    ) {
         this.messageService = messageService;
         this.userService = userService;
+        this.messageStreamHub = messageStreamHub;
+        this.messageRateLimiter = messageRateLimiter;
+        this.idempotencyService = idempotencyService;
+        this.readConsistencyService = readConsistencyService;
+        this.streamTimeoutMillis = streamTimeoutMillis;
     }
 
     /**
@@ -59,19 +96,27 @@ public class MessageController {
      * <ol>
      *   <li>Vérification de l'authentification de l'utilisateur</li>
      *   <li>Récupération des informations de l'utilisateur authentifié</li>
+     *   <li>Rejeu de la réponse d'origine si la clé d'idempotence a déjà été traitée</li>
+     *   <li>Limitation du débit d'envoi de l'utilisateur</li>
      *   <li>Envoi du message via le service</li>
      *   <li>Retour d'une confirmation</li>
      * </ol>
      * 
      * @param dto les données du message à envoyer, incluant le contenu,
      *            l'ID du destinataire et l'ID de la location
-     * @return ResponseEntity avec un message de confirmation si succès,
+     * @param idempotencyKey clé d'idempotence optionnelle fournie par le client pour ses réessais
+     * @return ResponseEntity avec un message de confirmation et le jeton {@code Consistency-Token} si succès,
+     *         202 sans {@code Consistency-Token} si le message est accepté pour écriture différée,
      *         401 si l'utilisateur n'est pas authentifié,
-     *         400 si la location n'existe pas
+     *         400 si la location n'existe pas,
+     *         429 avec un en-tête Retry-After si l'utilisateur envoie trop de messages,
+     *         409 ou 422 si la clé d'idempotence est en cours d'utilisation ou a servi à une autre requête
      */
     @PostMapping
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<?> sendMessage(@RequestBody @Valid CreateMessageDto dto) {
+    public ResponseEntity<?> sendMessage(
+            @RequestBody @Valid CreateMessageDto dto,
+            @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         // Récupération de l'utilisateur authentifié
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String email = authentication.getName();
@@ -80,13 +125,158 @@ public class MessageController {
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
+
+        ResponseEntity<?> response = idempotencyService.execute(idempotencyKey, user.getId(), "message",
+                IdempotencyService.fingerprint(dto.getRental_id(), dto.getMessage()), () -> send(dto, user));
+        return readConsistencyService.withToken(response);
+    }
+
+    private ResponseEntity<?> send(CreateMessageDto dto, User user) {
+        long retryAfterMillis = messageRateLimiter.tryAcquire(user.getId());
+        if (retryAfterMillis > 0) {
+            return tooManyMessages(retryAfterMillis);
+        }
         
         // Envoi du message
         Message message = messageService.sendMessage(dto, user.getId());
         if (message == null) {
             return ResponseEntity.badRequest().body(java.util.Map.of("message", "Rental not found"));
         }
+        if (message.getId() == null) {
+            return ResponseEntity.accepted().body(java.util.Map.of("message", "Message accepted !"));
+        }
         
         return ResponseEntity.ok(java.util.Map.of("message", "Message sent !"));
     }
-}
\ No newline at end of file
+
+    /**
+     * Endpoint POST pour envoyer un même message aux propriétaires de plusieurs locations.
+     *
+     * <p>Chaque message envoyé compte pour la limite de débit de l'utilisateur. Les locations
+     * inexistantes n'empêchent pas l'envoi aux autres : le résultat est donné par location.</p>
+     *
+     * @param dto le contenu du message et les identifiants des locations (20 au plus)
+     * @param idempotencyKey clé d'idempotence optionnelle fournie par le client pour ses réessais
+     * @return ResponseEntity contenant le résultat par location,
+     *         401 si l'utilisateur n'est pas authentifié,
+     *         429 avec un en-tête Retry-After si l'utilisateur envoie trop de messages,
+     *         409 ou 422 si la clé d'idempotence est en cours d'utilisation ou a servi à une autre requête
+     */
+    @PostMapping("/inquiries")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> sendInquiry(
+            @RequestBody @Valid CreateInquiryDto dto,
+            @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        User user = currentUser();
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        ResponseEntity<?> response = idempotencyService.execute(idempotencyKey, user.getId(), "inquiry",
+                IdempotencyService.fingerprint(dto.getRental_ids(), dto.getMessage()), () -> {
+                    int permits = (int) dto.getRental_ids().stream().distinct().count();
+                    long retryAfterMillis = messageRateLimiter.tryAcquire(user.getId(), permits);
+                    if (retryAfterMillis > 0) {
+                        return tooManyMessages(retryAfterMillis);
+                    }
+                    return ResponseEntity.ok(messageService.sendInquiry(dto, user.getId()));
+                });
+        return readConsistencyService.withToken(response);
+    }
+
+    /**
+     * Endpoint GET pour lister les messages reçus par l'utilisateur authentifié.
+     *
+     * <p>Les messages sont triés du plus récent au plus ancien. La page suivante
+     * s'obtient en repassant le {@code next_cursor} de la réponse.</p>
+     *
+     * @param rentalId filtre optionnel sur une location
+     * @param cursor curseur de la page précédente, absent pour la première page
+     * @param size nombre de messages par page (20 par défaut, 100 au maximum)
+     * @return ResponseEntity contenant la page de messages,
+     *         401 si l'utilisateur n'est pas authentifié,
+     *         400 si le curseur est invalide
+     */
+    @GetMapping("/inbox")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getInbox(
+            @RequestParam(name = "rental_id", required = false) Long rentalId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + MessageService.DEFAULT_PAGE_SIZE) int size) {
+        User user = currentUser();
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return pageResponse(messageService.findInbox(user.getId(), rentalId, cursor, size));
+    }
+
+    /**
+     * Endpoint GET pour lister les messages envoyés par l'utilisateur authentifié.
+     *
+     * <p>Les messages sont triés du plus récent au plus ancien. La page suivante
+     * s'obtient en repassant le {@code next_cursor} de la réponse.</p>
+     *
+     * @param rentalId filtre optionnel sur une location
+     * @param cursor curseur de la page précédente, absent pour la première page
+     * @param size nombre de messages par page (20 par défaut, 100 au maximum)
+     * @return ResponseEntity contenant la page de messages,
+     *         401 si l'utilisateur n'est pas authentifié,
+     *         400 si le curseur est invalide
+     */
+    @GetMapping("/outbox")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getOutbox(
+            @RequestParam(name = "rental_id", required = false) Long rentalId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + MessageService.DEFAULT_PAGE_SIZE) int size) {
+        User user = currentUser();
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return pageResponse(messageService.findOutbox(user.getId(), rentalId, cursor, size));
+    }
+
+    /**
+     * Endpoint GET ouvrant un flux Server-Sent Events des messages reçus par l'utilisateur.
+     *
+     * <p>Événements émis : {@code message} (un nouveau message, au format de la boîte de
+     * réception) et {@code resync} (des messages ont été perdus car le client lisait trop
+     * lentement : il doit relire sa boîte de réception). Des commentaires de heartbeat
+     * maintiennent la connexion ouverte ; elle est fermée par le serveur au bout de
+     * {@code messages.stream.timeout} ms et le client se reconnecte.</p>
+     *
+     * @return ResponseEntity contenant le flux SSE,
+     *         401 si l'utilisateur n'est pas authentifié,
+     *         429 si l'utilisateur a déjà trop de connexions ouvertes
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<SseEmitter> stream() {
+        User user = currentUser();
+        if (user == null) {
+            return ResponseEntity.status(401).build();
+        }
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        if (!messageStreamHub.subscribe(user.getId(), emitter)) {
+            return ResponseEntity.status(429).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    private ResponseEntity<?> tooManyMessages(long retryAfterMillis) {
+        return ResponseEntity.status(429)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfterMillis + 999) / 1000))
+                .body(java.util.Map.of("message", "Too many messages"));
+    }
+
+    private User currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return userService.findByEmail(authentication.getName());
+    }
+
+    private ResponseEntity<?> pageResponse(MessagePageResponse page) {
+        if (page == null) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("message", "Invalid cursor"));
+        }
+        return ResponseEntity.ok(page);
+    }
+}
@@ -3,8 +3,13 @@ package com.openclassrooms.chatop.controllers;
 import com.openclassrooms.chatop.dtos.*;
 import com.openclassrooms.chatop.entities.Rental;
 import com.openclassrooms.chatop.entities.User;
+import com.openclassrooms.chatop.services.IdempotencyService;
+import com.openclassrooms.chatop.services.ReadConsistencyService;
+import com.openclassrooms.chatop.services.RentalChangeService;
 import com.openclassrooms.chatop.services.RentalService;
 import com.openclassrooms.chatop.services.UserService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -24,35 +29,64 @@ import java.util.List;
 public class RentalController {
     private final RentalService rentalService;
     private final UserService userService;
+    private final IdempotencyService idempotencyService;
+    private final ReadConsistencyService readConsistencyService;
+    private final RentalChangeService rentalChangeService;
+    private final DistributionSummary pictureBytes;
 
     /**
      * Constructeur du contrôleur RentalController.
      * @param rentalService le service de gestion des locations
+     * @param idempotencyService le service de traitement idempotent des créations
+     * @param readConsistencyService le service émettant le jeton de fraîcheur des écritures
+     * @param rentalChangeService le service de synchronisation incrémentale des locations
+     * @param meterRegistry le registre des métriques, qui compte les octets d'image servis
      */
-    public RentalController(RentalService rentalService, UserService userService) {
+    public RentalController(RentalService rentalService, UserService userService, IdempotencyService idempotencyService,
+                            ReadConsistencyService readConsistencyService, RentalChangeService rentalChangeService,
+                            MeterRegistry meterRegistry) {
         this.userService = userService;
         this.rentalService = rentalService;
+        this.idempotencyService = idempotencyService;
+        this.readConsistencyService = readConsistencyService;
+        this.rentalChangeService = rentalChangeService;
+        this.pictureBytes = DistributionSummary.builder("rentals.picture.bytes")
+                .description("Size of the rental pictures served")
+                .baseUnit("bytes")
+                .register(meterRegistry);
     }
 
     /**
      * Endpoint POST pour créer une nouvelle location.
      *
+     * <p>Avec un en-tête {@code Idempotency-Key}, un réessai du client retourne la réponse
+     * d'origine sans recréer la location ni réenregistrer l'image. La réponse porte le jeton
+     * de fraîcheur {@code Consistency-Token} de l'écriture.</p>
+     *
      * @param dto DTO contenant les informations et le fichier image
+     * @param idempotencyKey clé d'idempotence optionnelle fournie par le client pour ses réessais
      * @return Réponse HTTP avec message de succès et l'ID créé
      * @throws Exception en cas d'erreur lors de la création
      */
     @PostMapping(consumes = "multipart/form-data", produces = "application/json")
-    public ResponseEntity<?> create(@ModelAttribute @Valid CreateRentalDto dto) throws Exception {
+    public ResponseEntity<?> create(
+            @ModelAttribute @Valid CreateRentalDto dto,
+            @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey) throws Exception {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String email = authentication.getName();
         User user = userService.findByEmail(email);
         if (user == null) {
             return ResponseEntity.status(401).build();
         }
-        Rental saved = rentalService.createRental(dto, user.getId());
-        return ResponseEntity
-                .created(java.net.URI.create("/api/rentals/" + saved.getId()))
-                .body(java.util.Map.of("message", "Rental created !", "id", saved.getId()));
+        String fingerprint = IdempotencyService.fingerprint(dto.getName(), dto.getSurface(), dto.getPrice(),
+                dto.getDescription(), dto.getPicture().getOriginalFilename(), dto.getPicture().getSize());
+        ResponseEntity<?> response = idempotencyService.execute(idempotencyKey, user.getId(), "rental", fingerprint, () -> {
+            Rental saved = rentalService.createRental(dto, user.getId());
+            return ResponseEntity
+                    .created(java.net.URI.create("/api/rentals/" + saved.getId()))
+                    .body(java.util.Map.of("message", "Rental created !", "id", saved.getId()));
+        });
+        return readConsistencyService.withToken(response);
     }
 
     /**
@@ -82,6 +116,8 @@ public class RentalController {
 
     /**
      * Endpoint GET pour récupérer l'image d'une location.
+     *
+     * <p>La taille de chaque image servie alimente {@code rentals.picture.bytes}.</p>
      */
     @GetMapping("/{id}/picture")
     public ResponseEntity<byte[]> getRentalPicture(@PathVariable Long id) {
@@ -89,13 +125,15 @@ public class RentalController {
         if (rental == null) {
             return ResponseEntity.notFound().build();
         }
-        if (rental.getPicture() == null) {
+        byte[] picture = rentalService.findPicture(id);
+        if (picture == null) {
             return ResponseEntity.status(404).body(null);
         }
+        pictureBytes.record(picture.length);
         return ResponseEntity.ok()
                 .header("Content-Type", rental.getPictureContentType())
                 .header("Content-Disposition", "inline; filename=\"" + rental.getPictureFilename() + "\"")
-                .body(rental.getPicture());
+                .body(picture);
     }
 
     /**
@@ -108,6 +146,30 @@ public class RentalController {
         return ResponseEntity.ok(new RentalListResponse(rentals));
     }
 
+    /**
+     * Endpoint GET de synchronisation incrémentale des locations.
+     *
+     * <p>Retourne les locations créées ou modifiées et les identifiants des locations supprimées
+     * depuis le curseur {@code since}, puis le curseur à repasser au prochain appel. Tant que
+     * {@code has_more} vaut true, le client rappelle aussitôt avec {@code next_cursor}.</p>
+     *
+     * @param since curseur de la synchronisation précédente, absent pour la première
+     * @param size nombre maximal de modifications (100 par défaut, 500 au maximum)
+     * @return ResponseEntity contenant les modifications,
+     *         400 si le curseur est invalide
+     */
+    @GetMapping(path = "/changes", produces = "application/json")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "" + RentalChangeService.DEFAULT_PAGE_SIZE) int size) {
+        RentalChangesResponse changes = rentalChangeService.findChanges(since, size);
+        if (changes == null) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("message", "Invalid cursor"));
+        }
+        return ResponseEntity.ok(changes);
+    }
+
     /**
      * Endpoint PUT pour mettre à jour une location existante.
      */
@@ -127,7 +189,7 @@ public class RentalController {
         if (updated == null) {
             return ResponseEntity.status(401).build();
         }
-        return ResponseEntity.ok(java.util.Map.of("message", "Rental updated !"));
+        return readConsistencyService.withToken(ResponseEntity.ok(java.util.Map.of("message", "Rental updated !")));
     }
 
     /**
@@ -0,0 +1,55 @@
+package com.openclassrooms.chatop.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * DTO représentant un fil de conversation avec son compteur de messages non lus.
+ *
+ * @author OpenClassrooms
+ * @version 1.0
+ * @since 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationDto {
+
+    /**
+     * Identifiant unique de la conversation.
+     */
+    private Long id;
+
+    /**
+     * Identifiant de la location concernée.
+     */
+    private Long rental_id;
+
+    /**
+     * Identifiant de l'utilisateur qui écrit au propriétaire.
+     */
+    private Long sender_id;
+
+    /**
+     * Identifiant du propriétaire de la location.
+     */
+    private Long owner_id;
+
+    /**
+     * Identifiant du dernier message, null s'il est encore en cours d'écriture.
+     */
+    private Long last_message_id;
+
+    /**
+     * Date d'envoi du dernier message.
+     */
+    private Instant last_message_at;
+
+    /**
+     * Nombre de messages non lus par le propriétaire.
+     */
+    private long unread_count;
+}
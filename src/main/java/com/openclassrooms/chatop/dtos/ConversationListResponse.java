@@ -0,0 +1,52 @@
+package com.openclassrooms.chatop.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO de réponse pour une page des conversations d'un utilisateur.
+ *
+ * <p>La page suivante s'obtient en repassant {@code next_cursor} dans le paramètre
+ * {@code cursor}.</p>
+ *
+ * <p>Structure de la réponse :</p>
+ * <pre>
+ * {
+ *   "conversations": [
+ *     {
+ *       "id": 4,
+ *       "rental_id": 3,
+ *       "sender_id": 7,
+ *       "owner_id": 15,
+ *       "last_message_id": 42,
+ *       "last_message_at": "2024-05-01T10:15:30.123456Z",
+ *       "unread_count": 2
+ *     }
+ *   ],
+ *   "next_cursor": "MjAyNC0wNS0wMVQxMDoxNTozMC4xMjM0NTZaOjQ"
+ * }
+ * </pre>
+ *
+ * @author OpenClassrooms
+ * @version 1.0
+ * @since 1.0
+ * @see ConversationDto
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationListResponse {
+
+    /**
+     * Conversations, de la plus récemment active à la plus ancienne.
+     */
+    private List<ConversationDto> conversations;
+
+    /**
+     * Curseur opaque de la page suivante, null s'il n'y a plus de conversation.
+     */
+    private String next_cursor;
+}
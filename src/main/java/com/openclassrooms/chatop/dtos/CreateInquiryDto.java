@@ -0,0 +1,41 @@
+package com.openclassrooms.chatop.dtos;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * DTO pour l'envoi d'un même message aux propriétaires de plusieurs locations.
+ *
+ * <p>Structure de la requête :</p>
+ * <pre>
+ * {
+ *   "message": "Bonjour, le logement est-il disponible en août ?",
+ *   "rental_ids": [3, 8, 12]
+ * }
+ * </pre>
+ *
+ * @author OpenClassrooms
+ * @version 1.0
+ * @since 1.0
+ */
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor
+public class CreateInquiryDto {
+
+    /** Nombre maximal de locations par demande. */
+    public static final int MAX_RENTALS = 20;
+
+    /**
+     * Contenu textuel du message à envoyer.
+     */
+    @NotBlank
+    private String message;
+
+    /**
+     * Identifiants des locations concernées ; les doublons sont ignorés.
+     */
+    @NotEmpty
+    @Size(max = MAX_RENTALS)
+    private List<@NotNull Long> rental_ids;
+}
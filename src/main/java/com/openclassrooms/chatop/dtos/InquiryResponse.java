@@ -0,0 +1,36 @@
+package com.openclassrooms.chatop.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO de réponse d'une demande adressée à plusieurs locations.
+ *
+ * <p>Structure de la réponse :</p>
+ * <pre>
+ * {
+ *   "results": [
+ *     { "rental_id": 3, "status": "sent", "message_id": 42 },
+ *     { "rental_id": 99, "status": "rental_not_found", "message_id": null }
+ *   ]
+ * }
+ * </pre>
+ *
+ * @author OpenClassrooms
+ * @version 1.0
+ * @since 1.0
+ * @see InquiryResultDto
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InquiryResponse {
+
+    /**
+     * Résultat par location, dans l'ordre de la demande.
+     */
+    private List<InquiryResultDto> results;
+}
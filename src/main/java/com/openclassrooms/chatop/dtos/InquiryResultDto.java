@@ -0,0 +1,38 @@
+package com.openclassrooms.chatop.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO représentant le résultat d'une demande pour une location.
+ *
+ * @author OpenClassrooms
+ * @version 1.0
+ * @since 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InquiryResultDto {
+
+    /** Statut d'un message envoyé. */
+    public static final String SENT = "sent";
+    /** Statut d'une location inexistante. */
+    public static final String RENTAL_NOT_FOUND = "rental_not_found";
+
+    /**
+     * Identifiant de la location.
+     */
+    private Long rental_id;
+
+    /**
+     * Résultat : {@value #SENT} ou {@value #RENTAL_NOT_FOUND}.
+     */
+    private String status;
+
+    /**
+     * Identifiant du message créé, null si aucun message n'a été envoyé.
+     */
+    private Long message_id;
+}
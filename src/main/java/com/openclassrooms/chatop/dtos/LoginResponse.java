@@ -15,6 +15,7 @@ import lombok.NoArgsConstructor;
  * <ul>
  *   <li>Token JWT : utilisé dans l'header Authorization des requêtes suivantes</li>
  *   <li>Durée d'expiration : temps en millisecondes avant expiration du token</li>
+ *   <li>Refresh token : permet d'obtenir une nouvelle paire de tokens via /api/auth/refresh</li>
  * </ul>
  * 
  * <p>Usage : le client doit inclure le token dans l'header Authorization
@@ -37,7 +38,13 @@ public class LoginResponse {
     
     /**
      * Durée de validité du token en millisecondes.
-     * Après cette durée, le token expire et l'utilisateur doit se reconnecter.
+     * Après cette durée, le token expire et doit être renouvelé avec le refresh token.
      */
     private long expiresIn;
+
+    /**
+     * Refresh token à usage unique, à échanger contre une nouvelle paire de tokens
+     * sur /api/auth/refresh avant l'expiration du token principal.
+     */
+    private String refreshToken;
 }
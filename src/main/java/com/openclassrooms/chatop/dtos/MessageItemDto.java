@@ -0,0 +1,53 @@
+package com.openclassrooms.chatop.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * DTO représentant un message dans une boîte de réception ou d'envoi.
+ *
+ * <p>Ce DTO est construit directement par la requête JPQL de pagination :
+ * seules les colonnes affichées sont lues.</p>
+ *
+ * @author OpenClassrooms
+ * @version 1.0
+ * @since 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageItemDto {
+
+    /**
+     * Identifiant unique du message.
+     */
+    private Long id;
+
+    /**
+     * Contenu du message.
+     */
+    private String message;
+
+    /**
+     * Identifiant de l'expéditeur.
+     */
+    private Long sender_id;
+
+    /**
+     * Identifiant du destinataire.
+     */
+    private Long recipient_id;
+
+    /**
+     * Identifiant de la location concernée.
+     */
+    private Long rental_id;
+
+    /**
+     * Date et heure d'envoi du message.
+     */
+    private Instant sent_at;
+}
@@ -0,0 +1,53 @@
+package com.openclassrooms.chatop.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO de réponse pour une page de messages.
+ *
+ * <p>Ce DTO est retourné par les endpoints GET /api/messages/inbox et
+ * GET /api/messages/outbox. Les messages sont triés du plus récent au plus ancien ;
+ * la page suivante s'obtient en repassant {@code next_cursor} dans le paramètre
+ * {@code cursor}.</p>
+ *
+ * <p>Structure de la réponse :</p>
+ * <pre>
+ * {
+ *   "messages": [
+ *     {
+ *       "id": 42,
+ *       "message": "Is this rental still available?",
+ *       "sender_id": 7,
+ *       "recipient_id": 15,
+ *       "rental_id": 3,
+ *       "sent_at": "2024-05-01T10:15:30.123456Z"
+ *     }
+ *   ],
+ *   "next_cursor": "MjAyNC0wNS0wMVQxMDoxNTozMC4xMjM0NTZaOjQy"
+ * }
+ * </pre>
+ *
+ * @author OpenClassrooms
+ * @version 1.0
+ * @since 1.0
+ * @see MessageItemDto
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessagePageResponse {
+
+    /**
+     * Messages de la page, du plus récent au plus ancien.
+     */
+    private List<MessageItemDto> messages;
+
+    /**
+     * Curseur opaque de la page suivante, null s'il n'y a plus de message.
+     */
+    private String next_cursor;
+}
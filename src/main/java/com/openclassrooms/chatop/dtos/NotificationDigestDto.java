@@ -0,0 +1,66 @@
+package com.openclassrooms.chatop.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO représentant le récapitulatif des nouveaux messages reçus par un propriétaire.
+ *
+ * <p>Structure du récapitulatif :</p>
+ * <pre>
+ * {
+ *   "recipient_id": 15,
+ *   "message_count": 12,
+ *   "rental_ids": [3, 8],
+ *   "previews": [ { "id": 42, "message": "...", "sender_id": 7, ... } ],
+ *   "first_message_at": "2024-05-01T10:15:30Z",
+ *   "last_message_at": "2024-05-01T10:29:02Z"
+ * }
+ * </pre>
+ *
+ * <p>Les listes sont bornées : {@code message_count} reste exact au-delà.</p>
+ *
+ * @author OpenClassrooms
+ * @version 1.0
+ * @since 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationDigestDto {
+
+    /**
+     * Identifiant du propriétaire destinataire.
+     */
+    private Long recipient_id;
+
+    /**
+     * Nombre de nouveaux messages depuis le précédent récapitulatif.
+     */
+    private long message_count;
+
+    /**
+     * Locations concernées, dans l'ordre d'arrivée des messages.
+     */
+    private List<Long> rental_ids = new ArrayList<>();
+
+    /**
+     * Premiers messages reçus, pour aperçu.
+     */
+    private List<MessageItemDto> previews = new ArrayList<>();
+
+    /**
+     * Date d'envoi du premier message du récapitulatif.
+     */
+    private Instant first_message_at;
+
+    /**
+     * Date d'envoi du dernier message du récapitulatif.
+     */
+    private Instant last_message_at;
+}
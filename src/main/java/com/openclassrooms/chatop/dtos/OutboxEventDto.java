@@ -0,0 +1,73 @@
+package com.openclassrooms.chatop.dtos;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * DTO représentant un événement du flux de modifications, tel que publié aux intégrations.
+ *
+ * <p>Structure d'un événement :</p>
+ * <pre>
+ * {
+ *   "event_id": "0f8b6c3e-5d1a-4c49-9a57-1f0e2d7b8a41",
+ *   "sequence": 1042,
+ *   "aggregate_type": "rental",
+ *   "aggregate_id": 3,
+ *   "event_type": "rental.updated",
+ *   "occurred_at": "2024-05-01T10:15:30.123456Z",
+ *   "payload": { "id": 3, "name": "Loft", ... }
+ * }
+ * </pre>
+ *
+ * <p>La livraison est « au moins une fois » : un même événement peut être reçu plusieurs
+ * fois, toujours avec le même {@code event_id}.</p>
+ *
+ * @author OpenClassrooms
+ * @version 1.0
+ * @since 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEventDto {
+
+    /**
+     * Identifiant unique de l'événement, à utiliser pour écarter les doublons.
+     */
+    private String event_id;
+
+    /**
+     * Numéro d'ordre de l'événement, croissant dans l'ordre de publication.
+     */
+    private Long sequence;
+
+    /**
+     * Type de l'objet modifié : rental ou message.
+     */
+    private String aggregate_type;
+
+    /**
+     * Identifiant de l'objet modifié.
+     */
+    private Long aggregate_id;
+
+    /**
+     * Nature de la modification, par exemple rental.created.
+     */
+    private String event_type;
+
+    /**
+     * Date et heure de la modification.
+     */
+    private Instant occurred_at;
+
+    /**
+     * État de l'objet après la modification, au format JSON.
+     */
+    @JsonRawValue
+    private String payload;
+}
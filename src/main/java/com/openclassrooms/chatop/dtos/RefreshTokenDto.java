@@ -0,0 +1,28 @@
+package com.openclassrooms.chatop.dtos;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO contenant un refresh token.
+ *
+ * <p>Utilisé pour renouveler les tokens via /api/auth/refresh, et optionnellement
+ * lors de la déconnexion pour révoquer aussi le refresh token.</p>
+ *
+ * @author OpenClassrooms
+ * @version 1.0
+ * @since 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshTokenDto {
+
+    /**
+     * Refresh token obtenu lors de la connexion ou du dernier renouvellement.
+     */
+    @NotBlank
+    private String refreshToken;
+}
@@ -0,0 +1,55 @@
+package com.openclassrooms.chatop.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO de réponse de la synchronisation incrémentale des locations.
+ *
+ * <p>Structure de la réponse de {@code GET /api/rentals/changes} :</p>
+ * <pre>
+ * {
+ *   "rentals": [ { "id": 1, "name": "Villa by the sea", ..., "updated_at": "2023/12/01" } ],
+ *   "deleted": [ 7 ],
+ *   "next_cursor": "MjAyMy0xMi0wMVQxMDoxNTozMFo6MQ",
+ *   "has_more": false
+ * }
+ * </pre>
+ *
+ * <p>Le client remplace ou ajoute les locations reçues, retire les locations supprimées, puis
+ * conserve {@code next_cursor} pour sa prochaine synchronisation. Une location peut être reçue
+ * à nouveau lors de la synchronisation suivante.</p>
+ *
+ * @author OpenClassrooms
+ * @version 1.0
+ * @since 1.0
+ * @see RentalListItemDto
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RentalChangesResponse {
+
+    /**
+     * Locations créées ou modifiées depuis le curseur, de la plus ancienne à la plus récente modification.
+     */
+    private List<RentalListItemDto> rentals;
+
+    /**
+     * Identifiants des locations supprimées depuis le curseur.
+     */
+    private List<Long> deleted;
+
+    /**
+     * Curseur opaque à repasser au prochain appel.
+     */
+    private String next_cursor;
+
+    /**
+     * true si d'autres modifications attendent : le client rappelle aussitôt avec {@code next_cursor}.
+     */
+    private boolean has_more;
+}
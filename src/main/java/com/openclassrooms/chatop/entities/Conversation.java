@@ -0,0 +1,55 @@
+package com.openclassrooms.chatop.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Entité représentant un fil de conversation entre un utilisateur et le propriétaire d'une location.
+ *
+ * <p>Une conversation regroupe les messages d'un même expéditeur au propriétaire d'une même
+ * location. Elle porte un pointeur vers le dernier message et le nombre de messages non lus
+ * par le propriétaire, tenus à jour à chaque envoi : lister les fils d'un utilisateur avec
+ * leurs compteurs ne lit jamais la table {@code messages}.</p>
+ */
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(name = "conversations",
+        uniqueConstraints = @UniqueConstraint(name = "uk_conversations_thread",
+                columnNames = {"rental_id", "sender_id", "owner_id"}),
+        indexes = {
+                @Index(name = "idx_conversations_owner_last", columnList = "owner_id, last_message_at desc"),
+                @Index(name = "idx_conversations_sender_last", columnList = "sender_id, last_message_at desc")
+        })
+public class Conversation {
+
+    /** Identifiant unique de la conversation. */
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Identifiant de la location concernée. */
+    @Column(nullable = false)
+    private Long rentalId;
+
+    /** Identifiant de l'utilisateur qui écrit au propriétaire. */
+    @Column(nullable = false)
+    private Long senderId;
+
+    /** Identifiant du propriétaire de la location, destinataire des messages. */
+    @Column(nullable = false)
+    private Long ownerId;
+
+    /**
+     * Identifiant du dernier message, null si celui-ci est encore en attente d'écriture différée.
+     */
+    private Long lastMessageId;
+
+    /** Date d'envoi du dernier message. */
+    @Column(nullable = false)
+    private Instant lastMessageAt;
+
+    /** Nombre de messages non lus par le propriétaire. */
+    @Column(nullable = false)
+    private long unreadCount;
+}
@@ -0,0 +1,41 @@
+package com.openclassrooms.chatop.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Entité représentant une clé d'idempotence et la réponse à rejouer.
+ *
+ * <p>Utilisée uniquement avec {@code idempotency.store=database}, pour que les
+ * rejeux soient reconnus quelle que soit l'instance qui les reçoit.</p>
+ */
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_expires", columnList = "expires_at"))
+public class IdempotencyKey {
+
+    /** Clé complète : opération, utilisateur et clé fournie par le client. */
+    @Id
+    @Column(length = 320)
+    private String scope;
+
+    /** Empreinte SHA-256 du contenu de la requête. */
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    /** Statut HTTP de la réponse, null tant que la requête est en cours. */
+    private Integer status;
+
+    /** En-tête Location de la réponse. */
+    private String location;
+
+    /** Corps JSON de la réponse. */
+    @Column(columnDefinition = "TEXT")
+    private String body;
+
+    /** Date d'expiration ; l'entrée peut être purgée au-delà. */
+    @Column(nullable = false)
+    private Instant expiresAt;
+}
@@ -20,12 +20,23 @@ import java.time.Instant;
  *   <li>Horodatage automatique de l'envoi</li>
  * </ul>
  * 
+ * <p>Les index composites suivent l'ordre de pagination des boîtes de réception et
+ * d'envoi (utilisateur, [location,] date d'envoi, identifiant) : une page est lue par un
+ * simple parcours d'index, quelle que soit sa profondeur.</p>
+ * 
  * @author OpenClassrooms
  * @version 1.0
  * @since 1.0
  */
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor
-@Entity @Table(name = "messages")
+@Entity
+@Table(name = "messages", indexes = {
+        @Index(name = "idx_messages_recipient_sent", columnList = "recipient_id, sent_at desc, id desc"),
+        @Index(name = "idx_messages_recipient_rental_sent", columnList = "recipient_id, rental_id, sent_at desc, id desc"),
+        @Index(name = "idx_messages_sender_sent", columnList = "sender_id, sent_at desc, id desc"),
+        @Index(name = "idx_messages_sender_rental_sent", columnList = "sender_id, rental_id, sent_at desc, id desc"),
+        @Index(name = "idx_messages_rental", columnList = "rental_id")
+})
 public class Message {
     
     /**
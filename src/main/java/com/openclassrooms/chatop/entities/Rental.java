@@ -4,16 +4,30 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 
 /**
  * Entité représentant une location (rental).
+ *
+ * <p>Mise en cache de second niveau sans son image : l'image, chargée à la demande, est lue par
+ * {@link com.openclassrooms.chatop.repositories.RentalRepository#findPictureById(Long)}.</p>
  */
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor
-@Entity @Table(name = "rentals")
+@Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Rental.CACHE_REGION, includeLazy = false)
+@Table(name = "rentals", indexes = {
+        @Index(name = "idx_rentals_owner", columnList = "owner_id"),
+        @Index(name = "idx_rentals_created", columnList = "created_at"),
+        @Index(name = "idx_rentals_updated", columnList = "updated_at, id")
+})
 public class Rental {
+    /** Région du cache de second niveau. */
+    public static final String CACHE_REGION = "rentals";
+
     /** Identifiant unique de la location. */
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -31,7 +45,7 @@ public class Rental {
     @Column(columnDefinition = "TEXT")
     private String description;
 
-    /** Image de la location (stockée en BDD). */
+    /** Image de la location (stockée en BDD), chargée à la demande et jamais mise en cache. */
     @Lob @Basic(fetch = FetchType.LAZY)
     @JsonIgnore
     @Column(columnDefinition = "LONGBLOB")
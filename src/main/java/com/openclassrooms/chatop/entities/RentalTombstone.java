@@ -0,0 +1,27 @@
+package com.openclassrooms.chatop.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Entité représentant une location supprimée.
+ *
+ * <p>Lue par la synchronisation incrémentale ({@code GET /api/rentals/changes}) pour que les
+ * clients retirent la location de leur copie locale.</p>
+ */
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(name = "rental_tombstones",
+        indexes = @Index(name = "idx_rental_tombstones_deleted", columnList = "deleted_at, rental_id"))
+public class RentalTombstone {
+
+    /** Identifiant de la location supprimée. */
+    @Id
+    private Long rentalId;
+
+    /** Date de suppression de la location. */
+    @Column(nullable = false)
+    private Instant deletedAt;
+}
@@ -0,0 +1,27 @@
+package com.openclassrooms.chatop.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Entité représentant un token JWT révoqué (déconnexion ou refresh token consommé).
+ *
+ * <p>La table n'est lue qu'au démarrage pour reconstruire l'index de révocation
+ * en mémoire : les vérifications faites à chaque requête ne la consultent jamais.</p>
+ */
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(name = "revoked_tokens", indexes = @Index(name = "idx_revoked_tokens_expires", columnList = "expires_at"))
+public class RevokedToken {
+
+    /** Identifiant unique du token (claim jti). */
+    @Id
+    @Column(length = 36)
+    private String jti;
+
+    /** Date d'expiration du token ; l'entrée peut être purgée au-delà. */
+    @Column(nullable = false)
+    private Instant expiresAt;
+}
@@ -5,7 +5,11 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -37,9 +41,15 @@ import java.util.List;
 @Setter
 @Entity
 @Table(name = "users")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@NaturalIdCache(region = User.EMAIL_CACHE_REGION)
 @NoArgsConstructor
 @AllArgsConstructor
 public class User implements UserDetails {
+    /** Région du cache de second niveau des utilisateurs. */
+    public static final String CACHE_REGION = "users";
+    /** Région du cache de second niveau associant un email à l'identifiant de l'utilisateur. */
+    public static final String EMAIL_CACHE_REGION = "users-by-email";
 
     /**
      * Identifiant unique de l'utilisateur.
@@ -57,8 +67,9 @@ public class User implements UserDetails {
 
     /**
      * Adresse email de l'utilisateur, utilisée comme nom d'utilisateur.
-     * Doit être unique dans le système.
+     * Doit être unique dans le système ; identifiant naturel, immuable.
      */
+    @NaturalId
     @Column(unique = true, length = 100, nullable = false)
     private String email;
 
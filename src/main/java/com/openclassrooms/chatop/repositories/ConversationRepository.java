@@ -0,0 +1,94 @@
+package com.openclassrooms.chatop.repositories;
+
+import com.openclassrooms.chatop.entities.Conversation;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository JPA pour l'entité Conversation.
+ *
+ * <p>Les compteurs sont modifiés par des UPDATE relatifs, jamais par lecture puis écriture :
+ * un ajout de messages non lus et un marquage comme lu concurrents ne s'écrasent pas.</p>
+ *
+ * <p>Les listes de conversations sont paginées par clé, comme les boîtes de messages : chaque
+ * page reprend strictement après le couple (lastMessageAt, id) de la page précédente, le long
+ * des index {@code idx_conversations_owner_last} et {@code idx_conversations_sender_last}.</p>
+ */
+@Repository
+public interface ConversationRepository extends JpaRepository<Conversation, Long> {
+
+    /**
+     * Page des fils reçus par un propriétaire, après la position donnée.
+     *
+     * @param ownerId identifiant du propriétaire
+     * @param lastMessageAt date du dernier message de la dernière conversation déjà lue
+     * @param id identifiant de la dernière conversation déjà lue
+     * @param limit taille de la page
+     * @return les conversations suivantes, de la plus récemment active à la plus ancienne
+     */
+    @Query("select c from Conversation c where c.ownerId = :ownerId "
+            + "and (c.lastMessageAt, c.id) < (:lastMessageAt, :id) "
+            + "order by c.ownerId, c.lastMessageAt desc, c.id desc")
+    List<Conversation> findOwnerPage(@Param("ownerId") Long ownerId, @Param("lastMessageAt") Instant lastMessageAt,
+                                     @Param("id") Long id, Limit limit);
+
+    /**
+     * Page des fils ouverts par un utilisateur, après la position donnée.
+     *
+     * @param senderId identifiant de l'expéditeur
+     * @param lastMessageAt date du dernier message de la dernière conversation déjà lue
+     * @param id identifiant de la dernière conversation déjà lue
+     * @param limit taille de la page
+     * @return les conversations suivantes, de la plus récemment active à la plus ancienne
+     */
+    @Query("select c from Conversation c where c.senderId = :senderId "
+            + "and (c.lastMessageAt, c.id) < (:lastMessageAt, :id) "
+            + "order by c.senderId, c.lastMessageAt desc, c.id desc")
+    List<Conversation> findSenderPage(@Param("senderId") Long senderId, @Param("lastMessageAt") Instant lastMessageAt,
+                                      @Param("id") Long id, Limit limit);
+
+    /**
+     * Ajoute des messages non lus à une conversation et avance son pointeur de dernier message.
+     *
+     * <p>Un identifiant null (message dont l'écriture différée n'est pas encore validée) n'efface
+     * pas l'identifiant connu : seule la date avance.</p>
+     *
+     * @param rentalId identifiant de la location
+     * @param senderId identifiant de l'expéditeur
+     * @param ownerId identifiant du propriétaire
+     * @param unread nombre de nouveaux messages
+     * @param lastMessageId identifiant du dernier message, ou null
+     * @param lastMessageAt date d'envoi du dernier message
+     * @return 1 si la conversation existe, 0 sinon
+     */
+    @Modifying
+    @Transactional
+    @Query("update Conversation c set c.unreadCount = c.unreadCount + :unread, "
+            + "c.lastMessageId = case when c.lastMessageAt <= :lastMessageAt "
+            + "then coalesce(:lastMessageId, c.lastMessageId) else c.lastMessageId end, "
+            + "c.lastMessageAt = case when c.lastMessageAt <= :lastMessageAt then :lastMessageAt else c.lastMessageAt end "
+            + "where c.rentalId = :rentalId and c.senderId = :senderId and c.ownerId = :ownerId")
+    int addMessages(@Param("rentalId") Long rentalId, @Param("senderId") Long senderId, @Param("ownerId") Long ownerId,
+                    @Param("unread") long unread, @Param("lastMessageId") Long lastMessageId,
+                    @Param("lastMessageAt") Instant lastMessageAt);
+
+    /**
+     * Remet à zéro le compteur de messages non lus d'une conversation de son propriétaire.
+     *
+     * @param id identifiant de la conversation
+     * @param ownerId identifiant du propriétaire
+     * @return 1 si la conversation appartient au propriétaire, 0 sinon
+     */
+    @Modifying
+    @Transactional
+    @Query("update Conversation c set c.unreadCount = 0 where c.id = :id and c.ownerId = :ownerId")
+    int markRead(@Param("id") Long id, @Param("ownerId") Long ownerId);
+}
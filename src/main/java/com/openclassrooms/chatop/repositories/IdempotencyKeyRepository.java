@@ -0,0 +1,88 @@
+package com.openclassrooms.chatop.repositories;
+
+import com.openclassrooms.chatop.entities.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+/**
+ * Repository JPA pour l'entité IdempotencyKey.
+ *
+ * <p>La réservation est un INSERT pur : la clé primaire garantit qu'une seule instance
+ * réserve une clé donnée, sans lecture préalable.</p>
+ */
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * Réserve une clé.
+     *
+     * @param scope clé complète
+     * @param fingerprint empreinte du contenu de la requête
+     * @param expiresAt date d'expiration
+     * @return 1 si la clé a été insérée
+     * @throws org.springframework.dao.DataIntegrityViolationException si la clé existe déjà
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "insert into idempotency_keys (scope, fingerprint, expires_at) values (:scope, :fingerprint, :expiresAt)",
+            nativeQuery = true)
+    int insert(@Param("scope") String scope, @Param("fingerprint") String fingerprint, @Param("expiresAt") Instant expiresAt);
+
+    /**
+     * Enregistre la réponse d'une requête aboutie, si la réservation est toujours en cours.
+     *
+     * @param scope clé complète
+     * @param status statut HTTP
+     * @param location en-tête Location, ou null
+     * @param body corps JSON, ou null
+     * @param expiresAt date jusqu'à laquelle la réponse est conservée
+     * @return 1 si la réservation existe
+     */
+    @Modifying
+    @Transactional
+    @Query("update IdempotencyKey k set k.status = :status, k.location = :location, k.body = :body, k.expiresAt = :expiresAt "
+            + "where k.scope = :scope and k.status is null")
+    int complete(@Param("scope") String scope, @Param("status") int status,
+                 @Param("location") String location, @Param("body") String body,
+                 @Param("expiresAt") Instant expiresAt);
+
+    /**
+     * Supprime une réservation dont la requête n'a pas abouti.
+     *
+     * @param scope clé complète
+     * @return 1 si la réservation existait
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyKey k where k.scope = :scope and k.status is null")
+    int release(@Param("scope") String scope);
+
+    /**
+     * Supprime une clé si elle a expiré.
+     *
+     * @param scope clé complète
+     * @param now date courante
+     * @return 1 si la clé a été supprimée
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyKey k where k.scope = :scope and k.expiresAt < :now")
+    int deleteIfExpired(@Param("scope") String scope, @Param("now") Instant now);
+
+    /**
+     * Supprime les clés expirées.
+     *
+     * @param now date courante
+     * @return le nombre de clés supprimées
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyKey k where k.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,24 @@
+package com.openclassrooms.chatop.repositories;
+
+import com.openclassrooms.chatop.entities.Message;
+
+import java.util.List;
+
+/**
+ * Insertion groupée de messages, ajoutée à {@link MessageRepository}.
+ *
+ * <p>Avec des identifiants générés par la base (IDENTITY), Hibernate insère les entités une
+ * par une : cette opération passe donc par un batch JDBC, réécrit en un INSERT multi-lignes
+ * par le driver MySQL.</p>
+ */
+public interface MessageBatchRepository {
+
+    /**
+     * Insère des messages en un seul batch et une seule transaction.
+     *
+     * <p>La date d'envoi et l'identifiant généré sont renseignés sur chaque message.</p>
+     *
+     * @param messages les messages à insérer
+     */
+    void insertAll(List<Message> messages);
+}
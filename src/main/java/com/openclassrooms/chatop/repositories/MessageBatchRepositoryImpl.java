@@ -0,0 +1,61 @@
+package com.openclassrooms.chatop.repositories;
+
+import com.openclassrooms.chatop.entities.Message;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implémentation JDBC de {@link MessageBatchRepository}.
+ */
+class MessageBatchRepositoryImpl implements MessageBatchRepository {
+    private static final String INSERT_SQL =
+            "INSERT INTO messages (content, sender_id, recipient_id, rental_id, sent_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    MessageBatchRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        messages.forEach(message -> message.setSentAt(now));
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Message message = messages.get(i);
+                        ps.setString(1, message.getContent());
+                        ps.setLong(2, message.getSenderId());
+                        ps.setLong(3, message.getRecipientId());
+                        ps.setLong(4, message.getRentalId());
+                        ps.setTimestamp(5, Timestamp.from(message.getSentAt()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return messages.size();
+                    }
+                }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < messages.size() && i < keys.size(); i++) {
+            messages.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package com.openclassrooms.chatop.repositories;
 
+import com.openclassrooms.chatop.dtos.MessageItemDto;
 import com.openclassrooms.chatop.entities.Message;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
+
 /**
  * Repository JPA pour l'entité Message.
  * 
@@ -19,13 +26,87 @@ import org.springframework.stereotype.Repository;
  *   <li>Listing de tous les messages</li>
  * </ul>
  * 
- * <p>Note : Des méthodes de recherche personnalisées peuvent être ajoutées
- * au besoin (par exemple, findBySenderId, findByRentalId, etc.).</p>
+ * <p>L'insertion groupée de messages est fournie par {@link MessageBatchRepository}.</p>
+ * 
+ * <p>Les boîtes de réception et d'envoi sont paginées par clé (keyset) : chaque page
+ * reprend strictement après le couple (sentAt, id) du dernier message de la page
+ * précédente, dans l'ordre décroissant. Chaque requête correspond à un index composite
+ * de la table {@code messages}, ce qui rend le coût d'une page indépendant de sa
+ * profondeur, contrairement à une pagination par OFFSET. La position est comparée comme
+ * un tuple, ce qui se traduit par une borne de parcours d'index, et les colonnes d'égalité
+ * sont répétées en tête du tri (sans effet sur l'ordre) pour que tous les moteurs, H2
+ * compris, reconnaissent l'ordre de l'index et s'arrêtent après la page.</p>
  * 
  * @author OpenClassrooms
  * @version 1.0
  * @since 1.0
  */
 @Repository
-public interface MessageRepository extends JpaRepository<Message, Long> {
+public interface MessageRepository extends JpaRepository<Message, Long>, MessageBatchRepository {
+
+    /**
+     * Page de la boîte de réception d'un utilisateur, après la position donnée.
+     *
+     * @param recipientId identifiant du destinataire
+     * @param sentAt date d'envoi du dernier message déjà lu
+     * @param id identifiant du dernier message déjà lu
+     * @param limit taille de la page
+     * @return les messages suivants, du plus récent au plus ancien
+     */
+    @Query("select new com.openclassrooms.chatop.dtos.MessageItemDto(m.id, m.content, m.senderId, m.recipientId, m.rentalId, m.sentAt) "
+            + "from Message m where m.recipientId = :recipientId "
+            + "and (m.sentAt, m.id) < (:sentAt, :id) "
+            + "order by m.recipientId, m.sentAt desc, m.id desc")
+    List<MessageItemDto> findInboxPage(@Param("recipientId") Long recipientId, @Param("sentAt") Instant sentAt,
+                                       @Param("id") Long id, Limit limit);
+
+    /**
+     * Page de la boîte de réception d'un utilisateur pour une location, après la position donnée.
+     *
+     * @param recipientId identifiant du destinataire
+     * @param rentalId identifiant de la location
+     * @param sentAt date d'envoi du dernier message déjà lu
+     * @param id identifiant du dernier message déjà lu
+     * @param limit taille de la page
+     * @return les messages suivants, du plus récent au plus ancien
+     */
+    @Query("select new com.openclassrooms.chatop.dtos.MessageItemDto(m.id, m.content, m.senderId, m.recipientId, m.rentalId, m.sentAt) "
+            + "from Message m where m.recipientId = :recipientId and m.rentalId = :rentalId "
+            + "and (m.sentAt, m.id) < (:sentAt, :id) "
+            + "order by m.recipientId, m.rentalId, m.sentAt desc, m.id desc")
+    List<MessageItemDto> findInboxPageByRental(@Param("recipientId") Long recipientId, @Param("rentalId") Long rentalId,
+                                               @Param("sentAt") Instant sentAt, @Param("id") Long id, Limit limit);
+
+    /**
+     * Page de la boîte d'envoi d'un utilisateur, après la position donnée.
+     *
+     * @param senderId identifiant de l'expéditeur
+     * @param sentAt date d'envoi du dernier message déjà lu
+     * @param id identifiant du dernier message déjà lu
+     * @param limit taille de la page
+     * @return les messages suivants, du plus récent au plus ancien
+     */
+    @Query("select new com.openclassrooms.chatop.dtos.MessageItemDto(m.id, m.content, m.senderId, m.recipientId, m.rentalId, m.sentAt) "
+            + "from Message m where m.senderId = :senderId "
+            + "and (m.sentAt, m.id) < (:sentAt, :id) "
+            + "order by m.senderId, m.sentAt desc, m.id desc")
+    List<MessageItemDto> findOutboxPage(@Param("senderId") Long senderId, @Param("sentAt") Instant sentAt,
+                                        @Param("id") Long id, Limit limit);
+
+    /**
+     * Page de la boîte d'envoi d'un utilisateur pour une location, après la position donnée.
+     *
+     * @param senderId identifiant de l'expéditeur
+     * @param rentalId identifiant de la location
+     * @param sentAt date d'envoi du dernier message déjà lu
+     * @param id identifiant du dernier message déjà lu
+     * @param limit taille de la page
+     * @return les messages suivants, du plus récent au plus ancien
+     */
+    @Query("select new com.openclassrooms.chatop.dtos.MessageItemDto(m.id, m.content, m.senderId, m.recipientId, m.rentalId, m.sentAt) "
+            + "from Message m where m.senderId = :senderId and m.rentalId = :rentalId "
+            + "and (m.sentAt, m.id) < (:sentAt, :id) "
+            + "order by m.senderId, m.rentalId, m.sentAt desc, m.id desc")
+    List<MessageItemDto> findOutboxPageByRental(@Param("senderId") Long senderId, @Param("rentalId") Long rentalId,
+                                                @Param("sentAt") Instant sentAt, @Param("id") Long id, Limit limit);
 }
\ No newline at end of file
@@ -1,12 +1,58 @@
 package com.openclassrooms.chatop.repositories;
 
 import com.openclassrooms.chatop.entities.Rental;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 /**
  * Repository JPA pour l'entité Rental.
  */
 @Repository
 public interface RentalRepository extends JpaRepository<Rental, Long> {
-}
\ No newline at end of file
+
+    /**
+     * Lit uniquement l'identifiant du propriétaire d'une location, sans charger l'entité.
+     *
+     * @param id identifiant de la location
+     * @return l'identifiant du propriétaire, vide si la location n'existe pas
+     */
+    @Query("select r.ownerId from Rental r where r.id = :id")
+    Optional<Long> findOwnerIdById(@Param("id") Long id);
+
+    /**
+     * Lit en une requête les identifiants des propriétaires de plusieurs locations.
+     *
+     * @param ids identifiants des locations
+     * @return des couples [identifiant de location, identifiant du propriétaire], pour les locations existantes
+     */
+    @Query("select r.id, r.ownerId from Rental r where r.id in :ids")
+    List<Object[]> findOwnerIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Lit uniquement l'image d'une location, absente du cache de second niveau.
+     *
+     * @param id identifiant de la location
+     * @return l'image, vide si la location n'existe pas ou n'a pas d'image
+     */
+    @Query("select r.picture from Rental r where r.id = :id")
+    Optional<byte[]> findPictureById(@Param("id") Long id);
+
+    /**
+     * Locations créées ou modifiées après la position donnée, de la plus ancienne à la plus récente.
+     *
+     * @param updatedAt date de la dernière modification déjà synchronisée
+     * @param id identifiant de la dernière modification déjà synchronisée
+     * @param limit taille de la page
+     * @return les locations suivantes
+     */
+    @Query("select r from Rental r where (r.updatedAt, r.id) > (:updatedAt, :id) order by r.updatedAt, r.id")
+    List<Rental> findChangesPage(@Param("updatedAt") Instant updatedAt, @Param("id") Long id, Limit limit);
+}
@@ -0,0 +1,31 @@
+package com.openclassrooms.chatop.repositories;
+
+import com.openclassrooms.chatop.entities.RentalTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository JPA pour l'entité RentalTombstone.
+ */
+@Repository
+public interface RentalTombstoneRepository extends JpaRepository<RentalTombstone, Long> {
+
+    /**
+     * Suppressions postérieures à la position donnée, de la plus ancienne à la plus récente.
+     *
+     * @param deletedAt date de la dernière modification déjà synchronisée
+     * @param rentalId identifiant de la dernière modification déjà synchronisée
+     * @param limit taille de la page
+     * @return les suppressions suivantes
+     */
+    @Query("select t from RentalTombstone t where (t.deletedAt, t.rentalId) > (:deletedAt, :rentalId) "
+            + "order by t.deletedAt, t.rentalId")
+    List<RentalTombstone> findChangesPage(@Param("deletedAt") Instant deletedAt, @Param("rentalId") Long rentalId,
+                                          Limit limit);
+}
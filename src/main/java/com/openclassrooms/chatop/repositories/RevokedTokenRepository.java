@@ -0,0 +1,54 @@
+package com.openclassrooms.chatop.repositories;
+
+import com.openclassrooms.chatop.entities.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository JPA pour l'entité RevokedToken.
+ *
+ * <p>La révocation est un INSERT pur : la clé primaire garantit qu'un refresh token n'est
+ * consommé qu'une fois, même par deux instances à la fois.</p>
+ */
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    /**
+     * Révoque un token.
+     *
+     * @param jti l'identifiant du token
+     * @param expiresAt la date d'expiration du token
+     * @return 1 si la révocation a été insérée
+     * @throws org.springframework.dao.DataIntegrityViolationException si le token est déjà révoqué
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "insert into revoked_tokens (jti, expires_at) values (:jti, :expiresAt)", nativeQuery = true)
+    int insert(@Param("jti") String jti, @Param("expiresAt") Instant expiresAt);
+
+    /**
+     * Récupère les révocations encore utiles, c'est-à-dire celles des tokens non expirés.
+     *
+     * @param now l'instant de référence
+     * @return les tokens révoqués expirant après {@code now}
+     */
+    List<RevokedToken> findByExpiresAtAfter(Instant now);
+
+    /**
+     * Supprime les révocations des tokens déjà expirés.
+     *
+     * @param now l'instant de référence
+     * @return le nombre de lignes supprimées
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from RevokedToken t where t.expiresAt < :now")
+    int deleteExpired(Instant now);
+}
@@ -0,0 +1,26 @@
+package com.openclassrooms.chatop.repositories;
+
+import com.openclassrooms.chatop.entities.User;
+
+import java.util.Optional;
+
+/**
+ * Recherche d'un utilisateur par son identifiant naturel, ajoutée à {@link UserRepository}.
+ *
+ * <p>Une requête dérivée {@code findByEmail} interrogerait la base à chaque appel : la recherche
+ * par identifiant naturel passe par le cache de second niveau (email vers identifiant, puis
+ * identifiant vers utilisateur).</p>
+ */
+public interface UserNaturalIdRepository {
+
+    /**
+     * Recherche un utilisateur par son adresse email.
+     *
+     * <p>Cette méthode est utilisée principalement pour l'authentification
+     * car l'email sert d'identifiant unique dans le système.</p>
+     *
+     * @param email l'adresse email de l'utilisateur à rechercher
+     * @return Optional contenant l'utilisateur si trouvé, Optional vide sinon
+     */
+    Optional<User> findByEmail(String email);
+}
@@ -1,10 +1,13 @@
 package com.openclassrooms.chatop.repositories;
 
 import com.openclassrooms.chatop.entities.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
+import java.util.List;
 
 /**
  * Repository JPA pour l'entité User.
@@ -15,7 +18,10 @@ import java.util.Optional;
  * <p>Méthodes disponibles :</p>
  * <ul>
  *   <li>Toutes les méthodes héritées de JpaRepository (save, findById, findAll, delete, etc.)</li>
- *   <li>findByEmail : recherche d'un utilisateur par son adresse email</li>
+ *   <li>findByEmail : recherche d'un utilisateur par son adresse email, via le cache de second
+ *   niveau ({@link UserNaturalIdRepository})</li>
+ *   <li>existsByEmail : vérification d'existence d'un email, sans charger l'entité</li>
+ *   <li>findEmailsAfter : emails inscrits par pages, pour l'index en mémoire</li>
  * </ul>
  * 
  * @author OpenClassrooms
@@ -23,16 +29,26 @@ import java.util.Optional;
  * @since 1.0
  */
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
-    
+public interface UserRepository extends JpaRepository<User, Long>, UserNaturalIdRepository {
+
+    /**
+     * Vérifie si un utilisateur existe avec cette adresse email.
+     *
+     * @param email l'adresse email à vérifier
+     * @return true si un utilisateur utilise déjà cet email
+     */
+    boolean existsByEmail(String email);
+
     /**
-     * Recherche un utilisateur par son adresse email.
-     * 
-     * <p>Cette méthode est utilisée principalement pour l'authentification
-     * car l'email sert d'identifiant unique dans le système.</p>
-     * 
-     * @param email l'adresse email de l'utilisateur à rechercher
-     * @return Optional contenant l'utilisateur si trouvé, Optional vide sinon
+     * Récupère une page d'adresses email, dans l'ordre de l'index unique {@code users.email}.
+     *
+     * <p>Seul l'index est parcouru : chaque page reprend strictement après le dernier email
+     * de la page précédente.</p>
+     *
+     * @param email dernier email déjà lu, ou une chaîne vide pour la première page
+     * @param limit taille de la page
+     * @return les emails suivants
      */
-    Optional<User> findByEmail(String email);
+    @Query("select u.email from User u where u.email > :email order by u.email")
+    List<String> findEmailsAfter(@Param("email") String email, Limit limit);
 }
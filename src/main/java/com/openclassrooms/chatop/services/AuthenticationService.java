@@ -4,19 +4,40 @@ import com.openclassrooms.chatop.dtos.LoginUserDto;
 import com.openclassrooms.chatop.dtos.RegisterUserDto;
 import com.openclassrooms.chatop.entities.User;
 import com.openclassrooms.chatop.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 /**
  * Service pour la gestion de l'authentification et de l'inscription des utilisateurs.
+ *
+ * <p>Le calcul BCrypt est chronométré ({@code security.password.hashing}) : à l'inscription
+ * ({@code operation=encode}) et à la connexion ({@code operation=verify}, par résultat), où il
+ * représente l'essentiel de l'authentification.</p>
  */
 @Service
 public class AuthenticationService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
+    private final LoginAttemptService loginAttemptService;
+    private final JwtService jwtService;
+    private final RegisteredEmailIndex registeredEmailIndex;
+    private final CacheInvalidationBus invalidationBus;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer encodeTimer;
+    private final Timer verifySuccessTimer;
+    private final Timer verifyFailureTimer;
 
     /**
      * Constructeur du service d'authentification.
@@ -24,49 +45,128 @@ public class AuthenticationService {
      * @param userRepository le repository des utilisateurs
      * @param authenticationManager le gestionnaire d'authentification Spring Security
      * @param passwordEncoder l'encodeur de mots de passe
+     * @param loginAttemptService le service de limitation des tentatives de connexion
+     * @param jwtService le service de gestion des JWT
+     * @param registeredEmailIndex l'index des emails déjà inscrits
+     * @param invalidationBus le bus d'invalidation des caches des autres instances
+     * @param transactionManager gestionnaire de transactions
+     * @param meterRegistry le registre des métriques
      */
     public AuthenticationService(
             UserRepository userRepository,
             AuthenticationManager authenticationManager,
-            PasswordEncoder passwordEncoder
+            PasswordEncoder passwordEncoder,
+            LoginAttemptService loginAttemptService,
+            JwtService jwtService,
+            RegisteredEmailIndex registeredEmailIndex,
+            CacheInvalidationBus invalidationBus,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
     ) {
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.loginAttemptService = loginAttemptService;
+        this.jwtService = jwtService;
+        this.registeredEmailIndex = registeredEmailIndex;
+        this.invalidationBus = invalidationBus;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.encodeTimer = hashingTimer(meterRegistry, "encode", "success");
+        this.verifySuccessTimer = hashingTimer(meterRegistry, "verify", "success");
+        this.verifyFailureTimer = hashingTimer(meterRegistry, "verify", "failure");
     }
 
     /**
      * Inscrit un nouvel utilisateur à partir des informations fournies.
      *
+     * <p>Un email déjà inscrit est rejeté avant le calcul BCrypt : l'index en mémoire
+     * écarte les emails libres sans requête, et seuls les emails probablement pris
+     * sont vérifiés en base. L'inscription est signalée aux autres instances dans la transaction
+     * qui crée l'utilisateur.</p>
+     *
      * @param input les informations d'inscription de l'utilisateur
-     * @return l'utilisateur créé et sauvegardé
+     * @return l'utilisateur créé et sauvegardé, ou null si l'email est déjà inscrit
      */
     public User signup(RegisterUserDto input) {
+        if (registeredEmailIndex.isRegistered(input.getEmail())) {
+            return null;
+        }
+
         User user = new User();
         user.setName(input.getName());
         user.setEmail(input.getEmail());
-        user.setPassword(passwordEncoder.encode(input.getPassword()));
+        user.setPassword(encodeTimer.record(() -> passwordEncoder.encode(input.getPassword())));
 
-        return userRepository.save(user);
+        try {
+            User saved = transactionTemplate.execute(status -> {
+                User created = userRepository.saveAndFlush(user);
+                invalidationBus.append(CacheInvalidationBus.USER, created.getId(), created.getEmail());
+                return created;
+            });
+            registeredEmailIndex.add(saved.getEmail());
+            return saved;
+        } catch (DataIntegrityViolationException exception) {
+            // Inscription concurrente du même email : la contrainte d'unicité a tranché
+            return null;
+        }
     }
 
     /**
      * Authentifie un utilisateur à partir des informations de connexion.
      *
+     * <p>L'utilisateur retourné est le principal chargé par l'AuthenticationManager :
+     * aucune seconde lecture en base n'est effectuée. Les tentatives provenant d'un
+     * email ou d'une IP ayant trop d'échecs récents sont rejetées avant le calcul BCrypt.</p>
+     *
      * @param input les informations de connexion de l'utilisateur
+     * @param clientIp l'adresse IP du client, ou null si inconnue
      * @return l'utilisateur authentifié
-     * @throws org.springframework.security.core.AuthenticationException si l'authentification échoue
-     * @throws java.util.NoSuchElementException si l'utilisateur n'est pas trouvé
+     * @throws AuthenticationException si l'authentification échoue
+     * @throws ResponseStatusException (429) si trop de tentatives ont échoué récemment
      */
-    public User authenticate(LoginUserDto input) {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        input.getEmail(),
-                        input.getPassword()
-                )
-        );
+    public User authenticate(LoginUserDto input, String clientIp) {
+        if (loginAttemptService.isBlocked(input.getEmail(), clientIp)) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many failed login attempts");
+        }
+
+        Timer.Sample sample = Timer.start();
+        try {
+            Authentication authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(
+                            input.getEmail(),
+                            input.getPassword()
+                    )
+            );
+            sample.stop(verifySuccessTimer);
+            return (User) authentication.getPrincipal();
+        } catch (AuthenticationException exception) {
+            sample.stop(verifyFailureTimer);
+            loginAttemptService.recordFailure(input.getEmail(), clientIp);
+            throw exception;
+        }
+    }
+
+    /**
+     * Échange un refresh token contre l'utilisateur auquel il appartient.
+     *
+     * <p>Le refresh token est consommé : une seconde présentation du même token est refusée.</p>
+     *
+     * @param refreshToken le refresh token présenté par le client
+     * @return l'utilisateur, ou null si le token est invalide, expiré ou déjà utilisé
+     */
+    public User refresh(String refreshToken) {
+        String email = jwtService.consumeRefreshToken(refreshToken);
+        if (email == null) {
+            return null;
+        }
+        return userRepository.findByEmail(email).orElse(null);
+    }
 
-        return userRepository.findByEmail(input.getEmail())
-                .orElseThrow();
+    private static Timer hashingTimer(MeterRegistry meterRegistry, String operation, String outcome) {
+        return Timer.builder("security.password.hashing")
+                .description("BCrypt password hashing and verification")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
-}
\ No newline at end of file
+}
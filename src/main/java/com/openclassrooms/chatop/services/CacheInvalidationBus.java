@@ -0,0 +1,350 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.entities.Rental;
+import com.openclassrooms.chatop.entities.User;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Invalidation des caches locaux entre les instances de l'application.
+ *
+ * <p>Les écritures sur les locations, les utilisateurs et les messages ajoutent une ligne à la
+ * table {@code cache_invalidations}, dans leur propre transaction : la ligne n'est visible
+ * qu'une fois la modification validée. Chaque instance lit la table toutes les
+ * {@code cache.invalidation.poll-interval} ms, par lots de {@code cache.invalidation.batch-size}
+ * lignes à partir de son curseur (le dernier identifiant traité), et applique les lignes écrites
+ * par les autres instances :</p>
+ * <ul>
+ *     <li>location : éviction du cache de second niveau, oubli d'une absence mémorisée par
+ *     {@link RentalOwnerResolver} ;</li>
+ *     <li>utilisateur : éviction du cache de second niveau, ajout de l'email à
+ *     {@link RegisteredEmailIndex} (l'email, identifiant naturel, ne change jamais) ;</li>
+ *     <li>boîte de réception : événement {@code resync} aux connexions temps réel locales du
+ *     destinataire, le message ayant été diffusé par une autre instance ;</li>
+ *     <li>token révoqué : ajout du jti à l'index de {@link TokenRevocationService}, pour qu'un
+ *     token révoqué sur une instance soit refusé par toutes.</li>
+ * </ul>
+ *
+ * <p>Les identifiants sont attribués à l'insertion mais visibles au commit : une transaction
+ * plus lente peut valider un identifiant inférieur à une ligne déjà lue. Le curseur ne dépasse
+ * donc un identifiant manquant qu'après {@code cache.invalidation.gap-timeout} ms (transaction
+ * annulée) ; les lignes suivantes sont appliquées sans attendre. Les lignes plus anciennes que
+ * {@code cache.invalidation.retention} ms sont purgées.</p>
+ */
+@Service
+public class CacheInvalidationBus implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    /** Modification d'une location, identifiée par son identifiant. */
+    public static final String RENTAL = "rental";
+    /** Inscription ou modification d'un utilisateur, identifié par son identifiant et son email. */
+    public static final String USER = "user";
+    /** Nouveau message dans la boîte de réception d'un utilisateur, identifié par son identifiant. */
+    public static final String MAILBOX = "mailbox";
+    /**
+     * Révocation d'un token JWT, identifié par son jti (clé secondaire) ; l'identifiant porte
+     * sa date d'expiration en millisecondes depuis l'epoch.
+     */
+    public static final String REVOKED_TOKEN = "token";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO cache_invalidations (entity, entity_id, entity_key, origin, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT_SQL =
+            "SELECT id, entity, entity_id, entity_key, origin FROM cache_invalidations WHERE id > ? ORDER BY id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache entityCache;
+    private final RentalOwnerResolver rentalOwnerResolver;
+    private final RegisteredEmailIndex registeredEmailIndex;
+    private final MessageStreamHub messageStreamHub;
+    private final TokenRevocationService tokenRevocationService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final long gapTimeoutMillis;
+    private final long retentionMillis;
+    private final LongSupplier clock;
+    /** Identifiant de cette instance : ses propres lignes ne sont pas réappliquées. */
+    private final String origin = UUID.randomUUID().toString();
+
+    private final ReentrantLock pollLock = new ReentrantLock();
+    /** Lignes déjà traitées au-delà du curseur, en attente d'un identifiant manquant. */
+    private final TreeSet<Long> pendingIds = new TreeSet<>();
+    private final AtomicLong appliedEntries = new AtomicLong();
+    private volatile long cursor = -1;
+    private long gapSince = -1;
+    private volatile boolean running;
+    private Thread poller;
+
+    /**
+     * Constructeur du bus d'invalidation.
+     *
+     * @param jdbcTemplate accès JDBC à la table des invalidations
+     * @param entityManagerFactory la fabrique JPA, pour le cache de second niveau
+     * @param rentalOwnerResolver le cache des propriétaires de location
+     * @param registeredEmailIndex l'index des emails inscrits
+     * @param messageStreamHub le hub de diffusion temps réel des messages
+     * @param tokenRevocationService l'index des tokens révoqués
+     * @param enabled false pour n'écrire ni lire aucune invalidation (instance unique)
+     * @param batchSize nombre maximal de lignes lues par requête
+     * @param pollIntervalMillis intervalle entre deux lectures en millisecondes
+     * @param gapTimeoutMillis attente maximale d'un identifiant manquant en millisecondes
+     * @param retentionMillis durée de conservation des lignes en millisecondes
+     */
+    @Autowired
+    public CacheInvalidationBus(
+            JdbcTemplate jdbcTemplate,
+            EntityManagerFactory entityManagerFactory,
+            RentalOwnerResolver rentalOwnerResolver,
+            RegisteredEmailIndex registeredEmailIndex,
+            MessageStreamHub messageStreamHub,
+            TokenRevocationService tokenRevocationService,
+            @Value("${cache.invalidation.enabled:true}") boolean enabled,
+            @Value("${cache.invalidation.batch-size:500}") int batchSize,
+            @Value("${cache.invalidation.poll-interval:100}") long pollIntervalMillis,
+            @Value("${cache.invalidation.gap-timeout:10000}") long gapTimeoutMillis,
+            @Value("${cache.invalidation.retention:3600000}") long retentionMillis
+    ) {
+        this(jdbcTemplate, entityManagerFactory.getCache(), rentalOwnerResolver, registeredEmailIndex,
+                messageStreamHub, tokenRevocationService, enabled, batchSize, pollIntervalMillis, gapTimeoutMillis,
+                retentionMillis, System::currentTimeMillis);
+    }
+
+    CacheInvalidationBus(JdbcTemplate jdbcTemplate, Cache entityCache, RentalOwnerResolver rentalOwnerResolver,
+                         RegisteredEmailIndex registeredEmailIndex, MessageStreamHub messageStreamHub,
+                         TokenRevocationService tokenRevocationService, boolean enabled, int batchSize, long pollIntervalMillis, long gapTimeoutMillis,
+                         long retentionMillis, LongSupplier clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityCache = entityCache;
+        this.rentalOwnerResolver = rentalOwnerResolver;
+        this.registeredEmailIndex = registeredEmailIndex;
+        this.messageStreamHub = messageStreamHub;
+        this.tokenRevocationService = tokenRevocationService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.retentionMillis = retentionMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Ajoute une invalidation, dans la transaction en cours s'il y en a une.
+     *
+     * @param entity type de l'entrée : {@link #RENTAL}, {@link #USER}, {@link #MAILBOX} ou {@link #REVOKED_TOKEN}
+     * @param entityId identifiant de l'entité modifiée
+     * @param entityKey clé secondaire de l'entité (email d'un utilisateur, jti d'un token), ou null
+     */
+    public void append(String entity, Long entityId, String entityKey) {
+        if (!enabled || entityId == null) {
+            return;
+        }
+        jdbcTemplate.update(INSERT_SQL, entity, entityId, entityKey, origin, now());
+    }
+
+    /**
+     * Ajoute une invalidation par identifiant, en un seul batch.
+     *
+     * @param entity type des entrées
+     * @param entityIds identifiants des entités modifiées
+     */
+    public void appendAll(String entity, Collection<Long> entityIds) {
+        if (!enabled || entityIds.isEmpty()) {
+            return;
+        }
+        Timestamp createdAt = now();
+        jdbcTemplate.batchUpdate(INSERT_SQL, List.copyOf(entityIds), entityIds.size(), (ps, entityId) -> {
+            ps.setString(1, entity);
+            ps.setLong(2, entityId);
+            ps.setString(3, null);
+            ps.setString(4, origin);
+            ps.setTimestamp(5, createdAt);
+        });
+    }
+
+    /**
+     * Lit les invalidations validées depuis le curseur et applique celles des autres instances.
+     *
+     * <p>La première lecture ne fait que placer le curseur sur la dernière invalidation existante :
+     * les caches d'une instance qui démarre sont vides.</p>
+     *
+     * @return le nombre d'invalidations appliquées
+     */
+    public int poll() {
+        if (!enabled) {
+            return 0;
+        }
+        pollLock.lock();
+        try {
+            if (cursor < 0) {
+                cursor = lastId();
+                return 0;
+            }
+            int applied = 0;
+            long from = cursor;
+            List<Entry> batch;
+            do {
+                batch = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> new Entry(rs.getLong(1), rs.getString(2),
+                        rs.getLong(3), rs.getString(4), rs.getString(5)), from, batchSize);
+                for (Entry entry : batch) {
+                    if (pendingIds.add(entry.id()) && !origin.equals(entry.origin())) {
+                        apply(entry);
+                        applied++;
+                    }
+                    from = entry.id();
+                }
+            } while (batch.size() == batchSize);
+            advanceCursor();
+            appliedEntries.addAndGet(applied);
+            return applied;
+        } finally {
+            pollLock.unlock();
+        }
+    }
+
+    /**
+     * Supprime les invalidations plus anciennes que la durée de conservation.
+     */
+    @Scheduled(fixedDelayString = "${cache.invalidation.purge-interval:60000}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        int deleted = jdbcTemplate.update("DELETE FROM cache_invalidations WHERE created_at < ?",
+                Timestamp.from(Instant.ofEpochMilli(clock.getAsLong() - retentionMillis)));
+        if (deleted > 0) {
+            log.debug("Purged {} cache invalidation(s)", deleted);
+        }
+    }
+
+    /**
+     * @return le dernier identifiant d'invalidation traité, ou -1 avant la première lecture
+     */
+    public long getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @return le nombre d'invalidations d'autres instances appliquées localement
+     */
+    public long getAppliedEntries() {
+        return appliedEntries.get();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        poller = new Thread(this::pollLoop, "cache-invalidation-poller");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        poller.interrupt();
+        try {
+            poller.join(pollIntervalMillis + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void pollLoop() {
+        while (running) {
+            try {
+                poll();
+            } catch (RuntimeException e) {
+                log.warn("Cache invalidation poll failed: {}", e.getMessage());
+            }
+            try {
+                Thread.sleep(pollIntervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void apply(Entry entry) {
+        switch (entry.entity()) {
+            case RENTAL -> {
+                entityCache.evict(Rental.class, entry.entityId());
+                rentalOwnerResolver.forget(entry.entityId());
+            }
+            case USER -> {
+                entityCache.evict(User.class, entry.entityId());
+                if (entry.entityKey() != null) {
+                    registeredEmailIndex.add(entry.entityKey());
+                }
+            }
+            case MAILBOX -> messageStreamHub.resync(entry.entityId());
+            case REVOKED_TOKEN -> tokenRevocationService.markRevoked(entry.entityKey(),
+                    Instant.ofEpochMilli(entry.entityId()));
+            default -> log.debug("Ignoring cache invalidation of unknown entity {}", entry.entity());
+        }
+    }
+
+    /**
+     * Avance le curseur sur les lignes traitées contiguës ; un identifiant manquant depuis plus de
+     * {@code gap-timeout} ms est abandonné.
+     */
+    private void advanceCursor() {
+        while (!pendingIds.isEmpty()) {
+            long next = pendingIds.first();
+            if (next == cursor + 1) {
+                cursor = pendingIds.pollFirst();
+                gapSince = -1;
+                continue;
+            }
+            long now = clock.getAsLong();
+            if (gapSince < 0) {
+                gapSince = now;
+            }
+            if (now - gapSince < gapTimeoutMillis) {
+                return;
+            }
+            cursor = next - 1;
+        }
+    }
+
+    private long lastId() {
+        Long last = jdbcTemplate.queryForObject("SELECT MAX(id) FROM cache_invalidations", Long.class);
+        return last != null ? last : 0;
+    }
+
+    private Timestamp now() {
+        return Timestamp.from(Instant.ofEpochMilli(clock.getAsLong()));
+    }
+
+    private record Entry(long id, String entity, long entityId, String entityKey, String origin) {
+    }
+}
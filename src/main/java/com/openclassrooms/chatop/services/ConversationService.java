@@ -0,0 +1,247 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.dtos.ConversationDto;
+import com.openclassrooms.chatop.dtos.ConversationListResponse;
+import com.openclassrooms.chatop.entities.Conversation;
+import com.openclassrooms.chatop.entities.Message;
+import com.openclassrooms.chatop.repositories.ConversationRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Service de gestion des fils de conversation et de leurs compteurs de messages non lus.
+ *
+ * <p>Chaque envoi de message incrémente un compteur en mémoire, indexé par conversation
+ * dans une {@link ConcurrentHashMap} : deux envois vers des conversations différentes ne
+ * se gênent pas, et les envois vers une même conversation très sollicitée ne verrouillent
+ * pas sa ligne en base. Les compteurs accumulés sont reportés périodiquement en base par un
+ * UPDATE relatif par conversation, toutes les {@code messages.conversations.flush-interval} ms.</p>
+ *
+ * <p>Les compteurs lus en base peuvent donc avoir jusqu'à un intervalle de retard.</p>
+ *
+ * <p>Le dernier message d'une conversation est conservé par référence : en écriture différée,
+ * son identifiant n'est attribué qu'à l'insertion du lot, et il est lu au moment du flush. S'il
+ * n'est pas encore inséré, l'identifiant déjà connu en base est conservé.</p>
+ *
+ * <p>Le report d'une conversation et son marquage comme lu sont sérialisés par un verrou choisi
+ * parmi {@value #LOCK_STRIPES} selon la conversation : un compteur retiré de la map par un flush
+ * en cours ne peut pas être ajouté en base après la remise à zéro. Le flush ne tient ce verrou
+ * que le temps de l'UPDATE d'une conversation ; un marquage comme lu n'attend donc jamais le
+ * report des autres conversations.</p>
+ */
+@Service
+public class ConversationService {
+    /** Taille de page par défaut des listes de conversations. */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    /** Taille de page maximale des listes de conversations. */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationService.class);
+    private static final int LOCK_STRIPES = 64;
+    /** Position de départ : avant toute conversation existante dans l'ordre décroissant. */
+    private static final Instant FIRST_PAGE_LAST_MESSAGE_AT = Instant.parse("9999-12-31T23:59:59Z");
+
+    private final ConversationRepository conversationRepository;
+    private final ConcurrentHashMap<ThreadKey, PendingUpdate> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    /**
+     * Constructeur du service des conversations.
+     *
+     * @param conversationRepository le repository des conversations
+     */
+    public ConversationService(ConversationRepository conversationRepository) {
+        this.conversationRepository = conversationRepository;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Enregistre l'envoi d'un message dans sa conversation.
+     *
+     * <p>Ne fait aucun accès à la base : la mise à jour est reportée au prochain flush.</p>
+     *
+     * @param message le message envoyé, dont la date d'envoi est renseignée
+     */
+    public void recordMessage(Message message) {
+        ThreadKey key = new ThreadKey(message.getRentalId(), message.getSenderId(), message.getRecipientId());
+        Instant sentAt = message.getSentAt() != null ? message.getSentAt() : Instant.now();
+        // compute verrouille uniquement l'entrée de la conversation, le flush la retire de façon atomique
+        pending.compute(key, (k, update) -> {
+            PendingUpdate next = update != null ? update : new PendingUpdate();
+            next.unread++;
+            if (next.lastMessageAt == null || !sentAt.isBefore(next.lastMessageAt)) {
+                next.lastMessageAt = sentAt;
+                next.lastMessage = message;
+            }
+            return next;
+        });
+    }
+
+    /**
+     * Retourne une page des conversations d'un utilisateur, de la plus récemment active à la plus ancienne.
+     *
+     * @param userId identifiant de l'utilisateur
+     * @param asOwner true pour les conversations reçues en tant que propriétaire,
+     *                false pour celles ouvertes en tant qu'expéditeur
+     * @param cursor curseur retourné par la page précédente, ou null pour la première page
+     * @param size taille de page demandée, bornée à {@link #MAX_PAGE_SIZE}
+     * @return la page de conversations, ou null si le curseur est invalide
+     */
+    @Transactional(readOnly = true)
+    public ConversationListResponse findConversations(Long userId, boolean asOwner, String cursor, int size) {
+        Instant lastMessageAt = FIRST_PAGE_LAST_MESSAGE_AT;
+        long id = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf(':');
+                lastMessageAt = Instant.parse(decoded.substring(0, separator));
+                id = Long.parseLong(decoded.substring(separator + 1));
+            } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+                return null;
+            }
+        }
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        // Un élément de plus que la page, pour savoir s'il existe une page suivante
+        Limit limit = Limit.of(pageSize + 1);
+        List<Conversation> conversations = asOwner
+                ? conversationRepository.findOwnerPage(userId, lastMessageAt, id, limit)
+                : conversationRepository.findSenderPage(userId, lastMessageAt, id, limit);
+        String nextCursor = null;
+        if (conversations.size() > pageSize) {
+            conversations = conversations.subList(0, pageSize);
+            Conversation last = conversations.get(pageSize - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((last.getLastMessageAt() + ":" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return new ConversationListResponse(conversations.stream().map(ConversationService::toDto).toList(), nextCursor);
+    }
+
+    /**
+     * Marque tous les messages d'une conversation comme lus par son propriétaire.
+     *
+     * @param conversationId identifiant de la conversation
+     * @param ownerId identifiant de l'utilisateur authentifié
+     * @return true si la conversation existe et appartient à l'utilisateur, false sinon
+     */
+    public boolean markRead(Long conversationId, Long ownerId) {
+        Conversation conversation = conversationRepository.findById(conversationId).orElse(null);
+        if (conversation == null || !conversation.getOwnerId().equals(ownerId)) {
+            return false;
+        }
+        ThreadKey key = new ThreadKey(conversation.getRentalId(), conversation.getSenderId(), ownerId);
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            // Les messages pas encore reportés en base sont lus eux aussi
+            pending.computeIfPresent(key, (k, update) -> {
+                update.unread = 0;
+                return update;
+            });
+            return conversationRepository.markRead(conversationId, ownerId) == 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reporte en base les compteurs accumulés depuis le dernier flush.
+     */
+    @Scheduled(fixedDelayString = "${messages.conversations.flush-interval:1000}")
+    @PreDestroy
+    public void flush() {
+        for (ThreadKey key : pending.keySet()) {
+            ReentrantLock lock = lockFor(key);
+            lock.lock();
+            try {
+                PendingUpdate update = pending.remove(key);
+                if (update == null) {
+                    continue;
+                }
+                try {
+                    apply(key, update);
+                } catch (RuntimeException e) {
+                    log.warn("Conversation update failed for rental {}, will retry: {}", key.rentalId(), e.getMessage());
+                    pending.merge(key, update, PendingUpdate::merge);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static ConversationDto toDto(Conversation conversation) {
+        return new ConversationDto(
+                conversation.getId(),
+                conversation.getRentalId(),
+                conversation.getSenderId(),
+                conversation.getOwnerId(),
+                conversation.getLastMessageId(),
+                conversation.getLastMessageAt(),
+                conversation.getUnreadCount()
+        );
+    }
+
+    private ReentrantLock lockFor(ThreadKey key) {
+        int hash = key.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    private void apply(ThreadKey key, PendingUpdate update) {
+        Long lastMessageId = update.lastMessage.getId();
+        if (conversationRepository.addMessages(key.rentalId(), key.senderId(), key.ownerId(),
+                update.unread, lastMessageId, update.lastMessageAt) == 1) {
+            return;
+        }
+        Conversation conversation = new Conversation(null, key.rentalId(), key.senderId(), key.ownerId(),
+                lastMessageId, update.lastMessageAt, update.unread);
+        try {
+            conversationRepository.save(conversation);
+        } catch (DataIntegrityViolationException e) {
+            // Créée entre-temps par une autre instance : la ligne existe désormais
+            conversationRepository.addMessages(key.rentalId(), key.senderId(), key.ownerId(),
+                    update.unread, lastMessageId, update.lastMessageAt);
+        }
+    }
+
+    /**
+     * @return le nombre de conversations ayant des mises à jour en attente
+     */
+    int getPendingCount() {
+        return pending.size();
+    }
+
+    private record ThreadKey(Long rentalId, Long senderId, Long ownerId) {
+    }
+
+    private static final class PendingUpdate {
+        private long unread;
+        private Message lastMessage;
+        private Instant lastMessageAt;
+
+        private PendingUpdate merge(PendingUpdate other) {
+            unread += other.unread;
+            if (!other.lastMessageAt.isBefore(lastMessageAt)) {
+                lastMessageAt = other.lastMessageAt;
+                lastMessage = other.lastMessage;
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.entities.IdempotencyKey;
+import com.openclassrooms.chatop.repositories.IdempotencyKeyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+
+/**
+ * Stockage des clés d'idempotence en base, partagé entre les instances de l'application.
+ *
+ * <p>Activé par {@code idempotency.store=database}.</p>
+ *
+ * <p>Une réservation en cours n'expire qu'après un bail court ({@code idempotency.lease}) :
+ * si l'instance qui la tient s'arrête avant de compléter ou de libérer la clé, une requête
+ * ultérieure la reprend une fois le bail échu au lieu de recevoir 409 jusqu'à la fin du TTL.
+ * La réponse enregistrée porte ensuite la date d'expiration complète.</p>
+ */
+@Service
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "database")
+public class DatabaseIdempotencyStore implements IdempotencyStore {
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final long leaseMillis;
+
+    /**
+     * Constructeur du stockage en base.
+     *
+     * @param idempotencyKeyRepository le repository des clés d'idempotence
+     * @param leaseMillis durée en millisecondes d'une réservation en cours
+     */
+    public DatabaseIdempotencyStore(
+            IdempotencyKeyRepository idempotencyKeyRepository,
+            @Value("${idempotency.lease:30000}") long leaseMillis
+    ) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.leaseMillis = leaseMillis;
+    }
+
+    @Override
+    public IdempotencyRecord reserve(String scope, String fingerprint, Instant expiresAt) {
+        Instant lease = Instant.now().plusMillis(leaseMillis);
+        Instant leaseEnd = lease.isBefore(expiresAt) ? lease : expiresAt;
+        // Deux essais : le second après suppression d'une clé expirée ou d'un bail échu
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try {
+                idempotencyKeyRepository.insert(scope, fingerprint, leaseEnd);
+                return null;
+            } catch (DataIntegrityViolationException e) {
+                IdempotencyKey existing = idempotencyKeyRepository.findById(scope).orElse(null);
+                if (existing != null && !existing.getExpiresAt().isBefore(Instant.now())) {
+                    return new IdempotencyRecord(existing.getFingerprint(), existing.getStatus(),
+                            existing.getLocation(), existing.getBody(), existing.getExpiresAt());
+                }
+                idempotencyKeyRepository.deleteIfExpired(scope, Instant.now());
+            }
+        }
+        // Réservée entre-temps par une autre instance
+        return new IdempotencyRecord(fingerprint, null, null, null, expiresAt);
+    }
+
+    @Override
+    public void complete(String scope, int status, String location, String body, Instant expiresAt) {
+        idempotencyKeyRepository.complete(scope, status, location, body, expiresAt);
+    }
+
+    @Override
+    public void release(String scope) {
+        idempotencyKeyRepository.release(scope);
+    }
+
+    @Override
+    public void purgeExpired(Instant now) {
+        idempotencyKeyRepository.deleteExpired(now);
+    }
+}
@@ -0,0 +1,93 @@
+package com.openclassrooms.chatop.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+import static com.openclassrooms.chatop.configuration.EntityCacheConfiguration.REGIONS;
+
+/**
+ * Taux de succès du cache de second niveau, par région.
+ *
+ * <p>Lu dans les statistiques d'Hibernate ({@code hibernate.generate_statistics}) ; sans elles,
+ * tous les compteurs valent 0. Un résumé est journalisé toutes les
+ * {@code entity-cache.statistics-log-interval} ms.</p>
+ */
+@Service
+public class EntityCacheStatistics {
+    private static final Logger log = LoggerFactory.getLogger(EntityCacheStatistics.class);
+
+    private final Statistics statistics;
+
+    /**
+     * Constructeur des statistiques du cache de second niveau.
+     *
+     * @param entityManagerFactory la fabrique JPA, adossée à Hibernate
+     */
+    public EntityCacheStatistics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * @return les régions du cache de second niveau
+     */
+    public List<String> getRegions() {
+        return REGIONS;
+    }
+
+    /**
+     * @param region nom de la région
+     * @return le nombre de lectures servies par le cache
+     */
+    public long getHitCount(String region) {
+        CacheRegionStatistics regionStatistics = regionStatistics(region);
+        return regionStatistics != null ? regionStatistics.getHitCount() : 0;
+    }
+
+    /**
+     * @param region nom de la région
+     * @return le nombre de lectures absentes du cache, servies par la base
+     */
+    public long getMissCount(String region) {
+        CacheRegionStatistics regionStatistics = regionStatistics(region);
+        return regionStatistics != null ? regionStatistics.getMissCount() : 0;
+    }
+
+    /**
+     * @param region nom de la région
+     * @return la part des lectures servies par le cache, entre 0 et 1 (0 sans lecture)
+     */
+    public double getHitRatio(String region) {
+        long hits = getHitCount(region);
+        long lookups = hits + getMissCount(region);
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Journalise le taux de succès de chaque région.
+     */
+    @Scheduled(fixedDelayString = "${entity-cache.statistics-log-interval:300000}")
+    public void logStatistics() {
+        if (!statistics.isStatisticsEnabled()) {
+            return;
+        }
+        for (String region : REGIONS) {
+            log.info("Second-level cache region {}: {} hit(s), {} miss(es), hit ratio {}",
+                    region, getHitCount(region), getMissCount(region), String.format("%.2f", getHitRatio(region)));
+        }
+    }
+
+    private CacheRegionStatistics regionStatistics(String region) {
+        if (!statistics.isStatisticsEnabled()) {
+            return null;
+        }
+        return statistics.getDomainDataRegionStatistics(region);
+    }
+}
@@ -0,0 +1,176 @@
+package com.openclassrooms.chatop.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Service de traitement idempotent des requêtes de création (en-tête {@code Idempotency-Key}).
+ *
+ * <p>La première requête portant une clé est exécutée et sa réponse conservée pendant
+ * {@code idempotency.ttl} ms. Un rejeu de la même clé par le même utilisateur retourne cette
+ * réponse sans réexécuter l'action, avec l'en-tête {@code Idempotent-Replayed: true}. Une clé
+ * réutilisée pour un contenu différent est refusée (422), tout comme un rejeu arrivant avant
+ * la fin de la requête d'origine (409).</p>
+ *
+ * <p>Seules les réponses définitives sont conservées : succès et erreurs client, hors 409 et
+ * 429. Une erreur serveur ou une exception libère la clé pour que le client puisse réessayer.</p>
+ */
+@Service
+public class IdempotencyService {
+    /** En-tête HTTP portant la clé d'idempotence. */
+    public static final String HEADER = "Idempotency-Key";
+    /** En-tête HTTP signalant une réponse rejouée. */
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+
+    /**
+     * Constructeur du service d'idempotence.
+     *
+     * @param idempotencyStore le stockage des clés
+     * @param objectMapper sérialisation JSON des réponses conservées
+     * @param ttlMillis durée de conservation d'une réponse en millisecondes
+     */
+    public IdempotencyService(
+            IdempotencyStore idempotencyStore,
+            ObjectMapper objectMapper,
+            @Value("${idempotency.ttl:86400000}") long ttlMillis
+    ) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Exécute une action de création au plus une fois par clé d'idempotence.
+     *
+     * @param key valeur de l'en-tête {@code Idempotency-Key}, ou null pour exécuter sans contrôle
+     * @param userId identifiant de l'utilisateur authentifié
+     * @param operation nom de l'opération, pour qu'une clé ne vaille que pour un endpoint
+     * @param fingerprint empreinte du contenu de la requête (voir {@link #fingerprint(Object...)})
+     * @param action l'action à exécuter
+     * @param <E> exception pouvant être levée par l'action
+     * @return la réponse de l'action, la réponse rejouée,
+     *         400 si la clé est trop longue, 409 si la requête d'origine est en cours,
+     *         422 si la clé a déjà servi pour une autre requête
+     * @throws E si l'action échoue ; la clé est alors libérée
+     */
+    public <E extends Exception> ResponseEntity<?> execute(String key, Long userId, String operation,
+                                                           String fingerprint, Action<E> action) throws E {
+        if (key == null || key.isBlank()) {
+            return action.run();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("message", "Invalid Idempotency-Key"));
+        }
+        String scope = operation + ":" + userId + ":" + key;
+        IdempotencyStore.IdempotencyRecord existing =
+                idempotencyStore.reserve(scope, fingerprint, Instant.now().plusMillis(ttlMillis));
+        if (existing != null) {
+            return replay(existing, fingerprint);
+        }
+        ResponseEntity<?> response;
+        try {
+            response = action.run();
+        } catch (Exception e) {
+            idempotencyStore.release(scope);
+            throw e;
+        }
+        int status = response.getStatusCode().value();
+        if (status < 500 && status != 409 && status != 429) {
+            String location = response.getHeaders().getFirst(HttpHeaders.LOCATION);
+            idempotencyStore.complete(scope, status, location, toJson(response.getBody()),
+                    Instant.now().plusMillis(ttlMillis));
+        } else {
+            idempotencyStore.release(scope);
+        }
+        return response;
+    }
+
+    /**
+     * Calcule l'empreinte SHA-256 des éléments d'une requête.
+     *
+     * @param parts les éléments identifiant le contenu de la requête
+     * @return l'empreinte en hexadécimal
+     */
+    public static String fingerprint(Object... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object part : parts) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Supprime périodiquement les clés expirées.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval:60000}")
+    public void purgeExpired() {
+        idempotencyStore.purgeExpired(Instant.now());
+    }
+
+    private ResponseEntity<?> replay(IdempotencyStore.IdempotencyRecord record, String fingerprint) {
+        if (!record.fingerprint().equals(fingerprint)) {
+            return ResponseEntity.status(422)
+                    .body(java.util.Map.of("message", "Idempotency-Key already used for a different request"));
+        }
+        if (record.status() == null) {
+            return ResponseEntity.status(409)
+                    .body(java.util.Map.of("message", "A request with this Idempotency-Key is in progress"));
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(record.status()).header(REPLAYED_HEADER, "true");
+        if (record.location() != null) {
+            builder.header(HttpHeaders.LOCATION, record.location());
+        }
+        if (record.body() == null) {
+            return builder.build();
+        }
+        return builder.contentType(MediaType.APPLICATION_JSON).body(record.body());
+    }
+
+    private String toJson(Object body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response body is not serializable", e);
+        }
+    }
+
+    /**
+     * Action de création exécutée sous contrôle d'idempotence.
+     *
+     * @param <E> exception pouvant être levée
+     */
+    @FunctionalInterface
+    public interface Action<E extends Exception> {
+        /**
+         * @return la réponse HTTP de l'action
+         * @throws E en cas d'échec
+         */
+        ResponseEntity<?> run() throws E;
+    }
+}
@@ -0,0 +1,62 @@
+package com.openclassrooms.chatop.services;
+
+import java.time.Instant;
+
+/**
+ * Stockage des clés d'idempotence et des réponses associées.
+ *
+ * <p>Une clé est d'abord réservée (requête en cours), puis complétée avec la réponse à
+ * rejouer, ou libérée si la requête n'a pas abouti. Deux implémentations sont fournies,
+ * choisies par {@code idempotency.store} : {@code memory} (par défaut, propre à chaque
+ * instance) et {@code database} (partagée entre les instances).</p>
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Réserve une clé si elle est libre ou expirée.
+     *
+     * @param scope clé complète (opération, utilisateur, clé fournie par le client)
+     * @param fingerprint empreinte du contenu de la requête
+     * @param expiresAt date d'expiration de la réservation ; un stockage partagé peut la raccourcir
+     *                  (bail) pour qu'une requête interrompue ne bloque pas la clé jusqu'à cette date
+     * @return null si la clé a été réservée, sinon l'enregistrement existant
+     */
+    IdempotencyRecord reserve(String scope, String fingerprint, Instant expiresAt);
+
+    /**
+     * Enregistre la réponse d'une requête aboutie.
+     *
+     * @param scope clé complète
+     * @param status statut HTTP de la réponse
+     * @param location en-tête Location de la réponse, ou null
+     * @param body corps JSON de la réponse, ou null
+     * @param expiresAt date jusqu'à laquelle la réponse est conservée
+     */
+    void complete(String scope, int status, String location, String body, Instant expiresAt);
+
+    /**
+     * Libère une clé réservée dont la requête n'a pas abouti.
+     *
+     * @param scope clé complète
+     */
+    void release(String scope);
+
+    /**
+     * Supprime les enregistrements expirés.
+     *
+     * @param now date courante
+     */
+    void purgeExpired(Instant now);
+
+    /**
+     * Enregistrement d'une clé d'idempotence.
+     *
+     * @param fingerprint empreinte du contenu de la requête
+     * @param status statut HTTP de la réponse, ou null si la requête est en cours
+     * @param location en-tête Location de la réponse, ou null
+     * @param body corps JSON de la réponse, ou null
+     * @param expiresAt date d'expiration
+     */
+    record IdempotencyRecord(String fingerprint, Integer status, String location, String body, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,123 @@
+package com.openclassrooms.chatop.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stockage en mémoire des clés d'idempotence, borné en taille et en durée.
+ *
+ * <p>Toutes les clés ayant la même durée de vie, leur ordre de réservation est aussi leur
+ * ordre d'expiration : une file FIFO suffit à purger les clés expirées et, au-delà de
+ * {@code idempotency.max-entries}, à évincer les plus anciennes.</p>
+ *
+ * <p>La file est bornée par sa propre longueur et non par celle de la table : une clé libérée
+ * en est retirée, et une clé expirée remplacée, qui y reste jusqu'à la purge suivante, compte
+ * dans la limite. La table, dont chaque clé figure dans la file, reste ainsi elle aussi bornée.</p>
+ */
+@Service
+@ConditionalOnProperty(name = "idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> order = new ConcurrentLinkedQueue<>();
+    // Longueur de la file, size() étant en O(n) sur une ConcurrentLinkedQueue
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxEntries;
+
+    /**
+     * Constructeur du stockage en mémoire.
+     *
+     * @param maxEntries nombre maximal de clés conservées
+     */
+    public InMemoryIdempotencyStore(@Value("${idempotency.max-entries:100000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public IdempotencyRecord reserve(String scope, String fingerprint, Instant expiresAt) {
+        Entry fresh = new Entry(scope, new IdempotencyRecord(fingerprint, null, null, null, expiresAt));
+        while (true) {
+            Entry existing = entries.putIfAbsent(scope, fresh);
+            if (existing == null) {
+                break;
+            }
+            IdempotencyRecord record = existing.record;
+            if (!record.expiresAt().isBefore(Instant.now())) {
+                return record;
+            }
+            if (entries.replace(scope, existing, fresh)) {
+                break;
+            }
+        }
+        order.add(fresh);
+        queued.incrementAndGet();
+        while (queued.get() > maxEntries) {
+            if (!evictOldest()) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void complete(String scope, int status, String location, String body, Instant expiresAt) {
+        Entry entry = entries.get(scope);
+        if (entry != null) {
+            entry.record = new IdempotencyRecord(entry.record.fingerprint(), status, location, body, expiresAt);
+        }
+    }
+
+    @Override
+    public void release(String scope) {
+        Entry entry = entries.get(scope);
+        if (entry != null && entry.record.status() == null && entries.remove(scope, entry) && order.remove(entry)) {
+            queued.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void purgeExpired(Instant now) {
+        for (Entry head = order.peek(); head != null && head.record.expiresAt().isBefore(now); head = order.peek()) {
+            evictOldest();
+        }
+    }
+
+    /**
+     * @return le nombre de clés conservées
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return le nombre d'entrées de la file d'expiration, clés remplacées comprises
+     */
+    int queued() {
+        return queued.get();
+    }
+
+    private boolean evictOldest() {
+        Entry oldest = order.poll();
+        if (oldest == null) {
+            return false;
+        }
+        queued.decrementAndGet();
+        entries.remove(oldest.scope, oldest);
+        return true;
+    }
+
+    private static final class Entry {
+        private final String scope;
+        private volatile IdempotencyRecord record;
+
+        private Entry(String scope, IdempotencyRecord record) {
+            this.scope = scope;
+            this.record = record;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.openclassrooms.chatop.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Trousseau de clés ES256 utilisé pour signer et vérifier les tokens JWT.
+ *
+ * <p>Les clés sont lues dans un répertoire : {@code <kid>.pub} (clé publique X.509, PEM)
+ * pour chaque clé acceptée en vérification, et {@code <kid>.key} (clé privée PKCS#8, PEM)
+ * pour la clé active, identifiée par {@code security.jwt.signing.active-kid}. Une rotation
+ * se fait sans déconnecter personne : la nouvelle clé publique est d'abord déployée,
+ * puis la clé active est basculée, et l'ancienne clé publique est retirée une fois ses
+ * tokens expirés.</p>
+ *
+ * <p>Les clés publiques sont décodées une seule fois au chargement : sélectionner la clé
+ * d'un token revient à une lecture de map par kid.</p>
+ *
+ * <p>Sans répertoire configuré, le démarrage échoue, sauf avec le profil {@code dev} : une paire
+ * de clés éphémère est alors générée, et les tokens ne survivent pas à un redémarrage ni ne sont
+ * vérifiables par d'autres nœuds.</p>
+ */
+@Component
+public class JwtKeyRing {
+    private static final Logger log = LoggerFactory.getLogger(JwtKeyRing.class);
+    /** Seul profil autorisé à démarrer avec une clé éphémère. */
+    static final String DEV_PROFILE = "dev";
+
+    private final String activeKid;
+    private final PrivateKey signingKey;
+    private final Map<String, PublicKey> verificationKeys;
+    private final Map<String, Object> jwks;
+
+    /**
+     * Charge le trousseau depuis le répertoire configuré.
+     *
+     * @param keysDir répertoire contenant les fichiers de clés, vide pour une clé éphémère (profil dev)
+     * @param activeKid identifiant de la clé utilisée pour signer
+     * @param environment l'environnement Spring, pour les profils actifs
+     * @throws IllegalStateException si aucun répertoire n'est configuré hors du profil dev
+     */
+    @Autowired
+    public JwtKeyRing(
+            @Value("${security.jwt.signing.keys-dir:}") String keysDir,
+            @Value("${security.jwt.signing.active-kid:}") String activeKid,
+            Environment environment
+    ) {
+        Map<String, PublicKey> publicKeys = new LinkedHashMap<>();
+        if (keysDir.isBlank()) {
+            if (!environment.matchesProfiles(DEV_PROFILE)) {
+                throw new IllegalStateException("security.jwt.signing.keys-dir is not set: generate signing keys "
+                        + "with scripts/gen-secrets.sh, or run with the '" + DEV_PROFILE + "' profile for an ephemeral key");
+            }
+            KeyPair keyPair = generateKeyPair();
+            this.activeKid = "ephemeral-" + UUID.randomUUID();
+            this.signingKey = keyPair.getPrivate();
+            publicKeys.put(this.activeKid, keyPair.getPublic());
+            log.warn("No JWT signing keys configured, using an ephemeral ES256 key ({})", this.activeKid);
+        } else {
+            Path dir = Path.of(keysDir);
+            publicKeys.putAll(readPublicKeys(dir));
+            if (!publicKeys.containsKey(activeKid)) {
+                throw new IllegalStateException("No public key found for active kid " + activeKid + " in " + dir);
+            }
+            this.activeKid = activeKid;
+            this.signingKey = readPrivateKey(dir.resolve(activeKid + ".key"));
+        }
+        this.verificationKeys = Map.copyOf(publicKeys);
+        this.jwks = buildJwks(publicKeys);
+    }
+
+    /**
+     * Crée un trousseau à partir d'une paire de clés unique.
+     *
+     * @param kid l'identifiant de la clé
+     * @param keyPair la paire de clés ES256
+     * @param additionalPublicKeys clés publiques supplémentaires acceptées en vérification
+     */
+    JwtKeyRing(String kid, KeyPair keyPair, Map<String, PublicKey> additionalPublicKeys) {
+        Map<String, PublicKey> publicKeys = new LinkedHashMap<>(additionalPublicKeys);
+        publicKeys.put(kid, keyPair.getPublic());
+        this.activeKid = kid;
+        this.signingKey = keyPair.getPrivate();
+        this.verificationKeys = Map.copyOf(publicKeys);
+        this.jwks = buildJwks(publicKeys);
+    }
+
+    /**
+     * @return l'identifiant de la clé de signature active
+     */
+    public String getActiveKid() {
+        return activeKid;
+    }
+
+    /**
+     * @return la clé privée de signature active
+     */
+    public PrivateKey getSigningKey() {
+        return signingKey;
+    }
+
+    /**
+     * Retourne la clé publique associée à un kid.
+     *
+     * @param kid l'identifiant de la clé
+     * @return la clé publique, ou null si le kid est inconnu
+     */
+    public PublicKey getVerificationKey(String kid) {
+        return kid == null ? null : verificationKeys.get(kid);
+    }
+
+    /**
+     * @return le JSON Web Key Set des clés publiques acceptées, prêt à être sérialisé
+     */
+    public Map<String, Object> getJwks() {
+        return jwks;
+    }
+
+    /**
+     * Génère une paire de clés ES256 (courbe P-256).
+     *
+     * @return la paire de clés générée
+     */
+    static KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("EC P-256 is not available", e);
+        }
+    }
+
+    private static Map<String, PublicKey> readPublicKeys(Path dir) {
+        Map<String, PublicKey> keys = new LinkedHashMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(".pub")).sorted().toList()) {
+                String name = file.getFileName().toString();
+                byte[] der = readPem(file);
+                keys.put(name.substring(0, name.length() - 4),
+                        KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(der)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read JWT keys from " + dir, e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid JWT public key in " + dir, e);
+        }
+        return keys;
+    }
+
+    private static PrivateKey readPrivateKey(Path file) {
+        try {
+            return KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(readPem(file)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read JWT signing key " + file, e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid JWT signing key " + file, e);
+        }
+    }
+
+    private static byte[] readPem(Path file) throws IOException {
+        String base64 = Files.readString(file)
+                .replaceAll("-----[A-Z ]+-----", "")
+                .replaceAll("\\s", "");
+        return Base64.getDecoder().decode(base64);
+    }
+
+    private static Map<String, Object> buildJwks(Map<String, PublicKey> publicKeys) {
+        List<Map<String, String>> keys = new ArrayList<>();
+        publicKeys.forEach((kid, key) -> {
+            ECPublicKey ecKey = (ECPublicKey) key;
+            Map<String, String> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("use", "sig");
+            jwk.put("alg", "ES256");
+            jwk.put("kid", kid);
+            jwk.put("x", base64Url(ecKey.getW().getAffineX()));
+            jwk.put("y", base64Url(ecKey.getW().getAffineY()));
+            keys.add(jwk);
+        });
+        return Map.of("keys", List.copyOf(keys));
+    }
+
+    private static String base64Url(BigInteger coordinate) {
+        byte[] bytes = coordinate.toByteArray();
+        byte[] padded = new byte[32];
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, padded, 32 - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(padded);
+    }
+}
@@ -1,28 +1,92 @@
 package com.openclassrooms.chatop.services;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+/**
+ * Service de génération et de validation des tokens JWT.
+ *
+ * <p>Deux types de tokens sont émis : un access token de courte durée, présenté à chaque
+ * requête, et un refresh token de longue durée, à usage unique, échangé contre une
+ * nouvelle paire via /api/auth/refresh. Chaque token porte un identifiant (jti) qui
+ * permet de le révoquer avant son expiration.</p>
+ *
+ * <p>Les tokens sont signés en ES256 avec la clé active du {@link JwtKeyRing} et portent
+ * son identifiant dans l'en-tête {@code kid}. Tout nœud ou service disposant des clés
+ * publiques (exposées sur /.well-known/jwks.json) peut les vérifier sans connaître de secret.</p>
+ *
+ * <p>Les révocations (déconnexion, refresh token consommé) sont publiées sur le
+ * {@link CacheInvalidationBus} pour que les autres instances refusent aussi le token.</p>
+ *
+ * <p>Chaque vérification de signature est chronométrée ({@code security.jwt.verification},
+ * par résultat : valid ou invalid).</p>
+ */
 @Service
 public class JwtService {
-    @Value("${security.jwt.secret-key}")
-    private String secretKey;
+    /** Claim portant le type du token. */
+    static final String TOKEN_TYPE_CLAIM = "token_type";
+    static final String ACCESS_TOKEN = "access";
+    static final String REFRESH_TOKEN = "refresh";
+
+    private final TokenRevocationService tokenRevocationService;
+    private final CacheInvalidationBus invalidationBus;
+    private final JwtKeyRing keyRing;
+    private final JwtParser parser;
+    private final Timer validVerifications;
+    private final Timer invalidVerifications;
 
     @Value("${security.jwt.expiration-time}")
     private long jwtExpiration;
 
+    @Value("${security.jwt.refresh-expiration-time}")
+    private long refreshExpiration;
+
+    /**
+     * Constructeur du service JWT.
+     *
+     * @param tokenRevocationService le service de révocation des tokens
+     * @param invalidationBus le bus d'invalidation, qui propage les révocations aux autres instances
+     * @param keyRing le trousseau de clés de signature
+     * @param meterRegistry le registre des métriques
+     */
+    public JwtService(TokenRevocationService tokenRevocationService, CacheInvalidationBus invalidationBus,
+                      JwtKeyRing keyRing, MeterRegistry meterRegistry) {
+        this.tokenRevocationService = tokenRevocationService;
+        this.invalidationBus = invalidationBus;
+        this.keyRing = keyRing;
+        this.validVerifications = verificationTimer(meterRegistry, "valid");
+        this.invalidVerifications = verificationTimer(meterRegistry, "invalid");
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        Key key = keyRing.getVerificationKey(header.getKeyId());
+                        if (key == null) {
+                            throw new JwtException("Unknown signing key: " + header.getKeyId());
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
+
     /**
      * Extrait le nom d'utilisateur du token JWT.
      *
@@ -64,7 +128,17 @@ public class JwtService {
      * @return le token JWT généré
      */
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
-        return buildToken(extraClaims, userDetails, jwtExpiration);
+        return buildToken(extraClaims, userDetails, ACCESS_TOKEN, jwtExpiration);
+    }
+
+    /**
+     * Génère un refresh token pour l'utilisateur donné.
+     *
+     * @param userDetails les détails de l'utilisateur
+     * @return le refresh token généré
+     */
+    public String generateRefreshToken(UserDetails userDetails) {
+        return buildToken(new HashMap<>(), userDetails, REFRESH_TOKEN, refreshExpiration);
     }
 
     /**
@@ -77,51 +151,112 @@ public class JwtService {
     }
 
     /**
-     * Vérifie si le token JWT est valide pour l'utilisateur donné.
+     * Vérifie si le token JWT est un access token valide pour l'utilisateur donné.
+     *
+     * <p>La vérification de révocation se fait en mémoire, sans accès à la base.</p>
      *
      * @param token le token JWT
      * @param userDetails les détails de l'utilisateur
      * @return true si le token est valide, false sinon
      */
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        final Claims claims = extractAllClaims(token);
+        return claims.getSubject().equals(userDetails.getUsername())
+                && !claims.getExpiration().before(new Date())
+                && !REFRESH_TOKEN.equals(claims.get(TOKEN_TYPE_CLAIM))
+                && !tokenRevocationService.isRevoked(claims.getId());
+    }
+
+    /**
+     * Consomme un refresh token : il est validé puis révoqué, de sorte qu'il ne puisse
+     * être échangé qu'une seule fois.
+     *
+     * @param token le refresh token
+     * @return l'email de l'utilisateur, ou null si le token est invalide, expiré ou déjà utilisé
+     */
+    public String consumeRefreshToken(String token) {
+        final Claims claims;
+        try {
+            claims = extractAllClaims(token);
+        } catch (JwtException | IllegalArgumentException exception) {
+            return null;
+        }
+        if (!REFRESH_TOKEN.equals(claims.get(TOKEN_TYPE_CLAIM)) || claims.getId() == null) {
+            return null;
+        }
+        if (!revoke(claims)) {
+            return null;
+        }
+        return claims.getSubject();
+    }
+
+    /**
+     * Révoque un token jusqu'à son expiration. Les tokens invalides ou déjà expirés sont ignorés.
+     *
+     * @param token le token JWT à révoquer
+     */
+    public void revokeToken(String token) {
+        try {
+            Claims claims = extractAllClaims(token);
+            if (claims.getId() != null) {
+                revoke(claims);
+            }
+        } catch (JwtException | IllegalArgumentException exception) {
+            // Un token invalide ou expiré n'a pas besoin d'être révoqué
+        }
     }
 
     private String buildToken(
             Map<String, Object> extraClaims,
             UserDetails userDetails,
+            String tokenType,
             long expiration
     ) {
         return Jwts
                 .builder()
+                .setHeaderParam(JwsHeader.KEY_ID, keyRing.getActiveKid())
                 .setClaims(extraClaims)
+                .claim(TOKEN_TYPE_CLAIM, tokenType)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(keyRing.getSigningKey(), SignatureAlgorithm.ES256)
                 .compact();
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    /**
+     * Révoque le token en base puis publie la révocation aux autres instances.
+     *
+     * @return true si le token vient d'être révoqué, false s'il l'était déjà
+     */
+    private boolean revoke(Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (!tokenRevocationService.revoke(claims.getId(), expiration.toInstant())) {
+            return false;
+        }
+        invalidationBus.append(CacheInvalidationBus.REVOKED_TOKEN, expiration.getTime(), claims.getId());
+        return true;
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        Timer.Sample sample = Timer.start();
+        try {
+            Claims claims = parser
+                    .parseClaimsJws(token)
+                    .getBody();
+            sample.stop(validVerifications);
+            return claims;
+        } catch (RuntimeException exception) {
+            sample.stop(invalidVerifications);
+            throw exception;
+        }
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static Timer verificationTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("security.jwt.verification")
+                .description("JWT signature verification and claims parsing")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 }
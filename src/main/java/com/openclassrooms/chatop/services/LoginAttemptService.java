@@ -0,0 +1,200 @@
+package com.openclassrooms.chatop.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Service de limitation des tentatives de connexion échouées.
+ *
+ * <p>Les échecs sont comptés par email et par adresse IP cliente sur une fenêtre
+ * glissante découpée en tranches de temps. Lorsqu'un des deux compteurs atteint
+ * son seuil, la tentative est rejetée avant toute vérification BCrypt.</p>
+ *
+ * <p>Les compteurs sont stockés dans un sketch de taille fixe (count-min) : la mémoire
+ * reste bornée quel que soit le nombre d'emails ou d'IP vus, et les mises à jour se
+ * font par compare-and-set, sans verrou. Une collision ne peut que surestimer un
+ * compteur, jamais le sous-estimer.</p>
+ *
+ * <p>Le sketch est dimensionné d'après {@code security.login.expected-keys}, le nombre de clés
+ * (emails ou IP) ayant échoué sur une même fenêtre : chacune de ses quatre lignes compte au moins
+ * deux cellules par clé attendue, pour qu'un blocage par collision exige que la clé partage ses
+ * quatre cellules avec des clés elles-mêmes en échec. Les clés sont hachées sur tous leurs
+ * caractères avec une graine tirée au démarrage : deux clés de même {@code hashCode()} ne
+ * partagent pas leurs compteurs, et les collisions ne sont pas prévisibles d'une instance à l'autre.</p>
+ */
+@Service
+public class LoginAttemptService {
+    private final SlidingWindowSketch emailFailures;
+    private final SlidingWindowSketch ipFailures;
+    private final int maxFailuresPerEmail;
+    private final int maxFailuresPerIp;
+    private final LongSupplier clock;
+
+    /**
+     * Constructeur du service de limitation des connexions.
+     *
+     * @param maxFailuresPerEmail nombre d'échecs tolérés par email sur la fenêtre
+     * @param maxFailuresPerIp nombre d'échecs tolérés par adresse IP sur la fenêtre
+     * @param windowMillis durée de la fenêtre glissante en millisecondes
+     * @param expectedKeys nombre attendu d'emails (ou d'IP) distincts en échec sur une fenêtre
+     */
+    @Autowired
+    public LoginAttemptService(
+            @Value("${security.login.max-failures-per-email:5}") int maxFailuresPerEmail,
+            @Value("${security.login.max-failures-per-ip:20}") int maxFailuresPerIp,
+            @Value("${security.login.window:900000}") long windowMillis,
+            @Value("${security.login.expected-keys:10000}") int expectedKeys
+    ) {
+        this(maxFailuresPerEmail, maxFailuresPerIp, windowMillis, expectedKeys, System::currentTimeMillis);
+    }
+
+    LoginAttemptService(
+            int maxFailuresPerEmail,
+            int maxFailuresPerIp,
+            long windowMillis,
+            int expectedKeys,
+            LongSupplier clock
+    ) {
+        this.maxFailuresPerEmail = maxFailuresPerEmail;
+        this.maxFailuresPerIp = maxFailuresPerIp;
+        this.emailFailures = new SlidingWindowSketch(expectedKeys, windowMillis);
+        this.ipFailures = new SlidingWindowSketch(expectedKeys, windowMillis);
+        this.clock = clock;
+    }
+
+    /**
+     * Indique si une tentative de connexion doit être rejetée sans être évaluée.
+     *
+     * @param email l'email saisi
+     * @param clientIp l'adresse IP du client, ou null si inconnue
+     * @return true si l'email ou l'IP a dépassé son seuil d'échecs
+     */
+    public boolean isBlocked(String email, String clientIp) {
+        long now = clock.getAsLong();
+        if (email != null && emailFailures.estimate(normalize(email), now) >= maxFailuresPerEmail) {
+            return true;
+        }
+        return clientIp != null && ipFailures.estimate(clientIp, now) >= maxFailuresPerIp;
+    }
+
+    /**
+     * Enregistre une tentative de connexion échouée pour l'email et l'IP donnés.
+     *
+     * @param email l'email saisi
+     * @param clientIp l'adresse IP du client, ou null si inconnue
+     */
+    public void recordFailure(String email, String clientIp) {
+        long now = clock.getAsLong();
+        if (email != null) {
+            emailFailures.increment(normalize(email), now);
+        }
+        if (clientIp != null) {
+            ipFailures.increment(clientIp, now);
+        }
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Sketch count-min dont chaque cellule est une fenêtre glissante de compteurs.
+     *
+     * <p>Chaque cellule contient une tranche de temps et son compteur, empaquetés
+     * dans un seul long pour pouvoir être mis à jour par un unique CAS.</p>
+     */
+    private static final class SlidingWindowSketch {
+        private static final int DEPTH = 4;
+        private static final int SLICES = 6;
+        private static final int COUNT_BITS = 24;
+        private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+        private static final int MIN_WIDTH = 64;
+        private static final int MAX_WIDTH = 1 << 22;
+
+        private final AtomicLongArray cells;
+        private final int width;
+        private final long sliceMillis;
+        private final long seed1 = ThreadLocalRandom.current().nextLong();
+        private final long seed2 = ThreadLocalRandom.current().nextLong();
+
+        SlidingWindowSketch(int expectedKeys, long windowMillis) {
+            this.width = width(expectedKeys);
+            this.sliceMillis = Math.max(1, windowMillis / SLICES);
+            this.cells = new AtomicLongArray(DEPTH * width * SLICES);
+        }
+
+        /**
+         * Largeur d'une ligne : puissance de deux d'au moins deux cellules par clé attendue.
+         */
+        private static int width(int expectedKeys) {
+            long target = Math.max(MIN_WIDTH, 2L * expectedKeys);
+            return (int) Math.min(MAX_WIDTH, Long.highestOneBit(target - 1) << 1);
+        }
+
+        void increment(String key, long now) {
+            long slice = now / sliceMillis;
+            int offset = (int) (slice % SLICES);
+            long h1 = hash(key, seed1);
+            long h2 = hash(key, seed2) | 1;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = base(h1, h2, row) + offset;
+                long current;
+                long next;
+                do {
+                    current = cells.get(index);
+                    long count = (current >>> COUNT_BITS) == slice ? current & COUNT_MASK : 0;
+                    next = (slice << COUNT_BITS) | Math.min(count + 1, COUNT_MASK);
+                } while (!cells.compareAndSet(index, current, next));
+            }
+        }
+
+        long estimate(String key, long now) {
+            long slice = now / sliceMillis;
+            long h1 = hash(key, seed1);
+            long h2 = hash(key, seed2) | 1;
+            long min = Long.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                int base = base(h1, h2, row);
+                long sum = 0;
+                for (int i = 0; i < SLICES; i++) {
+                    long cell = cells.get(base + i);
+                    long cellSlice = cell >>> COUNT_BITS;
+                    if (cellSlice > slice - SLICES && cellSlice <= slice) {
+                        sum += cell & COUNT_MASK;
+                    }
+                }
+                min = Math.min(min, sum);
+            }
+            return min;
+        }
+
+        private int base(long h1, long h2, int row) {
+            // Double hachage : une position indépendante par ligne à partir de deux hachages 64 bits
+            return (row * width + (int) ((h1 + row * h2) & (width - 1))) * SLICES;
+        }
+
+        /**
+         * FNV-1a 64 bits sur tous les caractères de la clé, amorcé par la graine, puis mélange final
+         * de MurmurHash3 pour que chaque bit de la clé influe sur tous les bits du résultat.
+         */
+        private static long hash(String key, long seed) {
+            long h = seed ^ 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                h ^= key.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
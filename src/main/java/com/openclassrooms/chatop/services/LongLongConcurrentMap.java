@@ -0,0 +1,196 @@
+package com.openclassrooms.chatop.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Table de hachage concurrente de clés {@code long} strictement positives vers des valeurs {@code long}.
+ *
+ * <p>Les clés et valeurs sont rangées dans deux {@link AtomicLongArray} en adressage ouvert
+ * (sondage linéaire) : aucun objet n'est alloué par entrée. Les lectures se font sans verrou
+ * sur un instantané de la table ; les écritures, rares, sont sérialisées par segment. La valeur
+ * est publiée avant la clé, si bien qu'un lecteur qui voit la clé voit aussi sa valeur.</p>
+ *
+ * <p>Aucune suppression n'est prévue : la table sert de cache d'associations immuables.</p>
+ */
+final class LongLongConcurrentMap {
+    private static final long EMPTY = 0L;
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * @param expectedEntries nombre d'entrées attendu, pour éviter les agrandissements au démarrage
+     */
+    LongLongConcurrentMap(int expectedEntries) {
+        int perSegment = Math.max(8, expectedEntries / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Recherche la valeur associée à une clé.
+     *
+     * @param key la clé, strictement positive
+     * @param missingValue valeur retournée si la clé est absente
+     * @return la valeur associée, ou {@code missingValue}
+     */
+    long get(long key, long missingValue) {
+        long hash = mix(key);
+        return segments[segmentIndex(hash)].get(key, hash, missingValue);
+    }
+
+    /**
+     * Associe une valeur à une clé, en remplaçant la valeur existante.
+     *
+     * @param key la clé, strictement positive
+     * @param value la valeur
+     */
+    void put(long key, long value) {
+        checkKey(key);
+        long hash = mix(key);
+        segments[segmentIndex(hash)].put(key, hash, value);
+    }
+
+    /**
+     * Associe une valeur à une clé et retourne celle qu'elle remplace.
+     *
+     * @param key la clé, strictement positive
+     * @param value la valeur
+     * @param missingValue valeur retournée si la clé était absente
+     * @return la valeur précédente, ou {@code missingValue}
+     */
+    long getAndPut(long key, long value, long missingValue) {
+        checkKey(key);
+        long hash = mix(key);
+        return segments[segmentIndex(hash)].getAndPut(key, hash, value, missingValue);
+    }
+
+    /**
+     * Associe une valeur à une clé si sa valeur actuelle est celle attendue.
+     *
+     * @param key la clé, strictement positive
+     * @param expectedValue la valeur attendue
+     * @param value la nouvelle valeur
+     * @param missingValue valeur considérée comme actuelle si la clé est absente
+     * @return true si la valeur a été remplacée
+     */
+    boolean compareAndPut(long key, long expectedValue, long value, long missingValue) {
+        checkKey(key);
+        long hash = mix(key);
+        return segments[segmentIndex(hash)].compareAndPut(key, hash, expectedValue, value, missingValue);
+    }
+
+    /**
+     * @return le nombre d'entrées
+     */
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    private static void checkKey(long key) {
+        if (key <= EMPTY) {
+            throw new IllegalArgumentException("Key must be positive: " + key);
+        }
+    }
+
+    private static int segmentIndex(long hash) {
+        return (int) (hash >>> 60) & (SEGMENTS - 1);
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return h ^ (h >>> 32);
+    }
+
+    private static final class Segment {
+        private volatile Table table;
+        private volatile int size;
+
+        Segment(int expectedEntries) {
+            this.table = new Table(Integer.highestOneBit(Math.max(8, expectedEntries * 2 - 1)) << 1);
+        }
+
+        long get(long key, long hash, long missingValue) {
+            Table t = table;
+            int mask = t.keys.length() - 1;
+            for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+                long k = t.keys.get(i);
+                if (k == key) {
+                    return t.values.get(i);
+                }
+                if (k == EMPTY) {
+                    return missingValue;
+                }
+            }
+        }
+
+        synchronized long getAndPut(long key, long hash, long value, long missingValue) {
+            long previous = get(key, hash, missingValue);
+            put(key, hash, value);
+            return previous;
+        }
+
+        synchronized boolean compareAndPut(long key, long hash, long expectedValue, long value, long missingValue) {
+            if (get(key, hash, missingValue) != expectedValue) {
+                return false;
+            }
+            put(key, hash, value);
+            return true;
+        }
+
+        synchronized void put(long key, long hash, long value) {
+            if (!table.put(key, hash, value)) {
+                return;
+            }
+            size++;
+            if (size * 4L >= table.keys.length() * 3L) {
+                table = table.resize();
+            }
+        }
+    }
+
+    private static final class Table {
+        final AtomicLongArray keys;
+        final AtomicLongArray values;
+
+        Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.values = new AtomicLongArray(capacity);
+        }
+
+        /**
+         * @return true si la clé a été ajoutée, false si sa valeur a été remplacée
+         */
+        boolean put(long key, long hash, long value) {
+            int mask = keys.length() - 1;
+            for (int i = (int) hash & mask; ; i = (i + 1) & mask) {
+                long k = keys.get(i);
+                if (k == key) {
+                    values.set(i, value);
+                    return false;
+                }
+                if (k == EMPTY) {
+                    values.set(i, value);
+                    keys.set(i, key);
+                    return true;
+                }
+            }
+        }
+
+        Table resize() {
+            Table bigger = new Table(keys.length() << 1);
+            for (int i = 0; i < keys.length(); i++) {
+                long k = keys.get(i);
+                if (k != EMPTY) {
+                    bigger.put(k, mix(k), values.get(i));
+                }
+            }
+            return bigger;
+        }
+    }
+}
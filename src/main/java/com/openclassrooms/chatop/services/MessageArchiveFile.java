@@ -0,0 +1,358 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.dtos.MessageItemDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Fichier d'archive des messages d'un mois, en lecture seule une fois écrit.
+ *
+ * <p>Les messages sont rangés deux fois, en deux séquences triées : par destinataire puis par
+ * expéditeur (clé croissante, puis date d'envoi et identifiant croissants). Chaque séquence est
+ * découpée en blocs de {@link #BLOCK_ROWS} messages compressés (Deflate) indépendamment, et
+ * décrite par un index creux qui ne garde, par bloc, que la première et la dernière clé et la
+ * position du bloc. Lire les messages d'un utilisateur ne décompresse donc que ses blocs.</p>
+ *
+ * <pre>
+ * en-tête   : magic (8 octets), version (int)
+ * blocs     : taille compressée (int), nombre de messages (int), données Deflate
+ * index     : pour chaque séquence, nombre de blocs (int) puis (première clé, dernière clé, position) par bloc
+ * pied      : position de l'index (long), date min et max (secondes long + nanos int), nombre de messages (long), magic
+ * </pre>
+ */
+final class MessageArchiveFile implements Closeable {
+    static final int BLOCK_ROWS = 512;
+
+    private static final long MAGIC = 0x4348415441524331L; // "CHATARC1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int FOOTER_BYTES = 8 + 12 + 12 + 8 + 8;
+
+    /**
+     * Séquence triée à lire : messages reçus ou messages envoyés.
+     */
+    enum Run {
+        RECIPIENT, SENDER
+    }
+
+    private final FileChannel channel;
+    private final long[][][] indexes = new long[Run.values().length][][];
+    private final Instant minSentAt;
+    private final Instant maxSentAt;
+    private final long messageCount;
+
+    private MessageArchiveFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        ByteBuffer header = read(0, HEADER_BYTES);
+        if (header.getLong() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a message archive");
+        }
+        ByteBuffer footer = read(size - FOOTER_BYTES, FOOTER_BYTES);
+        long indexPosition = footer.getLong();
+        this.minSentAt = Instant.ofEpochSecond(footer.getLong(), footer.getInt());
+        this.maxSentAt = Instant.ofEpochSecond(footer.getLong(), footer.getInt());
+        this.messageCount = footer.getLong();
+        if (footer.getLong() != MAGIC) {
+            throw new IOException("Truncated message archive");
+        }
+        ByteBuffer index = read(indexPosition, (int) (size - FOOTER_BYTES - indexPosition));
+        for (Run run : Run.values()) {
+            long[][] blocks = new long[index.getInt()][];
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = new long[]{index.getLong(), index.getLong(), index.getLong()};
+            }
+            indexes[run.ordinal()] = blocks;
+        }
+    }
+
+    /**
+     * Ouvre une archive existante et charge son index en mémoire.
+     *
+     * @param path le fichier d'archive
+     * @return l'archive ouverte
+     * @throws IOException si le fichier est illisible ou n'est pas une archive complète
+     */
+    static MessageArchiveFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new MessageArchiveFile(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Crée une archive ; les séquences doivent être écrites dans l'ordre de {@link Run}.
+     *
+     * @param path le fichier à créer
+     * @return l'écrivain de l'archive
+     * @throws IOException si le fichier ne peut pas être créé
+     */
+    static Writer create(Path path) throws IOException {
+        return new Writer(path);
+    }
+
+    /**
+     * Recherche les messages d'un utilisateur antérieurs à une position, du plus récent au plus ancien.
+     *
+     * @param run séquence à lire (messages reçus ou envoyés)
+     * @param userId identifiant du destinataire ou de l'expéditeur
+     * @param rentalId identifiant de location pour filtrer, ou null
+     * @param sentAt date d'envoi de la position de départ (exclue)
+     * @param id identifiant de la position de départ (exclu)
+     * @param limit nombre maximal de messages
+     * @return les messages trouvés
+     * @throws IOException en cas d'erreur de lecture
+     */
+    List<MessageItemDto> find(Run run, long userId, Long rentalId, Instant sentAt, long id, int limit) throws IOException {
+        long[][] blocks = indexes[run.ordinal()];
+        List<MessageItemDto> found = new ArrayList<>();
+        for (int b = firstBlock(blocks, userId); b < blocks.length && blocks[b][0] <= userId; b++) {
+            for (MessageItemDto message : readBlock(blocks[b][2])) {
+                long key = run == Run.RECIPIENT ? message.getRecipient_id() : message.getSender_id();
+                if (key == userId
+                        && (rentalId == null || rentalId.equals(message.getRental_id()))
+                        && isBefore(message, sentAt, id)) {
+                    found.add(message);
+                }
+            }
+        }
+        found.sort(Comparator.comparing(MessageItemDto::getSent_at).thenComparing(MessageItemDto::getId).reversed());
+        return found.size() > limit ? found.subList(0, limit) : found;
+    }
+
+    Instant getMinSentAt() {
+        return minSentAt;
+    }
+
+    Instant getMaxSentAt() {
+        return maxSentAt;
+    }
+
+    long getMessageCount() {
+        return messageCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int firstBlock(long[][] blocks, long key) {
+        int low = 0;
+        int high = blocks.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blocks[mid][1] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean isBefore(MessageItemDto message, Instant sentAt, long id) {
+        int cmp = message.getSent_at().compareTo(sentAt);
+        return cmp < 0 || (cmp == 0 && message.getId() < id);
+    }
+
+    private List<MessageItemDto> readBlock(long position) throws IOException {
+        ByteBuffer header = read(position, 8);
+        int compressedLength = header.getInt();
+        int rows = header.getInt();
+        ByteBuffer compressed = read(position + 8, compressedLength);
+        Inflater inflater = new Inflater();
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(compressedLength * 4);
+        try {
+            inflater.setInput(compressed);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Corrupted message archive block");
+                }
+                raw.write(buffer, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted message archive block", e);
+        } finally {
+            inflater.end();
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw.toByteArray()));
+        List<MessageItemDto> messages = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            long messageId = in.readLong();
+            long senderId = in.readLong();
+            long recipientId = in.readLong();
+            long rentalId = in.readLong();
+            Instant messageSentAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+            byte[] content = new byte[in.readInt()];
+            in.readFully(content);
+            messages.add(new MessageItemDto(messageId, new String(content, StandardCharsets.UTF_8),
+                    senderId, recipientId, rentalId, messageSentAt));
+        }
+        return messages;
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated message archive");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Écriture séquentielle d'une archive : une séquence après l'autre, messages triés par clé.
+     */
+    static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final List<List<long[]>> indexes = new ArrayList<>();
+        private final List<MessageItemDto> block = new ArrayList<>(BLOCK_ROWS);
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private Run run;
+        private long position;
+        private Instant minSentAt;
+        private Instant maxSentAt;
+        private long messageCount;
+
+        private Writer(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            write(ByteBuffer.allocate(HEADER_BYTES).putLong(MAGIC).putInt(VERSION).flip());
+        }
+
+        /**
+         * Commence la séquence suivante.
+         *
+         * @param next la séquence, dans l'ordre de {@link Run}
+         * @throws IOException en cas d'erreur d'écriture
+         */
+        void startRun(Run next) throws IOException {
+            if (next.ordinal() != indexes.size()) {
+                throw new IllegalStateException("Runs must be written in order");
+            }
+            flushBlock();
+            run = next;
+            indexes.add(new ArrayList<>());
+        }
+
+        /**
+         * Ajoute un message à la séquence courante, dans l'ordre croissant de sa clé.
+         *
+         * @param message le message
+         * @throws IOException en cas d'erreur d'écriture
+         */
+        void add(MessageItemDto message) throws IOException {
+            if (run == Run.RECIPIENT) {
+                messageCount++;
+                minSentAt = minSentAt == null || message.getSent_at().isBefore(minSentAt) ? message.getSent_at() : minSentAt;
+                maxSentAt = maxSentAt == null || message.getSent_at().isAfter(maxSentAt) ? message.getSent_at() : maxSentAt;
+            }
+            block.add(message);
+            if (block.size() == BLOCK_ROWS) {
+                flushBlock();
+            }
+        }
+
+        /**
+         * Termine l'archive (index et pied) et force son écriture sur disque.
+         *
+         * @throws IOException en cas d'erreur d'écriture
+         */
+        void finish() throws IOException {
+            flushBlock();
+            while (indexes.size() < Run.values().length) {
+                indexes.add(new ArrayList<>());
+            }
+            long indexPosition = position;
+            int indexBytes = indexes.stream().mapToInt(entries -> 4 + entries.size() * 24).sum();
+            ByteBuffer index = ByteBuffer.allocate(indexBytes);
+            for (List<long[]> entries : indexes) {
+                index.putInt(entries.size());
+                entries.forEach(entry -> index.putLong(entry[0]).putLong(entry[1]).putLong(entry[2]));
+            }
+            write(index.flip());
+            Instant min = minSentAt != null ? minSentAt : Instant.EPOCH;
+            Instant max = maxSentAt != null ? maxSentAt : Instant.EPOCH;
+            write(ByteBuffer.allocate(FOOTER_BYTES)
+                    .putLong(indexPosition)
+                    .putLong(min.getEpochSecond()).putInt(min.getNano())
+                    .putLong(max.getEpochSecond()).putInt(max.getNano())
+                    .putLong(messageCount)
+                    .putLong(MAGIC)
+                    .flip());
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            channel.close();
+        }
+
+        private void flushBlock() throws IOException {
+            if (block.isEmpty()) {
+                return;
+            }
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(block.size() * 128);
+            DataOutputStream out = new DataOutputStream(raw);
+            for (MessageItemDto message : block) {
+                out.writeLong(message.getId());
+                out.writeLong(message.getSender_id());
+                out.writeLong(message.getRecipient_id());
+                out.writeLong(message.getRental_id());
+                out.writeLong(message.getSent_at().getEpochSecond());
+                out.writeInt(message.getSent_at().getNano());
+                byte[] content = message.getMessage().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(content.length);
+                out.write(content);
+            }
+            deflater.reset();
+            deflater.setInput(raw.toByteArray());
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.size() / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            long firstKey = key(block.get(0));
+            long lastKey = key(block.get(block.size() - 1));
+            indexes.get(run.ordinal()).add(new long[]{firstKey, lastKey, position});
+            write(ByteBuffer.allocate(8).putInt(compressed.size()).putInt(block.size()).flip());
+            write(ByteBuffer.wrap(compressed.toByteArray()));
+            block.clear();
+        }
+
+        private long key(MessageItemDto message) {
+            return run == Run.RECIPIENT ? message.getRecipient_id() : message.getSender_id();
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.dtos.MessageItemDto;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Stockage froid des messages anciens : partitions mensuelles et archive compressée.
+ *
+ * <p>Sur MySQL, la table {@code messages} peut être partitionnée par mois sur {@code sent_at}
+ * (script {@code scripts/partition-messages.sql}) ; le service crée alors à l'avance les
+ * partitions des {@code messages.archive.partitions-ahead} mois suivants.</p>
+ *
+ * <p>Chaque nuit, les mois clos au-delà des {@code messages.archive.hot-months} derniers sont
+ * écrits dans un fichier {@link MessageArchiveFile} par mois, puis retirés de la base : par
+ * {@code DROP PARTITION} si la table est partitionnée (instantané, sans fragmenter la table),
+ * par {@code DELETE} sinon. Les boîtes de réception et d'envoi continuent dans l'archive
+ * lorsque la base est épuisée, avec le même curseur.</p>
+ *
+ * <p>Avec plusieurs instances, {@code messages.archive.dir} est un répertoire partagé (volume
+ * réseau monté par toutes) : une seule instance à la fois archive, celle qui a pris le bail de la
+ * ligne {@code message-archive} de {@code job_locks} (pour {@code messages.archive.lock-lease} ms),
+ * et chaque instance ouvre, avant de lire l'archive, les fichiers écrits par les autres.</p>
+ *
+ * <p>Les mois sont découpés dans le fuseau de la JVM, celui dans lequel Hibernate écrit
+ * {@code sent_at}, pour que partitions et archives portent exactement sur les mêmes lignes.
+ * Sans {@code messages.archive.dir}, l'archivage est désactivé.</p>
+ */
+@Service
+public class MessageArchiveService {
+    private static final Logger log = LoggerFactory.getLogger(MessageArchiveService.class);
+
+    private static final String FILE_PREFIX = "messages-";
+    private static final String FILE_SUFFIX = ".arc";
+    private static final int READ_CHUNK = 5_000;
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final DateTimeFormatter PARTITION_BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String ARCHIVE_QUERY = "SELECT id, content, sender_id, recipient_id, rental_id, sent_at FROM messages "
+            + "WHERE sent_at >= ? AND sent_at < ? AND (%1$s, sent_at, id) > (?, ?, ?) "
+            + "ORDER BY %1$s, sent_at, id LIMIT ?";
+    private static final String LOCK_NAME = "message-archive";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Path archiveDir;
+    private final int hotMonths;
+    private final int partitionsAhead;
+    private final long lockLeaseMillis;
+    private final ZoneId zone = ZoneId.systemDefault();
+    /** Identifiant de cette instance dans {@code job_locks}. */
+    private final String owner = UUID.randomUUID().toString();
+    private final ConcurrentSkipListMap<YearMonth, MessageArchiveFile> archives =
+            new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+
+    /**
+     * Constructeur du service d'archivage des messages.
+     *
+     * @param jdbcTemplate accès JDBC à la base
+     * @param archiveDir répertoire des fichiers d'archive, vide pour désactiver l'archivage
+     * @param hotMonths nombre de mois gardés en base en plus du mois courant
+     * @param partitionsAhead nombre de partitions mensuelles à créer à l'avance
+     * @param lockLeaseMillis durée du bail de l'archivage, au-delà de laquelle une autre instance le reprend
+     */
+    public MessageArchiveService(
+            JdbcTemplate jdbcTemplate,
+            @Value("${messages.archive.dir:}") String archiveDir,
+            @Value("${messages.archive.hot-months:12}") int hotMonths,
+            @Value("${messages.archive.partitions-ahead:3}") int partitionsAhead,
+            @Value("${messages.archive.lock-lease:3600000}") long lockLeaseMillis
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveDir = archiveDir == null || archiveDir.isBlank() ? null : Path.of(archiveDir);
+        this.hotMonths = Math.max(1, hotMonths);
+        this.partitionsAhead = partitionsAhead;
+        this.lockLeaseMillis = lockLeaseMillis;
+    }
+
+    /**
+     * Ouvre les archives existantes.
+     *
+     * @throws IOException si le répertoire d'archive ne peut pas être créé ou lu
+     */
+    @PostConstruct
+    public void openArchives() throws IOException {
+        if (archiveDir == null) {
+            return;
+        }
+        Files.createDirectories(archiveDir);
+        openNewArchives();
+        log.info("{} message archive(s) opened from {}", archives.size(), archiveDir);
+    }
+
+    /**
+     * Recherche dans l'archive les messages d'un utilisateur antérieurs à une position.
+     *
+     * @param inbox true pour les messages reçus, false pour les messages envoyés
+     * @param userId identifiant de l'utilisateur
+     * @param rentalId identifiant de location pour filtrer, ou null
+     * @param sentAt date d'envoi de la position de départ (exclue)
+     * @param id identifiant de la position de départ (exclu)
+     * @param limit nombre maximal de messages
+     * @return les messages, du plus récent au plus ancien
+     */
+    public List<MessageItemDto> findOlder(boolean inbox, Long userId, Long rentalId, Instant sentAt, long id, int limit) {
+        if (archiveDir == null) {
+            return List.of();
+        }
+        try {
+            // Un mois archivé par une autre instance n'est plus en base : son fichier est ouvert avant la lecture
+            openNewArchives();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<MessageItemDto> found = new ArrayList<>();
+        MessageArchiveFile.Run run = inbox ? MessageArchiveFile.Run.RECIPIENT : MessageArchiveFile.Run.SENDER;
+        for (MessageArchiveFile archive : archives.values()) {
+            if (found.size() >= limit) {
+                break;
+            }
+            if (archive.getMessageCount() == 0 || archive.getMinSentAt().isAfter(sentAt)) {
+                continue;
+            }
+            try {
+                found.addAll(archive.find(run, userId, rentalId, sentAt, id, limit - found.size()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Tâche de rétention : prépare les prochaines partitions puis archive les mois clos.
+     */
+    @Scheduled(cron = "${messages.archive.cron:0 30 3 * * *}")
+    public void runRetention() {
+        if (!tryLock()) {
+            log.debug("Message retention is running on another instance");
+            return;
+        }
+        try {
+            try {
+                ensureFuturePartitions();
+            } catch (DataAccessException e) {
+                log.warn("Message partition maintenance failed: {}", e.getMessage());
+            }
+            try {
+                archiveClosedMonthsLocked();
+            } catch (IOException | DataAccessException e) {
+                log.warn("Message archiving failed, will retry: {}", e.getMessage());
+            }
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Archive puis retire de la base les mois clos plus anciens que la fenêtre chaude, si aucune
+     * autre instance n'est en train de le faire.
+     *
+     * @return le nombre de messages archivés
+     * @throws IOException en cas d'erreur d'écriture de l'archive
+     */
+    public long archiveClosedMonths() throws IOException {
+        if (!tryLock()) {
+            return 0;
+        }
+        try {
+            return archiveClosedMonthsLocked();
+        } finally {
+            unlock();
+        }
+    }
+
+    private long archiveClosedMonthsLocked() throws IOException {
+        if (archiveDir == null) {
+            return 0;
+        }
+        openNewArchives();
+        YearMonth cutoff = YearMonth.now(zone).minusMonths(hotMonths);
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(sent_at) FROM messages", Timestamp.class);
+        if (oldest == null) {
+            return 0;
+        }
+        long archived = 0;
+        for (YearMonth month = YearMonth.from(oldest.toLocalDateTime()); month.isBefore(cutoff); month = month.plusMonths(1)) {
+            archived += archiveMonth(month);
+        }
+        return archived;
+    }
+
+    /**
+     * Crée les partitions mensuelles manquantes jusqu'à {@code partitions-ahead} mois, si la
+     * table {@code messages} est partitionnée par mois (MySQL uniquement).
+     */
+    public void ensureFuturePartitions() {
+        TreeSet<YearMonth> partitions = monthlyPartitions();
+        if (partitions.isEmpty()) {
+            return;
+        }
+        YearMonth last = YearMonth.now(zone).plusMonths(partitionsAhead);
+        StringBuilder ddl = new StringBuilder();
+        for (YearMonth month = partitions.last().plusMonths(1); !month.isAfter(last); month = month.plusMonths(1)) {
+            ddl.append("PARTITION ").append(PARTITION_NAME.format(month))
+                    .append(" VALUES LESS THAN ('")
+                    .append(PARTITION_BOUND.format(month.plusMonths(1).atDay(1).atStartOfDay()))
+                    .append("'), ");
+        }
+        if (!ddl.isEmpty()) {
+            jdbcTemplate.execute("ALTER TABLE messages REORGANIZE PARTITION p_future INTO ("
+                    + ddl + "PARTITION p_future VALUES LESS THAN (MAXVALUE))");
+            log.info("Message partitions created up to {}", last);
+        }
+    }
+
+    /**
+     * Ferme les archives à l'arrêt de l'application.
+     */
+    @PreDestroy
+    public void closeArchives() {
+        archives.values().forEach(archive -> {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                log.debug("Message archive close failed: {}", e.getMessage());
+            }
+        });
+        archives.clear();
+    }
+
+    /**
+     * Prend le bail de l'archivage s'il est libre ou expiré.
+     */
+    private boolean tryLock() {
+        Instant now = Instant.now();
+        return jdbcTemplate.update("UPDATE job_locks SET owner = ?, locked_until = ? WHERE name = ? AND locked_until < ?",
+                owner, Timestamp.from(now.plusMillis(lockLeaseMillis)), LOCK_NAME, Timestamp.from(now)) == 1;
+    }
+
+    private void unlock() {
+        jdbcTemplate.update("UPDATE job_locks SET locked_until = ? WHERE name = ? AND owner = ?",
+                Timestamp.from(Instant.now()), LOCK_NAME, owner);
+    }
+
+    /**
+     * Ouvre les fichiers d'archive du répertoire qui ne le sont pas encore.
+     */
+    private void openNewArchives() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(archiveDir, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                YearMonth month = YearMonth.parse(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+                if (!archives.containsKey(month)) {
+                    MessageArchiveFile archive = MessageArchiveFile.open(file);
+                    if (archives.putIfAbsent(month, archive) != null) {
+                        archive.close();
+                    }
+                }
+            }
+        }
+    }
+
+    private long archiveMonth(YearMonth month) throws IOException {
+        Timestamp from = Timestamp.from(month.atDay(1).atStartOfDay(zone).toInstant());
+        Timestamp to = Timestamp.from(month.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant());
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM messages WHERE sent_at >= ? AND sent_at < ?", Long.class, from, to);
+        if (count == null || count == 0) {
+            return 0;
+        }
+        Path file = archiveDir.resolve(FILE_PREFIX + month + FILE_SUFFIX);
+        MessageArchiveFile archive = archives.get(month);
+        if (archive == null) {
+            Path tmp = archiveDir.resolve(file.getFileName() + ".tmp");
+            Files.deleteIfExists(tmp);
+            try (MessageArchiveFile.Writer writer = MessageArchiveFile.create(tmp)) {
+                writeRun(writer, MessageArchiveFile.Run.RECIPIENT, "recipient_id", from, to);
+                writeRun(writer, MessageArchiveFile.Run.SENDER, "sender_id", from, to);
+                writer.finish();
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+            archive = MessageArchiveFile.open(file);
+            MessageArchiveFile opened = archives.putIfAbsent(month, archive);
+            if (opened != null) {
+                // Déjà ouvert par une lecture concurrente
+                archive.close();
+                archive = opened;
+            }
+        }
+        if (archive.getMessageCount() != count) {
+            // Archive d'une exécution précédente qui ne couvre pas toutes les lignes : on ne supprime rien
+            log.warn("Message archive {} holds {} messages but the database has {}, not purging",
+                    file, archive.getMessageCount(), count);
+            return 0;
+        }
+        if (monthlyPartitions().contains(month)) {
+            jdbcTemplate.execute("ALTER TABLE messages DROP PARTITION " + PARTITION_NAME.format(month));
+        } else {
+            jdbcTemplate.update("DELETE FROM messages WHERE sent_at >= ? AND sent_at < ?", from, to);
+        }
+        log.info("{} messages of {} moved to {}", count, month, file);
+        return count;
+    }
+
+    private void writeRun(MessageArchiveFile.Writer writer, MessageArchiveFile.Run run, String keyColumn,
+                          Timestamp from, Timestamp to) throws IOException {
+        writer.startRun(run);
+        String sql = String.format(ARCHIVE_QUERY, keyColumn);
+        long key = Long.MIN_VALUE;
+        Timestamp sentAt = from;
+        long id = Long.MIN_VALUE;
+        while (true) {
+            // Lecture par tranches triées sur (clé, date, id) : mémoire bornée quelle que soit la taille du mois
+            List<MessageItemDto> chunk = jdbcTemplate.query(sql, (rs, i) -> new MessageItemDto(
+                    rs.getLong("id"), rs.getString("content"), rs.getLong("sender_id"),
+                    rs.getLong("recipient_id"), rs.getLong("rental_id"), rs.getTimestamp("sent_at").toInstant()),
+                    from, to, key, sentAt, id, READ_CHUNK);
+            for (MessageItemDto message : chunk) {
+                writer.add(message);
+            }
+            if (chunk.size() < READ_CHUNK) {
+                return;
+            }
+            MessageItemDto last = chunk.get(chunk.size() - 1);
+            key = run == MessageArchiveFile.Run.RECIPIENT ? last.getRecipient_id() : last.getSender_id();
+            sentAt = Timestamp.from(last.getSent_at());
+            id = last.getId();
+        }
+    }
+
+    private TreeSet<YearMonth> monthlyPartitions() {
+        TreeSet<YearMonth> months = new TreeSet<>();
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        if (product == null || !product.toLowerCase().contains("mysql")) {
+            return months;
+        }
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'messages' AND PARTITION_NAME IS NOT NULL");
+        for (Map<String, Object> row : rows) {
+            String name = String.valueOf(row.get("PARTITION_NAME"));
+            if (name.matches("p\\d{6}")) {
+                months.add(YearMonth.of(Integer.parseInt(name.substring(1, 5)), Integer.parseInt(name.substring(5))));
+            }
+        }
+        return months;
+    }
+}
@@ -0,0 +1,158 @@
+package com.openclassrooms.chatop.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Limitation du débit d'envoi de messages par expéditeur (seau à jetons).
+ *
+ * <p>Chaque expéditeur dispose d'un seau de {@code messages.rate-limit.burst} jetons, rechargé
+ * de {@code messages.rate-limit.per-minute} jetons par minute. Le seau est représenté par un
+ * seul long : l'instant auquel il sera de nouveau plein (algorithme GCRA). Consommer un jeton
+ * revient à avancer cet instant d'un intervalle d'émission, par un unique compare-and-set,
+ * sans verrou.</p>
+ *
+ * <p>Un envoi groupé consomme un jeton par message. Il est accepté dès qu'un jeton est
+ * disponible : les jetons manquants sont pris à crédit et retardent les envois suivants.</p>
+ *
+ * <p>Un seau redevenu plein ne porte plus aucune information : il est retiré de la table par
+ * un balayage périodique. La table est en outre bornée à {@code messages.rate-limit.max-buckets}
+ * seaux : lorsqu'elle est pleine, l'arrivée d'un nouvel expéditeur déclenche le balayage, puis,
+ * s'il ne suffit pas, retire les seaux qui ont encore un jeton disponible (leur expéditeur
+ * retrouve au plus sa rafale). Si tous les seaux suivis sont en attente, le nouvel expéditeur
+ * est prié de réessayer après un intervalle d'émission : il n'est jamais exempté de limite.</p>
+ */
+@Service
+public class MessageRateLimiter {
+    private static final Logger log = LoggerFactory.getLogger(MessageRateLimiter.class);
+
+    private final ConcurrentHashMap<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+    /** Un seul balayage à la fois : les autres threads continuent sans l'attendre. */
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxBuckets;
+    private final LongSupplier clock;
+
+    /**
+     * Constructeur du limiteur d'envoi de messages.
+     *
+     * @param perMinute nombre de messages autorisés par minute et par expéditeur, 0 pour désactiver
+     * @param burst nombre de messages pouvant être envoyés d'affilée
+     * @param maxBuckets nombre maximal d'expéditeurs suivis simultanément
+     */
+    @Autowired
+    public MessageRateLimiter(
+            @Value("${messages.rate-limit.per-minute:30}") int perMinute,
+            @Value("${messages.rate-limit.burst:10}") int burst,
+            @Value("${messages.rate-limit.max-buckets:100000}") int maxBuckets
+    ) {
+        this(perMinute, burst, maxBuckets, System::nanoTime);
+    }
+
+    MessageRateLimiter(int perMinute, int burst, int maxBuckets, LongSupplier clock) {
+        this.emissionIntervalNanos = perMinute > 0 ? TimeUnit.MINUTES.toNanos(1) / perMinute : 0;
+        this.burstToleranceNanos = emissionIntervalNanos * Math.max(0, burst - 1);
+        this.maxBuckets = maxBuckets;
+        this.clock = clock;
+    }
+
+    /**
+     * Consomme un jeton du seau d'un expéditeur.
+     *
+     * @param senderId identifiant de l'expéditeur
+     * @return 0 si l'envoi est autorisé, sinon le délai en millisecondes avant le prochain jeton
+     */
+    public long tryAcquire(Long senderId) {
+        return tryAcquire(senderId, 1);
+    }
+
+    /**
+     * Consomme plusieurs jetons du seau d'un expéditeur, pour un envoi groupé.
+     *
+     * @param senderId identifiant de l'expéditeur
+     * @param permits nombre de messages envoyés
+     * @return 0 si l'envoi est autorisé, sinon le délai en millisecondes avant le prochain jeton
+     */
+    public long tryAcquire(Long senderId, int permits) {
+        if (emissionIntervalNanos == 0) {
+            return 0;
+        }
+        long now = clock.getAsLong();
+        AtomicLong bucket = buckets.get(senderId);
+        if (bucket == null) {
+            if (buckets.size() >= maxBuckets && !makeRoom(now)) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(emissionIntervalNanos));
+            }
+            bucket = buckets.computeIfAbsent(senderId, id -> new AtomicLong(now));
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long start = Math.max(fullAt, now);
+            long wait = start - burstToleranceNanos - now;
+            if (wait > 0) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait));
+            }
+            if (bucket.compareAndSet(fullAt, start + emissionIntervalNanos * permits)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Retire les seaux redevenus pleins, qui n'ont plus d'effet.
+     */
+    @Scheduled(fixedDelayString = "${messages.rate-limit.sweep-interval:60000}")
+    public void evictIdle() {
+        int before = buckets.size();
+        evictFullBefore(clock.getAsLong());
+        log.debug("Message rate limiter: {} idle bucket(s) evicted, {} active", before - buckets.size(), buckets.size());
+    }
+
+    /**
+     * Libère de la place dans la table pleine : seaux pleins, puis seaux ayant encore un jeton.
+     *
+     * @return false si tous les seaux suivis sont en attente d'un jeton
+     */
+    private boolean makeRoom(long now) {
+        if (!sweeping.compareAndSet(false, true)) {
+            // Balayage en cours sur un autre thread : la table dépasse au plus du nombre de threads
+            return true;
+        }
+        try {
+            evictFullBefore(now);
+            if (buckets.size() >= maxBuckets) {
+                evictFullBefore(now + burstToleranceNanos);
+            }
+            return buckets.size() < maxBuckets;
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private void evictFullBefore(long threshold) {
+        for (Map.Entry<Long, AtomicLong> entry : buckets.entrySet()) {
+            if (entry.getValue().get() <= threshold) {
+                buckets.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return le nombre d'expéditeurs actuellement suivis
+     */
+    int getBucketCount() {
+        return buckets.size();
+    }
+}
@@ -1,46 +1,252 @@
 package com.openclassrooms.chatop.services;
 
+import com.openclassrooms.chatop.dtos.CreateInquiryDto;
 import com.openclassrooms.chatop.dtos.CreateMessageDto;
+import com.openclassrooms.chatop.dtos.InquiryResponse;
+import com.openclassrooms.chatop.dtos.InquiryResultDto;
+import com.openclassrooms.chatop.dtos.MessageItemDto;
+import com.openclassrooms.chatop.dtos.MessagePageResponse;
 import com.openclassrooms.chatop.entities.Message;
-import com.openclassrooms.chatop.entities.Rental;
 import com.openclassrooms.chatop.repositories.MessageRepository;
-import com.openclassrooms.chatop.repositories.RentalRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Service pour la gestion des messages entre utilisateurs.
  */
 @Service
 public class MessageService {
+    /** Taille de page par défaut des boîtes de réception et d'envoi. */
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    /** Taille de page maximale des boîtes de réception et d'envoi. */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /** Position de départ : avant tout message existant dans l'ordre décroissant. */
+    private static final Instant FIRST_PAGE_SENT_AT = Instant.parse("9999-12-31T23:59:59Z");
+
     private final MessageRepository messageRepository;
-    private final RentalRepository rentalRepository;
+    private final RentalOwnerResolver rentalOwnerResolver;
+    private final MessageWriteBehindService messageWriteBehindService;
+    private final ConversationService conversationService;
+    private final MessageStreamHub messageStreamHub;
+    private final MessageArchiveService messageArchiveService;
+    private final NotificationDigestService notificationDigestService;
+    private final CacheInvalidationBus invalidationBus;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
 
     /**
      * Constructeur du service MessageService.
      *
      * @param messageRepository le repository des messages
-     * @param rentalRepository le repository des locations
+     * @param rentalOwnerResolver le résolveur du propriétaire d'une location
+     * @param messageWriteBehindService le service d'écriture différée des messages
+     * @param conversationService le service des fils de conversation
+     * @param messageStreamHub le hub de diffusion temps réel des messages
+     * @param messageArchiveService le service d'archivage des messages anciens
+     * @param notificationDigestService le service de récapitulatifs de notification des propriétaires
+     * @param invalidationBus le bus d'invalidation, qui signale les nouveaux messages aux autres instances
+     * @param outboxService l'outbox, qui publie les messages envoyés aux intégrations
+     * @param transactionManager gestionnaire de transactions
      */
-    public MessageService(MessageRepository messageRepository, RentalRepository rentalRepository) {
+    public MessageService(
+            MessageRepository messageRepository,
+            RentalOwnerResolver rentalOwnerResolver,
+            MessageWriteBehindService messageWriteBehindService,
+            ConversationService conversationService,
+            MessageStreamHub messageStreamHub,
+            MessageArchiveService messageArchiveService,
+            NotificationDigestService notificationDigestService,
+            CacheInvalidationBus invalidationBus,
+            OutboxService outboxService,
+            PlatformTransactionManager transactionManager
+    ) {
         this.messageRepository = messageRepository;
-        this.rentalRepository = rentalRepository;
+        this.rentalOwnerResolver = rentalOwnerResolver;
+        this.messageWriteBehindService = messageWriteBehindService;
+        this.conversationService = conversationService;
+        this.messageStreamHub = messageStreamHub;
+        this.messageArchiveService = messageArchiveService;
+        this.notificationDigestService = notificationDigestService;
+        this.invalidationBus = invalidationBus;
+        this.outboxService = outboxService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /**
      * Envoie un message à l'utilisateur propriétaire d'une location.
      *
+     * <p>En mode d'ingestion asynchrone, le message est confié à l'écriture différée et
+     * retourné sans identifiant : il sera inséré par lot peu après. Si la file est pleine,
+     * il est inséré immédiatement. Dans les deux cas, la conversation correspondante est mise
+     * à jour et le message est poussé aux connexions temps réel du destinataire ; les autres
+     * instances et les intégrations ({@link OutboxService}) en sont informées par la transaction
+     * qui insère le message.</p>
+     *
      * @param dto DTO contenant le contenu du message et l'identifiant de la location
      * @param senderId identifiant de l'utilisateur expéditeur (authentifié)
-     * @return le message créé et sauvegardé, ou null si la location n'existe pas
+     * @return le message sauvegardé, le message en attente d'écriture (identifiant null),
+     *         ou null si la location n'existe pas
      */
     public Message sendMessage(CreateMessageDto dto, Long senderId) {
-        Rental rental = rentalRepository.findById(dto.getRental_id()).orElse(null);
-        if (rental == null) return null;
+        Long ownerId = rentalOwnerResolver.resolveOwnerId(dto.getRental_id());
+        if (ownerId == null) return null;
         Message message = new Message();
         message.setContent(dto.getMessage());
         message.setSenderId(senderId);
-        message.setRecipientId(rental.getOwnerId());
-        message.setRentalId(rental.getId());
-        return messageRepository.save(message);
+        message.setRecipientId(ownerId);
+        message.setRentalId(dto.getRental_id());
+        Message sent = messageWriteBehindService.enqueue(message) ? message : transactionTemplate.execute(status -> {
+            Message saved = messageRepository.save(message);
+            invalidationBus.append(CacheInvalidationBus.MAILBOX, ownerId, null);
+            outboxService.recordMessages(List.of(saved));
+            return saved;
+        });
+        dispatch(sent);
+        return sent;
+    }
+
+    /**
+     * Envoie un même message aux propriétaires de plusieurs locations.
+     *
+     * <p>Les propriétaires sont résolus ensemble (cache puis une requête IN pour les absents)
+     * et tous les messages sont insérés en un seul batch, dans une seule transaction.</p>
+     *
+     * @param dto DTO contenant le contenu du message et les identifiants des locations
+     * @param senderId identifiant de l'utilisateur expéditeur (authentifié)
+     * @return le résultat par location, dans l'ordre de la demande et sans doublon
+     */
+    public InquiryResponse sendInquiry(CreateInquiryDto dto, Long senderId) {
+        List<Long> rentalIds = List.copyOf(new LinkedHashSet<>(dto.getRental_ids()));
+        Map<Long, Long> owners = rentalOwnerResolver.resolveOwnerIds(rentalIds);
+        Map<Long, Message> messages = new LinkedHashMap<>();
+        for (Long rentalId : rentalIds) {
+            Long ownerId = owners.get(rentalId);
+            if (ownerId != null) {
+                Message message = new Message();
+                message.setContent(dto.getMessage());
+                message.setSenderId(senderId);
+                message.setRecipientId(ownerId);
+                message.setRentalId(rentalId);
+                messages.put(rentalId, message);
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            messageRepository.insertAll(List.copyOf(messages.values()));
+            invalidationBus.appendAll(CacheInvalidationBus.MAILBOX, new LinkedHashSet<>(owners.values()));
+            outboxService.recordMessages(messages.values());
+        });
+        messages.values().forEach(this::dispatch);
+        List<InquiryResultDto> results = new ArrayList<>(rentalIds.size());
+        for (Long rentalId : rentalIds) {
+            Message message = messages.get(rentalId);
+            results.add(message != null
+                    ? new InquiryResultDto(rentalId, InquiryResultDto.SENT, message.getId())
+                    : new InquiryResultDto(rentalId, InquiryResultDto.RENTAL_NOT_FOUND, null));
+        }
+        return new InquiryResponse(results);
+    }
+
+    /**
+     * Met à jour la conversation d'un message envoyé, le pousse aux connexions de son destinataire
+     * et l'ajoute au prochain récapitulatif de notification de celui-ci.
+     */
+    private void dispatch(Message sent) {
+        conversationService.recordMessage(sent);
+        notificationDigestService.recordMessage(sent);
+        messageStreamHub.publish(sent.getRecipientId(), new MessageItemDto(sent.getId(), sent.getContent(),
+                sent.getSenderId(), sent.getRecipientId(), sent.getRentalId(), sent.getSentAt()));
+    }
+
+    /**
+     * Retourne une page de la boîte de réception d'un utilisateur.
+     *
+     * <p>Une fois les messages en base épuisés, la page se poursuit dans l'archive des
+     * messages anciens, avec le même curseur.</p>
+     *
+     * @param recipientId identifiant de l'utilisateur authentifié
+     * @param rentalId identifiant de location pour filtrer, ou null
+     * @param cursor curseur retourné par la page précédente, ou null pour la première page
+     * @param size taille de page demandée, bornée à {@link #MAX_PAGE_SIZE}
+     * @return la page de messages, ou null si le curseur est invalide
+     */
+    @Transactional(readOnly = true)
+    public MessagePageResponse findInbox(Long recipientId, Long rentalId, String cursor, int size) {
+        return findPage(true, recipientId, rentalId, cursor, size);
+    }
+
+    /**
+     * Retourne une page de la boîte d'envoi d'un utilisateur.
+     *
+     * @param senderId identifiant de l'utilisateur authentifié
+     * @param rentalId identifiant de location pour filtrer, ou null
+     * @param cursor curseur retourné par la page précédente, ou null pour la première page
+     * @param size taille de page demandée, bornée à {@link #MAX_PAGE_SIZE}
+     * @return la page de messages, ou null si le curseur est invalide
+     */
+    @Transactional(readOnly = true)
+    public MessagePageResponse findOutbox(Long senderId, Long rentalId, String cursor, int size) {
+        return findPage(false, senderId, rentalId, cursor, size);
+    }
+
+    private MessagePageResponse findPage(boolean inbox, Long userId, Long rentalId, String cursor, int size) {
+        Instant sentAt = FIRST_PAGE_SENT_AT;
+        long id = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            String decoded;
+            try {
+                decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf(':');
+                sentAt = Instant.parse(decoded.substring(0, separator));
+                id = Long.parseLong(decoded.substring(separator + 1));
+            } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+                return null;
+            }
+        }
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        // Un élément de plus que la page, pour savoir s'il existe une page suivante
+        Limit limit = Limit.of(pageSize + 1);
+        List<MessageItemDto> messages;
+        if (inbox) {
+            messages = rentalId == null
+                    ? messageRepository.findInboxPage(userId, sentAt, id, limit)
+                    : messageRepository.findInboxPageByRental(userId, rentalId, sentAt, id, limit);
+        } else {
+            messages = rentalId == null
+                    ? messageRepository.findOutboxPage(userId, sentAt, id, limit)
+                    : messageRepository.findOutboxPageByRental(userId, rentalId, sentAt, id, limit);
+        }
+        if (messages.size() <= pageSize) {
+            // Base épuisée : la suite est dans l'archive, plus ancienne que toute ligne encore en base
+            MessageItemDto last = messages.isEmpty() ? null : messages.get(messages.size() - 1);
+            List<MessageItemDto> older = messageArchiveService.findOlder(inbox, userId, rentalId,
+                    last != null ? last.getSent_at() : sentAt, last != null ? last.getId() : id,
+                    pageSize + 1 - messages.size());
+            if (!older.isEmpty()) {
+                messages = new ArrayList<>(messages);
+                messages.addAll(older);
+            }
+        }
+        String nextCursor = null;
+        if (messages.size() > pageSize) {
+            messages = messages.subList(0, pageSize);
+            MessageItemDto last = messages.get(pageSize - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((last.getSent_at() + ":" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return new MessagePageResponse(messages, nextCursor);
     }
-}
\ No newline at end of file
+}
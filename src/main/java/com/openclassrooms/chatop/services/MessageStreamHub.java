@@ -0,0 +1,223 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.dtos.MessageItemDto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Diffusion en temps réel des nouveaux messages à leurs destinataires (Server-Sent Events).
+ *
+ * <p>Chaque abonnement possède une file bornée et un thread virtuel qui la vide vers la
+ * connexion. Une connexion inactive ne coûte donc qu'un thread virtuel bloqué et sa file,
+ * sans occuper de thread du serveur. La publication ne bloque jamais l'expéditeur : si la
+ * file d'un abonné lent est pleine, elle est vidée et l'abonné reçoit un événement
+ * {@code resync} l'invitant à relire sa boîte de réception via l'API paginée. Un message envoyé
+ * par une autre instance de l'application produit le même événement ({@link CacheInvalidationBus}).</p>
+ *
+ * <p>En l'absence de message, un commentaire de heartbeat est envoyé toutes les
+ * {@code messages.stream.heartbeat-interval} ms : une écriture en échec signale une
+ * connexion fermée par le client et libère l'abonnement.</p>
+ */
+@Service
+public class MessageStreamHub {
+    private static final Logger log = LoggerFactory.getLogger(MessageStreamHub.class);
+    /** Réveille le thread d'un abonné sans message à envoyer. */
+    private static final MessageItemDto WAKE_UP = new MessageItemDto();
+
+    private final ConcurrentHashMap<Long, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final int bufferSize;
+    private final long heartbeatMillis;
+    private final int maxPerUser;
+
+    /**
+     * Constructeur du hub de diffusion.
+     *
+     * @param bufferSize nombre maximal de messages en attente par abonné
+     * @param heartbeatMillis intervalle des heartbeats en millisecondes
+     * @param maxPerUser nombre maximal de connexions simultanées par utilisateur
+     */
+    public MessageStreamHub(
+            @Value("${messages.stream.buffer-size:64}") int bufferSize,
+            @Value("${messages.stream.heartbeat-interval:25000}") long heartbeatMillis,
+            @Value("${messages.stream.max-per-user:5}") int maxPerUser
+    ) {
+        this.bufferSize = bufferSize;
+        this.heartbeatMillis = heartbeatMillis;
+        this.maxPerUser = maxPerUser;
+    }
+
+    /**
+     * Abonne un utilisateur aux messages qui lui sont adressés.
+     *
+     * @param userId identifiant de l'utilisateur authentifié
+     * @param emitter la connexion SSE à alimenter
+     * @return true si l'abonnement est ouvert, false si l'utilisateur a atteint sa limite de connexions
+     */
+    public boolean subscribe(Long userId, SseEmitter emitter) {
+        Subscription subscription = new Subscription(userId, emitter, new ArrayBlockingQueue<>(bufferSize));
+        boolean[] accepted = {false};
+        subscriptions.compute(userId, (id, current) -> {
+            Set<Subscription> set = current != null ? current : ConcurrentHashMap.newKeySet();
+            if (set.size() < maxPerUser) {
+                accepted[0] = set.add(subscription);
+            }
+            return set;
+        });
+        if (!accepted[0]) {
+            return false;
+        }
+        subscriberCount.incrementAndGet();
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+        subscription.writer = Thread.ofVirtual().name("sse-" + userId).start(subscription::run);
+        return true;
+    }
+
+    /**
+     * Publie un message à toutes les connexions de son destinataire.
+     *
+     * @param recipientId identifiant du destinataire
+     * @param message le message à diffuser
+     */
+    public void publish(Long recipientId, MessageItemDto message) {
+        Set<Subscription> set = subscriptions.get(recipientId);
+        if (set == null) {
+            return;
+        }
+        for (Subscription subscription : set) {
+            subscription.offer(message);
+        }
+    }
+
+    /**
+     * Invite toutes les connexions d'un utilisateur à relire sa boîte de réception, par un
+     * événement {@code resync}.
+     *
+     * @param userId identifiant de l'utilisateur
+     */
+    public void resync(Long userId) {
+        Set<Subscription> set = subscriptions.get(userId);
+        if (set == null) {
+            return;
+        }
+        for (Subscription subscription : set) {
+            subscription.requestResync();
+        }
+    }
+
+    /**
+     * @return le nombre de connexions ouvertes
+     */
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /**
+     * Ferme toutes les connexions à l'arrêt de l'application.
+     */
+    @PreDestroy
+    public void closeAll() {
+        subscriptions.values().forEach(set -> set.forEach(subscription -> {
+            subscription.close();
+            subscription.emitter.complete();
+        }));
+    }
+
+    private void remove(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.userId, (id, set) -> {
+            set.remove(subscription);
+            return set.isEmpty() ? null : set;
+        });
+        subscriberCount.decrementAndGet();
+    }
+
+    private final class Subscription {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<MessageItemDto> queue;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile boolean overflowed;
+        private volatile Thread writer;
+
+        private Subscription(Long userId, SseEmitter emitter, BlockingQueue<MessageItemDto> queue) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+
+        private void offer(MessageItemDto message) {
+            if (!queue.offer(message)) {
+                // Abonné trop lent : on abandonne son retard plutôt que de bloquer l'expéditeur
+                overflowed = true;
+                queue.clear();
+            }
+        }
+
+        private void requestResync() {
+            overflowed = true;
+            queue.offer(WAKE_UP);
+        }
+
+        private void run() {
+            try {
+                while (!closed.get()) {
+                    MessageItemDto message = queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                    if (message == WAKE_UP) {
+                        message = null;
+                    }
+                    boolean sent = false;
+                    if (overflowed) {
+                        overflowed = false;
+                        emitter.send(SseEmitter.event().name("resync").data("{}", MediaType.APPLICATION_JSON));
+                        sent = true;
+                    }
+                    if (message != null) {
+                        SseEmitter.SseEventBuilder event = SseEmitter.event().name("message")
+                                .data(message, MediaType.APPLICATION_JSON);
+                        if (message.getId() != null) {
+                            event.id(message.getId().toString());
+                        }
+                        emitter.send(event);
+                        sent = true;
+                    }
+                    if (!sent) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                // Connexion fermée par le client : le conteneur termine lui-même la requête
+                log.debug("SSE connection of user {} closed: {}", userId, e.getMessage());
+            } finally {
+                close();
+            }
+        }
+
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                remove(this);
+                Thread thread = writer;
+                if (thread != null && thread != Thread.currentThread()) {
+                    thread.interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.openclassrooms.chatop.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.chatop.entities.Message;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Écriture différée (write-behind) des messages, avec commit groupé.
+ *
+ * <p>En mode {@code messages.ingestion.mode=async}, les messages validés sont déposés dans
+ * une file bornée et la requête HTTP se termine aussitôt. Un thread dédié vide la file par
+ * lots : dès qu'un message arrive, il attend au plus {@code flush-interval} ms que le lot se
+ * remplisse (jusqu'à {@code batch-size}), puis insère tout le lot dans une seule transaction
+ * via un batch JDBC (réécrit en INSERT multi-lignes par le driver MySQL). La même transaction
+ * signale les destinataires du lot aux autres instances ({@link CacheInvalidationBus}) et inscrit
+ * les messages dans l'outbox ({@link OutboxService}).</p>
+ *
+ * <p>Un lot en échec est réessayé avec un délai croissant ({@code retry-backoff} ms, doublé à
+ * chaque tentative). S'il échoue encore, ou aussitôt si l'erreur n'est pas transitoire (ligne
+ * invalide), ses messages sont écrits un par un : un message invalide n'empêche pas l'écriture
+ * des autres. Les messages qui ne peuvent toujours pas être écrits, déjà acceptés par un 202,
+ * sont ajoutés au fichier {@code messages-AAAA-MM-JJ.ndjson} de {@code dead-letter-dir}, forcé
+ * sur disque, pour être rejoués par un opérateur.</p>
+ *
+ * <p>Quand la file est pleine ou que le service est arrêté, {@link #enqueue(Message)} retourne
+ * false et l'appelant écrit le message de façon synchrone. À l'arrêt de l'application, les
+ * messages en attente sont écrits avant la fermeture de la base.</p>
+ *
+ * <p>Métriques : profondeur de la file ({@code messages.ingestion.queue.depth}), nombre de
+ * messages par transaction validée ({@code messages.ingestion.commit.size}) et messages écrits
+ * ou rejetés ({@code messages.ingestion.messages}, étiquette {@code result}).</p>
+ */
+@Service
+public class MessageWriteBehindService implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(MessageWriteBehindService.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO messages (content, sender_id, recipient_id, rental_id, sent_at) VALUES (?, ?, ?, ?, ?)";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final OutboxService outboxService;
+    private final boolean enabled;
+    private final BlockingQueue<Message> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long drainTimeoutMillis;
+    private final long retryBackoffMillis;
+    private final Path deadLetterDir;
+    private final ObjectMapper objectMapper;
+    private final DistributionSummary commitSize;
+
+    private final AtomicLong committedMessages = new AtomicLong();
+    private final AtomicLong failedMessages = new AtomicLong();
+    private volatile boolean running;
+    private Thread writer;
+
+    /**
+     * Constructeur du service d'écriture différée.
+     *
+     * @param jdbcTemplate accès JDBC pour les insertions par lot
+     * @param transactionManager gestionnaire de transactions
+     * @param invalidationBus le bus d'invalidation, qui signale les nouveaux messages aux autres instances
+     * @param outboxService l'outbox, qui publie les messages envoyés aux intégrations
+     * @param mode mode d'ingestion : sync ou async
+     * @param queueCapacity capacité maximale de la file
+     * @param batchSize nombre maximal de messages par transaction
+     * @param flushIntervalMillis attente maximale avant d'écrire un lot incomplet
+     * @param drainTimeoutMillis délai maximal d'écriture des messages en attente à l'arrêt
+     * @param retryBackoffMillis délai avant la deuxième tentative d'écriture d'un lot, doublé ensuite
+     * @param deadLetterDir répertoire des messages qui n'ont pas pu être écrits
+     * @param objectMapper sérialisation JSON des messages non écrits
+     * @param meterRegistry le registre des métriques
+     */
+    @Autowired
+    public MessageWriteBehindService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            CacheInvalidationBus invalidationBus,
+            OutboxService outboxService,
+            @Value("${messages.ingestion.mode:sync}") String mode,
+            @Value("${messages.ingestion.queue-capacity:10000}") int queueCapacity,
+            @Value("${messages.ingestion.batch-size:200}") int batchSize,
+            @Value("${messages.ingestion.flush-interval:50}") long flushIntervalMillis,
+            @Value("${messages.ingestion.drain-timeout:10000}") long drainTimeoutMillis,
+            @Value("${messages.ingestion.retry-backoff:100}") long retryBackoffMillis,
+            @Value("${messages.ingestion.dead-letter-dir:data/messages-dead-letter}") String deadLetterDir,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.invalidationBus = invalidationBus;
+        this.outboxService = outboxService;
+        this.enabled = "async".equalsIgnoreCase(mode);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.drainTimeoutMillis = drainTimeoutMillis;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.deadLetterDir = Path.of(deadLetterDir);
+        this.objectMapper = objectMapper;
+        Gauge.builder("messages.ingestion.queue.depth", queue, BlockingQueue::size)
+                .description("Messages waiting for the write-behind writer")
+                .register(meterRegistry);
+        this.commitSize = DistributionSummary.builder("messages.ingestion.commit.size")
+                .description("Messages per committed write-behind transaction")
+                .register(meterRegistry);
+        FunctionCounter.builder("messages.ingestion.messages", committedMessages, AtomicLong::get)
+                .description("Messages written by the write-behind writer")
+                .tag("result", "committed")
+                .register(meterRegistry);
+        FunctionCounter.builder("messages.ingestion.messages", failedMessages, AtomicLong::get)
+                .description("Messages written by the write-behind writer")
+                .tag("result", "failed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Dépose un message dans la file d'écriture.
+     *
+     * @param message le message à écrire, dont la date d'envoi est fixée ici
+     * @return true si le message a été accepté, false si l'appelant doit l'écrire lui-même
+     */
+    public boolean enqueue(Message message) {
+        if (!running) {
+            return false;
+        }
+        if (message.getSentAt() == null) {
+            message.setSentAt(Instant.now());
+        }
+        return queue.offer(message);
+    }
+
+    /**
+     * @return le nombre de messages en attente d'écriture
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return le nombre de messages écrits par le thread d'écriture
+     */
+    public long getCommittedMessages() {
+        return committedMessages.get();
+    }
+
+    /**
+     * @return le nombre de messages qui n'ont pas pu être écrits en base, reportés dans le fichier des rejets
+     */
+    public long getFailedMessages() {
+        return failedMessages.get();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::drainLoop, "message-write-behind");
+        writer.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join(drainTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Messages déposés pendant l'arrêt, ou restants si le délai est dépassé
+        List<Message> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * S'arrête après le serveur web, pour écrire les messages des dernières requêtes.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void drainLoop() {
+        List<Message> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Message first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Message next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Message> batch) {
+        if (write(batch)) {
+            committedMessages.addAndGet(batch.size());
+            commitSize.record(batch.size());
+            return;
+        }
+        // Isole le ou les messages en cause : chacun dans sa propre transaction
+        List<Message> rejected = new ArrayList<>();
+        for (Message message : batch) {
+            if (write(List.of(message))) {
+                committedMessages.incrementAndGet();
+                commitSize.record(1);
+            } else {
+                rejected.add(message);
+            }
+        }
+        if (!rejected.isEmpty()) {
+            failedMessages.addAndGet(rejected.size());
+            deadLetter(rejected);
+        }
+    }
+
+    /**
+     * Écrit les messages en une transaction, avec au plus {@value #MAX_ATTEMPTS} tentatives
+     * espacées d'un délai croissant ; une erreur non transitoire n'est pas réessayée.
+     *
+     * @return true si la transaction a été validée
+     */
+    private boolean write(List<Message> messages) {
+        Set<Long> recipients = new LinkedHashSet<>();
+        messages.forEach(message -> recipients.add(message.getRecipientId()));
+        long backoff = retryBackoffMillis;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    insert(messages);
+                    invalidationBus.appendAll(CacheInvalidationBus.MAILBOX, recipients);
+                    outboxService.recordMessages(messages);
+                });
+                return true;
+            } catch (RuntimeException e) {
+                // Identifiants d'une insertion annulée
+                messages.forEach(message -> message.setId(null));
+                log.warn("Insert of {} message(s) failed (attempt {}/{}): {}",
+                        messages.size(), attempt, MAX_ATTEMPTS, e.getMessage());
+                if (e instanceof NonTransientDataAccessException || attempt == MAX_ATTEMPTS) {
+                    return false;
+                }
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoff *= 2;
+        }
+        return false;
+    }
+
+    /**
+     * Ajoute les messages non écrits au fichier des rejets du jour, forcé sur disque.
+     */
+    private void deadLetter(List<Message> messages) {
+        try {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            for (Message message : messages) {
+                lines.write(objectMapper.writeValueAsBytes(message));
+                lines.write('\n');
+            }
+            Files.createDirectories(deadLetterDir);
+            Path file = deadLetterDir.resolve("messages-" + LocalDate.now(ZoneOffset.UTC) + ".ndjson");
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            log.error("{} message(s) could not be inserted and were written to {}", messages.size(), file);
+        } catch (IOException e) {
+            log.error("Lost {} message(s): insert failed and the dead-letter file could not be written",
+                    messages.size(), e);
+        }
+    }
+
+    /**
+     * Insère le lot et renseigne l'identifiant de chaque message, nécessaire à l'outbox.
+     */
+    private void insert(List<Message> batch) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Message message = batch.get(i);
+                        ps.setString(1, message.getContent());
+                        ps.setLong(2, message.getSenderId());
+                        ps.setLong(3, message.getRecipientId());
+                        ps.setLong(4, message.getRentalId());
+                        ps.setTimestamp(5, Timestamp.from(message.getSentAt()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < batch.size() && i < keys.size(); i++) {
+            batch.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
+    }
+}
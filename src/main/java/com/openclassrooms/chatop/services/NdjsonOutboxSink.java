@@ -0,0 +1,110 @@
+package com.openclassrooms.chatop.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.chatop.dtos.OutboxEventDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Publication des événements dans des fichiers NDJSON locaux ({@code outbox.ndjson-dir}).
+ *
+ * <p>Un fichier par jour (UTC), {@code events-AAAA-MM-JJ.ndjson}, un événement JSON par ligne.
+ * Chaque lot est ajouté en une écriture puis forcé sur disque avant d'être marqué publié.
+ * Destination par défaut, désactivée par {@code outbox.sink} lorsqu'une autre est déclarée.</p>
+ *
+ * <p>Les fichiers des jours antérieurs aux {@code outbox.ndjson-retention-days} derniers sont
+ * supprimés ; à 0, ils sont conservés et leur rotation revient au consommateur.</p>
+ */
+@Service
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "ndjson", matchIfMissing = true)
+public class NdjsonOutboxSink implements OutboxSink {
+    private static final Logger log = LoggerFactory.getLogger(NdjsonOutboxSink.class);
+
+    private static final String FILE_PREFIX = "events-";
+    private static final String FILE_SUFFIX = ".ndjson";
+
+    private final Path directory;
+    private final int retentionDays;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructeur de la destination NDJSON.
+     *
+     * @param directory répertoire des fichiers d'événements
+     * @param retentionDays nombre de jours de fichiers conservés, 0 pour ne jamais les supprimer
+     * @param objectMapper sérialisation JSON
+     */
+    public NdjsonOutboxSink(
+            @Value("${outbox.ndjson-dir:data/outbox}") String directory,
+            @Value("${outbox.ndjson-retention-days:30}") int retentionDays,
+            ObjectMapper objectMapper
+    ) {
+        this.directory = Path.of(directory);
+        this.retentionDays = retentionDays;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void publish(List<OutboxEventDto> events) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (OutboxEventDto event : events) {
+            lines.write(objectMapper.writeValueAsBytes(event));
+            lines.write('\n');
+        }
+        Files.createDirectories(directory);
+        Path file = directory.resolve(FILE_PREFIX + LocalDate.now(ZoneOffset.UTC) + FILE_SUFFIX);
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Supprime les fichiers des jours sortis de la durée de conservation.
+     */
+    @Scheduled(fixedDelayString = "${outbox.purge-interval:3600000}")
+    public void purge() {
+        if (retentionDays <= 0 || !Files.isDirectory(directory)) {
+            return;
+        }
+        LocalDate oldestKept = LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays - 1L);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                LocalDate day;
+                try {
+                    day = LocalDate.parse(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+                } catch (DateTimeParseException e) {
+                    continue;
+                }
+                if (day.isBefore(oldestKept)) {
+                    Files.deleteIfExists(file);
+                    log.debug("Outbox file {} purged", file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Outbox file purge failed: {}", e.getMessage());
+        }
+    }
+}
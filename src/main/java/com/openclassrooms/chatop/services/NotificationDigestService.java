@@ -0,0 +1,250 @@
+package com.openclassrooms.chatop.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.chatop.dtos.MessageItemDto;
+import com.openclassrooms.chatop.dtos.NotificationDigestDto;
+import com.openclassrooms.chatop.entities.Message;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Service de notification des propriétaires par récapitulatifs de nouveaux messages.
+ *
+ * <p>Les nouveaux messages sont regroupés en mémoire par destinataire. Un récapitulatif par
+ * propriétaire est livré via le {@link NotificationSender} une fois écoulée la fenêtre
+ * {@code notifications.digest.window} depuis son premier message : le nombre de notifications
+ * dépend du nombre de propriétaires actifs, pas du nombre de messages.</p>
+ *
+ * <p>La mémoire est bornée : au plus {@code notifications.digest.max-pending} récapitulatifs en
+ * attente (au-delà, le message est notifié seul, immédiatement), et un nombre limité de
+ * locations et d'aperçus par récapitulatif. Les récapitulatifs en attente sont écrits dans
+ * {@code notifications.digest.state-file} à l'arrêt et rechargés au démarrage ; une livraison
+ * en échec est retentée au passage suivant.</p>
+ */
+@Service
+public class NotificationDigestService {
+    private static final Logger log = LoggerFactory.getLogger(NotificationDigestService.class);
+
+    static final int MAX_RENTALS = 20;
+    static final int MAX_PREVIEWS = 3;
+
+    private final NotificationSender notificationSender;
+    private final ObjectMapper objectMapper;
+    private final ConcurrentHashMap<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int maxPending;
+    private final Path stateFile;
+    private final LongSupplier clock;
+
+    /**
+     * Constructeur du service de récapitulatifs.
+     *
+     * @param notificationSender le canal de livraison
+     * @param objectMapper sérialisation JSON de l'état sauvegardé
+     * @param enabled false pour ne pas notifier les propriétaires
+     * @param windowMillis durée d'accumulation d'un récapitulatif en millisecondes
+     * @param maxPending nombre maximal de récapitulatifs en attente
+     * @param stateFile fichier de sauvegarde des récapitulatifs en attente à l'arrêt
+     */
+    @Autowired
+    public NotificationDigestService(
+            NotificationSender notificationSender,
+            ObjectMapper objectMapper,
+            @Value("${notifications.digest.enabled:true}") boolean enabled,
+            @Value("${notifications.digest.window:900000}") long windowMillis,
+            @Value("${notifications.digest.max-pending:100000}") int maxPending,
+            @Value("${notifications.digest.state-file:data/notifications/pending-digests.json}") String stateFile
+    ) {
+        this(notificationSender, objectMapper, enabled, windowMillis, maxPending, Path.of(stateFile),
+                System::currentTimeMillis);
+    }
+
+    NotificationDigestService(NotificationSender notificationSender, ObjectMapper objectMapper, boolean enabled,
+                              long windowMillis, int maxPending, Path stateFile, LongSupplier clock) {
+        this.notificationSender = notificationSender;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.maxPending = maxPending;
+        this.stateFile = stateFile;
+        this.clock = clock;
+    }
+
+    /**
+     * Recharge les récapitulatifs sauvegardés à l'arrêt précédent.
+     *
+     * @throws IOException si le fichier d'état est illisible
+     */
+    @PostConstruct
+    public void restore() throws IOException {
+        if (!Files.exists(stateFile)) {
+            return;
+        }
+        List<NotificationDigestDto> saved = objectMapper.readValue(stateFile.toFile(), new TypeReference<>() {
+        });
+        long now = clock.getAsLong();
+        for (NotificationDigestDto digest : saved) {
+            // La fenêtre reprend à la date du premier message, pour ne pas retarder un récapitulatif dû
+            long windowStart = digest.getFirst_message_at() != null ? digest.getFirst_message_at().toEpochMilli() : now;
+            pending.merge(digest.getRecipient_id(), new Pending(windowStart, digest), Pending::merge);
+        }
+        Files.delete(stateFile);
+        log.info("{} pending notification digest(s) restored", saved.size());
+    }
+
+    /**
+     * Ajoute un nouveau message au récapitulatif de son destinataire.
+     *
+     * @param message le message envoyé
+     */
+    public void recordMessage(Message message) {
+        if (!enabled) {
+            return;
+        }
+        Long recipientId = message.getRecipientId();
+        long now = clock.getAsLong();
+        if (pending.size() >= maxPending && !pending.containsKey(recipientId)) {
+            // Trop de récapitulatifs en attente : ce message est notifié seul plutôt que gardé en mémoire
+            NotificationDigestDto single = new NotificationDigestDto();
+            single.setRecipient_id(recipientId);
+            add(single, message, now);
+            deliver(single);
+            return;
+        }
+        // compute verrouille uniquement l'entrée du destinataire, le flush la retire de façon atomique
+        pending.compute(recipientId, (id, current) -> {
+            Pending next = current;
+            if (next == null) {
+                NotificationDigestDto digest = new NotificationDigestDto();
+                digest.setRecipient_id(id);
+                next = new Pending(now, digest);
+            }
+            add(next.digest, message, now);
+            return next;
+        });
+    }
+
+    /**
+     * Livre les récapitulatifs dont la fenêtre est écoulée.
+     */
+    @Scheduled(fixedDelayString = "${notifications.digest.check-interval:10000}")
+    public void flushDue() {
+        long now = clock.getAsLong();
+        for (Map.Entry<Long, Pending> entry : pending.entrySet()) {
+            Pending due = entry.getValue();
+            if (due.windowStart + windowMillis <= now && pending.remove(entry.getKey(), due) && !deliver(due.digest)) {
+                // Remis en attente avec une nouvelle fenêtre : il sera retenté au prochain passage dû
+                pending.merge(entry.getKey(), new Pending(now, due.digest), Pending::merge);
+            }
+        }
+    }
+
+    /**
+     * Sauvegarde les récapitulatifs en attente à l'arrêt de l'application.
+     *
+     * @throws IOException si le fichier d'état ne peut pas être écrit
+     */
+    @PreDestroy
+    public synchronized void persist() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<NotificationDigestDto> snapshot = new ArrayList<>();
+        pending.values().forEach(entry -> snapshot.add(entry.digest));
+        Files.createDirectories(stateFile.toAbsolutePath().getParent());
+        Path tmp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        objectMapper.writeValue(tmp.toFile(), snapshot);
+        Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("{} pending notification digest(s) saved to {}", snapshot.size(), stateFile);
+    }
+
+    /**
+     * @return le nombre de récapitulatifs en attente
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private boolean deliver(NotificationDigestDto digest) {
+        try {
+            notificationSender.send(digest);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Notification digest for user {} not delivered, will retry: {}",
+                    digest.getRecipient_id(), e.getMessage());
+            return false;
+        }
+    }
+
+    private static void add(NotificationDigestDto digest, Message message, long now) {
+        Instant sentAt = message.getSentAt() != null ? message.getSentAt() : Instant.ofEpochMilli(now);
+        digest.setMessage_count(digest.getMessage_count() + 1);
+        if (digest.getFirst_message_at() == null) {
+            digest.setFirst_message_at(sentAt);
+        }
+        digest.setLast_message_at(sentAt);
+        if (digest.getRental_ids().size() < MAX_RENTALS && !digest.getRental_ids().contains(message.getRentalId())) {
+            digest.getRental_ids().add(message.getRentalId());
+        }
+        if (digest.getPreviews().size() < MAX_PREVIEWS) {
+            digest.getPreviews().add(new MessageItemDto(message.getId(), message.getContent(), message.getSenderId(),
+                    message.getRecipientId(), message.getRentalId(), sentAt));
+        }
+    }
+
+    private static final class Pending {
+        private final long windowStart;
+        private final NotificationDigestDto digest;
+
+        private Pending(long windowStart, NotificationDigestDto digest) {
+            this.windowStart = windowStart;
+            this.digest = digest;
+        }
+
+        private Pending merge(Pending other) {
+            return new Pending(Math.min(windowStart, other.windowStart), mergeDigests(digest, other.digest));
+        }
+    }
+
+    private static NotificationDigestDto mergeDigests(NotificationDigestDto current, NotificationDigestDto other) {
+        current.setMessage_count(current.getMessage_count() + other.getMessage_count());
+        if (other.getFirst_message_at() != null && (current.getFirst_message_at() == null
+                || other.getFirst_message_at().isBefore(current.getFirst_message_at()))) {
+            current.setFirst_message_at(other.getFirst_message_at());
+        }
+        if (other.getLast_message_at() != null && (current.getLast_message_at() == null
+                || other.getLast_message_at().isAfter(current.getLast_message_at()))) {
+            current.setLast_message_at(other.getLast_message_at());
+        }
+        for (Long rentalId : other.getRental_ids()) {
+            if (current.getRental_ids().size() < MAX_RENTALS && !current.getRental_ids().contains(rentalId)) {
+                current.getRental_ids().add(rentalId);
+            }
+        }
+        for (MessageItemDto preview : other.getPreviews()) {
+            if (current.getPreviews().size() < MAX_PREVIEWS) {
+                current.getPreviews().add(preview);
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,23 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.dtos.NotificationDigestDto;
+
+import java.io.IOException;
+
+/**
+ * Canal de livraison des récapitulatifs de messages aux propriétaires.
+ *
+ * <p>L'implémentation par défaut, {@link SpoolNotificationSender}, dépose chaque récapitulatif
+ * dans un répertoire local ; un autre canal (email, push) se branche en déclarant son propre
+ * bean {@code NotificationSender} et en changeant {@code notifications.sender}.</p>
+ */
+public interface NotificationSender {
+
+    /**
+     * Livre un récapitulatif.
+     *
+     * @param digest le récapitulatif
+     * @throws IOException si la livraison échoue ; le récapitulatif sera retenté
+     */
+    void send(NotificationDigestDto digest) throws IOException;
+}
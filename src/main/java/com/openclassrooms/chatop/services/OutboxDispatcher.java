@@ -0,0 +1,169 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.dtos.OutboxEventDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publication par lots des événements de l'outbox vers les destinations ({@link OutboxSink}).
+ *
+ * <p>Toutes les {@code outbox.dispatch.interval} ms, les événements non publiés sont lus par lots
+ * de {@code outbox.dispatch.batch-size}, dans l'ordre de leur identifiant, remis à chaque
+ * destination puis marqués publiés, dans une même transaction. La lecture verrouille les lignes
+ * ({@code FOR UPDATE}) : les instances publient l'une après l'autre et l'ordre des événements
+ * d'un même objet est conservé.</p>
+ *
+ * <p>Livraison « au moins une fois » : si une destination échoue, la transaction est annulée et
+ * le lot entier est republié au tour suivant, y compris auprès des destinations qui l'avaient
+ * déjà reçu. Les consommateurs écartent les doublons par {@code event_id}. Les événements
+ * publiés depuis plus de {@code outbox.retention} ms sont purgés.</p>
+ */
+@Service
+public class OutboxDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private static final String SELECT_SQL = "SELECT id, event_id, aggregate_type, aggregate_id, event_type, "
+            + "payload, created_at FROM outbox_events WHERE published_at IS NULL ORDER BY id LIMIT ? FOR UPDATE";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<OutboxSink> sinks;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long retentionMillis;
+
+    private final AtomicLong publishedEvents = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    /**
+     * Constructeur du service de publication.
+     *
+     * @param jdbcTemplate accès JDBC à la table outbox_events
+     * @param transactionManager gestionnaire de transactions
+     * @param sinks les destinations des événements
+     * @param enabled false pour ne rien publier (les événements s'accumulent)
+     * @param batchSize nombre maximal d'événements par transaction
+     * @param retentionMillis durée de conservation des événements publiés en millisecondes
+     */
+    public OutboxDispatcher(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            List<OutboxSink> sinks,
+            @Value("${outbox.dispatch.enabled:true}") boolean enabled,
+            @Value("${outbox.dispatch.batch-size:500}") int batchSize,
+            @Value("${outbox.retention:604800000}") long retentionMillis
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Sous MySQL, évite que le verrou de lecture ne bloque les insertions par verrouillage d'intervalle
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.sinks = sinks;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * @return le nombre d'événements publiés par cette instance
+     */
+    public long getPublishedEvents() {
+        return publishedEvents.get();
+    }
+
+    /**
+     * @return le nombre de lots annulés après l'échec d'une destination
+     */
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    /**
+     * @return le nombre d'événements en attente de publication
+     */
+    public long getPendingEvents() {
+        Long pending = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM outbox_events WHERE published_at IS NULL", Long.class);
+        return pending != null ? pending : 0;
+    }
+
+    /**
+     * Publie les événements en attente, lot après lot, jusqu'au premier lot incomplet ou en échec.
+     *
+     * @return le nombre d'événements publiés
+     */
+    @Scheduled(fixedDelayString = "${outbox.dispatch.interval:1000}")
+    public int dispatch() {
+        if (!enabled) {
+            return 0;
+        }
+        int total = 0;
+        while (true) {
+            Integer published;
+            try {
+                published = transactionTemplate.execute(status -> publishBatch());
+            } catch (RuntimeException e) {
+                failedBatches.incrementAndGet();
+                log.warn("Outbox batch publication failed, will retry: {}", e.getMessage());
+                return total;
+            }
+            int count = published != null ? published : 0;
+            total += count;
+            if (count < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * Supprime les événements publiés depuis plus que la durée de conservation.
+     */
+    @Scheduled(fixedDelayString = "${outbox.purge-interval:3600000}")
+    public void purge() {
+        int deleted = jdbcTemplate.update("DELETE FROM outbox_events WHERE published_at < ?",
+                Timestamp.from(Instant.now().minusMillis(retentionMillis)));
+        if (deleted > 0) {
+            log.debug("Purged {} published outbox event(s)", deleted);
+        }
+    }
+
+    private int publishBatch() {
+        List<OutboxEventDto> events = jdbcTemplate.query(SELECT_SQL, (rs, i) -> new OutboxEventDto(
+                rs.getString("event_id"),
+                rs.getLong("id"),
+                rs.getString("aggregate_type"),
+                rs.getLong("aggregate_id"),
+                rs.getString("event_type"),
+                rs.getTimestamp("created_at").toInstant(),
+                rs.getString("payload")
+        ), batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        for (OutboxSink sink : sinks) {
+            try {
+                sink.publish(events);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        Timestamp publishedAt = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate("UPDATE outbox_events SET published_at = ? WHERE id = ?",
+                events.stream().map(event -> new Object[]{publishedAt, event.getSequence()}).toList());
+        publishedEvents.addAndGet(events.size());
+        return events.size();
+    }
+}
@@ -0,0 +1,104 @@
+package com.openclassrooms.chatop.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.chatop.dtos.MessageItemDto;
+import com.openclassrooms.chatop.entities.Message;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Inscription des modifications de locations et de messages dans l'outbox transactionnelle.
+ *
+ * <p>Chaque méthode s'exécute dans la transaction de l'écriture métier, obligatoirement : l'événement
+ * est validé ou annulé avec elle, et n'est jamais publié pour une modification perdue.
+ * {@link OutboxDispatcher} publie ensuite les événements dans l'ordre de leur identifiant.</p>
+ *
+ * <p>Deux événements d'un même objet sont inscrits dans l'ordre de ses modifications : chaque
+ * écriture métier verrouille la ligne modifiée avant d'inscrire son événement, la suivante
+ * attend donc la validation de la précédente.</p>
+ */
+@Service
+public class OutboxService {
+    /** Type d'objet : location. */
+    public static final String RENTAL = "rental";
+    /** Type d'objet : message. */
+    public static final String MESSAGE = "message";
+
+    /** Événement : location créée. */
+    public static final String RENTAL_CREATED = "rental.created";
+    /** Événement : location modifiée. */
+    public static final String RENTAL_UPDATED = "rental.updated";
+    /** Événement : message envoyé. */
+    public static final String MESSAGE_SENT = "message.sent";
+
+    private static final String INSERT_SQL = "INSERT INTO outbox_events "
+            + "(event_id, aggregate_type, aggregate_id, event_type, payload, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructeur du service d'outbox.
+     *
+     * @param jdbcTemplate accès JDBC, qui rejoint la transaction en cours
+     * @param objectMapper sérialisation JSON des états publiés
+     */
+    public OutboxService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Inscrit un événement.
+     *
+     * @param aggregateType type de l'objet modifié
+     * @param aggregateId identifiant de l'objet modifié
+     * @param eventType nature de la modification
+     * @param payload état de l'objet après la modification, sérialisé en JSON
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(String aggregateType, Long aggregateId, String eventType, Object payload) {
+        jdbcTemplate.update(INSERT_SQL, row(aggregateType, aggregateId, eventType, payload, Instant.now()));
+    }
+
+    /**
+     * Inscrit l'envoi de messages déjà insérés, en un seul batch.
+     *
+     * @param messages les messages, avec leur identifiant
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordMessages(Collection<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        List<Object[]> rows = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            rows.add(row(MESSAGE, message.getId(), MESSAGE_SENT, new MessageItemDto(message.getId(),
+                    message.getContent(), message.getSenderId(), message.getRecipientId(), message.getRentalId(),
+                    message.getSentAt()), now));
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+    }
+
+    private Object[] row(String aggregateType, Long aggregateId, String eventType, Object payload, Instant now) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Outbox payload is not serializable", e);
+        }
+        return new Object[]{UUID.randomUUID().toString(), aggregateType, aggregateId, eventType, json,
+                Timestamp.from(now)};
+    }
+}
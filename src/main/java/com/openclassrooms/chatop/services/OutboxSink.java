@@ -0,0 +1,24 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.dtos.OutboxEventDto;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination des événements du flux de modifications.
+ *
+ * <p>L'implémentation par défaut, {@link NdjsonOutboxSink}, ajoute les événements à un fichier
+ * local ; une autre destination (broker, webhook) se branche en déclarant son propre bean
+ * {@code OutboxSink} et en changeant {@code outbox.sink}.</p>
+ */
+public interface OutboxSink {
+
+    /**
+     * Publie un lot d'événements, dans l'ordre de la liste.
+     *
+     * @param events les événements, triés par numéro d'ordre
+     * @throws IOException si la publication échoue ; tout le lot sera republié
+     */
+    void publish(List<OutboxEventDto> events) throws IOException;
+}
@@ -0,0 +1,133 @@
+package com.openclassrooms.chatop.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Cohérence des lectures sur le réplica (lire ses propres écritures).
+ *
+ * <p>Lorsque {@code datasource.replica.enabled} est actif, les transactions de service en lecture
+ * seule sont servies par le réplica. Une écriture (création ou modification d'une location, envoi
+ * d'un message) retourne l'en-tête {@code Consistency-Token} : l'instant de son commit. Un client
+ * qui renvoie ce jeton est servi par la base principale tant que le réplica n'a pas rattrapé cet
+ * instant.</p>
+ *
+ * <p>Une réponse 202 Accepted (message mis en file par l'écriture différée) ne porte pas de jeton :
+ * l'écriture n'est pas encore validée, et un instant antérieur à son commit ne garantirait pas au
+ * client de la relire.</p>
+ *
+ * <p>La position du réplica est celle du dernier battement de cœur écrit sur la base principale
+ * et relu sur le réplica ({@link ReplicaLagMonitor}). Au-delà de {@code datasource.replica.max-lag}
+ * ms de retard, ou tant qu'aucun battement n'a été relu, toutes les lectures vont sur la base
+ * principale.</p>
+ */
+@Service
+public class ReadConsistencyService {
+    /** En-tête HTTP portant le jeton de fraîcheur d'une écriture. */
+    public static final String HEADER = "Consistency-Token";
+
+    private final ThreadLocal<Boolean> pinnedToPrimary = new ThreadLocal<>();
+    private final boolean enabled;
+    private final long maxLagMillis;
+    private final LongSupplier clock;
+    private volatile long replicaPosition;
+
+    /**
+     * Constructeur du service de cohérence des lectures.
+     *
+     * @param enabled true si un réplica de lecture est configuré
+     * @param maxLagMillis retard au-delà duquel le réplica n'est plus lu
+     */
+    @Autowired
+    public ReadConsistencyService(
+            @Value("${datasource.replica.enabled:false}") boolean enabled,
+            @Value("${datasource.replica.max-lag:30000}") long maxLagMillis
+    ) {
+        this(enabled, maxLagMillis, System::currentTimeMillis);
+    }
+
+    ReadConsistencyService(boolean enabled, long maxLagMillis, LongSupplier clock) {
+        this.enabled = enabled;
+        this.maxLagMillis = maxLagMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Ajoute le jeton de fraîcheur à la réponse d'une écriture réussie.
+     *
+     * @param response la réponse de l'écriture, après commit
+     * @return la réponse, avec l'en-tête {@code Consistency-Token} si elle est un succès déjà validé
+     *         (ni erreur, ni 202 Accepted)
+     */
+    public ResponseEntity<?> withToken(ResponseEntity<?> response) {
+        if (!enabled || !response.getStatusCode().is2xxSuccessful()
+                || response.getStatusCode().isSameCodeAs(HttpStatus.ACCEPTED)) {
+            return response;
+        }
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(HEADER, Long.toString(clock.getAsLong()))
+                .body(response.getBody());
+    }
+
+    /**
+     * Oriente les lectures de la requête courante vers la base principale si le réplica
+     * n'a pas encore rattrapé le jeton présenté par le client.
+     *
+     * @param token valeur de l'en-tête {@code Consistency-Token}, ou null
+     * @return true si les lectures de la requête sont orientées vers la base principale
+     */
+    public boolean pinIfStale(String token) {
+        if (!enabled || token == null || token.isBlank()) {
+            return false;
+        }
+        long writtenAt;
+        try {
+            writtenAt = Long.parseLong(token.trim());
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (writtenAt <= replicaPosition) {
+            return false;
+        }
+        pinnedToPrimary.set(Boolean.TRUE);
+        return true;
+    }
+
+    /**
+     * Termine l'orientation vers la base principale de la requête courante.
+     */
+    public void unpin() {
+        pinnedToPrimary.remove();
+    }
+
+    /**
+     * @return true si les transactions en lecture seule du thread courant peuvent lire le réplica
+     */
+    public boolean isReplicaReadable() {
+        return enabled
+                && pinnedToPrimary.get() == null
+                && clock.getAsLong() - replicaPosition <= maxLagMillis;
+    }
+
+    /**
+     * Enregistre la position atteinte par le réplica.
+     *
+     * @param position instant du dernier battement de cœur relu sur le réplica
+     */
+    public void replicaCaughtUpTo(long position) {
+        replicaPosition = position;
+    }
+
+    /**
+     * @return le retard du réplica en millisecondes
+     */
+    public long getReplicaLagMillis() {
+        return clock.getAsLong() - replicaPosition;
+    }
+}
@@ -0,0 +1,87 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Index probabiliste des emails déjà inscrits.
+ *
+ * <p>Un filtre de Bloom, chargé au démarrage puis alimenté à chaque inscription, permet
+ * d'affirmer sans requête SQL qu'un email est libre. Seuls les emails probablement
+ * présents déclenchent une requête d'existence sur l'index unique {@code users.email}.</p>
+ *
+ * <p>Le filtre ne produit jamais de faux négatif pour un email chargé ou ajouté ; tant que
+ * le chargement initial n'est pas terminé, la contrainte d'unicité reste le dernier rempart.</p>
+ */
+@Service
+public class RegisteredEmailIndex {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private final BloomFilter filter;
+
+    /**
+     * Constructeur de l'index des emails inscrits.
+     *
+     * @param userRepository le repository des utilisateurs
+     * @param expectedUsers nombre d'utilisateurs attendu, pour dimensionner le filtre
+     */
+    public RegisteredEmailIndex(
+            UserRepository userRepository,
+            @Value("${security.signup.expected-users:1000000}") long expectedUsers
+    ) {
+        this.userRepository = userRepository;
+        this.filter = new BloomFilter(expectedUsers, FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Charge les emails existants une fois l'application démarrée.
+     *
+     * <p>Les emails sont lus par pages de {@value #LOAD_PAGE_SIZE} : la mémoire utilisée au
+     * démarrage ne dépend pas du nombre d'utilisateurs, seul le filtre est conservé.</p>
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Limit limit = Limit.of(LOAD_PAGE_SIZE);
+        String after = "";
+        List<String> page;
+        do {
+            page = userRepository.findEmailsAfter(after, limit);
+            page.forEach(this::add);
+            if (!page.isEmpty()) {
+                after = page.get(page.size() - 1);
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+    }
+
+    /**
+     * Ajoute un email à l'index après une inscription.
+     *
+     * @param email l'email inscrit
+     */
+    public void add(String email) {
+        filter.put(normalize(email));
+    }
+
+    /**
+     * Indique si l'email est déjà inscrit.
+     *
+     * @param email l'email à vérifier
+     * @return true si l'email existe en base
+     */
+    public boolean isRegistered(String email) {
+        return filter.mightContain(normalize(email)) && userRepository.existsByEmail(email);
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,179 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.dtos.RentalChangesResponse;
+import com.openclassrooms.chatop.dtos.RentalListItemDto;
+import com.openclassrooms.chatop.entities.Rental;
+import com.openclassrooms.chatop.entities.RentalTombstone;
+import com.openclassrooms.chatop.repositories.RentalRepository;
+import com.openclassrooms.chatop.repositories.RentalTombstoneRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Synchronisation incrémentale des locations : modifications et suppressions depuis un curseur.
+ *
+ * <p>Le curseur est une position (date de modification, identifiant) ; les locations sont lues
+ * après elle par l'index {@code idx_rentals_updated}, les suppressions par
+ * {@code idx_rental_tombstones_deleted}, puis fusionnées dans l'ordre des positions.</p>
+ *
+ * <p>La date de modification est fixée par l'application avant la validation de la transaction :
+ * une modification peut donc devenir visible après une autre, plus récente. Seules les modifications
+ * antérieures à l'horizon {@code rentals.changes.settle-time} ms avant l'instant présent (et avant la
+ * position du réplica lorsque la lecture s'y fait) sont retournées, et le curseur ne dépasse jamais
+ * cet horizon : les modifications plus récentes sont retournées par une synchronisation suivante
+ * plutôt que manquées.</p>
+ */
+@Service
+public class RentalChangeService {
+    /** Taille de page par défaut de la synchronisation. */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    /** Taille de page maximale de la synchronisation. */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /** Position de départ : avant toute modification. */
+    private static final Position START = new Position(Instant.EPOCH, 0);
+
+    private final RentalRepository rentalRepository;
+    private final RentalTombstoneRepository tombstoneRepository;
+    private final ReadConsistencyService readConsistencyService;
+    private final long settleTimeMillis;
+    private final LongSupplier clock;
+
+    /**
+     * Constructeur du service de synchronisation des locations.
+     *
+     * @param rentalRepository le repository des locations
+     * @param tombstoneRepository le repository des locations supprimées
+     * @param readConsistencyService le service qui indique si la lecture se fait sur le réplica, et son retard
+     * @param settleTimeMillis durée maximale d'une transaction d'écriture, dont le curseur reste en retrait
+     */
+    @Autowired
+    public RentalChangeService(
+            RentalRepository rentalRepository,
+            RentalTombstoneRepository tombstoneRepository,
+            ReadConsistencyService readConsistencyService,
+            @Value("${rentals.changes.settle-time:5000}") long settleTimeMillis
+    ) {
+        this(rentalRepository, tombstoneRepository, readConsistencyService, settleTimeMillis,
+                System::currentTimeMillis);
+    }
+
+    RentalChangeService(RentalRepository rentalRepository, RentalTombstoneRepository tombstoneRepository,
+                        ReadConsistencyService readConsistencyService, long settleTimeMillis, LongSupplier clock) {
+        this.rentalRepository = rentalRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.readConsistencyService = readConsistencyService;
+        this.settleTimeMillis = settleTimeMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Retourne les locations créées ou modifiées et les locations supprimées après le curseur.
+     *
+     * @param since curseur retourné par la synchronisation précédente, ou null pour tout recevoir
+     * @param size nombre maximal de modifications, borné à {@link #MAX_PAGE_SIZE}
+     * @return les modifications et le curseur suivant, ou null si le curseur est invalide
+     */
+    @Transactional(readOnly = true)
+    public RentalChangesResponse findChanges(String since, int size) {
+        Position from = START;
+        if (since != null && !since.isBlank()) {
+            from = Position.decode(since);
+            if (from == null) {
+                return null;
+            }
+        }
+        // Fixé avant la lecture : ce qui est validé avant l'horizon est forcément visible
+        long visibleUntil = readConsistencyService.isReplicaReadable()
+                ? clock.getAsLong() - readConsistencyService.getReplicaLagMillis()
+                : clock.getAsLong();
+        Position horizon = new Position(Instant.ofEpochMilli(visibleUntil - settleTimeMillis), 0);
+
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        // Un élément de plus que la page, pour savoir s'il reste des modifications
+        Limit limit = Limit.of(pageSize + 1);
+        List<Rental> rentals = rentalRepository.findChangesPage(from.at(), from.id(), limit);
+        List<RentalTombstone> tombstones = tombstoneRepository.findChangesPage(from.at(), from.id(), limit);
+
+        List<RentalListItemDto> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        Position last = from;
+        int r = 0;
+        int t = 0;
+        boolean hasMore = false;
+        while (r < rentals.size() || t < tombstones.size()) {
+            Position rental = r < rentals.size() ? Position.of(rentals.get(r)) : null;
+            Position tombstone = t < tombstones.size() ? Position.of(tombstones.get(t)) : null;
+            boolean takeRental = tombstone == null || (rental != null && rental.compareTo(tombstone) <= 0);
+            Position next = takeRental ? rental : tombstone;
+            // Au-delà de l'horizon, la modification sera lue une fois tous les commits antérieurs visibles
+            if (next.compareTo(horizon) > 0) {
+                break;
+            }
+            if (changed.size() + deleted.size() == pageSize) {
+                hasMore = true;
+                break;
+            }
+            if (takeRental) {
+                changed.add(RentalService.toListItem(rentals.get(r++)));
+            } else {
+                deleted.add(tombstones.get(t++).getRentalId());
+            }
+            last = next;
+        }
+        // Page pleine : le curseur avance jusqu'à la dernière modification ; sinon, jusqu'à l'horizon
+        Position next = hasMore ? last : max(from, horizon);
+        return new RentalChangesResponse(changed, deleted, next.encode(), hasMore);
+    }
+
+    private static Position max(Position a, Position b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    /** Position dans l'ordre des modifications. */
+    private record Position(Instant at, long id) implements Comparable<Position> {
+        private static final Comparator<Position> ORDER =
+                Comparator.comparing(Position::at).thenComparingLong(Position::id);
+
+        static Position of(Rental rental) {
+            return new Position(rental.getUpdatedAt(), rental.getId());
+        }
+
+        static Position of(RentalTombstone tombstone) {
+            return new Position(tombstone.getDeletedAt(), tombstone.getRentalId());
+        }
+
+        static Position decode(String cursor) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf(':');
+                return new Position(Instant.parse(decoded.substring(0, separator)),
+                        Long.parseLong(decoded.substring(separator + 1)));
+            } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+                return null;
+            }
+        }
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((at + ":" + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int compareTo(Position other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
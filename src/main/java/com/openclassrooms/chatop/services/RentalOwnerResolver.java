@@ -0,0 +1,175 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.repositories.RentalRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Résolution de l'identifiant du propriétaire d'une location, pour le routage des messages.
+ *
+ * <p>Le propriétaire d'une location ne change jamais : l'association rentalId → ownerId est
+ * donc mise en cache sans expiration, dans une table de longs primitifs. Elle est alimentée à
+ * la création d'une location et, à défaut, au premier message via une requête qui ne lit que
+ * la colonne {@code owner_id}. Les locations inexistantes sont aussi mémorisées, dans la
+ * limite de {@code messages.owner-cache.max-negative-entries}, pour ne pas réinterroger la base
+ * à chaque message vers un identifiant invalide ; une absence remplacée par un propriétaire
+ * ou oubliée libère sa place.</p>
+ */
+@Service
+public class RentalOwnerResolver {
+    private static final long UNKNOWN = 0L;
+    private static final long MISSING = -1L;
+
+    private final RentalRepository rentalRepository;
+    private final LongLongConcurrentMap owners;
+    private final int maxNegativeEntries;
+    private final AtomicInteger negativeEntries = new AtomicInteger();
+
+    /**
+     * Constructeur du résolveur de propriétaires.
+     *
+     * @param rentalRepository le repository des locations
+     * @param expectedRentals nombre de locations attendu, pour dimensionner le cache
+     * @param maxNegativeEntries nombre maximal de locations inexistantes mémorisées
+     */
+    public RentalOwnerResolver(
+            RentalRepository rentalRepository,
+            @Value("${messages.owner-cache.expected-rentals:10000}") int expectedRentals,
+            @Value("${messages.owner-cache.max-negative-entries:10000}") int maxNegativeEntries
+    ) {
+        this.rentalRepository = rentalRepository;
+        this.owners = new LongLongConcurrentMap(expectedRentals);
+        this.maxNegativeEntries = maxNegativeEntries;
+    }
+
+    /**
+     * Retourne l'identifiant du propriétaire d'une location.
+     *
+     * @param rentalId identifiant de la location
+     * @return l'identifiant du propriétaire, ou null si la location n'existe pas
+     */
+    public Long resolveOwnerId(Long rentalId) {
+        if (rentalId == null || rentalId <= 0) {
+            return null;
+        }
+        long cached = owners.get(rentalId, UNKNOWN);
+        if (cached == MISSING) {
+            return null;
+        }
+        if (cached != UNKNOWN) {
+            return cached;
+        }
+        Long ownerId = rentalRepository.findOwnerIdById(rentalId).orElse(null);
+        remember(rentalId, ownerId);
+        return ownerId;
+    }
+
+    /**
+     * Retourne les propriétaires de plusieurs locations.
+     *
+     * <p>Les locations absentes du cache sont résolues ensemble, par une seule requête IN.</p>
+     *
+     * @param rentalIds identifiants des locations
+     * @return l'identifiant du propriétaire par identifiant de location, sans les locations inexistantes
+     */
+    public Map<Long, Long> resolveOwnerIds(Collection<Long> rentalIds) {
+        Map<Long, Long> resolved = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long rentalId : rentalIds) {
+            if (rentalId == null || rentalId <= 0) {
+                continue;
+            }
+            long cached = owners.get(rentalId, UNKNOWN);
+            if (cached == UNKNOWN) {
+                misses.add(rentalId);
+            } else if (cached != MISSING) {
+                resolved.put(rentalId, cached);
+            }
+        }
+        if (misses.isEmpty()) {
+            return resolved;
+        }
+        for (Object[] row : rentalRepository.findOwnerIdsByIdIn(misses)) {
+            resolved.put((Long) row[0], (Long) row[1]);
+        }
+        for (Long rentalId : misses) {
+            remember(rentalId, resolved.get(rentalId));
+        }
+        return resolved;
+    }
+
+    private void remember(Long rentalId, Long ownerId) {
+        if (ownerId != null) {
+            putOwner(rentalId, ownerId);
+        } else if (negativeEntries.get() < maxNegativeEntries) {
+            // Place réservée puis rendue si la limite est dépassée ou si l'entrée n'est pas ajoutée
+            // (absence déjà mémorisée, propriétaire enregistré entre-temps)
+            if (negativeEntries.incrementAndGet() > maxNegativeEntries
+                    || !owners.compareAndPut(rentalId, UNKNOWN, MISSING, UNKNOWN)) {
+                negativeEntries.decrementAndGet();
+            }
+        }
+    }
+
+    private void putOwner(Long rentalId, Long ownerId) {
+        if (owners.getAndPut(rentalId, ownerId, UNKNOWN) == MISSING) {
+            negativeEntries.decrementAndGet();
+        }
+    }
+
+    /**
+     * Enregistre le propriétaire d'une location qui vient d'être créée.
+     *
+     * <p>Remplace un éventuel résultat négatif mémorisé pour cet identifiant. Si une transaction
+     * est en cours, l'enregistrement n'a lieu qu'après son commit, pour ne jamais mettre en cache
+     * une location annulée.</p>
+     *
+     * @param rentalId identifiant de la location
+     * @param ownerId identifiant du propriétaire
+     */
+    public void register(Long rentalId, Long ownerId) {
+        if (rentalId == null || rentalId <= 0 || ownerId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    putOwner(rentalId, ownerId);
+                }
+            });
+        } else {
+            putOwner(rentalId, ownerId);
+        }
+    }
+
+    /**
+     * Oublie l'absence mémorisée d'une location créée par une autre instance.
+     *
+     * <p>Le propriétaire sera relu en base au prochain message vers cette location. Un
+     * propriétaire déjà connu est conservé : il ne change jamais.</p>
+     *
+     * @param rentalId identifiant de la location
+     */
+    public void forget(Long rentalId) {
+        if (rentalId != null && rentalId > 0 && owners.compareAndPut(rentalId, MISSING, UNKNOWN, UNKNOWN)) {
+            negativeEntries.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return le nombre de locations inexistantes mémorisées
+     */
+    int getNegativeEntryCount() {
+        return negativeEntries.get();
+    }
+}
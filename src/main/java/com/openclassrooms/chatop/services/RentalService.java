@@ -21,14 +21,29 @@ import java.util.stream.Collectors;
 public class RentalService {
     /** Taille maximale autorisée pour l'image (5 Mo). */
     private static final long MAX_BYTES = 5L * 1024 * 1024;
+    /** Format des dates de la liste des locations (visible des benchmarks JMH). */
+    static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy/MM/dd").withZone(ZoneId.systemDefault());
 
     private final RentalRepository repo;
+    private final RentalOwnerResolver ownerResolver;
+    private final CacheInvalidationBus invalidationBus;
+    private final OutboxService outboxService;
 
     /**
      * Constructeur du service RentalService.
      * @param repo le repository JPA pour Rental
+     * @param ownerResolver le cache des propriétaires de location, alimenté à la création
+     * @param invalidationBus le bus d'invalidation des caches des autres instances
+     * @param outboxService l'outbox, qui publie les créations et modifications aux intégrations
      */
-    public RentalService(RentalRepository repo) { this.repo = repo; }
+    public RentalService(RentalRepository repo, RentalOwnerResolver ownerResolver,
+                         CacheInvalidationBus invalidationBus, OutboxService outboxService) {
+        this.repo = repo;
+        this.ownerResolver = ownerResolver;
+        this.invalidationBus = invalidationBus;
+        this.outboxService = outboxService;
+    }
 
     /**
      * Crée une nouvelle location à partir du DTO.
@@ -57,7 +72,11 @@ public class RentalService {
             r.setPictureFilename(java.util.UUID.randomUUID() + getExtension(pic.getOriginalFilename()));
             r.setPictureSize(pic.getSize());
         }
-        return repo.save(r);
+        Rental saved = repo.save(r);
+        ownerResolver.register(saved.getId(), ownerId);
+        invalidationBus.append(CacheInvalidationBus.RENTAL, saved.getId(), null);
+        outboxService.record(OutboxService.RENTAL, saved.getId(), OutboxService.RENTAL_CREATED, toListItem(saved));
+        return saved;
     }
 
     /**
@@ -65,38 +84,44 @@ public class RentalService {
      * @param id identifiant de la location
      * @return la location ou null si non trouvée
      */
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
     public Rental findById(Long id) {
         return repo.findById(id).orElse(null);
     }
 
+    /**
+     * Récupère l'image d'une location.
+     * @param id identifiant de la location
+     * @return l'image ou null si la location n'existe pas ou n'a pas d'image
+     */
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
+    public byte[] findPicture(Long id) {
+        return repo.findPictureById(id).orElse(null);
+    }
+
     /**
      * Récupère tous les rentals et les mappe en DTO.
      * @return liste des rentals au format DTO
      */
+    @org.springframework.transaction.annotation.Transactional(readOnly = true)
     public List<RentalListItemDto> findAllRentals() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy/MM/dd").withZone(ZoneId.systemDefault());
         return repo.findAll().stream()
-                .map(rental -> new RentalListItemDto(
-                        rental.getId(),
-                        rental.getName(),
-                        rental.getSurface(),
-                        rental.getPrice(),
-                        "/api/rentals/" + rental.getId() + "/picture", // URL de l'image
-                        rental.getDescription(),
-                        rental.getOwnerId(),
-                        formatter.format(rental.getCreatedAt()),
-                        formatter.format(rental.getUpdatedAt())
-                ))
+                .map(RentalService::toListItem)
                 .collect(Collectors.toList());
     }
 
     /**
      * Met à jour une location existante.
+     *
+     * <p>La modification est écrite immédiatement : la ligne est verrouillée et sa date de mise à
+     * jour fixée avant l'inscription de l'événement dans l'outbox.</p>
+     *
      * @param id identifiant de la location à mettre à jour
      * @param dto données de mise à jour
      * @param userId identifiant de l'utilisateur effectuant la mise à jour
      * @return la location mise à jour ou null si non trouvée ou pas le propriétaire
      */
+    @org.springframework.transaction.annotation.Transactional
     public Rental updateRental(Long id, UpdateRentalDto dto, Long userId) {
         Rental rental = findById(id);
         if (rental == null || !rental.getOwnerId().equals(userId)) {
@@ -106,7 +131,28 @@ public class RentalService {
         rental.setSurface(dto.getSurface());
         rental.setPrice(dto.getPrice());
         rental.setDescription(dto.getDescription());
-        return repo.save(rental);
+        Rental saved = repo.saveAndFlush(rental);
+        invalidationBus.append(CacheInvalidationBus.RENTAL, id, null);
+        outboxService.record(OutboxService.RENTAL, id, OutboxService.RENTAL_UPDATED, toListItem(saved));
+        return saved;
+    }
+
+    /**
+     * @param rental la location
+     * @return la location au format de la liste des locations
+     */
+    static RentalListItemDto toListItem(Rental rental) {
+        return new RentalListItemDto(
+                rental.getId(),
+                rental.getName(),
+                rental.getSurface(),
+                rental.getPrice(),
+                "/api/rentals/" + rental.getId() + "/picture", // URL de l'image
+                rental.getDescription(),
+                rental.getOwnerId(),
+                DATE_FORMAT.format(rental.getCreatedAt()),
+                DATE_FORMAT.format(rental.getUpdatedAt())
+        );
     }
 
     private String getExtension(String filename) {
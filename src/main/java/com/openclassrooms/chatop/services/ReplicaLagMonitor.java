@@ -0,0 +1,80 @@
+package com.openclassrooms.chatop.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Mesure du retard du réplica de lecture par battement de cœur.
+ *
+ * <p>L'instant courant est écrit périodiquement dans {@code replication_heartbeat} (migration V3)
+ * sur la base principale, puis relu sur le réplica : la valeur relue est la position que la
+ * réplication a atteinte. Les instances de l'application partageant la même ligne, leurs horloges doivent être
+ * synchronisées (NTP) ; un décalage s'ajoute au retard mesuré.</p>
+ *
+ * <p>Activé par {@code datasource.replica.enabled=true}.</p>
+ */
+@Service
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaLagMonitor {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final ReadConsistencyService readConsistencyService;
+    private final LongSupplier clock;
+
+    /**
+     * Constructeur du moniteur de retard du réplica.
+     *
+     * @param primaryDataSource la base principale
+     * @param replicaDataSource le réplica de lecture
+     * @param readConsistencyService le service informé de la position du réplica
+     */
+    @Autowired
+    public ReplicaLagMonitor(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            ReadConsistencyService readConsistencyService
+    ) {
+        this(primaryDataSource, replicaDataSource, readConsistencyService, System::currentTimeMillis);
+    }
+
+    ReplicaLagMonitor(DataSource primaryDataSource, DataSource replicaDataSource,
+                      ReadConsistencyService readConsistencyService, LongSupplier clock) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.readConsistencyService = readConsistencyService;
+        this.clock = clock;
+    }
+
+    /**
+     * Écrit un battement sur la base principale et relit la position du réplica.
+     */
+    @Scheduled(fixedDelayString = "${datasource.replica.heartbeat-interval:1000}")
+    public void beat() {
+        long now = clock.getAsLong();
+        if (primary.update("UPDATE replication_heartbeat SET beat_at = ? WHERE id = 1", now) == 0) {
+            primary.update("INSERT INTO replication_heartbeat (id, beat_at) VALUES (1, ?)", now);
+        }
+        try {
+            List<Long> position = replica.queryForList("SELECT beat_at FROM replication_heartbeat WHERE id = 1", Long.class);
+            if (!position.isEmpty()) {
+                readConsistencyService.replicaCaughtUpTo(position.get(0));
+            }
+        } catch (DataAccessException e) {
+            // Réplica injoignable : sa position n'avance plus et les lectures basculent sur la base principale
+            log.warn("Replica heartbeat read failed: {}", e.getMessage());
+        }
+    }
+}
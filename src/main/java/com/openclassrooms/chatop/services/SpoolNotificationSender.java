@@ -0,0 +1,98 @@
+package com.openclassrooms.chatop.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.chatop.dtos.NotificationDigestDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Livraison des récapitulatifs dans un répertoire local ({@code notifications.spool-dir}).
+ *
+ * <p>Chaque récapitulatif est écrit dans un fichier JSON temporaire puis renommé : un
+ * processus qui relève le répertoire ne voit donc que des fichiers complets
+ * ({@code digest-*.json}). Canal par défaut, désactivé par {@code notifications.sender}
+ * lorsqu'un autre canal est déclaré.</p>
+ *
+ * <p>Les récapitulatifs déposés depuis plus de {@code notifications.spool-retention} ms sont
+ * supprimés, qu'ils aient été relevés ou non ; à 0, le répertoire n'est jamais purgé et doit
+ * l'être par le processus qui le relève.</p>
+ */
+@Service
+@ConditionalOnProperty(name = "notifications.sender", havingValue = "spool", matchIfMissing = true)
+public class SpoolNotificationSender implements NotificationSender {
+    private static final Logger log = LoggerFactory.getLogger(SpoolNotificationSender.class);
+
+    private final Path spoolDir;
+    private final long retentionMillis;
+    private final ObjectMapper objectMapper;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Constructeur du canal de livraison par répertoire.
+     *
+     * @param spoolDir répertoire de dépôt des récapitulatifs
+     * @param retentionMillis durée de conservation des récapitulatifs déposés, 0 pour ne jamais les supprimer
+     * @param objectMapper sérialisation JSON
+     */
+    public SpoolNotificationSender(
+            @Value("${notifications.spool-dir:data/notifications}") String spoolDir,
+            @Value("${notifications.spool-retention:604800000}") long retentionMillis,
+            ObjectMapper objectMapper
+    ) {
+        this.spoolDir = Path.of(spoolDir);
+        this.retentionMillis = retentionMillis;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void send(NotificationDigestDto digest) throws IOException {
+        Files.createDirectories(spoolDir);
+        String name = "digest-" + digest.getRecipient_id() + "-" + System.currentTimeMillis()
+                + "-" + sequence.incrementAndGet();
+        Path tmp = spoolDir.resolve(name + ".tmp");
+        objectMapper.writeValue(tmp.toFile(), digest);
+        Files.move(tmp, spoolDir.resolve(name + ".json"), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Supprime les récapitulatifs plus anciens que la durée de conservation, ainsi que les
+     * fichiers temporaires laissés par un arrêt brutal.
+     */
+    @Scheduled(fixedDelayString = "${notifications.spool-purge-interval:3600000}")
+    public void purge() {
+        if (retentionMillis <= 0 || !Files.isDirectory(spoolDir)) {
+            return;
+        }
+        FileTime cutoff = FileTime.fromMillis(System.currentTimeMillis() - retentionMillis);
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolDir, "digest-*.{json,tmp}")) {
+            for (Path file : files) {
+                try {
+                    if (Files.getLastModifiedTime(file).compareTo(cutoff) < 0 && Files.deleteIfExists(file)) {
+                        deleted++;
+                    }
+                } catch (IOException e) {
+                    // Fichier relevé entre-temps par le consommateur
+                    log.debug("Notification spool file {} not purged: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Notification spool purge failed: {}", e.getMessage());
+        }
+        if (deleted > 0) {
+            log.debug("Purged {} notification digest(s) from {}", deleted, spoolDir);
+        }
+    }
+}
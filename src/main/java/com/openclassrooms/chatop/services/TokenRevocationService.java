@@ -0,0 +1,156 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.repositories.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Service de révocation des tokens JWT.
+ *
+ * <p>Les identifiants (jti) révoqués sont conservés en mémoire dans un ensemble exact,
+ * précédé d'un filtre de Bloom : la grande majorité des tokens, jamais révoqués, sont
+ * écartés par le filtre sans consulter l'ensemble. Aucune requête SQL n'est faite lors
+ * des vérifications ; la table {@code revoked_tokens} n'est lue qu'au démarrage.</p>
+ *
+ * <p>Les lectures sont sans verrou. Les écritures (déconnexion, rotation d'un refresh
+ * token) sont rares et sérialisées avec la reconstruction périodique du filtre.</p>
+ *
+ * <p>L'usage unique est garanti par la base : une révocation est un INSERT sur la clé primaire
+ * jti, et une clé en double signifie que le token a déjà été révoqué, éventuellement par une
+ * autre instance. Les révocations des autres instances sont reçues par
+ * {@link CacheInvalidationBus} ({@link #markRevoked(String, Instant)}).</p>
+ */
+@Service
+public class TokenRevocationService {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long expectedRevocations;
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile BloomFilter filter;
+
+    /**
+     * Constructeur du service de révocation.
+     *
+     * @param revokedTokenRepository le repository des tokens révoqués
+     * @param expectedRevocations nombre de révocations simultanément actives attendu
+     */
+    public TokenRevocationService(
+            RevokedTokenRepository revokedTokenRepository,
+            @Value("${security.jwt.revocation.expected-entries:100000}") long expectedRevocations
+    ) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedRevocations = expectedRevocations;
+        this.filter = new BloomFilter(expectedRevocations, FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Recharge au démarrage les révocations des tokens non encore expirés.
+     */
+    @PostConstruct
+    public void load() {
+        lock.lock();
+        try {
+            revokedTokenRepository.findByExpiresAtAfter(Instant.now())
+                    .forEach(token -> revoked.put(token.getJti(), token.getExpiresAt()));
+            rebuildFilter();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Indique si le token identifié par ce jti a été révoqué.
+     *
+     * @param jti l'identifiant du token
+     * @return true si le token est révoqué
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null || !filter.mightContain(jti)) {
+            return false;
+        }
+        return revoked.containsKey(jti);
+    }
+
+    /**
+     * Révoque un token jusqu'à sa date d'expiration.
+     *
+     * @param jti l'identifiant du token
+     * @param expiresAt la date d'expiration du token
+     * @return true si le token vient d'être révoqué, false s'il l'était déjà, ici ou sur une autre instance
+     */
+    public boolean revoke(String jti, Instant expiresAt) {
+        lock.lock();
+        try {
+            if (revoked.containsKey(jti)) {
+                return false;
+            }
+            boolean inserted;
+            try {
+                revokedTokenRepository.insert(jti, expiresAt);
+                inserted = true;
+            } catch (DataIntegrityViolationException e) {
+                // Révoqué par une autre instance, dont l'invalidation n'est pas encore arrivée
+                inserted = false;
+            }
+            remember(jti, expiresAt);
+            return inserted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Enregistre localement une révocation déjà persistée par une autre instance.
+     *
+     * @param jti l'identifiant du token
+     * @param expiresAt la date d'expiration du token
+     */
+    public void markRevoked(String jti, Instant expiresAt) {
+        lock.lock();
+        try {
+            if (!revoked.containsKey(jti)) {
+                remember(jti, expiresAt);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Purge périodiquement les révocations expirées, en mémoire et en base,
+     * puis reconstruit le filtre pour qu'il ne se sature pas.
+     */
+    @Scheduled(fixedDelayString = "${security.jwt.revocation.purge-interval:600000}")
+    public void purgeExpired() {
+        lock.lock();
+        try {
+            Instant now = Instant.now();
+            revoked.values().removeIf(expiresAt -> expiresAt.isBefore(now));
+            rebuildFilter();
+            revokedTokenRepository.deleteExpired(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remember(String jti, Instant expiresAt) {
+        revoked.put(jti, expiresAt);
+        filter.put(jti);
+    }
+
+    private void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, 2L * revoked.size()), FALSE_POSITIVE_RATE);
+        revoked.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+    }
+}
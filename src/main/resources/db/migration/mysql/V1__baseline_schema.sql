@@ -0,0 +1,46 @@
+-- Schéma initial, identique à celui que créait spring.jpa.hibernate.ddl-auto=update.
+-- Une base existante est marquée à cette version sans l'exécuter (spring.flyway.baseline-on-migrate).
+
+CREATE TABLE users (
+    id         BIGINT       NOT NULL,
+    name       VARCHAR(255) NOT NULL,
+    email      VARCHAR(100) NOT NULL,
+    password   VARCHAR(255) NOT NULL,
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+) ENGINE = InnoDB;
+
+-- Générateur des identifiants utilisateur (GenerationType.AUTO, émulé par une table sous MySQL)
+CREATE TABLE users_seq (
+    next_val BIGINT
+) ENGINE = InnoDB;
+
+INSERT INTO users_seq VALUES (1);
+
+CREATE TABLE rentals (
+    id                   BIGINT        NOT NULL AUTO_INCREMENT,
+    name                 VARCHAR(255),
+    surface              FLOAT(53)     NOT NULL,
+    price                DECIMAL(38, 2),
+    description          TEXT,
+    picture              LONGBLOB,
+    picture_content_type VARCHAR(255),
+    picture_filename     VARCHAR(255),
+    picture_size         BIGINT        NOT NULL,
+    owner_id             BIGINT,
+    created_at           DATETIME(6)   NOT NULL,
+    updated_at           DATETIME(6),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE messages (
+    id           BIGINT      NOT NULL AUTO_INCREMENT,
+    content      TEXT        NOT NULL,
+    sender_id    BIGINT      NOT NULL,
+    recipient_id BIGINT      NOT NULL,
+    rental_id    BIGINT      NOT NULL,
+    sent_at      DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,15 @@
+-- Outbox transactionnelle : chaque modification de location ou de message y est inscrite dans
+-- la même transaction que l'écriture métier, puis publiée par OutboxDispatcher.
+-- L'identifiant auto-incrémenté fixe l'ordre de publication ; event_id sert de clé de dédoublonnage.
+CREATE TABLE outbox_events (
+    id             BIGINT      NOT NULL AUTO_INCREMENT,
+    event_id       CHAR(36)    NOT NULL,
+    aggregate_type VARCHAR(16) NOT NULL,
+    aggregate_id   BIGINT      NOT NULL,
+    event_type     VARCHAR(32) NOT NULL,
+    payload        TEXT        NOT NULL,
+    created_at     DATETIME(6) NOT NULL,
+    published_at   DATETIME(6) NULL,
+    PRIMARY KEY (id),
+    KEY idx_outbox_events_published (published_at, id)
+) ENGINE = InnoDB;
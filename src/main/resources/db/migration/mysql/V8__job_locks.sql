@@ -0,0 +1,11 @@
+-- Verrous des tâches planifiées partagées entre les instances : une tâche ne s'exécute que sur
+-- l'instance qui a pris le bail de sa ligne (locked_until dans le futur). Le bail survit aux
+-- instructions DDL (DROP PARTITION), qui valident implicitement la transaction en cours.
+CREATE TABLE job_locks (
+    name         VARCHAR(64) NOT NULL,
+    owner        VARCHAR(36),
+    locked_until DATETIME(6) NOT NULL,
+    PRIMARY KEY (name)
+) ENGINE = InnoDB;
+
+INSERT INTO job_locks (name, locked_until) VALUES ('message-archive', '1970-01-01 00:00:00');
@@ -0,0 +1,8 @@
+-- Pagination par clé des listes de conversations : l'identifiant départage les conversations
+-- dont le dernier message a la même date, et termine les index pour que la page suivante
+-- reprenne par une borne de parcours sur (last_message_at, id).
+DROP INDEX idx_conversations_owner_last ON conversations;
+DROP INDEX idx_conversations_sender_last ON conversations;
+
+CREATE INDEX idx_conversations_owner_last ON conversations (owner_id, last_message_at DESC, id DESC);
+CREATE INDEX idx_conversations_sender_last ON conversations (sender_id, last_message_at DESC, id DESC);
@@ -0,0 +1,152 @@
+package com.openclassrooms.chatop.configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.openclassrooms.chatop.dtos.UpdateRentalDto;
+import com.openclassrooms.chatop.entities.Rental;
+import com.openclassrooms.chatop.entities.User;
+import com.openclassrooms.chatop.repositories.RentalRepository;
+import com.openclassrooms.chatop.repositories.UserRepository;
+import com.openclassrooms.chatop.services.CacheInvalidationBus;
+import com.openclassrooms.chatop.services.EntityCacheStatistics;
+import com.openclassrooms.chatop.services.MessageStreamHub;
+import com.openclassrooms.chatop.services.OutboxService;
+import com.openclassrooms.chatop.services.RegisteredEmailIndex;
+import com.openclassrooms.chatop.services.RentalOwnerResolver;
+import com.openclassrooms.chatop.services.RentalService;
+import com.openclassrooms.chatop.services.TokenRevocationService;
+import com.openclassrooms.chatop.services.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.cache.CacheManager;
+import java.math.BigDecimal;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({EntityCacheConfiguration.class, EntityCacheStatistics.class, RentalService.class, RentalOwnerResolver.class,
+        UserService.class, CacheInvalidationBus.class, RegisteredEmailIndex.class, MessageStreamHub.class,
+        OutboxService.class, TokenRevocationService.class, JacksonAutoConfiguration.class})
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "entity-cache.max-entries=500",
+        "entity-cache.ttl=60000"
+})
+class EntityCacheConfigurationTest {
+
+    @Autowired
+    private RentalService rentalService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityCacheStatistics cacheStatistics;
+
+    @Autowired
+    private CacheManager entityCacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        rentalRepository.deleteAll();
+        userRepository.deleteAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    void rentalFindById_ShouldBeServedFromCache_WithoutPicture() {
+        Long id = rentalRepository.save(rental("image".getBytes())).getId();
+        rentalService.findById(id);
+
+        long statements = statistics.getPrepareStatementCount();
+        long hits = cacheStatistics.getHitCount(Rental.CACHE_REGION);
+        Rental cached = rentalService.findById(id);
+
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertEquals(hits + 1, cacheStatistics.getHitCount(Rental.CACHE_REGION));
+        assertEquals("Studio", cached.getName());
+        assertFalse(Hibernate.isPropertyInitialized(cached, "picture"));
+        assertArrayEquals("image".getBytes(), rentalService.findPicture(id));
+        assertTrue(cacheStatistics.getHitRatio(Rental.CACHE_REGION) > 0);
+    }
+
+    @Test
+    void updateRental_ShouldRefreshCachedRental() {
+        Long id = rentalRepository.save(rental(null)).getId();
+        rentalService.findById(id);
+
+        rentalService.updateRental(id, new UpdateRentalDto("Loft", 40, BigDecimal.valueOf(900), "Renovated"), 1L);
+
+        long statements = statistics.getPrepareStatementCount();
+        assertEquals("Loft", rentalService.findById(id).getName());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void userFindByEmail_ShouldUseNaturalIdCache() {
+        User user = new User();
+        user.setName("Owner");
+        user.setEmail("owner@test.com");
+        user.setPassword("hash");
+        Long id = userRepository.save(user).getId();
+        userService.findByEmail("owner@test.com");
+
+        long statements = statistics.getPrepareStatementCount();
+        User byEmail = userService.findByEmail("owner@test.com");
+        User byId = userService.findById(id);
+
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertEquals(id, byEmail.getId());
+        assertEquals("owner@test.com", byId.getEmail());
+        assertTrue(cacheStatistics.getHitCount(User.EMAIL_CACHE_REGION) > 0);
+        assertTrue(cacheStatistics.getHitCount(User.CACHE_REGION) > 0);
+    }
+
+    @Test
+    void regions_ShouldBeBoundedAndExpire() {
+        for (String region : EntityCacheConfiguration.REGIONS) {
+            @SuppressWarnings("unchecked")
+            CaffeineConfiguration<Object, Object> configuration = entityCacheManager.getCache(region)
+                    .getConfiguration(CaffeineConfiguration.class);
+            assertEquals(OptionalLong.of(500), configuration.getMaximumSize());
+            assertEquals(OptionalLong.of(TimeUnit.SECONDS.toNanos(60)), configuration.getExpireAfterWrite());
+        }
+    }
+
+    private static Rental rental(byte[] picture) {
+        Rental rental = new Rental();
+        rental.setOwnerId(1L);
+        rental.setName("Studio");
+        rental.setSurface(25);
+        rental.setPrice(BigDecimal.valueOf(500));
+        rental.setDescription("Close to the station");
+        rental.setPicture(picture);
+        return rental;
+    }
+}
@@ -0,0 +1,176 @@
+package com.openclassrooms.chatop.configuration;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compare le débit et le p99 des requêtes bloquantes selon le mode d'exécution
+ * ({@code spring.threads.virtual.enabled}), à 1 000 puis 5 000 clients simultanés.
+ *
+ * <p>Chaque requête emprunte une connexion au pool Hikari pour une requête SQL, la rend, puis
+ * attend {@value #IO_WAIT_MILLIS} ms comme pendant l'envoi d'une image à un client lent ou une
+ * réponse lente de MySQL. En mode plateforme, le débit plafonne à
+ * {@code server.tomcat.threads.max / attente} et les autres requêtes font la queue ; en mode
+ * virtuel, l'attente ne mobilise aucun thread.</p>
+ *
+ * <p>Seuls Tomcat, le pool et la configuration de l'application sont chargés (sécurité et JPA
+ * exclus), avec une base H2 : le coût mesuré est celui du modèle d'exécution.</p>
+ *
+ * <p>Lancement : {@code ./mvnw test -Pbenchmark -Dtest=ExecutionModeBenchmark}</p>
+ */
+@Tag("benchmark")
+class ExecutionModeBenchmark {
+    private static final long IO_WAIT_MILLIS = 200;
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+    private static final Duration MEASURE = Duration.ofSeconds(10);
+
+    // Ni @Configuration ni @RestController : la classe doit rester hors du scan des autres tests de contexte
+    @EnableAutoConfiguration(exclude = {SecurityAutoConfiguration.class, UserDetailsServiceAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class, JpaRepositoriesAutoConfiguration.class})
+    static class BenchmarkApplication {
+
+        @Bean
+        RouterFunction<ServerResponse> blockingRoute(JdbcTemplate jdbcTemplate) {
+            return RouterFunctions.route().GET("/bench/blocking", request -> {
+                jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+                Thread.sleep(IO_WAIT_MILLIS);
+                return ServerResponse.ok().body("ok");
+            }).build();
+        }
+    }
+
+    @SpringBootTest(classes = BenchmarkApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = {
+                    "spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                    "spring.datasource.driver-class-name=org.h2.Driver",
+                    "spring.datasource.username=sa",
+                    "spring.datasource.password=",
+                    // Évite les refus de connexion pendant la montée en charge des clients
+                    "server.tomcat.accept-count=10000"
+            })
+    abstract static class ExecutionModeRun {
+        @LocalServerPort
+        private int port;
+
+        void run(String label, int clients) throws Exception {
+            URI uri = URI.create("http://localhost:" + port + "/bench/blocking");
+            // Client asynchrone sur quelques threads plateforme : il ne concurrence pas les
+            // threads virtuels du serveur sur les threads porteurs
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                    .executor(executor).build()) {
+                load(client, uri, clients, WARMUP);
+                LoadResult result = load(client, uri, clients, MEASURE);
+                long[] latencies = result.latencies();
+                Arrays.sort(latencies);
+                System.out.printf("%s, %,d clients: %,.0f req/s, p50 %.0f ms, p99 %.0f ms, %d error(s)%n",
+                        label, clients, result.completedInWindow() / (double) MEASURE.toSeconds(),
+                        percentile(latencies, 0.50), percentile(latencies, 0.99), result.errors());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        /**
+         * Chaque client enchaîne ses requêtes jusqu'à la fin de la durée. Les requêtes en cours à
+         * l'échéance sont attendues pour leur latence, mais ne comptent pas dans le débit.
+         */
+        private LoadResult load(HttpClient client, URI uri, int clients, Duration duration) throws Exception {
+            long deadline = System.nanoTime() + duration.toNanos();
+            HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).build();
+            AtomicLong errors = new AtomicLong();
+            AtomicLong completedInWindow = new AtomicLong();
+            List<CompletableFuture<List<Long>>> futures = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                CompletableFuture<List<Long>> done = new CompletableFuture<>();
+                next(client, request, deadline, new ArrayList<>(), errors, completedInWindow, done);
+                futures.add(done);
+            }
+            List<Long> all = new ArrayList<>();
+            for (CompletableFuture<List<Long>> future : futures) {
+                all.addAll(future.get());
+            }
+            return new LoadResult(all.stream().mapToLong(Long::longValue).toArray(), completedInWindow.get(),
+                    errors.get());
+        }
+
+        private void next(HttpClient client, HttpRequest request, long deadline, List<Long> latencies,
+                          AtomicLong errors, AtomicLong completedInWindow, CompletableFuture<List<Long>> done) {
+            if (System.nanoTime() >= deadline) {
+                done.complete(latencies);
+                return;
+            }
+            long start = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                if (error != null || response.statusCode() != 200) {
+                    errors.incrementAndGet();
+                } else {
+                    long end = System.nanoTime();
+                    latencies.add(end - start);
+                    if (end < deadline) {
+                        completedInWindow.incrementAndGet();
+                    }
+                }
+                next(client, request, deadline, latencies, errors, completedInWindow, done);
+            });
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    private record LoadResult(long[] latencies, long completedInWindow, long errors) {
+    }
+
+    @Nested
+    @TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+    class PlatformThreads extends ExecutionModeRun {
+        @Test
+        void throughputAndLatency() throws Exception {
+            run("platform threads (200)", 1_000);
+            run("platform threads (200)", 5_000);
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+    class VirtualThreads extends ExecutionModeRun {
+        @Test
+        void throughputAndLatency() throws Exception {
+            run("virtual threads", 1_000);
+            run("virtual threads", 5_000);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.openclassrooms.chatop.configuration;
+
+import com.openclassrooms.chatop.ChatopApplication;
+import com.openclassrooms.chatop.entities.Rental;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Application complète sur une base H2 embarquée : {@code /actuator/prometheus} n'est servi que sur
+ * le port de management et expose les métriques de Spring Boot et celles de {@link MetricsConfiguration}.
+ */
+class MetricsConfigurationTest {
+
+    @TempDir
+    static Path dir;
+
+    private static ConfigurableApplicationContext context;
+    private static HttpClient client;
+
+    @BeforeAll
+    static void start() {
+        // Arguments de ligne de commande : ils priment sur application.properties
+        context = new SpringApplicationBuilder(ChatopApplication.class).run(
+                "--spring.datasource.url=jdbc:h2:mem:metrics;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.profiles.active=dev",
+                "--server.port=0",
+                "--management.server.port=0",
+                "--notifications.spool-dir=" + dir,
+                "--outbox.ndjson-dir=" + dir.resolve("outbox"),
+                "--notifications.digest.state-file=" + dir.resolve("pending-digests.json")
+        );
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterAll
+    static void stop() {
+        client.close();
+        context.close();
+    }
+
+    @Test
+    void prometheus_ShouldBeServedOnTheManagementPort_AndTagRequestsWithTheRouteTemplate() throws Exception {
+        assertEquals(404, get("/api/rentals/424242/picture").statusCode());
+        assertEquals(404, get("/api/rentals/434343/picture").statusCode());
+
+        HttpResponse<String> response = scrape("/actuator/prometheus");
+
+        assertEquals(200, response.statusCode());
+        String scrape = response.body();
+        assertTrue(scrape.contains("uri=\"/api/rentals/{id}/picture\""));
+        assertFalse(scrape.contains("424242"));
+        assertTrue(scrape.contains("http_server_requests_seconds_bucket"));
+    }
+
+    @Test
+    void prometheus_ShouldExposeRepositoryPoolAndApplicationMeters() throws Exception {
+        assertEquals(404, get("/api/rentals/424242/picture").statusCode());
+
+        String scrape = scrape("/actuator/prometheus").body();
+
+        assertTrue(scrape.contains("spring_data_repository_invocations_seconds_bucket"));
+        assertTrue(scrape.contains("hikaricp_connections_pending"));
+        assertTrue(scrape.contains("hikaricp_connections_acquire_seconds_bucket"));
+        assertTrue(scrape.contains("messages_ingestion_queue_depth"));
+        assertTrue(scrape.contains("outbox_events_pending"));
+        assertTrue(scrape.contains("cache_invalidation_applied_total"));
+        assertTrue(scrape.contains("hibernate_second_level_cache_requests_total{application=\"chatop\",region=\""
+                + Rental.CACHE_REGION + "\",result=\"hit\"}"));
+        assertFalse(scrape.contains("datasource_replica_lag"));
+    }
+
+    @Test
+    void health_ShouldBeServedOnTheManagementPort_WithoutDetails() throws Exception {
+        HttpResponse<String> response = scrape("/actuator/health");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("{\"status\":\"UP\"}", response.body());
+    }
+
+    @Test
+    void actuator_ShouldNotBePublic_OnTheApiPort() throws Exception {
+        assertEquals(403, get("/actuator/prometheus").statusCode());
+        assertEquals(403, get("/actuator/health").statusCode());
+    }
+
+    private static HttpResponse<String> get(String path) throws Exception {
+        return send(((WebServerApplicationContext) context).getWebServer().getPort(), path);
+    }
+
+    private static HttpResponse<String> scrape(String path) throws Exception {
+        return send(context.getBean(ManagementPortRequestMatcher.class).getPort(), path);
+    }
+
+    private static HttpResponse<String> send(int port, String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
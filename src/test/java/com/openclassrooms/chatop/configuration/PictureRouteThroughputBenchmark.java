@@ -0,0 +1,121 @@
+package com.openclassrooms.chatop.configuration;
+
+import com.openclassrooms.chatop.controllers.RentalController;
+import com.openclassrooms.chatop.entities.Rental;
+import com.openclassrooms.chatop.entities.User;
+import com.openclassrooms.chatop.repositories.UserRepository;
+import com.openclassrooms.chatop.services.JwtKeyRing;
+import com.openclassrooms.chatop.services.JwtService;
+import com.openclassrooms.chatop.services.RentalService;
+import com.openclassrooms.chatop.services.TokenRevocationService;
+import com.openclassrooms.chatop.services.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Optional;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Mesure le débit de GET /api/rentals/{id}/picture avec et sans la chaîne de sécurité rapide.
+ *
+ * <p>Chaque requête porte un en-tête Authorization valide, comme le ferait un client
+ * authentifié. Sans chaîne rapide, le token est vérifié (ES256) et l'utilisateur est chargé ;
+ * ici le repository est simulé, le coût de la requête SQL évitée n'est donc pas compté.</p>
+ *
+ * <p>Lancement : {@code ./mvnw test -Pbenchmark -Dtest=PictureRouteThroughputBenchmark}</p>
+ */
+@Tag("benchmark")
+class PictureRouteThroughputBenchmark {
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 10_000;
+
+    @WebMvcTest(RentalController.class)
+    @Import({SecurityConfiguration.class, ApplicationConfiguration.class, JwtService.class, JwtKeyRing.class})
+    @ActiveProfiles("dev")
+    abstract static class PictureRouteBenchmark {
+        @Autowired
+        private MockMvc mockMvc;
+
+        @Autowired
+        private JwtService jwtService;
+
+        @MockitoBean
+        private RentalService rentalService;
+
+        @MockitoBean
+        private UserService userService;
+
+        @MockitoBean
+        private UserRepository userRepository;
+
+        @MockitoBean
+        private TokenRevocationService tokenRevocationService;
+
+        private String authorization;
+
+        @BeforeEach
+        void setUp() {
+            User user = new User();
+            user.setId(1L);
+            user.setEmail("owner@example.com");
+            user.setPassword("encoded");
+            when(userRepository.findByEmail("owner@example.com")).thenReturn(Optional.of(user));
+            authorization = "Bearer " + jwtService.generateToken(user);
+
+            Rental rental = new Rental();
+            rental.setId(1L);
+            rental.setPicture(new byte[16 * 1024]);
+            rental.setPictureContentType("image/jpeg");
+            rental.setPictureFilename("picture.jpg");
+            when(rentalService.findById(1L)).thenReturn(rental);
+        }
+
+        void run(String label) throws Exception {
+            for (int i = 0; i < WARMUP; i++) {
+                request();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                request();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%s: %,.0f req/s (%.1f us/req)%n",
+                    label, ITERATIONS / seconds, seconds * 1e6 / ITERATIONS);
+        }
+
+        private void request() throws Exception {
+            mockMvc.perform(get("/api/rentals/1/picture").header("Authorization", authorization))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = "security.fast-path.enabled=false")
+    class FullSecurityChain extends PictureRouteBenchmark {
+        @Test
+        void pictureRouteThroughput() throws Exception {
+            run("picture route, full chain (before)");
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = "security.fast-path.enabled=true")
+    class PublicFastPath extends PictureRouteBenchmark {
+        @Test
+        void pictureRouteThroughput() throws Exception {
+            run("picture route, fast path (after)");
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.openclassrooms.chatop.configuration;
+
+import com.openclassrooms.chatop.dtos.UpdateRentalDto;
+import com.openclassrooms.chatop.entities.Rental;
+import com.openclassrooms.chatop.repositories.RentalRepository;
+import com.openclassrooms.chatop.services.CacheInvalidationBus;
+import com.openclassrooms.chatop.services.MessageStreamHub;
+import com.openclassrooms.chatop.services.OutboxService;
+import com.openclassrooms.chatop.services.ReadConsistencyService;
+import com.openclassrooms.chatop.services.RegisteredEmailIndex;
+import com.openclassrooms.chatop.services.RentalOwnerResolver;
+import com.openclassrooms.chatop.services.RentalService;
+import com.openclassrooms.chatop.services.ReplicaLagMonitor;
+import com.openclassrooms.chatop.services.TokenRevocationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Orientation des lectures entre deux bases H2 embarquées : la base principale et un réplica,
+ * alimenté par copie de la base principale pour simuler la réplication.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReplicaDataSourceConfiguration.class, ReadConsistencyService.class, RentalService.class,
+        RentalOwnerResolver.class, CacheInvalidationBus.class, RegisteredEmailIndex.class, MessageStreamHub.class,
+        OutboxService.class, TokenRevocationService.class, JacksonAutoConfiguration.class})
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "datasource.replica.enabled=true",
+        "datasource.replica.url=" + ReplicaDataSourceConfigurationTest.REPLICA_URL,
+        "datasource.replica.username=sa"
+})
+class ReplicaDataSourceConfigurationTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private RentalService rentalService;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private ReadConsistencyService readConsistencyService;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @TempDir
+    private Path dir;
+
+    private ReplicaLagMonitor monitor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        rentalRepository.deleteAll();
+        monitor = new ReplicaLagMonitor(primaryDataSource, replicaDataSource, readConsistencyService);
+        catchUp();
+    }
+
+    @Test
+    void readOnlyServiceTransactions_ShouldReadReplica_WhileWritesGoToPrimary() throws Exception {
+        rentalRepository.save(rental(1L));
+
+        assertTrue(rentalService.findAllRentals().isEmpty());
+        assertEquals(1, rentalRepository.findAll().size());
+
+        replicate();
+        assertEquals(1, rentalService.findAllRentals().size());
+    }
+
+    @Test
+    void consistencyToken_ShouldPinReadsToPrimary_UntilReplicaCatchesUp() throws Exception {
+        Thread.sleep(5);
+        rentalRepository.save(rental(1L));
+        String token = readConsistencyService.withToken(ResponseEntity.ok().build())
+                .getHeaders().getFirst(ReadConsistencyService.HEADER);
+
+        assertTrue(readConsistencyService.pinIfStale(token));
+        try {
+            assertEquals(1, rentalService.findAllRentals().size());
+        } finally {
+            readConsistencyService.unpin();
+        }
+
+        catchUp();
+        assertFalse(readConsistencyService.pinIfStale(token));
+        assertEquals(1, rentalService.findAllRentals().size());
+    }
+
+    @Test
+    void updateRental_ShouldReadPrimary_WhenReplicaIsBehind() {
+        Rental saved = rentalRepository.save(rental(1L));
+
+        Rental updated = rentalService.updateRental(saved.getId(),
+                new UpdateRentalDto("Loft", 40, BigDecimal.valueOf(900), "Renovated"), 1L);
+
+        assertNotNull(updated);
+        assertNull(rentalService.findById(saved.getId()));
+    }
+
+    @Test
+    void readOnlyServiceTransactions_ShouldReadPrimary_WhenReplicaLagsTooMuch() {
+        rentalRepository.save(rental(1L));
+        readConsistencyService.replicaCaughtUpTo(0);
+
+        assertEquals(1, rentalService.findAllRentals().size());
+    }
+
+    /** Le réplica relit un battement écrit après l'appel : il a rattrapé cet instant. */
+    private void catchUp() throws Exception {
+        monitor.beat();
+        replicate();
+        monitor.beat();
+    }
+
+    /** Remplace le contenu du réplica par celui de la base principale. */
+    private void replicate() throws SQLException {
+        String script = dir.resolve("replication.sql").toString().replace('\\', '/');
+        try (Connection primary = primaryDataSource.getConnection(); Statement statement = primary.createStatement()) {
+            statement.execute("SCRIPT TO '" + script + "'");
+        }
+        // Connexion directe : celles du pool du réplica sont en lecture seule
+        try (Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             Statement statement = replica.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            statement.execute("RUNSCRIPT FROM '" + script + "'");
+        }
+    }
+
+    private static Rental rental(Long ownerId) {
+        Rental rental = new Rental();
+        rental.setOwnerId(ownerId);
+        rental.setName("Studio");
+        rental.setSurface(25);
+        rental.setPrice(BigDecimal.valueOf(500));
+        rental.setDescription("Close to the station");
+        return rental;
+    }
+}
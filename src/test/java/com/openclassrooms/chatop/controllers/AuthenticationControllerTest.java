@@ -2,6 +2,7 @@ package com.openclassrooms.chatop.controllers;
 
 import com.openclassrooms.chatop.dtos.LoginResponse;
 import com.openclassrooms.chatop.dtos.LoginUserDto;
+import com.openclassrooms.chatop.dtos.RefreshTokenDto;
 import com.openclassrooms.chatop.dtos.RegisterUserDto;
 import com.openclassrooms.chatop.entities.User;
 import com.openclassrooms.chatop.services.AuthenticationService;
@@ -14,6 +15,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
@@ -82,11 +84,11 @@ class AuthenticationControllerTest {
     void authenticateShouldReturnJwtTokenWhenValidCredentials() {
         String mockToken = "mockJwtToken";
 
-        when(authenticationService.authenticate(validLoginUserDto)).thenReturn(mockUser);
+        when(authenticationService.authenticate(validLoginUserDto, "127.0.0.1")).thenReturn(mockUser);
         when(jwtService.generateToken(mockUser)).thenReturn(mockToken);
         when(jwtService.getExpirationTime()).thenReturn(3600L);
 
-        ResponseEntity<LoginResponse> response = authenticationController.authenticate(validLoginUserDto);
+        ResponseEntity<LoginResponse> response = authenticationController.authenticate(validLoginUserDto, new MockHttpServletRequest());
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(mockToken, response.getBody().getToken());
@@ -96,10 +98,45 @@ class AuthenticationControllerTest {
     // Vérifie que l'authentification échoue avec des identifiants invalides
     @Test
     void authenticateShouldThrowExceptionWhenInvalidCredentials() {
-        when(authenticationService.authenticate(invalidLoginUserDto)).thenThrow(new RuntimeException("Invalid credentials"));
+        when(authenticationService.authenticate(invalidLoginUserDto, "127.0.0.1")).thenThrow(new RuntimeException("Invalid credentials"));
 
         assertThrows(RuntimeException.class, () -> {
-            authenticationController.authenticate(invalidLoginUserDto);
+            authenticationController.authenticate(invalidLoginUserDto, new MockHttpServletRequest());
         });
     }
-}
\ No newline at end of file
+
+    // Vérifie que le renouvellement retourne une nouvelle paire de tokens
+    @Test
+    void refreshShouldReturnNewTokensWhenRefreshTokenIsValid() {
+        when(authenticationService.refresh("refreshToken")).thenReturn(mockUser);
+        when(jwtService.generateToken(mockUser)).thenReturn("newJwtToken");
+        when(jwtService.generateRefreshToken(mockUser)).thenReturn("newRefreshToken");
+        when(jwtService.getExpirationTime()).thenReturn(900L);
+
+        ResponseEntity<LoginResponse> response = authenticationController.refresh(new RefreshTokenDto("refreshToken"));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("newJwtToken", response.getBody().getToken());
+        assertEquals("newRefreshToken", response.getBody().getRefreshToken());
+    }
+
+    // Vérifie que le renouvellement échoue avec un refresh token invalide ou déjà utilisé
+    @Test
+    void refreshShouldReturnUnauthorizedWhenRefreshTokenIsRejected() {
+        when(authenticationService.refresh("usedToken")).thenReturn(null);
+
+        ResponseEntity<LoginResponse> response = authenticationController.refresh(new RefreshTokenDto("usedToken"));
+
+        assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+    }
+
+    // Vérifie que l'inscription retourne 409 quand l'email est déjà utilisé
+    @Test
+    void registerShouldReturnConflictWhenEmailAlreadyRegistered() {
+        when(authenticationService.signup(validRegisterUserDto)).thenReturn(null);
+
+        ResponseEntity<LoginResponse> response = authenticationController.register(validRegisterUserDto);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    }
+}
@@ -0,0 +1,128 @@
+package com.openclassrooms.chatop.controllers;
+
+import com.openclassrooms.chatop.dtos.ConversationDto;
+import com.openclassrooms.chatop.dtos.ConversationListResponse;
+import com.openclassrooms.chatop.entities.User;
+import com.openclassrooms.chatop.services.ConversationService;
+import com.openclassrooms.chatop.services.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ConversationControllerTest {
+
+    @Mock
+    private ConversationService conversationService;
+
+    @Mock
+    private UserService userService;
+
+    @InjectMocks
+    private ConversationController conversationController;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        user = new User();
+        user.setId(2L);
+        user.setEmail("owner@example.com");
+
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(authentication.getName()).thenReturn("owner@example.com");
+        SecurityContextHolder.setContext(securityContext);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getConversations_ShouldReturnOwnerThreadsWithUnreadCounts() {
+        // Given
+        ConversationDto conversation = new ConversationDto(7L, 10L, 1L, 2L, 5L, Instant.now(), 3);
+        when(userService.findByEmail("owner@example.com")).thenReturn(user);
+        when(conversationService.findConversations(2L, true, null, 20))
+                .thenReturn(new ConversationListResponse(List.of(conversation), null));
+
+        // When
+        ResponseEntity<?> response = conversationController.getConversations("owner", null, 20);
+
+        // Then
+        assertEquals(200, response.getStatusCodeValue());
+        ConversationListResponse body = (ConversationListResponse) response.getBody();
+        assertNotNull(body);
+        assertEquals(1, body.getConversations().size());
+        assertEquals(3, body.getConversations().get(0).getUnread_count());
+        assertEquals(10L, body.getConversations().get(0).getRental_id());
+    }
+
+    @Test
+    void getConversations_ShouldReturnBadRequest_WhenRoleIsUnknown() {
+        when(userService.findByEmail("owner@example.com")).thenReturn(user);
+
+        ResponseEntity<?> response = conversationController.getConversations("admin", null, 20);
+
+        assertEquals(400, response.getStatusCodeValue());
+        verify(conversationService, never()).findConversations(anyLong(), anyBoolean(), any(), anyInt());
+    }
+
+    @Test
+    void getConversations_ShouldReturnBadRequest_WhenCursorIsInvalid() {
+        when(userService.findByEmail("owner@example.com")).thenReturn(user);
+        when(conversationService.findConversations(2L, false, "bad", 20)).thenReturn(null);
+
+        ResponseEntity<?> response = conversationController.getConversations("sender", "bad", 20);
+
+        assertEquals(400, response.getStatusCodeValue());
+    }
+
+    @Test
+    void markRead_ShouldReturnOk_WhenUserOwnsConversation() {
+        when(userService.findByEmail("owner@example.com")).thenReturn(user);
+        when(conversationService.markRead(7L, 2L)).thenReturn(true);
+
+        ResponseEntity<?> response = conversationController.markRead(7L);
+
+        assertEquals(200, response.getStatusCodeValue());
+    }
+
+    @Test
+    void markRead_ShouldReturnNotFound_WhenConversationIsNotOwned() {
+        when(userService.findByEmail("owner@example.com")).thenReturn(user);
+        when(conversationService.markRead(7L, 2L)).thenReturn(false);
+
+        ResponseEntity<?> response = conversationController.markRead(7L);
+
+        assertEquals(404, response.getStatusCodeValue());
+    }
+
+    @Test
+    void getConversations_ShouldReturnUnauthorized_WhenUserIsUnknown() {
+        when(userService.findByEmail("owner@example.com")).thenReturn(null);
+
+        ResponseEntity<?> response = conversationController.getConversations("owner", null, 20);
+
+        assertEquals(401, response.getStatusCodeValue());
+    }
+}
@@ -0,0 +1,31 @@
+package com.openclassrooms.chatop.controllers;
+
+import com.openclassrooms.chatop.services.JwtKeyRing;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwksControllerTest {
+
+    private final JwtKeyRing keyRing = new JwtKeyRing("", "", new MockEnvironment().withProperty("spring.profiles.active", "dev"));
+    private final JwksController jwksController = new JwksController(keyRing);
+
+    @Test
+    void getJwks_ShouldExposeActivePublicKey() {
+        ResponseEntity<Map<String, Object>> response = jwksController.getJwks();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        @SuppressWarnings("unchecked")
+        List<Map<String, String>> keys = (List<Map<String, String>>) response.getBody().get("keys");
+        assertEquals(1, keys.size());
+        assertEquals(keyRing.getActiveKid(), keys.get(0).get("kid"));
+        assertEquals("ES256", keys.get(0).get("alg"));
+        assertEquals(43, keys.get(0).get("x").length());
+    }
+}
@@ -1,22 +1,33 @@
 package com.openclassrooms.chatop.controllers;
 
+import com.openclassrooms.chatop.dtos.CreateInquiryDto;
 import com.openclassrooms.chatop.dtos.CreateMessageDto;
+import com.openclassrooms.chatop.dtos.InquiryResponse;
+import com.openclassrooms.chatop.dtos.InquiryResultDto;
+import com.openclassrooms.chatop.dtos.MessagePageResponse;
 import com.openclassrooms.chatop.entities.Message;
 import com.openclassrooms.chatop.entities.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.chatop.services.IdempotencyService;
+import com.openclassrooms.chatop.services.InMemoryIdempotencyStore;
+import com.openclassrooms.chatop.services.MessageRateLimiter;
 import com.openclassrooms.chatop.services.MessageService;
+import com.openclassrooms.chatop.services.MessageStreamHub;
+import com.openclassrooms.chatop.services.ReadConsistencyService;
 import com.openclassrooms.chatop.services.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.Instant;
 import java.util.Date;
+import java.util.List;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.Map;
@@ -25,6 +36,9 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class MessageControllerTest {
@@ -35,7 +49,12 @@ class MessageControllerTest {
     @Mock
     private UserService userService;
 
-    @InjectMocks
+    @Mock
+    private MessageStreamHub messageStreamHub;
+
+    @Mock
+    private MessageRateLimiter messageRateLimiter;
+
     private MessageController messageController;
 
     private CreateMessageDto messageDto;
@@ -45,6 +64,9 @@ class MessageControllerTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        messageController = new MessageController(messageService, userService, messageStreamHub, messageRateLimiter,
+                new IdempotencyService(new InMemoryIdempotencyStore(100), new ObjectMapper(), 60_000),
+                new ReadConsistencyService(true, 30_000), 60_000);
 
         messageDto = new CreateMessageDto();
         messageDto.setMessage("Hello, I'm interested in your rental!");
@@ -82,7 +104,7 @@ class MessageControllerTest {
         when(messageService.sendMessage(any(CreateMessageDto.class), eq(1L))).thenReturn(message);
 
         // When
-        ResponseEntity<?> response = messageController.sendMessage(messageDto);
+        ResponseEntity<?> response = messageController.sendMessage(messageDto, null);
 
         // Then
         assertEquals(200, response.getStatusCodeValue());
@@ -90,6 +112,7 @@ class MessageControllerTest {
         @SuppressWarnings("unchecked")
         Map<String, String> responseBody = (Map<String, String>) response.getBody();
         assertEquals("Message sent !", responseBody.get("message"));
+        assertNotNull(response.getHeaders().getFirst(ReadConsistencyService.HEADER));
 
         // Cleanup
         SecurityContextHolder.clearContext();
@@ -109,7 +132,7 @@ class MessageControllerTest {
         when(messageService.sendMessage(any(CreateMessageDto.class), eq(1L))).thenReturn(null);
 
         // When
-        ResponseEntity<?> response = messageController.sendMessage(messageDto);
+        ResponseEntity<?> response = messageController.sendMessage(messageDto, null);
 
         // Then
         assertEquals(400, response.getStatusCodeValue());
@@ -135,7 +158,7 @@ class MessageControllerTest {
         when(userService.findByEmail("unknown@example.com")).thenReturn(null);
 
         // When
-        ResponseEntity<?> response = messageController.sendMessage(messageDto);
+        ResponseEntity<?> response = messageController.sendMessage(messageDto, null);
 
         // Then
         assertEquals(401, response.getStatusCodeValue());
@@ -163,12 +186,213 @@ class MessageControllerTest {
         when(messageService.sendMessage(any(CreateMessageDto.class), eq(99L))).thenReturn(message);
 
         // When
-        ResponseEntity<?> response = messageController.sendMessage(messageDto);
+        ResponseEntity<?> response = messageController.sendMessage(messageDto, null);
+
+        // Then
+        assertEquals(200, response.getStatusCodeValue());
+
+        // Cleanup
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void sendMessage_ShouldReturnAccepted_WhenMessageIsQueued() {
+        // Given
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(authentication.getName()).thenReturn("test@example.com");
+        SecurityContextHolder.setContext(securityContext);
+
+        message.setId(null);
+        when(userService.findByEmail("test@example.com")).thenReturn(user);
+        when(messageService.sendMessage(any(CreateMessageDto.class), eq(1L))).thenReturn(message);
+
+        // When
+        ResponseEntity<?> response = messageController.sendMessage(messageDto, null);
+
+        // Then
+        assertEquals(202, response.getStatusCodeValue());
+
+        // Cleanup
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void sendMessage_ShouldReplayOriginalResponse_WhenIdempotencyKeyIsReused() {
+        // Given
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(authentication.getName()).thenReturn("test@example.com");
+        SecurityContextHolder.setContext(securityContext);
+
+        when(userService.findByEmail("test@example.com")).thenReturn(user);
+        when(messageService.sendMessage(any(CreateMessageDto.class), eq(1L))).thenReturn(message);
+
+        // When
+        ResponseEntity<?> first = messageController.sendMessage(messageDto, "retry-1");
+        ResponseEntity<?> replay = messageController.sendMessage(messageDto, "retry-1");
+        messageDto.setMessage("Another message");
+        ResponseEntity<?> reused = messageController.sendMessage(messageDto, "retry-1");
+
+        // Then
+        assertEquals(200, first.getStatusCodeValue());
+        assertEquals(200, replay.getStatusCodeValue());
+        assertEquals("true", replay.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals("{\"message\":\"Message sent !\"}", replay.getBody());
+        assertEquals(422, reused.getStatusCodeValue());
+        verify(messageService, times(1)).sendMessage(any(CreateMessageDto.class), eq(1L));
+
+        // Cleanup
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void sendInquiry_ShouldChargeOneTokenPerDistinctRental() {
+        // Given
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(authentication.getName()).thenReturn("test@example.com");
+        SecurityContextHolder.setContext(securityContext);
+
+        CreateInquiryDto dto = new CreateInquiryDto("Available in August?", List.of(1L, 2L, 2L));
+        InquiryResponse inquiryResponse = new InquiryResponse(List.of(
+                new InquiryResultDto(1L, InquiryResultDto.SENT, 10L),
+                new InquiryResultDto(2L, InquiryResultDto.SENT, 11L)));
+        when(userService.findByEmail("test@example.com")).thenReturn(user);
+        when(messageService.sendInquiry(dto, 1L)).thenReturn(inquiryResponse);
+
+        // When
+        ResponseEntity<?> response = messageController.sendInquiry(dto, null);
 
         // Then
         assertEquals(200, response.getStatusCodeValue());
+        assertSame(inquiryResponse, response.getBody());
+        verify(messageRateLimiter).tryAcquire(1L, 2);
+
+        // Cleanup
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void sendMessage_ShouldReturnTooManyRequests_WhenRateLimited() {
+        // Given
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(authentication.getName()).thenReturn("test@example.com");
+        SecurityContextHolder.setContext(securityContext);
+
+        when(userService.findByEmail("test@example.com")).thenReturn(user);
+        when(messageRateLimiter.tryAcquire(1L)).thenReturn(1_500L);
+
+        // When
+        ResponseEntity<?> response = messageController.sendMessage(messageDto, null);
+
+        // Then
+        assertEquals(429, response.getStatusCodeValue());
+        assertEquals("2", response.getHeaders().getFirst("Retry-After"));
+        verifyNoInteractions(messageService);
+
+        // Cleanup
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getInbox_ShouldReturnPage_ForAuthenticatedUser() {
+        // Given
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(authentication.getName()).thenReturn("test@example.com");
+        SecurityContextHolder.setContext(securityContext);
+
+        MessagePageResponse page = new MessagePageResponse(List.of(), null);
+        when(userService.findByEmail("test@example.com")).thenReturn(user);
+        when(messageService.findInbox(1L, 3L, null, 20)).thenReturn(page);
+
+        // When
+        ResponseEntity<?> response = messageController.getInbox(3L, null, 20);
+
+        // Then
+        assertEquals(200, response.getStatusCodeValue());
+        assertSame(page, response.getBody());
+
+        // Cleanup
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void getOutbox_ShouldReturnBadRequest_WhenCursorIsInvalid() {
+        // Given
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(authentication.getName()).thenReturn("test@example.com");
+        SecurityContextHolder.setContext(securityContext);
+
+        when(userService.findByEmail("test@example.com")).thenReturn(user);
+        when(messageService.findOutbox(1L, null, "garbage", 20)).thenReturn(null);
+
+        // When
+        ResponseEntity<?> response = messageController.getOutbox(null, "garbage", 20);
+
+        // Then
+        assertEquals(400, response.getStatusCodeValue());
+
+        // Cleanup
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void stream_ShouldSubscribeUser_AndReturnEmitter() {
+        // Given
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(authentication.getName()).thenReturn("test@example.com");
+        SecurityContextHolder.setContext(securityContext);
+
+        when(userService.findByEmail("test@example.com")).thenReturn(user);
+        when(messageStreamHub.subscribe(eq(1L), any(SseEmitter.class))).thenReturn(true);
+
+        // When
+        ResponseEntity<SseEmitter> response = messageController.stream();
+
+        // Then
+        assertEquals(200, response.getStatusCodeValue());
+        assertNotNull(response.getBody());
+        assertEquals(60_000L, response.getBody().getTimeout());
+
+        // Cleanup
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void stream_ShouldReturnTooManyRequests_WhenUserHasTooManyStreams() {
+        // Given
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(authentication.getName()).thenReturn("test@example.com");
+        SecurityContextHolder.setContext(securityContext);
+
+        when(userService.findByEmail("test@example.com")).thenReturn(user);
+        when(messageStreamHub.subscribe(eq(1L), any(SseEmitter.class))).thenReturn(false);
+
+        // When
+        ResponseEntity<SseEmitter> response = messageController.stream();
+
+        // Then
+        assertEquals(429, response.getStatusCodeValue());
 
         // Cleanup
         SecurityContextHolder.clearContext();
     }
-}
\ No newline at end of file
+}
@@ -1,19 +1,29 @@
 package com.openclassrooms.chatop.controllers;
 
+import com.openclassrooms.chatop.dtos.RentalChangesResponse;
 import com.openclassrooms.chatop.dtos.RentalListItemDto;
 import com.openclassrooms.chatop.dtos.RentalListResponse;
 import com.openclassrooms.chatop.dtos.RentalResponse;
 import com.openclassrooms.chatop.dtos.UpdateRentalDto;
 import com.openclassrooms.chatop.entities.Rental;
 import com.openclassrooms.chatop.entities.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.chatop.dtos.CreateRentalDto;
+import com.openclassrooms.chatop.services.IdempotencyService;
+import com.openclassrooms.chatop.services.InMemoryIdempotencyStore;
+import com.openclassrooms.chatop.services.ReadConsistencyService;
+import com.openclassrooms.chatop.services.RentalChangeService;
 import com.openclassrooms.chatop.services.RentalService;
 import com.openclassrooms.chatop.services.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -31,6 +41,8 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class RentalControllerTest {
@@ -41,6 +53,19 @@ class RentalControllerTest {
     @Mock
     private UserService userService;
 
+    @Spy
+    private IdempotencyService idempotencyService =
+            new IdempotencyService(new InMemoryIdempotencyStore(100), new ObjectMapper(), 60_000);
+
+    @Spy
+    private ReadConsistencyService readConsistencyService = new ReadConsistencyService(true, 30_000);
+
+    @Mock
+    private RentalChangeService rentalChangeService;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private RentalController rentalController;
 
@@ -116,6 +141,33 @@ class RentalControllerTest {
         assertEquals("Beautiful Apartment", response.getBody().getRentals().get(0).getName());
     }
 
+    @Test
+    void getChanges_ShouldReturnChanges() {
+        // Given
+        RentalChangesResponse changes = new RentalChangesResponse(List.of(rentalListItemDto), List.of(7L), "next", false);
+        when(rentalChangeService.findChanges("cursor", 50)).thenReturn(changes);
+
+        // When
+        ResponseEntity<?> response = rentalController.getChanges("cursor", 50);
+
+        // Then
+        assertEquals(200, response.getStatusCode().value());
+        assertSame(changes, response.getBody());
+    }
+
+    @Test
+    void getChanges_ShouldReturnBadRequest_WhenCursorIsInvalid() {
+        // Given
+        when(rentalChangeService.findChanges("invalid", 100)).thenReturn(null);
+
+        // When
+        ResponseEntity<?> response = rentalController.getChanges("invalid", 100);
+
+        // Then
+        assertEquals(400, response.getStatusCode().value());
+        assertEquals(Map.of("message", "Invalid cursor"), response.getBody());
+    }
+
     @Test
     void getRental_ShouldReturnRental_WhenRentalExists() {
         // Given
@@ -151,6 +203,7 @@ class RentalControllerTest {
     void getRentalPicture_ShouldReturnImage_WhenRentalExists() {
         // Given
         when(rentalService.findById(1L)).thenReturn(rental);
+        when(rentalService.findPicture(1L)).thenReturn(rental.getPicture());
 
         // When
         ResponseEntity<byte[]> response = rentalController.getRentalPicture(1L);
@@ -159,6 +212,8 @@ class RentalControllerTest {
         assertEquals(200, response.getStatusCodeValue());
         assertArrayEquals("fake image content".getBytes(), response.getBody());
         assertEquals("image/jpeg", response.getHeaders().getContentType().toString());
+        assertEquals(1, meterRegistry.summary("rentals.picture.bytes").count());
+        assertEquals("fake image content".length(), meterRegistry.summary("rentals.picture.bytes").totalAmount());
     }
 
     @Test
@@ -179,6 +234,7 @@ class RentalControllerTest {
         // Given
         rental.setPicture(null);
         when(rentalService.findById(1L)).thenReturn(rental);
+        when(rentalService.findPicture(1L)).thenReturn(null);
 
         // When
         ResponseEntity<byte[]> response = rentalController.getRentalPicture(1L);
@@ -186,6 +242,7 @@ class RentalControllerTest {
         // Then
         assertEquals(404, response.getStatusCodeValue());
         assertNull(response.getBody());
+        assertEquals(0, meterRegistry.summary("rentals.picture.bytes").count());
     }
 
     @Test
@@ -210,6 +267,7 @@ class RentalControllerTest {
         @SuppressWarnings("unchecked")
         Map<String, String> responseBody = (Map<String, String>) response.getBody();
         assertEquals("Rental updated !", responseBody.get("message"));
+        assertNotNull(response.getHeaders().getFirst(ReadConsistencyService.HEADER));
 
         // Cleanup
         SecurityContextHolder.clearContext();
@@ -261,4 +319,34 @@ class RentalControllerTest {
         // Cleanup
         SecurityContextHolder.clearContext();
     }
-}
\ No newline at end of file
+
+    @Test
+    void create_ShouldNotCreateRentalTwice_WhenIdempotencyKeyIsReused() throws Exception {
+        // Given
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(authentication.getName()).thenReturn("test@example.com");
+        SecurityContextHolder.setContext(securityContext);
+
+        CreateRentalDto dto = new CreateRentalDto("Beautiful Apartment", 75.0, BigDecimal.valueOf(1200),
+                "A beautiful apartment in the city center",
+                new MockMultipartFile("picture", "test.jpg", "image/jpeg", "fake image content".getBytes()));
+        when(userService.findByEmail("test@example.com")).thenReturn(user);
+        when(rentalService.createRental(any(CreateRentalDto.class), eq(1L))).thenReturn(rental);
+
+        // When
+        ResponseEntity<?> first = rentalController.create(dto, "upload-1");
+        ResponseEntity<?> replay = rentalController.create(dto, "upload-1");
+
+        // Then
+        assertEquals(201, first.getStatusCode().value());
+        assertEquals(201, replay.getStatusCode().value());
+        assertEquals("/api/rentals/1", replay.getHeaders().getLocation().toString());
+        assertEquals("true", replay.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        verify(rentalService, times(1)).createRental(any(CreateRentalDto.class), eq(1L));
+
+        // Cleanup
+        SecurityContextHolder.clearContext();
+    }
+}
@@ -0,0 +1,96 @@
+package com.openclassrooms.chatop.repositories;
+
+import com.openclassrooms.chatop.entities.Conversation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class ConversationRepositoryTest {
+    private static final Instant NOW = Instant.parse("2024-05-01T10:00:00Z");
+    private static final Instant FIRST_PAGE = Instant.parse("9999-12-31T23:59:59Z");
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void addMessages_ShouldIncrementUnreadAndMoveLastPointerForward() {
+        Conversation conversation = conversationRepository.save(new Conversation(null, 10L, 1L, 2L, 5L, NOW, 1));
+
+        assertEquals(1, conversationRepository.addMessages(10L, 1L, 2L, 2, 8L, NOW.plusSeconds(5)));
+        // Un lot plus ancien, reporté en retard, n'écrase pas le pointeur
+        assertEquals(1, conversationRepository.addMessages(10L, 1L, 2L, 1, 6L, NOW.plusSeconds(1)));
+        entityManager.clear();
+
+        Conversation updated = conversationRepository.findById(conversation.getId()).orElseThrow();
+        assertEquals(4, updated.getUnreadCount());
+        assertEquals(8L, updated.getLastMessageId());
+        assertEquals(NOW.plusSeconds(5), updated.getLastMessageAt());
+    }
+
+    @Test
+    void addMessages_ShouldKeepLastMessageId_WhenTheNewMessageHasNoIdYet() {
+        Conversation conversation = conversationRepository.save(new Conversation(null, 10L, 1L, 2L, 5L, NOW, 1));
+
+        assertEquals(1, conversationRepository.addMessages(10L, 1L, 2L, 1, null, NOW.plusSeconds(5)));
+        entityManager.clear();
+
+        Conversation updated = conversationRepository.findById(conversation.getId()).orElseThrow();
+        assertEquals(5L, updated.getLastMessageId());
+        assertEquals(NOW.plusSeconds(5), updated.getLastMessageAt());
+    }
+
+    @Test
+    void addMessages_ShouldReturnZero_WhenConversationDoesNotExist() {
+        assertEquals(0, conversationRepository.addMessages(10L, 1L, 2L, 1, 5L, NOW));
+    }
+
+    @Test
+    void markRead_ShouldOnlyResetOwnersConversation() {
+        Conversation conversation = conversationRepository.save(new Conversation(null, 10L, 1L, 2L, 5L, NOW, 3));
+
+        assertEquals(0, conversationRepository.markRead(conversation.getId(), 1L));
+        assertEquals(1, conversationRepository.markRead(conversation.getId(), 2L));
+        entityManager.clear();
+
+        assertEquals(0, conversationRepository.findById(conversation.getId()).orElseThrow().getUnreadCount());
+    }
+
+    @Test
+    void findOwnerPage_ShouldListMostRecentlyActiveFirst() {
+        conversationRepository.save(new Conversation(null, 10L, 1L, 2L, 5L, NOW, 1));
+        conversationRepository.save(new Conversation(null, 11L, 3L, 2L, 9L, NOW.plusSeconds(60), 2));
+        conversationRepository.save(new Conversation(null, 12L, 2L, 4L, 7L, NOW.plusSeconds(30), 0));
+
+        var owned = conversationRepository.findOwnerPage(2L, FIRST_PAGE, Long.MAX_VALUE, Limit.of(10));
+
+        assertEquals(2, owned.size());
+        assertEquals(11L, owned.get(0).getRentalId());
+        assertEquals(1, conversationRepository.findSenderPage(2L, FIRST_PAGE, Long.MAX_VALUE, Limit.of(10)).size());
+    }
+
+    @Test
+    void findOwnerPage_ShouldResumeAfterTheCursor_WhenDatesAreEqual() {
+        Conversation first = conversationRepository.save(new Conversation(null, 10L, 1L, 2L, 5L, NOW, 1));
+        Conversation second = conversationRepository.save(new Conversation(null, 11L, 3L, 2L, 9L, NOW, 2));
+        Conversation older = conversationRepository.save(new Conversation(null, 12L, 4L, 2L, 7L, NOW.minusSeconds(30), 0));
+
+        var page = conversationRepository.findOwnerPage(2L, FIRST_PAGE, Long.MAX_VALUE, Limit.of(1));
+        var next = conversationRepository.findOwnerPage(2L, NOW, second.getId(), Limit.of(10));
+
+        assertEquals(List.of(second.getId()), page.stream().map(Conversation::getId).toList());
+        assertEquals(List.of(first.getId(), older.getId()), next.stream().map(Conversation::getId).toList());
+    }
+}
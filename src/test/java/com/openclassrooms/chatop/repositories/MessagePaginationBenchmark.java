@@ -0,0 +1,108 @@
+package com.openclassrooms.chatop.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Mesure la latence d'une page de boîte de réception selon sa profondeur.
+ *
+ * <p>La table est remplie de {@code benchmark.messages} messages (1 million par défaut),
+ * dont un dixième reçus par le même utilisateur. Une page est lue à plusieurs profondeurs
+ * dans cette boîte, par clé (requête du repository) puis par OFFSET pour comparaison : la
+ * première reste constante, la seconde croît avec la profondeur.</p>
+ *
+ * <p>Lancement, ici à 10 millions de messages :
+ * {@code ./mvnw test -Pbenchmark -Dtest=MessagePaginationBenchmark -Dbenchmark.messages=10000000}
+ * (prévoir un tas de 4 Go, H2 gardant la table en mémoire).</p>
+ */
+@Tag("benchmark")
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        // H2 réutilise sinon le résultat d'une requête identique sur une table inchangée
+        "spring.datasource.url=jdbc:h2:mem:pagination;OPTIMIZE_REUSE_RESULTS=FALSE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+class MessagePaginationBenchmark {
+    private static final int PAGE_SIZE = 20;
+    private static final int ITERATIONS = 200;
+    private static final long RECIPIENT = 1L;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long rows;
+
+    @BeforeEach
+    void setUp() {
+        rows = Long.getLong("benchmark.messages", 1_000_000L);
+        // Un message sur dix pour RECIPIENT, les autres répartis sur 10 000 utilisateurs
+        jdbcTemplate.update("INSERT INTO messages (content, sender_id, recipient_id, rental_id, sent_at) "
+                + "SELECT 'message ' || X, MOD(X, 5000) + 2, CASE WHEN MOD(X, 10) = 0 THEN 1 ELSE MOD(X, 10000) + 2 END, "
+                + "MOD(X, 500) + 1, DATEADD('SECOND', X, TIMESTAMP '2020-01-01 00:00:00') "
+                + "FROM SYSTEM_RANGE(1, ?)", rows);
+    }
+
+    @Test
+    void pageLatencyByDepth() {
+        long inboxSize = rows / 10;
+        System.out.printf("%n%d messages, inbox of %d, page of %d%n", rows, inboxSize, PAGE_SIZE);
+        System.out.printf("%12s %14s %14s%n", "depth", "keyset (us)", "offset (us)");
+        for (long depth : new long[]{0, inboxSize / 100, inboxSize / 10, inboxSize / 2, inboxSize - PAGE_SIZE}) {
+            Map<String, Object> position = jdbcTemplate.queryForMap(
+                    "SELECT sent_at, id FROM messages WHERE recipient_id = ? ORDER BY recipient_id, sent_at DESC, id DESC LIMIT 1 OFFSET ?",
+                    RECIPIENT, Math.max(0, depth - 1));
+            Instant sentAt = depth == 0 ? Instant.parse("9999-12-31T23:59:59Z") : toInstant(position.get("SENT_AT"));
+            long id = depth == 0 ? Long.MAX_VALUE : ((Number) position.get("ID")).longValue();
+
+            double keyset = averageMicros(() ->
+                    assertEquals(PAGE_SIZE, messageRepository.findInboxPage(RECIPIENT, sentAt, id, Limit.of(PAGE_SIZE)).size()));
+            double offset = averageMicros(() ->
+                    assertEquals(PAGE_SIZE, jdbcTemplate.queryForList(
+                            "SELECT id, content, sender_id, recipient_id, rental_id, sent_at FROM messages "
+                                    + "WHERE recipient_id = ? ORDER BY recipient_id, sent_at DESC, id DESC LIMIT ? OFFSET ?",
+                            RECIPIENT, PAGE_SIZE, depth).size()));
+            System.out.printf("%12d %14.1f %14.1f%n", depth, keyset, offset);
+        }
+    }
+
+    private static double averageMicros(Runnable page) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            page.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            page.run();
+        }
+        return (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+    }
+
+    private static Instant toInstant(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toInstant();
+        }
+        if (value instanceof java.time.OffsetDateTime offsetDateTime) {
+            return offsetDateTime.toInstant();
+        }
+        return (Instant) value;
+    }
+}
@@ -0,0 +1,113 @@
+package com.openclassrooms.chatop.repositories;
+
+import com.openclassrooms.chatop.dtos.MessageItemDto;
+import com.openclassrooms.chatop.entities.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class MessageRepositoryTest {
+    private static final Instant BASE = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant FIRST_PAGE = Instant.parse("9999-12-31T23:59:59Z");
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        // Recipient 2 reçoit 7 messages sur deux locations, dont deux envoyés au même instant
+        insert(1L, 2L, 10L, BASE.plusSeconds(1));
+        insert(1L, 2L, 10L, BASE.plusSeconds(2));
+        insert(3L, 2L, 11L, BASE.plusSeconds(3));
+        insert(3L, 2L, 10L, BASE.plusSeconds(3));
+        insert(1L, 2L, 11L, BASE.plusSeconds(4));
+        insert(3L, 2L, 10L, BASE.plusSeconds(5));
+        insert(1L, 2L, 10L, BASE.plusSeconds(6));
+        insert(2L, 1L, 10L, BASE.plusSeconds(7));
+    }
+
+    @Test
+    void findInboxPage_ShouldWalkAllMessagesNewestFirst_WithoutGapsOrDuplicates() {
+        List<MessageItemDto> all = new ArrayList<>();
+        Instant sentAt = FIRST_PAGE;
+        long id = Long.MAX_VALUE;
+        List<MessageItemDto> page;
+        do {
+            page = messageRepository.findInboxPage(2L, sentAt, id, Limit.of(2));
+            all.addAll(page);
+            if (!page.isEmpty()) {
+                sentAt = page.get(page.size() - 1).getSent_at();
+                id = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == 2);
+
+        assertEquals(7, all.size());
+        assertEquals(7, all.stream().map(MessageItemDto::getId).distinct().count());
+        for (int i = 1; i < all.size(); i++) {
+            MessageItemDto previous = all.get(i - 1);
+            MessageItemDto current = all.get(i);
+            assertTrue(current.getSent_at().isBefore(previous.getSent_at())
+                    || (current.getSent_at().equals(previous.getSent_at()) && current.getId() < previous.getId()));
+        }
+        assertTrue(all.stream().allMatch(m -> m.getRecipient_id() == 2L));
+    }
+
+    @Test
+    void findInboxPageByRental_ShouldOnlyReturnMessagesOfRental() {
+        List<MessageItemDto> page = messageRepository.findInboxPageByRental(2L, 11L, FIRST_PAGE, Long.MAX_VALUE, Limit.of(10));
+
+        assertEquals(2, page.size());
+        assertTrue(page.stream().allMatch(m -> m.getRental_id() == 11L));
+    }
+
+    @Test
+    void findOutboxPage_ShouldReturnSentMessages() {
+        List<MessageItemDto> page = messageRepository.findOutboxPage(3L, FIRST_PAGE, Long.MAX_VALUE, Limit.of(10));
+        List<MessageItemDto> byRental = messageRepository.findOutboxPageByRental(3L, 10L, FIRST_PAGE, Long.MAX_VALUE, Limit.of(10));
+
+        assertEquals(3, page.size());
+        assertEquals(2, byRental.size());
+        assertTrue(page.stream().allMatch(m -> m.getSender_id() == 3L));
+    }
+
+    private void insert(long senderId, long recipientId, long rentalId, Instant sentAt) {
+        jdbcTemplate.update(
+                "INSERT INTO messages (content, sender_id, recipient_id, rental_id, sent_at) VALUES (?, ?, ?, ?, ?)",
+                "message", senderId, recipientId, rentalId, Timestamp.from(sentAt));
+    }
+
+    @Test
+    void insertAll_ShouldInsertBatchAndAssignGeneratedIds() {
+        List<Message> messages = new ArrayList<>();
+        for (long rentalId = 20; rentalId < 23; rentalId++) {
+            Message message = new Message();
+            message.setContent("inquiry");
+            message.setSenderId(5L);
+            message.setRecipientId(rentalId + 100);
+            message.setRentalId(rentalId);
+            messages.add(message);
+        }
+
+        messageRepository.insertAll(messages);
+
+        assertTrue(messages.stream().allMatch(m -> m.getId() != null && m.getSentAt() != null));
+        assertEquals(3, messages.stream().map(Message::getId).distinct().count());
+        assertEquals(22L, messageRepository.findById(messages.get(2).getId()).orElseThrow().getRentalId());
+    }
+}
@@ -0,0 +1,52 @@
+package com.openclassrooms.chatop.repositories;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Vérifie qu'une base créée avant Flyway (schéma de {@code ddl-auto=update}, sans historique)
+ * est marquée à la version 1 puis reçoit toutes les migrations suivantes.
+ */
+class MigrationBaselineTest {
+    private static final String LOCATION = "classpath:db/migration/h2";
+
+    @Test
+    void migrate_ShouldApplyEveryLaterMigration_WhenAnUnversionedSchemaIsBaselined() throws SQLException {
+        String url = "jdbc:h2:mem:baseline-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+
+        // Schéma d'origine, sans table d'historique
+        Flyway.configure().dataSource(url, "sa", "").locations(LOCATION).target("1").load().migrate();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE \"flyway_schema_history\"");
+        }
+
+        MigrateResult result = Flyway.configure()
+                .dataSource(url, "sa", "")
+                .locations(LOCATION)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+
+        assertEquals("2", result.migrations.get(0).version);
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            for (String table : List.of("CONVERSATIONS", "REVOKED_TOKENS", "IDEMPOTENCY_KEYS")) {
+                try (ResultSet tables = connection.getMetaData().getTables(null, null, table, null)) {
+                    assertTrue(tables.next(), table);
+                }
+            }
+        }
+    }
+}
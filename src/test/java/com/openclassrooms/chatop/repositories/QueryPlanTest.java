@@ -0,0 +1,167 @@
+package com.openclassrooms.chatop.repositories;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Vérifie, par {@code EXPLAIN} sur le schéma des migrations, que chaque requête des repositories
+ * est servie par un index et non par un parcours de table.
+ *
+ * <p>Le SQL exécuté est celui que génère Hibernate, capturé au passage. Les lectures complètes
+ * (liste des locations, chargement des e-mails au démarrage) parcourent la table par nature
+ * et ne sont pas couvertes.</p>
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.openclassrooms.chatop.repositories.QueryPlanTest$SqlRecorder"
+})
+class QueryPlanTest {
+    private static final Instant NOW = Instant.parse("2026-10-01T00:00:00Z");
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private RentalRepository rentalRepository;
+
+    @Autowired
+    private RentalTombstoneRepository rentalTombstoneRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        SqlRecorder.STATEMENTS.clear();
+    }
+
+    @Test
+    void messageQueries_ShouldUseMailboxIndexes() {
+        assertIndex("IDX_MESSAGES_RECIPIENT_SENT",
+                () -> messageRepository.findInboxPage(2L, NOW, Long.MAX_VALUE, Limit.of(20)));
+        assertIndex("IDX_MESSAGES_RECIPIENT_RENTAL_SENT",
+                () -> messageRepository.findInboxPageByRental(2L, 10L, NOW, Long.MAX_VALUE, Limit.of(20)));
+        assertIndex("IDX_MESSAGES_SENDER_SENT",
+                () -> messageRepository.findOutboxPage(1L, NOW, Long.MAX_VALUE, Limit.of(20)));
+        assertIndex("IDX_MESSAGES_SENDER_RENTAL_SENT",
+                () -> messageRepository.findOutboxPageByRental(1L, 10L, NOW, Long.MAX_VALUE, Limit.of(20)));
+    }
+
+    @Test
+    void conversationQueries_ShouldUseConversationIndexes() {
+        assertIndex("IDX_CONVERSATIONS_OWNER_LAST", 
+                () -> conversationRepository.findOwnerPage(2L, NOW, Long.MAX_VALUE, Limit.of(21)));
+        assertIndex("IDX_CONVERSATIONS_SENDER_LAST", 
+                () -> conversationRepository.findSenderPage(1L, NOW, Long.MAX_VALUE, Limit.of(21)));
+        assertIndex("UK_CONVERSATIONS_THREAD", () -> conversationRepository.addMessages(10L, 1L, 2L, 1, 5L, NOW));
+        // Clé primaire ou index du propriétaire, selon l'estimation de coût d'H2
+        assertIndexBacked(() -> conversationRepository.markRead(1L, 2L));
+    }
+
+    @Test
+    void rentalQueries_ShouldUsePrimaryKey() {
+        assertIndex("PRIMARY_KEY", () -> rentalRepository.findOwnerIdById(1L));
+        assertIndex("PRIMARY_KEY", () -> rentalRepository.findOwnerIdsByIdIn(List.of(1L, 2L)));
+        assertIndex("PRIMARY_KEY", () -> rentalRepository.findById(1L));
+        assertIndex("PRIMARY_KEY", () -> rentalRepository.findPictureById(1L));
+    }
+
+    @Test
+    void rentalChangeQueries_ShouldUseChangeIndexes() {
+        assertIndex("IDX_RENTALS_UPDATED", () -> rentalRepository.findChangesPage(NOW, 1L, Limit.of(101)));
+        assertIndex("IDX_RENTAL_TOMBSTONES_DELETED", () -> rentalTombstoneRepository.findChangesPage(NOW, 1L, Limit.of(101)));
+    }
+
+    @Test
+    void userQueries_ShouldUseEmailIndex() {
+        assertIndex("UK_USERS_EMAIL", () -> userRepository.findByEmail("owner@test.com"));
+        assertIndex("UK_USERS_EMAIL", () -> userRepository.existsByEmail("owner@test.com"));
+        assertIndex("UK_USERS_EMAIL", () -> userRepository.findEmailsAfter("owner@test.com", Limit.of(1000)));
+    }
+
+    @Test
+    void expiryQueries_ShouldUseExpiryIndexes() {
+        assertIndex("IDX_REVOKED_TOKENS_EXPIRES", () -> revokedTokenRepository.findByExpiresAtAfter(NOW));
+        assertIndex("IDX_REVOKED_TOKENS_EXPIRES", () -> revokedTokenRepository.deleteExpired(NOW));
+        assertIndex("IDX_IDEMPOTENCY_KEYS_EXPIRES", () -> idempotencyKeyRepository.deleteExpired(NOW));
+    }
+
+    @Test
+    void idempotencyKeyQueries_ShouldUsePrimaryKey() {
+        assertIndex("PRIMARY_KEY", () -> idempotencyKeyRepository.complete("message:1:k", 200, null, "{}", NOW));
+        assertIndex("PRIMARY_KEY", () -> idempotencyKeyRepository.release("message:1:k"));
+        assertIndex("PRIMARY_KEY", () -> idempotencyKeyRepository.deleteIfExpired("message:1:k", NOW));
+    }
+
+    /**
+     * Exécute la requête du repository, puis {@code EXPLAIN} sur le SQL qu'elle a produit.
+     * Les paramètres sont laissés à NULL : le plan d'H2 ne dépend pas de leurs valeurs.
+     */
+    private void assertIndex(String expectedIndex, Runnable query) {
+        String plan = assertIndexBacked(query);
+        assertTrue(plan.contains(expectedIndex), () -> expectedIndex + " not used:\n" + plan);
+    }
+
+    private String assertIndexBacked(Runnable query) {
+        SqlRecorder.STATEMENTS.clear();
+        query.run();
+        assertFalse(SqlRecorder.STATEMENTS.isEmpty(), "no SQL statement executed");
+        String sql = SqlRecorder.STATEMENTS.get(SqlRecorder.STATEMENTS.size() - 1);
+
+        String plan = jdbcTemplate.execute((Connection con) -> {
+            try (PreparedStatement statement = con.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 1; i <= statement.getParameterMetaData().getParameterCount(); i++) {
+                    statement.setObject(i, null);
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                    return rs.getString(1);
+                }
+            }
+        });
+
+        assertNotNull(plan);
+        assertFalse(plan.contains("tableScan"), () -> "table scan:\n" + plan);
+        return plan;
+    }
+
+    /** Capture le SQL généré par Hibernate. */
+    public static class SqlRecorder implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
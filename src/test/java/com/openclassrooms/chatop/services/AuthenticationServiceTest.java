@@ -4,22 +4,31 @@ import com.openclassrooms.chatop.dtos.LoginUserDto;
 import com.openclassrooms.chatop.dtos.RegisterUserDto;
 import com.openclassrooms.chatop.entities.User;
 import com.openclassrooms.chatop.repositories.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.util.NoSuchElementException;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +43,24 @@ class AuthenticationServiceTest {
     @Mock
     private AuthenticationManager authenticationManager;
 
+    @Mock
+    private LoginAttemptService loginAttemptService;
+
+    @Mock
+    private JwtService jwtService;
+
+    @Mock
+    private RegisteredEmailIndex registeredEmailIndex;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private AuthenticationService authenticationService;
 
@@ -46,37 +73,98 @@ class AuthenticationServiceTest {
         savedUser.setPassword("encodedPassword");
 
         when(passwordEncoder.encode("password123")).thenReturn("encodedPassword");
-        when(userRepository.save(any(User.class))).thenReturn(savedUser);
+        when(userRepository.saveAndFlush(any(User.class))).thenReturn(savedUser);
 
         User result = authenticationService.signup(input);
 
         assertEquals("John Doe", result.getName());
         assertEquals("john.doe@example.com", result.getEmail());
         assertEquals("encodedPassword", result.getPassword());
-        verify(userRepository).save(any(User.class));
+        verify(userRepository).saveAndFlush(any(User.class));
+        verify(registeredEmailIndex).add("john.doe@example.com");
+        verify(invalidationBus).append(CacheInvalidationBus.USER, null, "john.doe@example.com");
+        assertEquals(1, meterRegistry.timer("security.password.hashing", "operation", "encode", "outcome", "success").count());
     }
 
     @Test
-    void authenticateShouldReturnUserWhenCredentialsAreValid() {
+    void signupShouldRejectRegisteredEmailBeforeHashing() {
+        RegisterUserDto input = new RegisterUserDto("john.doe@example.com", "password123", "John Doe");
+
+        when(registeredEmailIndex.isRegistered("john.doe@example.com")).thenReturn(true);
+
+        assertNull(authenticationService.signup(input));
+        verifyNoInteractions(passwordEncoder);
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+    }
+
+    @Test
+    void signupShouldReturnNullWhenConcurrentSignupWinsTheUniqueConstraint() {
+        RegisterUserDto input = new RegisterUserDto("john.doe@example.com", "password123", "John Doe");
+
+        when(passwordEncoder.encode("password123")).thenReturn("encodedPassword");
+        when(userRepository.saveAndFlush(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        assertNull(authenticationService.signup(input));
+        verifyNoInteractions(invalidationBus);
+    }
+
+    @Test
+    void authenticateShouldReturnPrincipalWithoutSecondLookup() {
         LoginUserDto input = new LoginUserDto("john.doe@example.com", "password123");
         User user = new User();
         user.setEmail("john.doe@example.com");
 
-        when(userRepository.findByEmail("john.doe@example.com")).thenReturn(Optional.of(user));
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenReturn(new UsernamePasswordAuthenticationToken(user, null, List.of()));
 
-        User result = authenticationService.authenticate(input);
+        User result = authenticationService.authenticate(input, "127.0.0.1");
 
-        assertEquals("john.doe@example.com", result.getEmail());
+        assertSame(user, result);
         verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
+        verifyNoInteractions(userRepository);
     }
 
     @Test
-    void authenticateShouldThrowExceptionWhenUserNotFound() {
+    void authenticateShouldRecordFailureWhenCredentialsAreInvalid() {
         LoginUserDto input = new LoginUserDto("unknown@example.com", "password123");
 
-        when(userRepository.findByEmail("unknown@example.com")).thenReturn(Optional.empty());
+        when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+                .thenThrow(new BadCredentialsException("Bad credentials"));
 
-        assertThrows(NoSuchElementException.class, () -> authenticationService.authenticate(input));
-        verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
+        assertThrows(BadCredentialsException.class, () -> authenticationService.authenticate(input, "127.0.0.1"));
+        verify(loginAttemptService).recordFailure("unknown@example.com", "127.0.0.1");
+        assertEquals(1, meterRegistry.timer("security.password.hashing", "operation", "verify", "outcome", "failure").count());
+        assertEquals(0, meterRegistry.timer("security.password.hashing", "operation", "verify", "outcome", "success").count());
+    }
+
+    @Test
+    void authenticateShouldRejectThrottledAttemptBeforePasswordCheck() {
+        LoginUserDto input = new LoginUserDto("john.doe@example.com", "password123");
+
+        when(loginAttemptService.isBlocked("john.doe@example.com", "127.0.0.1")).thenReturn(true);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> authenticationService.authenticate(input, "127.0.0.1"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatusCode());
+        verify(authenticationManager, never()).authenticate(any());
+    }
+
+    @Test
+    void refreshShouldReturnUserWhenRefreshTokenIsConsumed() {
+        User user = new User();
+        user.setEmail("john.doe@example.com");
+
+        when(jwtService.consumeRefreshToken("refresh-token")).thenReturn("john.doe@example.com");
+        when(userRepository.findByEmail("john.doe@example.com")).thenReturn(Optional.of(user));
+
+        assertSame(user, authenticationService.refresh("refresh-token"));
+    }
+
+    @Test
+    void refreshShouldReturnNullWhenRefreshTokenIsRejected() {
+        when(jwtService.consumeRefreshToken("reused-token")).thenReturn(null);
+
+        assertNull(authenticationService.refresh("reused-token"));
+        verifyNoInteractions(userRepository);
     }
-}
\ No newline at end of file
+}
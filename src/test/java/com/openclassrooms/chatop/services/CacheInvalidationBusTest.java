@@ -0,0 +1,243 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.ChatopApplication;
+import com.openclassrooms.chatop.dtos.CreateMessageDto;
+import com.openclassrooms.chatop.dtos.CreateRentalDto;
+import com.openclassrooms.chatop.dtos.RegisterUserDto;
+import com.openclassrooms.chatop.dtos.UpdateRentalDto;
+import jakarta.persistence.Cache;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Deux instances de l'application sur une même base H2 embarquée : les écritures de l'une
+ * invalident les caches locaux de l'autre.
+ *
+ * <p>La lecture périodique est espacée d'une heure : les tests appellent eux-mêmes
+ * {@link CacheInvalidationBus#poll()} pour observer les caches avant et après.</p>
+ */
+class CacheInvalidationBusTest {
+
+    @TempDir
+    static Path dir;
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    static void startNodes() throws IOException {
+        // Clés de signature communes : un token émis par une instance est vérifiable par l'autre
+        KeyPair keyPair = JwtKeyRing.generateKeyPair();
+        Files.createDirectories(dir.resolve("jwt-keys"));
+        writePem(dir.resolve("jwt-keys/nodes.key"), "PRIVATE KEY", keyPair.getPrivate().getEncoded());
+        writePem(dir.resolve("jwt-keys/nodes.pub"), "PUBLIC KEY", keyPair.getPublic().getEncoded());
+        nodeA = start("a");
+        nodeB = start("b");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeB.close();
+        nodeA.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        nodeA.getBean(CacheInvalidationBus.class).poll();
+        nodeB.getBean(CacheInvalidationBus.class).poll();
+    }
+
+    @Test
+    void updateRental_ShouldEvictTheRentalCachedByTheOtherNode() throws IOException {
+        RentalService rentalsA = nodeA.getBean(RentalService.class);
+        RentalService rentalsB = nodeB.getBean(RentalService.class);
+        Long id = rentalsA.createRental(rental(), 1L).getId();
+        assertEquals("Studio", rentalsB.findById(id).getName());
+
+        rentalsA.updateRental(id, new UpdateRentalDto("Loft", 40, BigDecimal.valueOf(900), "Renovated"), 1L);
+
+        // Entrée périmée du cache de second niveau, jusqu'à la lecture du journal
+        assertEquals("Studio", rentalsB.findById(id).getName());
+        assertEquals(0, nodeA.getBean(CacheInvalidationBus.class).poll());
+        assertTrue(nodeB.getBean(CacheInvalidationBus.class).poll() > 0);
+        assertEquals("Loft", rentalsB.findById(id).getName());
+    }
+
+    @Test
+    void createRental_ShouldClearTheOtherNodesMissingOwner() throws IOException {
+        RentalOwnerResolver ownersB = nodeB.getBean(RentalOwnerResolver.class);
+        Long nextId = nodeA.getBean(RentalService.class).createRental(rental(), 1L).getId() + 1;
+        assertNull(ownersB.resolveOwnerId(nextId));
+
+        assertEquals(nextId, nodeA.getBean(RentalService.class).createRental(rental(), 7L).getId());
+
+        assertNull(ownersB.resolveOwnerId(nextId));
+        nodeB.getBean(CacheInvalidationBus.class).poll();
+        assertEquals(7L, ownersB.resolveOwnerId(nextId));
+    }
+
+    @Test
+    void signup_ShouldAddTheEmailToTheOtherNodesIndex() {
+        RegisteredEmailIndex emailsB = nodeB.getBean(RegisteredEmailIndex.class);
+
+        assertNotNull(nodeA.getBean(AuthenticationService.class)
+                .signup(new RegisterUserDto("node@test.com", "password123", "Node")));
+
+        assertFalse(emailsB.isRegistered("node@test.com"));
+        nodeB.getBean(CacheInvalidationBus.class).poll();
+        assertTrue(emailsB.isRegistered("node@test.com"));
+        assertNull(nodeB.getBean(AuthenticationService.class)
+                .signup(new RegisterUserDto("node@test.com", "password123", "Node")));
+    }
+
+    @Test
+    void sendMessage_ShouldAskTheRecipientsStreamsOnTheOtherNodeToResync() throws Exception {
+        Long rentalId = nodeA.getBean(RentalService.class).createRental(rental(), 3L).getId();
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        assertTrue(nodeB.getBean(MessageStreamHub.class).subscribe(3L, new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                builder.build().forEach(part -> {
+                    if (part.getData() instanceof String text) {
+                        text.lines().filter(line -> line.startsWith("event:")).forEach(events::add);
+                    }
+                });
+            }
+        }));
+
+        nodeA.getBean(MessageService.class).sendMessage(new CreateMessageDto("Hello", 5L, rentalId), 5L);
+        nodeB.getBean(CacheInvalidationBus.class).poll();
+
+        assertEquals("event:resync", events.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void consumeRefreshToken_ShouldBeSingleUseAcrossNodes_AndRevokeOnTheOtherNode() {
+        UserDetails user = User.withUsername("refresh@test.com").password("password123").build();
+        JwtService jwtA = nodeA.getBean(JwtService.class);
+        JwtService jwtB = nodeB.getBean(JwtService.class);
+        String refreshToken = jwtA.generateRefreshToken(user);
+        String accessToken = jwtA.generateToken(user);
+
+        assertEquals("refresh@test.com", jwtA.consumeRefreshToken(refreshToken));
+        // Le jti est déjà en base : l'instance B le refuse avant même la lecture du journal
+        assertNull(jwtB.consumeRefreshToken(refreshToken));
+
+        jwtA.revokeToken(accessToken);
+        assertTrue(jwtB.isTokenValid(accessToken, user));
+        nodeB.getBean(CacheInvalidationBus.class).poll();
+        assertFalse(jwtB.isTokenValid(accessToken, user));
+    }
+
+    @Test
+    void poll_ShouldWaitForLateCommits_AndSkipGapsAfterTimeout() {
+        JdbcTemplate jdbcTemplate = nodeA.getBean(JdbcTemplate.class);
+        MessageStreamHub hub = mock(MessageStreamHub.class);
+        AtomicLong now = new AtomicLong(1_000_000);
+        CacheInvalidationBus bus = new CacheInvalidationBus(jdbcTemplate, mock(Cache.class),
+                mock(RentalOwnerResolver.class), mock(RegisteredEmailIndex.class), hub, mock(TokenRevocationService.class), true, 2, 60_000, 1000,
+                3_600_000, now::get);
+        bus.poll();
+        long last = bus.getCursor();
+        try {
+            insert(jdbcTemplate, last + 2, 20L);
+            insert(jdbcTemplate, last + 3, 30L);
+
+            // last + 1 n'est pas encore validé : les lignes suivantes sont appliquées, le curseur l'attend
+            assertEquals(2, bus.poll());
+            assertEquals(last, bus.getCursor());
+
+            insert(jdbcTemplate, last + 1, 10L);
+            assertEquals(1, bus.poll());
+            assertEquals(last + 3, bus.getCursor());
+
+            // last + 4 ne sera jamais validé
+            insert(jdbcTemplate, last + 5, 50L);
+            assertEquals(1, bus.poll());
+            assertEquals(last + 3, bus.getCursor());
+            now.addAndGet(1000);
+            assertEquals(0, bus.poll());
+            assertEquals(last + 5, bus.getCursor());
+
+            for (long recipient : new long[]{10L, 20L, 30L, 50L}) {
+                verify(hub).resync(recipient);
+            }
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE cache_invalidations ALTER COLUMN id RESTART WITH " + (last + 6));
+        }
+    }
+
+    @Test
+    void purge_ShouldDeleteEntriesOlderThanRetention() {
+        JdbcTemplate jdbcTemplate = nodeA.getBean(JdbcTemplate.class);
+        CacheInvalidationBus bus = new CacheInvalidationBus(jdbcTemplate, mock(Cache.class),
+                mock(RentalOwnerResolver.class), mock(RegisteredEmailIndex.class), mock(MessageStreamHub.class),
+                mock(TokenRevocationService.class), true, 500, 60_000, 1000, 1000, () -> System.currentTimeMillis() + 1000);
+        bus.append(CacheInvalidationBus.RENTAL, 1L, null);
+
+        bus.purge();
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cache_invalidations WHERE created_at < ?",
+                Long.class, Timestamp.from(Instant.now())));
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, long id, long recipientId) {
+        jdbcTemplate.update("INSERT INTO cache_invalidations (id, entity, entity_id, entity_key, origin, created_at) "
+                        + "VALUES (?, ?, ?, NULL, 'other-node', ?)",
+                id, CacheInvalidationBus.MAILBOX, recipientId, Timestamp.from(Instant.now()));
+    }
+
+    private static CreateRentalDto rental() {
+        return new CreateRentalDto("Studio", 25, BigDecimal.valueOf(500), "Close to the station", null);
+    }
+
+    private static ConfigurableApplicationContext start(String node) {
+        // Arguments de ligne de commande : ils priment sur application.properties
+        return new SpringApplicationBuilder(ChatopApplication.class).run(
+                "--spring.datasource.url=jdbc:h2:mem:cache-invalidation;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--server.port=0",
+                "--management.server.port=0",
+                "--cache.invalidation.poll-interval=3600000",
+                "--security.jwt.signing.keys-dir=" + dir.resolve("jwt-keys"),
+                "--security.jwt.signing.active-kid=nodes",
+                "--notifications.spool-dir=" + dir.resolve(node),
+                "--outbox.ndjson-dir=" + dir.resolve(node).resolve("outbox"),
+                "--notifications.digest.state-file=" + dir.resolve(node).resolve("pending-digests.json")
+        );
+    }
+
+    private static void writePem(Path file, String type, byte[] der) throws IOException {
+        Files.writeString(file, "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(der)
+                + "\n-----END " + type + "-----\n");
+    }
+}
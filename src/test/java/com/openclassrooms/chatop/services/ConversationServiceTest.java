@@ -0,0 +1,239 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.dtos.ConversationDto;
+import com.openclassrooms.chatop.dtos.ConversationListResponse;
+import com.openclassrooms.chatop.entities.Conversation;
+import com.openclassrooms.chatop.entities.Message;
+import com.openclassrooms.chatop.repositories.ConversationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-01T10:00:00Z");
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @InjectMocks
+    private ConversationService conversationService;
+
+    @Test
+    void recordMessage_ShouldNotTouchDatabase_UntilFlush() {
+        conversationService.recordMessage(message(1L, NOW));
+
+        verifyNoInteractions(conversationRepository);
+        assertEquals(1, conversationService.getPendingCount());
+    }
+
+    @Test
+    void flush_ShouldApplyAccumulatedCount_InOneUpdatePerConversation() {
+        when(conversationRepository.addMessages(anyLong(), anyLong(), anyLong(), anyLong(), any(), any())).thenReturn(1);
+        conversationService.recordMessage(message(1L, NOW));
+        conversationService.recordMessage(message(3L, NOW.plusSeconds(2)));
+        conversationService.recordMessage(message(2L, NOW.plusSeconds(1)));
+
+        conversationService.flush();
+
+        verify(conversationRepository).addMessages(10L, 1L, 2L, 3L, 3L, NOW.plusSeconds(2));
+        assertEquals(0, conversationService.getPendingCount());
+    }
+
+    @Test
+    void flush_ShouldCreateConversation_WhenItDoesNotExist() {
+        when(conversationRepository.addMessages(anyLong(), anyLong(), anyLong(), anyLong(), any(), any())).thenReturn(0);
+        conversationService.recordMessage(message(5L, NOW));
+
+        conversationService.flush();
+
+        verify(conversationRepository).save(argThat(c ->
+                c.getRentalId() == 10L && c.getSenderId() == 1L && c.getOwnerId() == 2L
+                        && c.getUnreadCount() == 1 && c.getLastMessageId() == 5L && NOW.equals(c.getLastMessageAt())));
+    }
+
+    @Test
+    void flush_ShouldUpdate_WhenConversationWasCreatedConcurrently() {
+        when(conversationRepository.addMessages(anyLong(), anyLong(), anyLong(), anyLong(), any(), any()))
+                .thenReturn(0, 1);
+        when(conversationRepository.save(any(Conversation.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate"));
+        conversationService.recordMessage(message(5L, NOW));
+
+        conversationService.flush();
+
+        verify(conversationRepository, times(2)).addMessages(10L, 1L, 2L, 1L, 5L, NOW);
+    }
+
+    @Test
+    void flush_ShouldKeepPendingCount_WhenDatabaseFails() {
+        when(conversationRepository.addMessages(anyLong(), anyLong(), anyLong(), anyLong(), any(), any()))
+                .thenThrow(new org.springframework.dao.QueryTimeoutException("timeout"))
+                .thenReturn(1);
+        conversationService.recordMessage(message(5L, NOW));
+        conversationService.flush();
+        conversationService.recordMessage(message(6L, NOW.plusSeconds(1)));
+
+        conversationService.flush();
+
+        verify(conversationRepository).addMessages(10L, 1L, 2L, 2L, 6L, NOW.plusSeconds(1));
+    }
+
+    @Test
+    void findConversations_ShouldReturnCursor_WhenMoreConversationsExist() {
+        List<Conversation> rows = List.of(
+                new Conversation(9L, 10L, 1L, 2L, 5L, NOW, 1),
+                new Conversation(8L, 11L, 3L, 2L, 6L, NOW, 0),
+                new Conversation(7L, 12L, 4L, 2L, 7L, NOW.minusSeconds(1), 2));
+        when(conversationRepository.findOwnerPage(eq(2L), any(Instant.class), eq(Long.MAX_VALUE), eq(Limit.of(3))))
+                .thenReturn(rows);
+
+        ConversationListResponse page = conversationService.findConversations(2L, true, null, 2);
+
+        assertEquals(List.of(9L, 8L), page.getConversations().stream().map(ConversationDto::getId).toList());
+        assertNotNull(page.getNext_cursor());
+
+        // La page suivante reprend après la dernière conversation retournée
+        when(conversationRepository.findOwnerPage(2L, NOW, 8L, Limit.of(3))).thenReturn(rows.subList(2, 3));
+        ConversationListResponse next = conversationService.findConversations(2L, true, page.getNext_cursor(), 2);
+        assertEquals(1, next.getConversations().size());
+        assertNull(next.getNext_cursor());
+    }
+
+    @Test
+    void findConversations_ShouldBoundPageSize_ForSenders() {
+        when(conversationRepository.findSenderPage(eq(1L), any(Instant.class), eq(Long.MAX_VALUE),
+                eq(Limit.of(ConversationService.MAX_PAGE_SIZE + 1)))).thenReturn(List.of());
+
+        ConversationListResponse page = conversationService.findConversations(1L, false, null, 1_000);
+
+        assertTrue(page.getConversations().isEmpty());
+        verify(conversationRepository, never()).findOwnerPage(any(), any(), any(), any());
+    }
+
+    @Test
+    void findConversations_ShouldReturnNull_WhenCursorIsInvalid() {
+        assertNull(conversationService.findConversations(2L, true, "not-a-cursor", 20));
+        verifyNoInteractions(conversationRepository);
+    }
+
+    @Test
+    void markRead_ShouldResetDatabaseAndPendingCounts() {
+        Conversation conversation = new Conversation(7L, 10L, 1L, 2L, 5L, NOW, 4);
+        when(conversationRepository.findById(7L)).thenReturn(Optional.of(conversation));
+        when(conversationRepository.markRead(7L, 2L)).thenReturn(1);
+        when(conversationRepository.addMessages(anyLong(), anyLong(), anyLong(), anyLong(), any(), any())).thenReturn(1);
+        conversationService.recordMessage(message(6L, NOW.plusSeconds(1)));
+
+        assertTrue(conversationService.markRead(7L, 2L));
+        conversationService.flush();
+
+        verify(conversationRepository).addMessages(10L, 1L, 2L, 0L, 6L, NOW.plusSeconds(1));
+    }
+
+    @Test
+    void flush_ShouldUseTheIdAssignedByTheWriteBehindInsert() {
+        when(conversationRepository.addMessages(anyLong(), anyLong(), anyLong(), anyLong(), any(), any())).thenReturn(1);
+        Message queued = message(null, NOW);
+        conversationService.recordMessage(queued);
+
+        queued.setId(42L);
+        conversationService.flush();
+
+        verify(conversationRepository).addMessages(10L, 1L, 2L, 1L, 42L, NOW);
+    }
+
+    @Test
+    void markRead_ShouldWaitForAFlushInProgress() throws Exception {
+        Conversation conversation = new Conversation(7L, 10L, 1L, 2L, 5L, NOW, 4);
+        when(conversationRepository.findById(7L)).thenReturn(Optional.of(conversation));
+        when(conversationRepository.markRead(7L, 2L)).thenReturn(1);
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(conversationRepository.addMessages(anyLong(), anyLong(), anyLong(), anyLong(), any(), any()))
+                .thenAnswer(invocation -> {
+                    flushing.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return 1;
+                });
+        conversationService.recordMessage(message(6L, NOW.plusSeconds(1)));
+        Thread flush = new Thread(conversationService::flush);
+        flush.start();
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Boolean> read = CompletableFuture.supplyAsync(() -> conversationService.markRead(7L, 2L));
+        Thread.sleep(100);
+        verify(conversationRepository, never()).markRead(anyLong(), anyLong());
+        release.countDown();
+
+        assertTrue(read.get(5, TimeUnit.SECONDS));
+        flush.join();
+        InOrder order = inOrder(conversationRepository);
+        order.verify(conversationRepository).addMessages(10L, 1L, 2L, 1L, 6L, NOW.plusSeconds(1));
+        order.verify(conversationRepository).markRead(7L, 2L);
+    }
+
+    @Test
+    void markRead_ShouldNotWaitForTheFlushOfAnotherConversation() throws Exception {
+        Conversation other = new Conversation(8L, 20L, 3L, 2L, 9L, NOW, 2);
+        when(conversationRepository.findById(8L)).thenReturn(Optional.of(other));
+        when(conversationRepository.markRead(8L, 2L)).thenReturn(1);
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(conversationRepository.addMessages(anyLong(), anyLong(), anyLong(), anyLong(), any(), any()))
+                .thenAnswer(invocation -> {
+                    flushing.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return 1;
+                });
+        conversationService.recordMessage(message(6L, NOW.plusSeconds(1)));
+        Thread flush = new Thread(conversationService::flush);
+        flush.start();
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+
+        try {
+            assertTrue(CompletableFuture.supplyAsync(() -> conversationService.markRead(8L, 2L))
+                    .get(1, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            flush.join();
+        }
+    }
+
+    @Test
+    void markRead_ShouldReturnFalse_WhenUserIsNotOwner() {
+        Conversation conversation = new Conversation(7L, 10L, 1L, 2L, 5L, NOW, 4);
+        when(conversationRepository.findById(7L)).thenReturn(Optional.of(conversation));
+
+        assertFalse(conversationService.markRead(7L, 1L));
+        verify(conversationRepository, never()).markRead(anyLong(), anyLong());
+    }
+
+    private Message message(Long id, Instant sentAt) {
+        Message message = new Message();
+        message.setId(id);
+        message.setContent("Hello");
+        message.setSenderId(1L);
+        message.setRecipientId(2L);
+        message.setRentalId(10L);
+        message.setSentAt(sentAt);
+        return message;
+    }
+}
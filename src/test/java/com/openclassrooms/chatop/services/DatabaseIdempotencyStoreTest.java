@@ -0,0 +1,94 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.repositories.IdempotencyKeyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class DatabaseIdempotencyStoreTest {
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private DatabaseIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyKeyRepository.deleteAll();
+        store = new DatabaseIdempotencyStore(idempotencyKeyRepository, 30_000);
+    }
+
+    @Test
+    void reserve_ShouldReturnExistingRecord_OnceKeyIsTaken() {
+        Instant expiresAt = Instant.now().plusSeconds(60);
+
+        assertNull(store.reserve("message:1:k", "a", expiresAt));
+        IdempotencyStore.IdempotencyRecord pending = store.reserve("message:1:k", "a", expiresAt);
+        store.complete("message:1:k", 200, null, "{\"message\":\"Message sent !\"}", expiresAt);
+        IdempotencyStore.IdempotencyRecord completed = store.reserve("message:1:k", "a", expiresAt);
+
+        assertNotNull(pending);
+        assertNull(pending.status());
+        assertEquals(200, completed.status());
+        assertEquals("{\"message\":\"Message sent !\"}", completed.body());
+    }
+
+    @Test
+    void reserve_ShouldReplaceExpiredKey() {
+        assertNull(store.reserve("message:1:k", "a", Instant.now().plusSeconds(60)));
+        store.complete("message:1:k", 200, null, null, Instant.now().minusSeconds(1));
+
+        assertNull(store.reserve("message:1:k", "b", Instant.now().plusSeconds(60)));
+        assertEquals("b", idempotencyKeyRepository.findById("message:1:k").orElseThrow().getFingerprint());
+    }
+
+    @Test
+    void release_ShouldOnlyRemovePendingKeys() {
+        Instant expiresAt = Instant.now().plusSeconds(60);
+        store.reserve("pending", "a", expiresAt);
+        store.reserve("done", "a", expiresAt);
+        store.complete("done", 201, "/api/rentals/1", null, expiresAt);
+
+        store.release("pending");
+        store.release("done");
+        store.purgeExpired(Instant.now());
+
+        assertFalse(idempotencyKeyRepository.existsById("pending"));
+        assertTrue(idempotencyKeyRepository.existsById("done"));
+    }
+
+    @Test
+    void reserve_ShouldTakeOverPendingKey_OnceItsLeaseHasExpired() throws InterruptedException {
+        DatabaseIdempotencyStore shortLease = new DatabaseIdempotencyStore(idempotencyKeyRepository, 1);
+        Instant expiresAt = Instant.now().plusSeconds(60);
+        assertNull(shortLease.reserve("message:1:k", "a", expiresAt));
+        Thread.sleep(10);
+
+        assertNull(store.reserve("message:1:k", "a", expiresAt));
+        assertNotNull(store.reserve("message:1:k", "a", expiresAt));
+    }
+
+    @Test
+    void complete_ShouldKeepTheResponseUntilTheFullExpiry() {
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+        assertNull(store.reserve("message:1:k", "a", expiresAt));
+        Instant lease = idempotencyKeyRepository.findById("message:1:k").orElseThrow().getExpiresAt();
+
+        store.complete("message:1:k", 200, null, null, expiresAt);
+
+        assertTrue(lease.isBefore(Instant.now().plusSeconds(31)));
+        assertTrue(idempotencyKeyRepository.findById("message:1:k").orElseThrow().getExpiresAt()
+                .isAfter(Instant.now().plusSeconds(3000)));
+    }
+}
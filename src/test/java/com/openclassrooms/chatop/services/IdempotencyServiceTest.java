@@ -0,0 +1,118 @@
+package com.openclassrooms.chatop.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyServiceTest {
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private InMemoryIdempotencyStore store;
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryIdempotencyStore(3);
+        idempotencyService = new IdempotencyService(store, new ObjectMapper(), 60_000);
+    }
+
+    @Test
+    void execute_ShouldRunActionOnce_PerUserAndKey() {
+        ResponseEntity<?> first = execute(1L, "k", "a", 201);
+        ResponseEntity<?> replay = execute(1L, "k", "a", 201);
+        ResponseEntity<?> otherUser = execute(2L, "k", "a", 201);
+
+        assertEquals(2, executions.get());
+        assertEquals(201, replay.getStatusCode().value());
+        assertEquals("{\"message\":\"done 1\"}", replay.getBody());
+        assertNull(first.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals("true", replay.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertNull(otherUser.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void execute_ShouldAlwaysRun_WithoutKey() {
+        execute(1L, null, "a", 200);
+        execute(1L, " ", "a", 200);
+
+        assertEquals(2, executions.get());
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void execute_ShouldReturnUnprocessable_WhenKeyIsReusedForAnotherRequest() {
+        execute(1L, "k", "a", 200);
+
+        assertEquals(422, execute(1L, "k", "b", 200).getStatusCode().value());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_ShouldReturnConflict_WhileOriginalRequestIsRunning() {
+        ResponseEntity<?> nested = idempotencyService.execute("k", 1L, "test", "a",
+                () -> execute(1L, "k", "a", 200));
+
+        assertEquals(409, nested.getStatusCode().value());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void execute_ShouldReleaseKey_WhenActionFailsOrIsRetryable() {
+        assertThrows(IOException.class, () -> idempotencyService.execute("k", 1L, "test", "a", () -> {
+            throw new IOException("disk full");
+        }));
+        execute(1L, "k", "a", 503);
+        execute(1L, "k", "a", 429);
+        execute(1L, "k", "a", 200);
+        execute(1L, "k", "a", 200);
+
+        assertEquals(3, executions.get());
+    }
+
+    @Test
+    void execute_ShouldReturnBadRequest_WhenKeyIsTooLong() {
+        assertEquals(400, execute(1L, "x".repeat(256), "a", 200).getStatusCode().value());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void store_ShouldEvictOldestKeys_WhenFullOrExpired() {
+        for (int i = 0; i < 5; i++) {
+            execute(1L, "k" + i, "a", 200);
+        }
+        assertEquals(3, store.size());
+        execute(1L, "k0", "a", 200);
+        assertEquals(6, executions.get());
+
+        store.purgeExpired(Instant.now().plusSeconds(120));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void store_ShouldNotKeepReleasedOrReplacedKeysQueued() {
+        for (int i = 0; i < 10; i++) {
+            execute(1L, "failing", "a", 503);
+        }
+        assertEquals(0, store.queued());
+
+        Instant past = Instant.now().minusSeconds(1);
+        for (int i = 0; i < 10; i++) {
+            assertNull(store.reserve("expired", "a", past));
+        }
+        assertTrue(store.queued() <= 3);
+        assertTrue(store.size() <= 3);
+    }
+
+    private ResponseEntity<?> execute(Long userId, String key, String fingerprint, int status) {
+        return idempotencyService.execute(key, userId, "test", fingerprint,
+                () -> ResponseEntity.status(status).body(Map.of("message", "done " + executions.incrementAndGet())));
+    }
+}
@@ -0,0 +1,55 @@
+package com.openclassrooms.chatop.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtKeyRingTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void constructor_ShouldFail_WithoutKeysDirOutsideTheDevProfile() {
+        MockEnvironment production = new MockEnvironment().withProperty("spring.profiles.active", "prod");
+
+        IllegalStateException exception =
+                assertThrows(IllegalStateException.class, () -> new JwtKeyRing("", "", production));
+        assertTrue(exception.getMessage().contains("security.jwt.signing.keys-dir"));
+        assertThrows(IllegalStateException.class, () -> new JwtKeyRing(" ", "", new MockEnvironment()));
+    }
+
+    @Test
+    void constructor_ShouldUseAnEphemeralKey_WithTheDevProfile() {
+        JwtKeyRing keyRing = new JwtKeyRing("", "", new MockEnvironment().withProperty("spring.profiles.active", "dev"));
+
+        assertTrue(keyRing.getActiveKid().startsWith("ephemeral-"));
+        assertNotNull(keyRing.getVerificationKey(keyRing.getActiveKid()));
+    }
+
+    @Test
+    void constructor_ShouldLoadKeysFromTheDirectory() throws IOException {
+        KeyPair keyPair = JwtKeyRing.generateKeyPair();
+        writePem(dir.resolve("202610.key"), "PRIVATE KEY", keyPair.getPrivate().getEncoded());
+        writePem(dir.resolve("202610.pub"), "PUBLIC KEY", keyPair.getPublic().getEncoded());
+
+        JwtKeyRing keyRing = new JwtKeyRing(dir.toString(), "202610", new MockEnvironment());
+
+        assertEquals("202610", keyRing.getActiveKid());
+        assertEquals(keyPair.getPublic(), keyRing.getVerificationKey("202610"));
+    }
+
+    private static void writePem(Path file, String type, byte[] der) throws IOException {
+        Files.writeString(file, "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(der)
+                + "\n-----END " + type + "-----\n");
+    }
+}
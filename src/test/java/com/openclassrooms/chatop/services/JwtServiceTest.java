@@ -1,22 +1,40 @@
 package com.openclassrooms.chatop.services;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.security.KeyPair;
 import java.util.ArrayList;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class JwtServiceTest {
 
-    @InjectMocks
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private JwtService jwtService;
 
     private UserDetails userDetails;
@@ -24,9 +42,11 @@ class JwtServiceTest {
 
     @BeforeEach
     void setUp() {
-        // Set up properties for JwtService
-        ReflectionTestUtils.setField(jwtService, "secretKey", "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970");
+        // Set up JwtService with a single in-memory ES256 key
+        jwtService = new JwtService(tokenRevocationService, invalidationBus,
+                new JwtKeyRing("test-key", JwtKeyRing.generateKeyPair(), Map.of()), meterRegistry);
         ReflectionTestUtils.setField(jwtService, "jwtExpiration", 86400000L); // 24 hours
+        ReflectionTestUtils.setField(jwtService, "refreshExpiration", 604800000L); // 7 days
 
         // Create test user details
         userDetails = new User("test@example.com", "password", new ArrayList<>());
@@ -122,4 +142,68 @@ class JwtServiceTest {
 
         assertFalse(isValid);
     }
-}
\ No newline at end of file
+
+    @Test
+    void isTokenValid_ShouldReturnFalse_WhenTokenIsRevoked() {
+        when(tokenRevocationService.isRevoked(anyString())).thenReturn(true);
+
+        assertFalse(jwtService.isTokenValid(validToken, userDetails));
+    }
+
+    @Test
+    void isTokenValid_ShouldReturnFalse_WhenTokenIsRefreshToken() {
+        String refreshToken = jwtService.generateRefreshToken(userDetails);
+
+        assertFalse(jwtService.isTokenValid(refreshToken, userDetails));
+    }
+
+    @Test
+    void consumeRefreshToken_ShouldReturnUsername_WhenFirstUse() {
+        String refreshToken = jwtService.generateRefreshToken(userDetails);
+        when(tokenRevocationService.revoke(anyString(), any())).thenReturn(true);
+
+        assertEquals(userDetails.getUsername(), jwtService.consumeRefreshToken(refreshToken));
+        verify(invalidationBus).append(eq(CacheInvalidationBus.REVOKED_TOKEN), anyLong(), anyString());
+    }
+
+    @Test
+    void consumeRefreshToken_ShouldReturnNull_WhenAlreadyUsed() {
+        String refreshToken = jwtService.generateRefreshToken(userDetails);
+        when(tokenRevocationService.revoke(anyString(), any())).thenReturn(false);
+
+        assertNull(jwtService.consumeRefreshToken(refreshToken));
+        verifyNoInteractions(invalidationBus);
+    }
+
+    @Test
+    void consumeRefreshToken_ShouldReturnNull_WhenAccessTokenIsPresented() {
+        assertNull(jwtService.consumeRefreshToken(validToken));
+        verify(tokenRevocationService, never()).revoke(anyString(), any());
+    }
+
+    @Test
+    void isTokenValid_ShouldAcceptTokenSignedWithPreviousKey_DuringRotation() {
+        KeyPair previousKey = JwtKeyRing.generateKeyPair();
+        JwtService previousService = new JwtService(tokenRevocationService, invalidationBus,
+                new JwtKeyRing("previous-key", previousKey, Map.of()), meterRegistry);
+        ReflectionTestUtils.setField(previousService, "jwtExpiration", 86400000L);
+        JwtService rotatedService = new JwtService(tokenRevocationService, invalidationBus,
+                new JwtKeyRing("next-key", JwtKeyRing.generateKeyPair(), Map.of("previous-key", previousKey.getPublic())), meterRegistry);
+
+        String tokenFromPreviousKey = previousService.generateToken(userDetails);
+
+        assertTrue(rotatedService.isTokenValid(tokenFromPreviousKey, userDetails));
+    }
+
+    @Test
+    void extractUsername_ShouldReject_WhenKeyIsUnknown() {
+        JwtService otherService = new JwtService(tokenRevocationService, invalidationBus,
+                new JwtKeyRing("other-key", JwtKeyRing.generateKeyPair(), Map.of()), meterRegistry);
+        ReflectionTestUtils.setField(otherService, "jwtExpiration", 86400000L);
+
+        String foreignToken = otherService.generateToken(userDetails);
+
+        assertThrows(io.jsonwebtoken.JwtException.class, () -> jwtService.extractUsername(foreignToken));
+        assertEquals(1, meterRegistry.timer("security.jwt.verification", "outcome", "invalid").count());
+    }
+}
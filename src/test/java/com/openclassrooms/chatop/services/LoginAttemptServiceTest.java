@@ -0,0 +1,84 @@
+package com.openclassrooms.chatop.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginAttemptServiceTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+    private LoginAttemptService loginAttemptService;
+
+    @BeforeEach
+    void setUp() {
+        loginAttemptService = new LoginAttemptService(3, 5, 60_000L, 1000, now::get);
+    }
+
+    @Test
+    void isBlocked_ShouldReturnFalse_WhenNoFailureRecorded() {
+        assertFalse(loginAttemptService.isBlocked("john.doe@example.com", "10.0.0.1"));
+    }
+
+    @Test
+    void isBlocked_ShouldReturnTrue_WhenEmailReachesThreshold() {
+        for (int i = 0; i < 3; i++) {
+            loginAttemptService.recordFailure("john.doe@example.com", "10.0.0." + i);
+        }
+
+        assertTrue(loginAttemptService.isBlocked("John.Doe@example.com", "10.0.0.99"));
+        assertFalse(loginAttemptService.isBlocked("jane.doe@example.com", "10.0.0.99"));
+    }
+
+    @Test
+    void isBlocked_ShouldReturnTrue_WhenIpReachesThreshold() {
+        for (int i = 0; i < 5; i++) {
+            loginAttemptService.recordFailure("user" + i + "@example.com", "10.0.0.1");
+        }
+
+        assertTrue(loginAttemptService.isBlocked("other@example.com", "10.0.0.1"));
+        assertFalse(loginAttemptService.isBlocked("other@example.com", "10.0.0.2"));
+    }
+
+    @Test
+    void isBlocked_ShouldReturnFalse_WhenFailuresLeaveTheWindow() {
+        for (int i = 0; i < 3; i++) {
+            loginAttemptService.recordFailure("john.doe@example.com", null);
+        }
+        assertTrue(loginAttemptService.isBlocked("john.doe@example.com", null));
+
+        now.addAndGet(61_000L);
+
+        assertFalse(loginAttemptService.isBlocked("john.doe@example.com", null));
+    }
+
+    @Test
+    void isBlocked_ShouldNotShareCounters_BetweenKeysWithTheSameHashCode() {
+        assertEquals("10.10.156.242".hashCode(), "10.20.109.10".hashCode());
+        for (int i = 0; i < 5; i++) {
+            loginAttemptService.recordFailure("user" + i + "@example.com", "10.10.156.242");
+        }
+
+        assertTrue(loginAttemptService.isBlocked("other@example.com", "10.10.156.242"));
+        assertFalse(loginAttemptService.isBlocked("other@example.com", "10.20.109.10"));
+    }
+
+    @Test
+    void isBlocked_ShouldNotBlockOtherKeys_WhenTheExpectedNumberOfKeysFail() {
+        for (int i = 0; i < 1000; i++) {
+            for (int j = 0; j < 2; j++) {
+                loginAttemptService.recordFailure("user" + i + "@example.com", null);
+            }
+        }
+
+        int blocked = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (loginAttemptService.isBlocked("innocent" + i + "@example.com", null)) {
+                blocked++;
+            }
+        }
+        assertTrue(blocked <= 10, blocked + " innocent emails blocked");
+    }
+}
@@ -0,0 +1,145 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.dtos.MessageItemDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class MessageArchiveServiceTest {
+    private static final Instant FIRST_PAGE = Instant.parse("9999-12-31T23:59:59Z");
+    private static final Instant JANUARY = LocalDate.of(2020, 1, 1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    private static final Instant FEBRUARY = LocalDate.of(2020, 2, 1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    private Path archiveDir;
+
+    private MessageArchiveService archiveService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // 1 500 messages en janvier 2020 (plusieurs blocs), 10 en février, 1 récent
+        for (int i = 0; i < 1_500; i++) {
+            insert(i + 1L, 100L + i % 5, 2L + i % 3, i % 2 == 0 ? 10L : 11L, JANUARY.plusSeconds(i));
+        }
+        for (int i = 0; i < 10; i++) {
+            insert(2_000L + i, 100L, 2L, 10L, FEBRUARY.plusSeconds(i));
+        }
+        insert(3_000L, 100L, 2L, 10L, Instant.now());
+        archiveService = new MessageArchiveService(jdbcTemplate, archiveDir.toString(), 12, 3, 60_000);
+        archiveService.openArchives();
+    }
+
+    @AfterEach
+    void tearDown() {
+        archiveService.closeArchives();
+    }
+
+    @Test
+    void archiveClosedMonths_ShouldMoveOldMonthsToArchive() throws Exception {
+        // When
+        long archived = archiveService.archiveClosedMonths();
+
+        // Then
+        assertEquals(1_510, archived);
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM messages", Integer.class));
+        assertTrue(Files.exists(archiveDir.resolve("messages-2020-01.arc")));
+        assertTrue(Files.exists(archiveDir.resolve("messages-2020-02.arc")));
+        assertEquals(0, archiveService.archiveClosedMonths());
+    }
+
+    @Test
+    void findOlder_ShouldReadInboxAcrossMonthsNewestFirst() throws Exception {
+        // Given
+        archiveService.archiveClosedMonths();
+
+        // When
+        List<MessageItemDto> page = archiveService.findOlder(true, 2L, null, FIRST_PAGE, Long.MAX_VALUE, 15);
+
+        // Then : les 10 messages de février puis les plus récents de janvier
+        assertEquals(15, page.size());
+        assertEquals(2_009L, page.get(0).getId());
+        assertEquals(2_000L, page.get(9).getId());
+        assertEquals(1_498L, page.get(10).getId());
+        for (int i = 1; i < page.size(); i++) {
+            assertTrue(page.get(i).getSent_at().isBefore(page.get(i - 1).getSent_at()));
+        }
+        MessageItemDto last = page.get(page.size() - 1);
+        List<MessageItemDto> next = archiveService.findOlder(true, 2L, null, last.getSent_at(), last.getId(), 1_000);
+        assertEquals(500 - 5, next.size());
+        assertEquals(1L, next.get(next.size() - 1).getId());
+    }
+
+    @Test
+    void findOlder_ShouldFilterOutboxByRental_AfterReopening() throws Exception {
+        // Given
+        archiveService.archiveClosedMonths();
+        archiveService.closeArchives();
+        MessageArchiveService reopened = new MessageArchiveService(jdbcTemplate, archiveDir.toString(), 12, 3, 60_000);
+        reopened.openArchives();
+
+        // When
+        List<MessageItemDto> page = reopened.findOlder(false, 101L, 11L, FIRST_PAGE, Long.MAX_VALUE, 1_000);
+
+        // Then : sender 101 envoie un message sur 5 (i % 5 == 1), dont la moitié sur la location 11 (i impair)
+        assertEquals(150, page.size());
+        assertTrue(page.stream().allMatch(m -> m.getSender_id() == 101L && m.getRental_id() == 11L));
+        assertEquals("message 1492", page.get(0).getMessage());
+        reopened.closeArchives();
+    }
+
+    @Test
+    void archiveClosedMonths_ShouldSkip_WhileAnotherInstanceHoldsTheLease() throws Exception {
+        // Given
+        jdbcTemplate.update("UPDATE job_locks SET owner = 'other', locked_until = ? WHERE name = 'message-archive'",
+                Timestamp.from(Instant.now().plusSeconds(60)));
+
+        // When
+        long archived = archiveService.archiveClosedMonths();
+
+        // Then
+        assertEquals(0, archived);
+        assertEquals(1_511, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM messages", Integer.class));
+    }
+
+    @Test
+    void findOlder_ShouldReadMonthsArchivedByAnotherInstance() throws Exception {
+        // Given : une seconde instance sur le même répertoire partagé, ouverte avant l'archivage
+        MessageArchiveService otherInstance = new MessageArchiveService(jdbcTemplate, archiveDir.toString(), 12, 3, 60_000);
+        otherInstance.openArchives();
+        archiveService.archiveClosedMonths();
+
+        // When
+        List<MessageItemDto> page = otherInstance.findOlder(true, 2L, null, FIRST_PAGE, Long.MAX_VALUE, 10);
+
+        // Then
+        assertEquals(10, page.size());
+        assertEquals(2_009L, page.get(0).getId());
+        assertEquals(0, otherInstance.archiveClosedMonths());
+        otherInstance.closeArchives();
+    }
+
+    private void insert(long id, long senderId, long recipientId, long rentalId, Instant sentAt) {
+        jdbcTemplate.update("INSERT INTO messages (id, content, sender_id, recipient_id, rental_id, sent_at) VALUES (?, ?, ?, ?, ?, ?)",
+                id, "message " + id, senderId, recipientId, rentalId, Timestamp.from(sentAt));
+    }
+}
@@ -0,0 +1,102 @@
+package com.openclassrooms.chatop.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    private MessageRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        // 60 messages par minute (un par seconde), rafale de 3
+        rateLimiter = new MessageRateLimiter(60, 3, 2, now::get);
+    }
+
+    @Test
+    void tryAcquire_ShouldAllowBurstThenReturnWait() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(1L));
+        }
+
+        assertEquals(1_000, rateLimiter.tryAcquire(1L));
+        assertEquals(0, rateLimiter.tryAcquire(2L));
+    }
+
+    @Test
+    void tryAcquire_ShouldRefillOneTokenPerInterval() {
+        for (int i = 0; i < 3; i++) {
+            rateLimiter.tryAcquire(1L);
+        }
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(400));
+        assertEquals(600, rateLimiter.tryAcquire(1L));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+        assertEquals(0, rateLimiter.tryAcquire(1L));
+        assertTrue(rateLimiter.tryAcquire(1L) > 0);
+    }
+
+    @Test
+    void evictIdle_ShouldRemoveFullBucketsOnly() {
+        rateLimiter.tryAcquire(1L);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        rateLimiter.tryAcquire(2L);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+
+        rateLimiter.evictIdle();
+
+        assertEquals(1, rateLimiter.getBucketCount());
+    }
+
+    @Test
+    void tryAcquire_ShouldEvictBucketsWithTokensLeft_WhenTableIsFull() {
+        rateLimiter.tryAcquire(1L);
+        rateLimiter.tryAcquire(2L);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(3L));
+        }
+        assertTrue(rateLimiter.tryAcquire(3L) > 0);
+        assertTrue(rateLimiter.getBucketCount() <= 2);
+    }
+
+    @Test
+    void tryAcquire_ShouldLimitNewSenders_WhenEveryTrackedSenderIsWaiting() {
+        rateLimiter.tryAcquire(1L, 3);
+        rateLimiter.tryAcquire(2L, 3);
+        assertTrue(rateLimiter.tryAcquire(1L) > 0);
+
+        assertEquals(1_000, rateLimiter.tryAcquire(3L));
+        assertEquals(2, rateLimiter.getBucketCount());
+
+        // Une fois un seau redevenu plein, la place est reprise
+        now.addAndGet(TimeUnit.SECONDS.toNanos(3));
+        assertEquals(0, rateLimiter.tryAcquire(3L));
+    }
+
+    @Test
+    void tryAcquire_ShouldAlwaysAllow_WhenDisabled() {
+        MessageRateLimiter disabled = new MessageRateLimiter(0, 3, 2, now::get);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, disabled.tryAcquire(1L));
+        }
+    }
+
+    @Test
+    void tryAcquire_ShouldChargeBatchToFollowingRequests() {
+        assertEquals(0, rateLimiter.tryAcquire(1L, 5));
+
+        // 5 jetons pris sur un seau de 3 : 2 secondes de crédit avant le prochain envoi
+        assertEquals(3_000, rateLimiter.tryAcquire(1L));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(3));
+        assertEquals(0, rateLimiter.tryAcquire(1L));
+    }
+}
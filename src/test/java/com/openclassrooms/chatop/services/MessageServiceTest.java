@@ -1,10 +1,14 @@
 package com.openclassrooms.chatop.services;
 
+import com.openclassrooms.chatop.dtos.CreateInquiryDto;
 import com.openclassrooms.chatop.dtos.CreateMessageDto;
+import com.openclassrooms.chatop.dtos.InquiryResponse;
+import com.openclassrooms.chatop.dtos.InquiryResultDto;
+import com.openclassrooms.chatop.dtos.MessageItemDto;
+import com.openclassrooms.chatop.dtos.MessagePageResponse;
 import com.openclassrooms.chatop.entities.Message;
 import com.openclassrooms.chatop.entities.Rental;
 import com.openclassrooms.chatop.repositories.MessageRepository;
-import com.openclassrooms.chatop.repositories.RentalRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,11 +16,18 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
 import java.math.BigDecimal;
-import java.util.Optional;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,7 +37,31 @@ class MessageServiceTest {
     private MessageRepository messageRepository;
 
     @Mock
-    private RentalRepository rentalRepository;
+    private RentalOwnerResolver rentalOwnerResolver;
+
+    @Mock
+    private MessageWriteBehindService messageWriteBehindService;
+
+    @Mock
+    private ConversationService conversationService;
+
+    @Mock
+    private MessageStreamHub messageStreamHub;
+
+    @Mock
+    private MessageArchiveService messageArchiveService;
+
+    @Mock
+    private NotificationDigestService notificationDigestService;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private MessageService messageService;
@@ -62,7 +97,7 @@ class MessageServiceTest {
     @Test
     void sendMessage_ShouldCreateAndSaveMessage_WhenRentalExists() {
         // Given
-        when(rentalRepository.findById(1L)).thenReturn(Optional.of(rental));
+        when(rentalOwnerResolver.resolveOwnerId(1L)).thenReturn(rental.getOwnerId());
         when(messageRepository.save(any(Message.class))).thenReturn(savedMessage);
 
         // When
@@ -77,14 +112,18 @@ class MessageServiceTest {
         assertEquals(savedMessage.getRentalId(), result.getRentalId());
 
         // Verify interactions
-        verify(rentalRepository).findById(1L);
+        verify(rentalOwnerResolver).resolveOwnerId(1L);
         verify(messageRepository).save(any(Message.class));
+        verify(conversationService).recordMessage(savedMessage);
+        verify(notificationDigestService).recordMessage(savedMessage);
+        verify(invalidationBus).append(CacheInvalidationBus.MAILBOX, rental.getOwnerId(), null);
+        verify(outboxService).recordMessages(List.of(savedMessage));
     }
 
     @Test
     void sendMessage_ShouldSetCorrectRecipient_FromRentalOwner() {
         // Given
-        when(rentalRepository.findById(1L)).thenReturn(Optional.of(rental));
+        when(rentalOwnerResolver.resolveOwnerId(1L)).thenReturn(rental.getOwnerId());
         when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> {
             Message message = invocation.getArgument(0);
             message.setId(1L);
@@ -104,7 +143,7 @@ class MessageServiceTest {
     @Test
     void sendMessage_ShouldReturnNull_WhenRentalDoesNotExist() {
         // Given
-        when(rentalRepository.findById(1L)).thenReturn(Optional.empty());
+        when(rentalOwnerResolver.resolveOwnerId(1L)).thenReturn(null);
 
         // When
         Message result = messageService.sendMessage(messageDto, 1L);
@@ -113,8 +152,9 @@ class MessageServiceTest {
         assertNull(result);
 
         // Verify that save was never called
-        verify(rentalRepository).findById(1L);
+        verify(rentalOwnerResolver).resolveOwnerId(1L);
         verify(messageRepository, never()).save(any(Message.class));
+        verifyNoInteractions(conversationService, messageStreamHub);
     }
 
     @Test
@@ -123,7 +163,7 @@ class MessageServiceTest {
         String customMessage = "Is this rental still available?";
         messageDto.setMessage(customMessage);
 
-        when(rentalRepository.findById(1L)).thenReturn(Optional.of(rental));
+        when(rentalOwnerResolver.resolveOwnerId(1L)).thenReturn(rental.getOwnerId());
         when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> {
             Message message = invocation.getArgument(0);
             message.setId(1L);
@@ -142,7 +182,7 @@ class MessageServiceTest {
     void sendMessage_ShouldHandleDifferentSenderIds() {
         // Given
         Long senderId = 99L;
-        when(rentalRepository.findById(1L)).thenReturn(Optional.of(rental));
+        when(rentalOwnerResolver.resolveOwnerId(1L)).thenReturn(rental.getOwnerId());
         when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> {
             Message message = invocation.getArgument(0);
             message.setId(1L);
@@ -161,7 +201,7 @@ class MessageServiceTest {
     @Test
     void sendMessage_ShouldPreserveAllMessageFields() {
         // Given
-        when(rentalRepository.findById(1L)).thenReturn(Optional.of(rental));
+        when(rentalOwnerResolver.resolveOwnerId(1L)).thenReturn(rental.getOwnerId());
         when(messageRepository.save(any(Message.class))).thenAnswer(invocation -> {
             Message message = invocation.getArgument(0);
             message.setId(1L);
@@ -186,4 +226,119 @@ class MessageServiceTest {
                         message.getRentalId().equals(rental.getId())
         ));
     }
-}
\ No newline at end of file
+
+    @Test
+    void sendMessage_ShouldEnqueueWithoutInsert_WhenWriteBehindAcceptsMessage() {
+        // Given
+        when(rentalOwnerResolver.resolveOwnerId(1L)).thenReturn(rental.getOwnerId());
+        when(messageWriteBehindService.enqueue(any(Message.class))).thenReturn(true);
+
+        // When
+        Message result = messageService.sendMessage(messageDto, 1L);
+
+        // Then
+        assertNotNull(result);
+        assertNull(result.getId());
+        assertEquals(rental.getOwnerId(), result.getRecipientId());
+        verify(messageRepository, never()).save(any(Message.class));
+        verify(conversationService).recordMessage(result);
+        verify(messageStreamHub).publish(eq(rental.getOwnerId()), argThat(item ->
+                item.getId() == null && item.getMessage().equals(messageDto.getMessage())));
+        verifyNoInteractions(invalidationBus, outboxService);
+    }
+
+    @Test
+    void sendInquiry_ShouldInsertOneBatch_AndReportEachRental() {
+        // Given
+        CreateInquiryDto dto = new CreateInquiryDto("Available in August?", List.of(1L, 9L, 3L, 1L));
+        when(rentalOwnerResolver.resolveOwnerIds(List.of(1L, 9L, 3L))).thenReturn(Map.of(1L, 2L, 3L, 4L));
+        doAnswer(invocation -> {
+            List<Message> batch = invocation.getArgument(0);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setId(100L + i);
+            }
+            return null;
+        }).when(messageRepository).insertAll(anyList());
+
+        // When
+        InquiryResponse response = messageService.sendInquiry(dto, 5L);
+
+        // Then
+        assertEquals(3, response.getResults().size());
+        assertEquals(new InquiryResultDto(1L, InquiryResultDto.SENT, 100L), response.getResults().get(0));
+        assertEquals(new InquiryResultDto(9L, InquiryResultDto.RENTAL_NOT_FOUND, null), response.getResults().get(1));
+        assertEquals(new InquiryResultDto(3L, InquiryResultDto.SENT, 101L), response.getResults().get(2));
+        verify(messageRepository, times(1)).insertAll(argThat(batch -> batch.size() == 2));
+        verify(messageRepository, never()).save(any());
+        verify(conversationService, times(2)).recordMessage(any(Message.class));
+        verify(messageStreamHub).publish(eq(4L), argThat(item -> item.getId() == 101L));
+        verify(invalidationBus).appendAll(CacheInvalidationBus.MAILBOX, Set.of(2L, 4L));
+        verify(outboxService).recordMessages(argThat(sent -> sent.stream().map(Message::getId).toList()
+                .equals(List.of(100L, 101L))));
+    }
+
+    @Test
+    void findInbox_ShouldReturnCursor_WhenMoreMessagesExist() {
+        // Given
+        Instant now = Instant.parse("2024-05-01T10:15:30.123456Z");
+        List<MessageItemDto> rows = List.of(
+                new MessageItemDto(3L, "c", 1L, 2L, 1L, now),
+                new MessageItemDto(2L, "b", 1L, 2L, 1L, now),
+                new MessageItemDto(1L, "a", 1L, 2L, 1L, now.minusSeconds(1)));
+        when(messageRepository.findInboxPage(eq(2L), any(Instant.class), eq(Long.MAX_VALUE), eq(Limit.of(3))))
+                .thenReturn(rows);
+
+        // When
+        MessagePageResponse page = messageService.findInbox(2L, null, null, 2);
+
+        // Then
+        assertEquals(2, page.getMessages().size());
+        assertNotNull(page.getNext_cursor());
+
+        // La page suivante reprend après le dernier message retourné
+        when(messageRepository.findInboxPage(2L, now, 2L, Limit.of(3))).thenReturn(rows.subList(2, 3));
+        MessagePageResponse next = messageService.findInbox(2L, null, page.getNext_cursor(), 2);
+        assertEquals(1, next.getMessages().size());
+        assertNull(next.getNext_cursor());
+    }
+
+    @Test
+    void findInbox_ShouldContinueInArchive_WhenDatabaseIsExhausted() {
+        // Given
+        Instant now = Instant.parse("2024-05-01T10:15:30Z");
+        Instant old = Instant.parse("2023-01-10T08:00:00Z");
+        when(messageRepository.findInboxPage(eq(2L), any(Instant.class), eq(Long.MAX_VALUE), eq(Limit.of(3))))
+                .thenReturn(List.of(new MessageItemDto(9L, "recent", 1L, 2L, 1L, now)));
+        when(messageArchiveService.findOlder(true, 2L, null, now, 9L, 2)).thenReturn(List.of(
+                new MessageItemDto(4L, "archived", 1L, 2L, 1L, old),
+                new MessageItemDto(3L, "archived", 1L, 2L, 1L, old.minusSeconds(1))));
+
+        // When
+        MessagePageResponse page = messageService.findInbox(2L, null, null, 2);
+
+        // Then
+        assertEquals(List.of(9L, 4L), page.getMessages().stream().map(MessageItemDto::getId).toList());
+        assertNotNull(page.getNext_cursor());
+    }
+
+    @Test
+    void findOutbox_ShouldUseRentalQuery_WhenRentalIdIsGiven() {
+        // Given
+        when(messageRepository.findOutboxPageByRental(eq(1L), eq(5L), any(Instant.class), eq(Long.MAX_VALUE),
+                eq(Limit.of(MessageService.MAX_PAGE_SIZE + 1)))).thenReturn(List.of());
+
+        // When
+        MessagePageResponse page = messageService.findOutbox(1L, 5L, null, 1_000);
+
+        // Then
+        assertTrue(page.getMessages().isEmpty());
+        assertNull(page.getNext_cursor());
+        verify(messageRepository, never()).findOutboxPage(any(), any(), any(), any());
+    }
+
+    @Test
+    void findInbox_ShouldReturnNull_WhenCursorIsInvalid() {
+        assertNull(messageService.findInbox(2L, null, "not-a-cursor", 20));
+        verifyNoInteractions(messageRepository);
+    }
+}
@@ -0,0 +1,81 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.dtos.MessageItemDto;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Mesure le coût mémoire de 50 000 abonnements SSE inactifs et le temps de diffusion.
+ *
+ * <p>Les connexions sont simulées (aucun socket) : on mesure ce que le hub conserve par
+ * abonné, c'est-à-dire un thread virtuel bloqué, sa file et son emitter. Les sockets et
+ * buffers du serveur web s'y ajoutent en production.</p>
+ *
+ * <p>Lancement : {@code ./mvnw test -Pbenchmark -Dtest=MessageStreamCapacityBenchmark}</p>
+ */
+@Tag("benchmark")
+class MessageStreamCapacityBenchmark {
+    private static final int SUBSCRIBERS = 50_000;
+    private static final int MESSAGES = 100_000;
+
+    @Test
+    void idleSubscribersAndFanOut() throws Exception {
+        MessageStreamHub hub = new MessageStreamHub(64, 25_000, 5);
+        CountDownLatch delivered = new CountDownLatch(MESSAGES);
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        for (long user = 1; user <= SUBSCRIBERS; user++) {
+            assertTrue(hub.subscribe(user, new CountingEmitter(delivered)));
+        }
+        long subscribeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long heapAfter = usedHeap();
+        assertEquals(SUBSCRIBERS, hub.getSubscriberCount());
+
+        MessageItemDto message = new MessageItemDto(1L, "Hello", 1L, 2L, 10L, Instant.now());
+        start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            hub.publish((long) (i % SUBSCRIBERS) + 1, message);
+        }
+        long publishNanos = System.nanoTime() - start;
+        assertTrue(delivered.await(30, TimeUnit.SECONDS));
+        long deliverMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        System.out.printf("%n%d subscribers opened in %d ms, ~%d bytes of heap each%n",
+                SUBSCRIBERS, subscribeMillis, (heapAfter - heapBefore) / SUBSCRIBERS);
+        System.out.printf("%d messages published in %.1f ms (%.0f ns each), all delivered after %d ms%n",
+                MESSAGES, publishNanos / 1e6, (double) publishNanos / MESSAGES, deliverMillis);
+
+        hub.closeAll();
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static final class CountingEmitter extends SseEmitter {
+        private final CountDownLatch delivered;
+
+        private CountingEmitter(CountDownLatch delivered) {
+            this.delivered = delivered;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            delivered.countDown();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.dtos.MessageItemDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageStreamHubTest {
+
+    private MessageStreamHub hub;
+
+    @AfterEach
+    void tearDown() {
+        if (hub != null) {
+            hub.closeAll();
+        }
+    }
+
+    @Test
+    void publish_ShouldDeliverMessage_ToRecipientStreamsOnly() throws Exception {
+        hub = new MessageStreamHub(8, 60_000, 5);
+        RecordingEmitter recipient = new RecordingEmitter();
+        RecordingEmitter other = new RecordingEmitter();
+        assertTrue(hub.subscribe(2L, recipient));
+        assertTrue(hub.subscribe(3L, other));
+
+        hub.publish(2L, message(1L));
+
+        assertEquals(Set.of("event:message", "id:1"), recipient.nextEvent());
+        assertNull(other.events.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void subscriber_ShouldReceiveHeartbeats_WhenIdle() throws Exception {
+        hub = new MessageStreamHub(8, 20, 5);
+        RecordingEmitter emitter = new RecordingEmitter();
+        hub.subscribe(2L, emitter);
+
+        assertTrue(emitter.nextEvent().contains(":heartbeat"));
+    }
+
+    @Test
+    void slowSubscriber_ShouldBeAskedToResync_WhenBufferOverflows() throws Exception {
+        hub = new MessageStreamHub(2, 60_000, 5);
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.blockSends();
+        hub.subscribe(2L, emitter);
+
+        // Le premier message bloque l'écriture, les suivants remplissent puis débordent la file
+        hub.publish(2L, message(1L));
+        assertTrue(emitter.sendStarted.await(5, TimeUnit.SECONDS));
+        for (long id = 2; id <= 5; id++) {
+            hub.publish(2L, message(id));
+        }
+        emitter.releaseSends();
+
+        assertEquals(Set.of("event:message", "id:1"), emitter.nextEvent());
+        assertEquals(Set.of("event:resync"), emitter.nextEvent());
+    }
+
+    @Test
+    void resync_ShouldAskEveryStreamOfTheUserToReread() throws Exception {
+        hub = new MessageStreamHub(8, 60_000, 5);
+        RecordingEmitter first = new RecordingEmitter();
+        RecordingEmitter second = new RecordingEmitter();
+        RecordingEmitter other = new RecordingEmitter();
+        hub.subscribe(2L, first);
+        hub.subscribe(2L, second);
+        hub.subscribe(3L, other);
+
+        hub.resync(2L);
+
+        assertEquals(Set.of("event:resync"), first.nextEvent());
+        assertEquals(Set.of("event:resync"), second.nextEvent());
+        assertNull(other.events.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void subscribe_ShouldRejectStreams_BeyondPerUserLimit() {
+        hub = new MessageStreamHub(8, 60_000, 1);
+
+        assertTrue(hub.subscribe(2L, new RecordingEmitter()));
+        assertFalse(hub.subscribe(2L, new RecordingEmitter()));
+        assertEquals(1, hub.getSubscriberCount());
+    }
+
+    @Test
+    void failedWrite_ShouldReleaseSubscription() throws Exception {
+        hub = new MessageStreamHub(8, 20, 1);
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.failSends = true;
+        hub.subscribe(2L, emitter);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (hub.getSubscriberCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, hub.getSubscriberCount());
+        // Le quota de l'utilisateur est libéré
+        assertTrue(hub.subscribe(2L, new RecordingEmitter()));
+    }
+
+    private static MessageItemDto message(long id) {
+        return new MessageItemDto(id, "Hello", 1L, 2L, 10L, Instant.now());
+    }
+
+    /**
+     * Emitter qui enregistre les lignes "event:", "id:" et commentaires de chaque envoi.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<Set<String>> events = new LinkedBlockingQueue<>();
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private volatile boolean failSends;
+        private final CountDownLatch sendStarted = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (failSends) {
+                throw new IOException("Broken pipe");
+            }
+            sendStarted.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            Set<String> lines = new java.util.HashSet<>();
+            for (var part : builder.build()) {
+                if (part.getData() instanceof String text) {
+                    for (String line : text.split("\n")) {
+                        if (line.startsWith("event:") || line.startsWith("id:") || line.startsWith(":")) {
+                            lines.add(line);
+                        }
+                    }
+                }
+            }
+            events.add(lines);
+        }
+
+        void blockSends() {
+            gate = new CountDownLatch(1);
+        }
+
+        void releaseSends() {
+            gate.countDown();
+        }
+
+        Set<String> nextEvent() throws InterruptedException {
+            Set<String> event = events.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event, "no event received");
+            return event;
+        }
+    }
+}
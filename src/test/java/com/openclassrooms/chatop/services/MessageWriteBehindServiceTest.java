@@ -0,0 +1,193 @@
+package com.openclassrooms.chatop.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.openclassrooms.chatop.entities.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MessageWriteBehindServiceTest {
+    private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder().findAndAddModules().build();
+
+    @TempDir
+    Path dir;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Mock
+    private OutboxService outboxService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void enqueue_ShouldReturnFalse_WhenModeIsSync() {
+        MessageWriteBehindService service = new MessageWriteBehindService(
+                jdbcTemplate, transactionManager, invalidationBus, outboxService, "sync", 10, 5, 10, 1000, 1, dir.toString(), OBJECT_MAPPER, meterRegistry);
+        service.start();
+
+        assertFalse(service.enqueue(message()));
+        assertFalse(service.isRunning());
+    }
+
+    @Test
+    void enqueue_ShouldReturnFalse_WhenQueueIsFull() {
+        MessageWriteBehindService service = new MessageWriteBehindService(
+                jdbcTemplate, transactionManager, invalidationBus, outboxService, "async", 1, 5, 10_000, 1000, 1, dir.toString(), OBJECT_MAPPER, meterRegistry);
+        // Le thread d'écriture n'est pas démarré : on simule un service actif dont la file ne se vide pas
+        ReflectionTestUtils.setField(service, "running", true);
+
+        assertTrue(service.enqueue(message()));
+        assertFalse(service.enqueue(message()));
+        assertEquals(1, service.getQueueDepth());
+    }
+
+    @Test
+    void stop_ShouldWriteAllQueuedMessagesInBatches() {
+        MessageWriteBehindService service = new MessageWriteBehindService(
+                jdbcTemplate, transactionManager, invalidationBus, outboxService, "async", 100, 4, 20, 5000, 1, dir.toString(), OBJECT_MAPPER, meterRegistry);
+        // Le lot est réutilisé par le thread d'écriture : on relève sa taille au moment de l'appel
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class),
+                any(KeyHolder.class)))
+                .thenAnswer(invocation -> {
+                    batchSizes.add(invocation.<BatchPreparedStatementSetter>getArgument(1).getBatchSize());
+                    return new int[0];
+                });
+        service.start();
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(service.enqueue(message()));
+        }
+        service.stop();
+
+        assertEquals(10, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 4));
+        assertEquals(10, service.getCommittedMessages());
+        assertEquals(0, service.getQueueDepth());
+        assertEquals(batchSizes.size(), meterRegistry.get("messages.ingestion.commit.size").summary().count());
+        assertEquals(10, meterRegistry.get("messages.ingestion.commit.size").summary().totalAmount());
+        assertEquals(0, meterRegistry.get("messages.ingestion.queue.depth").gauge().value());
+        assertFalse(service.enqueue(message()));
+        verify(invalidationBus, atLeastOnce()).appendAll(CacheInvalidationBus.MAILBOX, Set.of(2L));
+        verify(outboxService, atLeastOnce()).recordMessages(anyCollection());
+    }
+
+    @Test
+    void flush_ShouldIsolateAPoisonedMessage_AndDeadLetterIt() throws Exception {
+        MessageWriteBehindService service = new MessageWriteBehindService(
+                jdbcTemplate, transactionManager, invalidationBus, outboxService, "async", 100, 10, 20, 5000,
+                1, dir.toString(), OBJECT_MAPPER, meterRegistry);
+        List<String> written = new CopyOnWriteArrayList<>();
+        when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class),
+                any(KeyHolder.class)))
+                .thenAnswer(invocation -> {
+                    List<String> contents = contents(invocation.getArgument(1));
+                    if (contents.contains("poison")) {
+                        throw new DataIntegrityViolationException("Data too long for column 'content'");
+                    }
+                    written.addAll(contents);
+                    return new int[0];
+                });
+        service.start();
+
+        assertTrue(service.enqueue(message("first")));
+        assertTrue(service.enqueue(message("poison")));
+        assertTrue(service.enqueue(message("last")));
+        service.stop();
+
+        assertEquals(List.of("first", "last"), written);
+        assertEquals(2, service.getCommittedMessages());
+        assertEquals(1, service.getFailedMessages());
+        assertEquals(1, meterRegistry.get("messages.ingestion.messages").tag("result", "failed").functionCounter().count());
+        assertEquals(2, meterRegistry.get("messages.ingestion.messages").tag("result", "committed").functionCounter().count());
+        try (var files = Files.list(dir)) {
+            List<String> lines = Files.readAllLines(files.findFirst().orElseThrow());
+            assertEquals(1, lines.size());
+            assertEquals("poison", OBJECT_MAPPER.readTree(lines.get(0)).get("content").asText());
+        }
+    }
+
+    @Test
+    void flush_ShouldRetryTransientFailures_WithoutLosingTheBatch() {
+        MessageWriteBehindService service = new MessageWriteBehindService(
+                jdbcTemplate, transactionManager, invalidationBus, outboxService, "async", 100, 10, 20, 5000,
+                1, dir.toString(), OBJECT_MAPPER, meterRegistry);
+        when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class),
+                any(KeyHolder.class)))
+                .thenThrow(new TransientDataAccessResourceException("connection reset"))
+                .thenReturn(new int[0]);
+        service.start();
+
+        assertTrue(service.enqueue(message("first")));
+        assertTrue(service.enqueue(message("second")));
+        service.stop();
+
+        assertEquals(2, service.getCommittedMessages());
+        assertEquals(0, service.getFailedMessages());
+    }
+
+    private static List<String> contents(BatchPreparedStatementSetter setter) throws Exception {
+        List<String> contents = new ArrayList<>();
+        for (int i = 0; i < setter.getBatchSize(); i++) {
+            PreparedStatement statement = mock(PreparedStatement.class);
+            setter.setValues(statement, i);
+            ArgumentCaptor<String> content = ArgumentCaptor.forClass(String.class);
+            verify(statement).setString(eq(1), content.capture());
+            contents.add(content.getValue());
+        }
+        return contents;
+    }
+
+    private Message message() {
+        return message("Hello");
+    }
+
+    private Message message(String content) {
+        Message message = new Message();
+        message.setContent(content);
+        message.setSenderId(1L);
+        message.setRecipientId(2L);
+        message.setRentalId(3L);
+        return message;
+    }
+}
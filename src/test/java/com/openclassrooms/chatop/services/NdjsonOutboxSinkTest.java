@@ -0,0 +1,64 @@
+package com.openclassrooms.chatop.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.openclassrooms.chatop.dtos.OutboxEventDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NdjsonOutboxSinkTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    @Test
+    void publish_ShouldAppendOneJsonLinePerEvent_ToTheDailyFile() throws Exception {
+        NdjsonOutboxSink sink = new NdjsonOutboxSink(dir.resolve("outbox").toString(), 30, objectMapper);
+
+        sink.publish(List.of(event(1L, "{\"name\":\"Studio\"}"), event(2L, "{\"name\":\"Loft\"}")));
+        sink.publish(List.of(event(3L, "{\"message\":\"Hello\"}")));
+
+        Path file = dir.resolve("outbox").resolve("events-" + LocalDate.now(ZoneOffset.UTC) + ".ndjson");
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(3, lines.size());
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals("event-1", first.get("event_id").asText());
+        assertEquals(1L, first.get("sequence").asLong());
+        assertEquals("Studio", first.get("payload").get("name").asText());
+        assertEquals("Hello", objectMapper.readTree(lines.get(2)).get("payload").get("message").asText());
+    }
+
+    @Test
+    void purge_ShouldDeleteDailyFilesOutsideRetention() throws Exception {
+        NdjsonOutboxSink sink = new NdjsonOutboxSink(dir.toString(), 2, objectMapper);
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        Path yesterday = Files.writeString(dir.resolve("events-" + today.minusDays(1) + ".ndjson"), "{}\n");
+        Path older = Files.writeString(dir.resolve("events-" + today.minusDays(2) + ".ndjson"), "{}\n");
+        Path unrelated = Files.writeString(dir.resolve("events-archive.ndjson"), "{}\n");
+        sink.publish(List.of(event(1L, "{}")));
+
+        sink.purge();
+
+        assertTrue(Files.exists(dir.resolve("events-" + today + ".ndjson")));
+        assertTrue(Files.exists(yesterday));
+        assertFalse(Files.exists(older));
+        assertTrue(Files.exists(unrelated));
+    }
+
+    private static OutboxEventDto event(Long sequence, String payload) {
+        return new OutboxEventDto("event-" + sequence, sequence, OutboxService.RENTAL, sequence,
+                OutboxService.RENTAL_CREATED, Instant.now(), payload);
+    }
+}
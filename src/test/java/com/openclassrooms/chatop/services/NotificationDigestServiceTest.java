@@ -0,0 +1,155 @@
+package com.openclassrooms.chatop.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.openclassrooms.chatop.dtos.NotificationDigestDto;
+import com.openclassrooms.chatop.entities.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationDigestServiceTest {
+
+    private static final long WINDOW = 60_000;
+
+    @TempDir
+    private Path dir;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final AtomicLong now = new AtomicLong(Instant.parse("2026-10-01T10:00:00Z").toEpochMilli());
+    private Path spoolDir;
+    private Path stateFile;
+    private NotificationDigestService digestService;
+
+    @BeforeEach
+    void setUp() {
+        spoolDir = dir.resolve("spool");
+        stateFile = dir.resolve("pending-digests.json");
+        digestService = newService(new SpoolNotificationSender(spoolDir.toString(), 0, objectMapper), 10);
+    }
+
+    @Test
+    void flushDue_ShouldSendOneDigestPerRecipient_WhenWindowElapsed() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            digestService.recordMessage(message(i, 2L, 10L + i % 2));
+        }
+        digestService.recordMessage(message(5, 3L, 20L));
+
+        now.addAndGet(WINDOW - 1);
+        digestService.flushDue();
+        assertTrue(spooled().isEmpty());
+
+        now.addAndGet(1);
+        digestService.flushDue();
+
+        List<NotificationDigestDto> digests = spooled();
+        assertEquals(2, digests.size());
+        NotificationDigestDto owner = digests.stream().filter(d -> d.getRecipient_id() == 2L).findFirst().orElseThrow();
+        assertEquals(5, owner.getMessage_count());
+        assertEquals(List.of(10L, 11L), owner.getRental_ids());
+        assertEquals(NotificationDigestService.MAX_PREVIEWS, owner.getPreviews().size());
+        assertEquals(Instant.parse("2026-10-01T09:00:00Z"), owner.getFirst_message_at());
+        assertEquals(Instant.parse("2026-10-01T09:04:00Z"), owner.getLast_message_at());
+        assertEquals(0, digestService.getPendingCount());
+    }
+
+    @Test
+    void recordMessage_ShouldSendImmediately_WhenTooManyDigestsPending() throws IOException {
+        digestService = newService(new SpoolNotificationSender(spoolDir.toString(), 0, objectMapper), 1);
+
+        digestService.recordMessage(message(1, 2L, 10L));
+        digestService.recordMessage(message(2, 2L, 10L));
+        digestService.recordMessage(message(3, 3L, 20L));
+
+        List<NotificationDigestDto> digests = spooled();
+        assertEquals(1, digests.size());
+        assertEquals(3L, digests.get(0).getRecipient_id());
+        assertEquals(1, digestService.getPendingCount());
+    }
+
+    @Test
+    void persist_ShouldRestorePendingDigests_AfterRestart() throws IOException {
+        digestService.recordMessage(message(1, 2L, 10L));
+        digestService.recordMessage(message(2, 2L, 11L));
+        digestService.persist();
+        assertTrue(Files.exists(stateFile));
+
+        NotificationDigestService restarted =
+                newService(new SpoolNotificationSender(spoolDir.toString(), 0, objectMapper), 10);
+        restarted.restore();
+        assertFalse(Files.exists(stateFile));
+        assertEquals(1, restarted.getPendingCount());
+
+        now.addAndGet(WINDOW);
+        restarted.flushDue();
+
+        List<NotificationDigestDto> digests = spooled();
+        assertEquals(1, digests.size());
+        assertEquals(2, digests.get(0).getMessage_count());
+        assertEquals(List.of(10L, 11L), digests.get(0).getRental_ids());
+    }
+
+    @Test
+    void flushDue_ShouldKeepDigest_WhenSenderFails() {
+        List<NotificationDigestDto> sent = new ArrayList<>();
+        AtomicLong failures = new AtomicLong(1);
+        digestService = newService(digest -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new IOException("mail relay unavailable");
+            }
+            sent.add(digest);
+        }, 10);
+
+        digestService.recordMessage(message(1, 2L, 10L));
+        now.addAndGet(WINDOW);
+        digestService.flushDue();
+        assertTrue(sent.isEmpty());
+        assertEquals(1, digestService.getPendingCount());
+
+        digestService.recordMessage(message(2, 2L, 10L));
+        now.addAndGet(WINDOW);
+        digestService.flushDue();
+
+        assertEquals(1, sent.size());
+        assertEquals(2, sent.get(0).getMessage_count());
+    }
+
+    private NotificationDigestService newService(NotificationSender sender, int maxPending) {
+        return new NotificationDigestService(sender, objectMapper, true, WINDOW, maxPending, stateFile, now::get);
+    }
+
+    private List<NotificationDigestDto> spooled() throws IOException {
+        if (!Files.exists(spoolDir)) {
+            return List.of();
+        }
+        List<NotificationDigestDto> digests = new ArrayList<>();
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".json")).toList()) {
+                digests.add(objectMapper.readValue(file.toFile(), NotificationDigestDto.class));
+            }
+        }
+        return digests;
+    }
+
+    private static Message message(long id, Long recipientId, Long rentalId) {
+        Message message = new Message();
+        message.setId(id);
+        message.setContent("message " + id);
+        message.setSenderId(100L);
+        message.setRecipientId(recipientId);
+        message.setRentalId(rentalId);
+        message.setSentAt(Instant.parse("2026-10-01T09:00:00Z").plusSeconds(60 * id));
+        return message;
+    }
+}
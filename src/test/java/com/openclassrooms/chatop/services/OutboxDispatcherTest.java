@@ -0,0 +1,154 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.dtos.OutboxEventDto;
+import com.openclassrooms.chatop.entities.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Outbox et publication sur le schéma des migrations (H2) : chaque inscription est validée
+ * dans sa propre transaction, comme en production.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OutboxService.class, JacksonAutoConfiguration.class})
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class OutboxDispatcherTest {
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private final List<OutboxEventDto> published = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM outbox_events");
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void dispatch_ShouldPublishInSequenceOrder_InBatches() {
+        record(1L, OutboxService.RENTAL_CREATED, "Studio");
+        record(2L, OutboxService.RENTAL_CREATED, "Loft");
+        record(1L, OutboxService.RENTAL_UPDATED, "Studio meublé");
+        transactionTemplate.executeWithoutResult(status -> outboxService.recordMessages(List.of(message(10L))));
+        AtomicInteger calls = new AtomicInteger();
+        OutboxDispatcher dispatcher = dispatcher(events -> {
+            calls.incrementAndGet();
+            published.addAll(events);
+        }, 3);
+
+        assertEquals(4, dispatcher.dispatch());
+
+        assertEquals(2, calls.get());
+        assertEquals(List.of(OutboxService.RENTAL_CREATED, OutboxService.RENTAL_CREATED, OutboxService.RENTAL_UPDATED,
+                OutboxService.MESSAGE_SENT), published.stream().map(OutboxEventDto::getEvent_type).toList());
+        for (int i = 1; i < published.size(); i++) {
+            assertTrue(published.get(i).getSequence() > published.get(i - 1).getSequence());
+        }
+        assertEquals("{\"name\":\"Studio meublé\"}", published.get(2).getPayload());
+        assertTrue(published.get(3).getPayload().contains("\"recipient_id\":2"));
+        assertEquals(0, dispatcher.getPendingEvents());
+        assertEquals(4, dispatcher.getPublishedEvents());
+        assertEquals(0, dispatcher.dispatch());
+    }
+
+    @Test
+    void dispatch_ShouldRepublishTheWholeBatch_WhenASinkFails() {
+        record(1L, OutboxService.RENTAL_CREATED, "Studio");
+        record(2L, OutboxService.RENTAL_CREATED, "Loft");
+        AtomicInteger attempts = new AtomicInteger();
+        OutboxDispatcher dispatcher = dispatcher(events -> {
+            published.addAll(events);
+            if (attempts.incrementAndGet() == 1) {
+                throw new IOException("disk full");
+            }
+        }, 500);
+
+        assertEquals(0, dispatcher.dispatch());
+        assertEquals(1, dispatcher.getFailedBatches());
+        assertEquals(2, dispatcher.getPendingEvents());
+
+        assertEquals(2, dispatcher.dispatch());
+        // Même lot, mêmes identifiants de dédoublonnage
+        assertEquals(4, published.size());
+        assertEquals(published.subList(0, 2), published.subList(2, 4));
+        assertEquals(0, dispatcher.getPendingEvents());
+    }
+
+    @Test
+    void record_ShouldFollowTheBusinessTransaction() {
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxService.record(OutboxService.RENTAL, 1L, OutboxService.RENTAL_CREATED, Map.of("name", "Studio"));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, dispatcher(published::addAll, 500).getPendingEvents());
+        assertThrows(IllegalTransactionStateException.class, () ->
+                outboxService.record(OutboxService.RENTAL, 1L, OutboxService.RENTAL_CREATED, Map.of()));
+    }
+
+    @Test
+    void purge_ShouldDeleteOnlyEventsPublishedBeforeRetention() {
+        record(1L, OutboxService.RENTAL_CREATED, "Studio");
+        record(2L, OutboxService.RENTAL_CREATED, "Loft");
+        OutboxDispatcher dispatcher = dispatcher(published::addAll, 1);
+        dispatcher.dispatch();
+        jdbcTemplate.update("UPDATE outbox_events SET published_at = ? WHERE aggregate_id = 1",
+                Timestamp.from(Instant.now().minusSeconds(3600)));
+        record(3L, OutboxService.RENTAL_CREATED, "Maison");
+
+        dispatcher.purge();
+
+        assertEquals(List.of(2L, 3L), jdbcTemplate.queryForList(
+                "SELECT aggregate_id FROM outbox_events ORDER BY id", Long.class));
+    }
+
+    private OutboxDispatcher dispatcher(OutboxSink sink, int batchSize) {
+        return new OutboxDispatcher(jdbcTemplate, transactionManager, List.of(sink), true, batchSize, 60_000);
+    }
+
+    private void record(Long rentalId, String eventType, String name) {
+        transactionTemplate.executeWithoutResult(status ->
+                outboxService.record(OutboxService.RENTAL, rentalId, eventType, Map.of("name", name)));
+    }
+
+    private static Message message(Long id) {
+        Message message = new Message();
+        message.setId(id);
+        message.setContent("Hello");
+        message.setSenderId(1L);
+        message.setRecipientId(2L);
+        message.setRentalId(3L);
+        message.setSentAt(Instant.now());
+        return message;
+    }
+}
@@ -0,0 +1,88 @@
+package com.openclassrooms.chatop.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadConsistencyServiceTest {
+
+    private static final long MAX_LAG = 30_000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final ReadConsistencyService service = new ReadConsistencyService(true, MAX_LAG, now::get);
+
+    @AfterEach
+    void tearDown() {
+        service.unpin();
+    }
+
+    @Test
+    void withToken_ShouldAddCommitTime_OnSuccessOnly() {
+        ResponseEntity<?> ok = service.withToken(ResponseEntity.ok(Map.of("message", "Rental updated !")));
+        ResponseEntity<?> notFound = service.withToken(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+
+        assertEquals("1000000", ok.getHeaders().getFirst(ReadConsistencyService.HEADER));
+        assertEquals(Map.of("message", "Rental updated !"), ok.getBody());
+        assertNull(notFound.getHeaders().getFirst(ReadConsistencyService.HEADER));
+    }
+
+    @Test
+    void withToken_ShouldNotIssueToken_BeforeDeferredWriteIsCommitted() {
+        ResponseEntity<?> accepted = service.withToken(
+                ResponseEntity.accepted().body(Map.of("message", "Message accepted !")));
+
+        assertEquals(HttpStatus.ACCEPTED, accepted.getStatusCode());
+        assertNull(accepted.getHeaders().getFirst(ReadConsistencyService.HEADER));
+    }
+
+    @Test
+    void isReplicaReadable_ShouldBeFalse_UntilFirstHeartbeatAndWhenLagging() {
+        assertFalse(service.isReplicaReadable());
+
+        service.replicaCaughtUpTo(now.get());
+        assertTrue(service.isReplicaReadable());
+
+        now.addAndGet(MAX_LAG + 1);
+        assertFalse(service.isReplicaReadable());
+        assertEquals(MAX_LAG + 1, service.getReplicaLagMillis());
+    }
+
+    @Test
+    void pinIfStale_ShouldPinToPrimary_UntilReplicaReachesToken() {
+        service.replicaCaughtUpTo(now.get() - 100);
+        String token = Long.toString(now.get());
+
+        assertTrue(service.pinIfStale(token));
+        assertFalse(service.isReplicaReadable());
+        service.unpin();
+
+        service.replicaCaughtUpTo(now.get());
+        assertFalse(service.pinIfStale(token));
+        assertTrue(service.isReplicaReadable());
+    }
+
+    @Test
+    void pinIfStale_ShouldIgnoreMissingOrInvalidToken() {
+        service.replicaCaughtUpTo(now.get());
+
+        assertFalse(service.pinIfStale(null));
+        assertFalse(service.pinIfStale("not-a-timestamp"));
+        assertTrue(service.isReplicaReadable());
+    }
+
+    @Test
+    void disabled_ShouldNeitherIssueTokensNorReadReplica() {
+        ReadConsistencyService disabled = new ReadConsistencyService(false, MAX_LAG, now::get);
+        disabled.replicaCaughtUpTo(now.get());
+
+        assertNull(disabled.withToken(ResponseEntity.ok().build()).getHeaders().getFirst(ReadConsistencyService.HEADER));
+        assertFalse(disabled.pinIfStale(Long.toString(now.get() + 1)));
+        assertFalse(disabled.isReplicaReadable());
+    }
+}
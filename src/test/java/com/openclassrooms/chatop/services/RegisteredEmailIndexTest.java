@@ -0,0 +1,70 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RegisteredEmailIndexTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private RegisteredEmailIndex registeredEmailIndex;
+
+    @BeforeEach
+    void setUp() {
+        registeredEmailIndex = new RegisteredEmailIndex(userRepository, 1000);
+    }
+
+    @Test
+    void isRegistered_ShouldNotQueryDatabase_WhenEmailWasNeverSeen() {
+        assertFalse(registeredEmailIndex.isRegistered("new.user@example.com"));
+        verify(userRepository, never()).existsByEmail(anyString());
+    }
+
+    @Test
+    void isRegistered_ShouldConfirmWithDatabase_WhenEmailIsProbablyPresent() {
+        when(userRepository.findEmailsAfter("", Limit.of(1000))).thenReturn(List.of("John.Doe@example.com"));
+        when(userRepository.existsByEmail("john.doe@example.com")).thenReturn(true);
+
+        registeredEmailIndex.load();
+
+        assertTrue(registeredEmailIndex.isRegistered("john.doe@example.com"));
+        verify(userRepository).existsByEmail("john.doe@example.com");
+    }
+
+    @Test
+    void load_ShouldReadEmailsPageByPage() {
+        List<String> firstPage = IntStream.range(0, 1000).mapToObj(i -> "user" + i + "@example.com").toList();
+        when(userRepository.findEmailsAfter("", Limit.of(1000))).thenReturn(firstPage);
+        when(userRepository.findEmailsAfter("user999@example.com", Limit.of(1000)))
+                .thenReturn(List.of("zoe@example.com"));
+        when(userRepository.existsByEmail(anyString())).thenReturn(true);
+
+        registeredEmailIndex.load();
+
+        assertTrue(registeredEmailIndex.isRegistered("user0@example.com"));
+        assertTrue(registeredEmailIndex.isRegistered("zoe@example.com"));
+        verify(userRepository, times(2)).findEmailsAfter(anyString(), any());
+    }
+
+    @Test
+    void add_ShouldMakeEmailProbablyPresent() {
+        registeredEmailIndex.add("jane.doe@example.com");
+        when(userRepository.existsByEmail("jane.doe@example.com")).thenReturn(true);
+
+        assertTrue(registeredEmailIndex.isRegistered("jane.doe@example.com"));
+    }
+}
@@ -0,0 +1,147 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.dtos.RentalChangesResponse;
+import com.openclassrooms.chatop.dtos.RentalListItemDto;
+import com.openclassrooms.chatop.entities.Rental;
+import com.openclassrooms.chatop.entities.RentalTombstone;
+import com.openclassrooms.chatop.repositories.RentalRepository;
+import com.openclassrooms.chatop.repositories.RentalTombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RentalChangeServiceTest {
+    private static final Instant NOW = Instant.parse("2026-10-01T12:00:00Z");
+    private static final long SETTLE = 5_000;
+
+    @Mock
+    private RentalRepository rentalRepository;
+
+    @Mock
+    private RentalTombstoneRepository tombstoneRepository;
+
+    private final AtomicLong now = new AtomicLong(NOW.toEpochMilli());
+    private final ReadConsistencyService readConsistencyService = new ReadConsistencyService(false, 30_000, now::get);
+    private RentalChangeService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RentalChangeService(rentalRepository, tombstoneRepository, readConsistencyService, SETTLE,
+                now::get);
+    }
+
+    @Test
+    void findChanges_ShouldMergeUpdatesAndDeletions_AndHoldTheCursorAtTheHorizon() {
+        when(rentalRepository.findChangesPage(Instant.EPOCH, 0L, Limit.of(101)))
+                .thenReturn(List.of(rental(1L, NOW.minusSeconds(60)), rental(3L, NOW.minusSeconds(1))));
+        when(tombstoneRepository.findChangesPage(Instant.EPOCH, 0L, Limit.of(101)))
+                .thenReturn(List.of(new RentalTombstone(2L, NOW.minusSeconds(30))));
+
+        RentalChangesResponse changes = service.findChanges(null, 100);
+
+        // La location 3, modifiée il y a une seconde, sera retournée par un prochain appel
+        assertEquals(List.of(1L), changes.getRentals().stream().map(RentalListItemDto::getId).toList());
+        assertEquals(List.of(2L), changes.getDeleted());
+        assertFalse(changes.isHas_more());
+        assertEquals(NOW.minusMillis(SETTLE) + ":0", decode(changes.getNext_cursor()));
+    }
+
+    @Test
+    void findChanges_ShouldAdvanceToTheLastChange_WhenThePageIsFull() {
+        Instant old = NOW.minusSeconds(3600);
+        when(rentalRepository.findChangesPage(any(), anyLong(), eq(Limit.of(3))))
+                .thenReturn(List.of(rental(1L, old), rental(2L, old.plusSeconds(1)), rental(4L, old.plusSeconds(3))));
+        when(tombstoneRepository.findChangesPage(any(), anyLong(), eq(Limit.of(3))))
+                .thenReturn(List.of(new RentalTombstone(3L, old.plusSeconds(2))));
+
+        RentalChangesResponse changes = service.findChanges(encode(old.minusSeconds(1) + ":9"), 2);
+
+        assertEquals(List.of(1L, 2L), changes.getRentals().stream().map(RentalListItemDto::getId).toList());
+        assertTrue(changes.getDeleted().isEmpty());
+        assertTrue(changes.isHas_more());
+        assertEquals(old.plusSeconds(1) + ":2", decode(changes.getNext_cursor()));
+        verify(rentalRepository).findChangesPage(old.minusSeconds(1), 9L, Limit.of(3));
+    }
+
+    @Test
+    void findChanges_ShouldStopAtTheHorizon_WhenThePageIsFull() {
+        when(rentalRepository.findChangesPage(any(), anyLong(), eq(Limit.of(3))))
+                .thenReturn(List.of(rental(1L, NOW.minusSeconds(60)), rental(2L, NOW.minusSeconds(30)),
+                        rental(3L, NOW.minusSeconds(1))));
+        when(tombstoneRepository.findChangesPage(any(), anyLong(), eq(Limit.of(3)))).thenReturn(List.of());
+
+        RentalChangesResponse changes = service.findChanges(null, 2);
+
+        assertEquals(List.of(1L, 2L), changes.getRentals().stream().map(RentalListItemDto::getId).toList());
+        assertFalse(changes.isHas_more());
+        assertEquals(NOW.minusMillis(SETTLE) + ":0", decode(changes.getNext_cursor()));
+    }
+
+    @Test
+    void findChanges_ShouldKeepTheCursor_WhenItIsAlreadyPastTheHorizon() {
+        String since = encode(NOW.minusSeconds(1) + ":5");
+        when(rentalRepository.findChangesPage(any(), anyLong(), any())).thenReturn(List.of());
+        when(tombstoneRepository.findChangesPage(any(), anyLong(), any())).thenReturn(List.of());
+
+        RentalChangesResponse changes = service.findChanges(since, 100);
+
+        assertTrue(changes.getRentals().isEmpty());
+        assertEquals(since, changes.getNext_cursor());
+    }
+
+    @Test
+    void findChanges_ShouldMoveTheHorizonBack_ByTheReplicaLag() {
+        ReadConsistencyService replica = new ReadConsistencyService(true, 30_000, now::get);
+        replica.replicaCaughtUpTo(now.get() - 10_000);
+        service = new RentalChangeService(rentalRepository, tombstoneRepository, replica, SETTLE, now::get);
+        when(rentalRepository.findChangesPage(any(), anyLong(), any())).thenReturn(List.of());
+        when(tombstoneRepository.findChangesPage(any(), anyLong(), any())).thenReturn(List.of());
+
+        RentalChangesResponse changes = service.findChanges(null, 100);
+
+        assertEquals(NOW.minusMillis(10_000 + SETTLE) + ":0", decode(changes.getNext_cursor()));
+    }
+
+    @Test
+    void findChanges_ShouldReturnNull_WhenCursorIsInvalid() {
+        assertNull(service.findChanges("not-a-cursor", 100));
+        assertNull(service.findChanges(encode("yesterday:1"), 100));
+        verifyNoInteractions(rentalRepository, tombstoneRepository);
+    }
+
+    private static Rental rental(Long id, Instant updatedAt) {
+        Rental rental = new Rental();
+        rental.setId(id);
+        rental.setOwnerId(1L);
+        rental.setName("Rental " + id);
+        rental.setSurface(25);
+        rental.setPrice(BigDecimal.valueOf(500));
+        rental.setCreatedAt(updatedAt);
+        rental.setUpdatedAt(updatedAt);
+        return rental;
+    }
+
+    private static String encode(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+}
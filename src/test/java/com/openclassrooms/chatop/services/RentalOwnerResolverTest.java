@@ -0,0 +1,148 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.repositories.RentalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RentalOwnerResolverTest {
+
+    @Mock
+    private RentalRepository rentalRepository;
+
+    private RentalOwnerResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        resolver = new RentalOwnerResolver(rentalRepository, 16, 2);
+    }
+
+    @Test
+    void resolveOwnerId_ShouldQueryOnce_ThenServeFromCache() {
+        when(rentalRepository.findOwnerIdById(1L)).thenReturn(Optional.of(7L));
+
+        assertEquals(7L, resolver.resolveOwnerId(1L));
+        assertEquals(7L, resolver.resolveOwnerId(1L));
+
+        verify(rentalRepository, times(1)).findOwnerIdById(1L);
+    }
+
+    @Test
+    void resolveOwnerId_ShouldNotQuery_WhenRentalWasRegistered() {
+        resolver.register(3L, 9L);
+
+        assertEquals(9L, resolver.resolveOwnerId(3L));
+
+        verifyNoInteractions(rentalRepository);
+    }
+
+    @Test
+    void resolveOwnerId_ShouldCacheMissingRentals_UpToLimit() {
+        when(rentalRepository.findOwnerIdById(anyLong())).thenReturn(Optional.empty());
+
+        for (long id = 1; id <= 3; id++) {
+            assertNull(resolver.resolveOwnerId(id));
+            assertNull(resolver.resolveOwnerId(id));
+        }
+
+        // Les deux premiers échecs sont mémorisés, le troisième dépasse la limite
+        verify(rentalRepository, times(1)).findOwnerIdById(1L);
+        verify(rentalRepository, times(1)).findOwnerIdById(2L);
+        verify(rentalRepository, times(2)).findOwnerIdById(3L);
+    }
+
+    @Test
+    void register_ShouldReplaceCachedMissingRental() {
+        when(rentalRepository.findOwnerIdById(5L)).thenReturn(Optional.empty());
+        assertNull(resolver.resolveOwnerId(5L));
+
+        resolver.register(5L, 11L);
+
+        assertEquals(11L, resolver.resolveOwnerId(5L));
+        verify(rentalRepository, times(1)).findOwnerIdById(5L);
+    }
+
+    @Test
+    void forget_ShouldDropCachedMissingRental_ButKeepKnownOwners() {
+        when(rentalRepository.findOwnerIdById(5L)).thenReturn(Optional.empty(), Optional.of(11L));
+        assertNull(resolver.resolveOwnerId(5L));
+        resolver.register(6L, 12L);
+
+        resolver.forget(5L);
+        resolver.forget(6L);
+
+        assertEquals(11L, resolver.resolveOwnerId(5L));
+        assertEquals(12L, resolver.resolveOwnerId(6L));
+        verify(rentalRepository, times(2)).findOwnerIdById(5L);
+        verify(rentalRepository, never()).findOwnerIdById(6L);
+    }
+
+    @Test
+    void negativeEntries_ShouldBeReleased_WhenRegisteredOrForgotten() {
+        when(rentalRepository.findOwnerIdById(anyLong())).thenReturn(Optional.empty());
+        assertNull(resolver.resolveOwnerId(5L));
+        assertNull(resolver.resolveOwnerId(6L));
+        assertEquals(2, resolver.getNegativeEntryCount());
+
+        resolver.register(5L, 11L);
+        resolver.forget(6L);
+        resolver.forget(6L);
+
+        assertEquals(0, resolver.getNegativeEntryCount());
+        // Les places libérées servent à de nouvelles absences
+        assertNull(resolver.resolveOwnerId(7L));
+        assertNull(resolver.resolveOwnerId(8L));
+        assertNull(resolver.resolveOwnerId(7L));
+        assertNull(resolver.resolveOwnerId(8L));
+        verify(rentalRepository, times(1)).findOwnerIdById(7L);
+        verify(rentalRepository, times(1)).findOwnerIdById(8L);
+        assertEquals(2, resolver.getNegativeEntryCount());
+    }
+
+    @Test
+    void resolveOwnerId_ShouldReturnNull_WhenIdIsInvalid() {
+        assertNull(resolver.resolveOwnerId(null));
+        assertNull(resolver.resolveOwnerId(0L));
+
+        verifyNoInteractions(rentalRepository);
+    }
+
+    @Test
+    void ownerMap_ShouldKeepAllEntries_AcrossResizes() {
+        LongLongConcurrentMap map = new LongLongConcurrentMap(1);
+        for (long key = 1; key <= 10_000; key++) {
+            map.put(key, key * 3);
+        }
+
+        assertEquals(10_000, map.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals(key * 3, map.get(key, -1));
+        }
+        assertEquals(-1, map.get(10_001, -1));
+    }
+
+    @Test
+    void resolveOwnerIds_ShouldQueryMissesOnce_WithInClause() {
+        resolver.register(1L, 7L);
+        when(rentalRepository.findOwnerIdsByIdIn(List.of(2L, 3L))).thenReturn(List.<Object[]>of(new Object[]{2L, 8L}));
+
+        Map<Long, Long> owners = resolver.resolveOwnerIds(List.of(1L, 2L, 3L));
+        Map<Long, Long> cached = resolver.resolveOwnerIds(List.of(1L, 2L, 3L));
+
+        assertEquals(Map.of(1L, 7L, 2L, 8L), owners);
+        assertEquals(owners, cached);
+        verify(rentalRepository, times(1)).findOwnerIdsByIdIn(anyCollection());
+    }
+}
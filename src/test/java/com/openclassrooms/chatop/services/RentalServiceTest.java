@@ -23,6 +23,8 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,6 +33,15 @@ class RentalServiceTest {
     @Mock
     private RentalRepository rentalRepository;
 
+    @Mock
+    private RentalOwnerResolver rentalOwnerResolver;
+
+    @Mock
+    private CacheInvalidationBus invalidationBus;
+
+    @Mock
+    private OutboxService outboxService;
+
     @InjectMocks
     private RentalService rentalService;
 
@@ -100,6 +111,9 @@ class RentalServiceTest {
         when(rentalRepository.save(any(Rental.class))).thenAnswer(invocation -> {
             Rental savedRental = invocation.getArgument(0);
             savedRental.setId(1L);
+            // Dates renseignées par @PrePersist
+            savedRental.setCreatedAt(Instant.now());
+            savedRental.setUpdatedAt(savedRental.getCreatedAt());
             return savedRental;
         });
 
@@ -122,6 +136,10 @@ class RentalServiceTest {
         assertTrue(result.getPictureFilename().endsWith(".jpg"));
 
         verify(rentalRepository).save(any(Rental.class));
+        verify(rentalOwnerResolver).register(1L, 1L);
+        verify(invalidationBus).append(CacheInvalidationBus.RENTAL, 1L, null);
+        verify(outboxService).record(eq(OutboxService.RENTAL), eq(1L), eq(OutboxService.RENTAL_CREATED),
+                any(RentalListItemDto.class));
     }
 
     @Test
@@ -161,6 +179,9 @@ class RentalServiceTest {
         when(rentalRepository.save(any(Rental.class))).thenAnswer(invocation -> {
             Rental savedRental = invocation.getArgument(0);
             savedRental.setId(1L);
+            // Dates renseignées par @PrePersist
+            savedRental.setCreatedAt(Instant.now());
+            savedRental.setUpdatedAt(savedRental.getCreatedAt());
             return savedRental;
         });
 
@@ -181,6 +202,9 @@ class RentalServiceTest {
         when(rentalRepository.save(any(Rental.class))).thenAnswer(invocation -> {
             Rental savedRental = invocation.getArgument(0);
             savedRental.setId(1L);
+            // Dates renseignées par @PrePersist
+            savedRental.setCreatedAt(Instant.now());
+            savedRental.setUpdatedAt(savedRental.getCreatedAt());
             return savedRental;
         });
 
@@ -221,6 +245,18 @@ class RentalServiceTest {
         verify(rentalRepository).findById(1L);
     }
 
+    @Test
+    void findPicture_ShouldReadOnlyThePicture() {
+        // Given
+        when(rentalRepository.findPictureById(1L)).thenReturn(Optional.of("image".getBytes()));
+        when(rentalRepository.findPictureById(2L)).thenReturn(Optional.empty());
+
+        // When / Then
+        assertArrayEquals("image".getBytes(), rentalService.findPicture(1L));
+        assertNull(rentalService.findPicture(2L));
+        verify(rentalRepository, never()).findById(any());
+    }
+
     @Test
     void findAllRentals_ShouldReturnMappedRentalList() {
         // Given
@@ -259,7 +295,7 @@ class RentalServiceTest {
     void updateRental_ShouldUpdateRental_WhenUserIsOwner() {
         // Given
         when(rentalRepository.findById(1L)).thenReturn(Optional.of(rental));
-        when(rentalRepository.save(any(Rental.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(rentalRepository.saveAndFlush(any(Rental.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // When
         Rental result = rentalService.updateRental(1L, updateRentalDto, 1L);
@@ -272,7 +308,10 @@ class RentalServiceTest {
         assertEquals(updateRentalDto.getDescription(), result.getDescription());
 
         verify(rentalRepository).findById(1L);
-        verify(rentalRepository).save(any(Rental.class));
+        verify(rentalRepository).saveAndFlush(any(Rental.class));
+        verify(invalidationBus).append(CacheInvalidationBus.RENTAL, 1L, null);
+        verify(outboxService).record(eq(OutboxService.RENTAL), eq(1L), eq(OutboxService.RENTAL_UPDATED),
+                argThat(payload -> "Updated Apartment".equals(((RentalListItemDto) payload).getName())));
     }
 
     @Test
@@ -286,7 +325,8 @@ class RentalServiceTest {
         // Then
         assertNull(result);
         verify(rentalRepository).findById(1L);
-        verify(rentalRepository, never()).save(any(Rental.class));
+        verify(rentalRepository, never()).saveAndFlush(any(Rental.class));
+        verifyNoInteractions(invalidationBus, outboxService);
     }
 
     @Test
@@ -300,6 +340,6 @@ class RentalServiceTest {
         // Then
         assertNull(result);
         verify(rentalRepository).findById(1L);
-        verify(rentalRepository, never()).save(any(Rental.class));
+        verify(rentalRepository, never()).saveAndFlush(any(Rental.class));
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.openclassrooms.chatop.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.openclassrooms.chatop.dtos.NotificationDigestDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpoolNotificationSenderTest {
+    private static final long RETENTION = 86_400_000;
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    @Test
+    void purge_ShouldDeleteOnlyDigestsOlderThanRetention() throws Exception {
+        SpoolNotificationSender sender = new SpoolNotificationSender(dir.toString(), RETENTION, objectMapper);
+        sender.send(digest(2L));
+        sender.send(digest(3L));
+        Path stateFile = Files.writeString(dir.resolve("pending-digests.json"), "[]");
+        Path abandoned = Files.writeString(dir.resolve("digest-4-1-1.tmp"), "{");
+        List<Path> digests = digests();
+        FileTime old = FileTime.from(Instant.now().minus(2, ChronoUnit.DAYS));
+        Files.setLastModifiedTime(digests.get(0), old);
+        Files.setLastModifiedTime(abandoned, old);
+        Files.setLastModifiedTime(stateFile, old);
+
+        sender.purge();
+
+        assertEquals(List.of(digests.get(1)), digests());
+        assertFalse(Files.exists(abandoned));
+        assertTrue(Files.exists(stateFile));
+    }
+
+    @Test
+    void purge_ShouldKeepEverything_WhenRetentionIsDisabled() throws Exception {
+        SpoolNotificationSender sender = new SpoolNotificationSender(dir.toString(), 0, objectMapper);
+        sender.send(digest(2L));
+        Files.setLastModifiedTime(digests().get(0), FileTime.from(Instant.EPOCH));
+
+        sender.purge();
+
+        assertEquals(1, digests().size());
+    }
+
+    private List<Path> digests() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".json")
+                    && f.getFileName().toString().startsWith("digest-")).sorted().toList();
+        }
+    }
+
+    private static NotificationDigestDto digest(Long recipientId) {
+        return new NotificationDigestDto(recipientId, 1, List.of(10L), List.of(), Instant.now(), Instant.now());
+    }
+}
@@ -0,0 +1,89 @@
+package com.openclassrooms.chatop.services;
+
+import com.openclassrooms.chatop.entities.RevokedToken;
+import com.openclassrooms.chatop.repositories.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    @Mock
+    private RevokedTokenRepository revokedTokenRepository;
+
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        tokenRevocationService = new TokenRevocationService(revokedTokenRepository, 1000);
+    }
+
+    @Test
+    void isRevoked_ShouldReturnFalse_WhenTokenWasNeverRevoked() {
+        assertFalse(tokenRevocationService.isRevoked("unknown-jti"));
+        assertFalse(tokenRevocationService.isRevoked(null));
+    }
+
+    @Test
+    void revoke_ShouldPersistAndRevokeOnlyOnce() {
+        Instant expiresAt = Instant.now().plusSeconds(60);
+
+        assertTrue(tokenRevocationService.revoke("jti-1", expiresAt));
+        assertFalse(tokenRevocationService.revoke("jti-1", expiresAt));
+
+        assertTrue(tokenRevocationService.isRevoked("jti-1"));
+        verify(revokedTokenRepository, times(1)).insert("jti-1", expiresAt);
+    }
+
+    @Test
+    void revoke_ShouldReturnFalse_WhenAnotherNodeAlreadyRevokedTheToken() {
+        Instant expiresAt = Instant.now().plusSeconds(60);
+        when(revokedTokenRepository.insert("jti-1", expiresAt))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry 'jti-1' for key 'PRIMARY'"));
+
+        assertFalse(tokenRevocationService.revoke("jti-1", expiresAt));
+
+        assertTrue(tokenRevocationService.isRevoked("jti-1"));
+    }
+
+    @Test
+    void markRevoked_ShouldRevokeLocally_WithoutWritingToTheDatabase() {
+        tokenRevocationService.markRevoked("remote-jti", Instant.now().plusSeconds(60));
+
+        assertTrue(tokenRevocationService.isRevoked("remote-jti"));
+        verifyNoInteractions(revokedTokenRepository);
+    }
+
+    @Test
+    void load_ShouldRestoreRevocationsFromDatabase() {
+        when(revokedTokenRepository.findByExpiresAtAfter(any(Instant.class)))
+                .thenReturn(List.of(new RevokedToken("persisted-jti", Instant.now().plusSeconds(60))));
+
+        tokenRevocationService.load();
+
+        assertTrue(tokenRevocationService.isRevoked("persisted-jti"));
+    }
+
+    @Test
+    void purgeExpired_ShouldForgetExpiredRevocations() {
+        tokenRevocationService.revoke("expired-jti", Instant.now().minusSeconds(1));
+        tokenRevocationService.revoke("active-jti", Instant.now().plusSeconds(60));
+
+        tokenRevocationService.purgeExpired();
+
+        assertFalse(tokenRevocationService.isRevoked("expired-jti"));
+        assertTrue(tokenRevocationService.isRevoked("active-jti"));
+        verify(revokedTokenRepository).deleteExpired(any(Instant.class));
+    }
+}
@@ -0,0 +1,41 @@
+-- Schéma initial pour H2 (tests et développement local), équivalent de db/migration/mysql/V1.
+
+CREATE TABLE users (
+    id         BIGINT       NOT NULL,
+    name       VARCHAR(255) NOT NULL,
+    email      VARCHAR(100) NOT NULL,
+    password   VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP(6),
+    updated_at TIMESTAMP(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+-- Générateur des identifiants utilisateur (GenerationType.AUTO)
+CREATE SEQUENCE users_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE rentals (
+    id                   BIGINT                      GENERATED BY DEFAULT AS IDENTITY,
+    name                 VARCHAR(255),
+    surface              FLOAT(53)                   NOT NULL,
+    price                NUMERIC(38, 2),
+    description          TEXT,
+    picture              BLOB,
+    picture_content_type VARCHAR(255),
+    picture_filename     VARCHAR(255),
+    picture_size         BIGINT                      NOT NULL,
+    owner_id             BIGINT,
+    created_at           TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at           TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE messages (
+    id           BIGINT                      GENERATED BY DEFAULT AS IDENTITY,
+    content      TEXT                        NOT NULL,
+    sender_id    BIGINT                      NOT NULL,
+    recipient_id BIGINT                      NOT NULL,
+    rental_id    BIGINT                      NOT NULL,
+    sent_at      TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,39 @@
+-- Tables et index ajoutés depuis le schéma initial, équivalent de db/migration/mysql/V2.
+
+CREATE INDEX idx_messages_recipient_sent ON messages (recipient_id, sent_at DESC, id DESC);
+CREATE INDEX idx_messages_recipient_rental_sent ON messages (recipient_id, rental_id, sent_at DESC, id DESC);
+CREATE INDEX idx_messages_sender_sent ON messages (sender_id, sent_at DESC, id DESC);
+CREATE INDEX idx_messages_sender_rental_sent ON messages (sender_id, rental_id, sent_at DESC, id DESC);
+
+CREATE TABLE conversations (
+    id              BIGINT                      GENERATED BY DEFAULT AS IDENTITY,
+    rental_id       BIGINT                      NOT NULL,
+    sender_id       BIGINT                      NOT NULL,
+    owner_id        BIGINT                      NOT NULL,
+    last_message_id BIGINT,
+    last_message_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    unread_count    BIGINT                      NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_conversations_thread UNIQUE (rental_id, sender_id, owner_id)
+);
+
+CREATE INDEX idx_conversations_owner_last ON conversations (owner_id, last_message_at DESC);
+CREATE INDEX idx_conversations_sender_last ON conversations (sender_id, last_message_at DESC);
+
+CREATE TABLE revoked_tokens (
+    jti        VARCHAR(36)                 NOT NULL,
+    expires_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (jti)
+);
+
+CREATE TABLE idempotency_keys (
+    scope       VARCHAR(320)                NOT NULL,
+    fingerprint VARCHAR(64)                 NOT NULL,
+    status      INTEGER,
+    location    VARCHAR(255),
+    body        TEXT,
+    expires_at  TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (scope)
+);
+
+CREATE INDEX idx_idempotency_keys_expires ON idempotency_keys (expires_at);
@@ -0,0 +1,11 @@
+-- Index secondaires absents du schéma créé par Hibernate.
+
+-- Locations d'un propriétaire, locations par date de création
+CREATE INDEX idx_rentals_owner ON rentals (owner_id);
+CREATE INDEX idx_rentals_created ON rentals (created_at);
+
+-- Messages d'une location (les boîtes de réception et d'envoi ont déjà leurs index)
+CREATE INDEX idx_messages_rental ON messages (rental_id);
+
+-- Chargement des révocations en cours au démarrage et purge des révocations expirées
+CREATE INDEX idx_revoked_tokens_expires ON revoked_tokens (expires_at);
@@ -0,0 +1,6 @@
+-- Battement de cœur écrit sur la base principale et relu sur le réplica (ReplicaLagMonitor).
+CREATE TABLE replication_heartbeat (
+    id      INT    NOT NULL,
+    beat_at BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
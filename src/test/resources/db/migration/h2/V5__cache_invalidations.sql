@@ -0,0 +1,12 @@
+-- Journal des modifications lu par toutes les instances pour invalider leurs caches locaux (CacheInvalidationBus).
+-- L'identifiant auto-incrémenté sert de curseur ; les lignes anciennes sont purgées par date.
+CREATE TABLE cache_invalidations (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    entity     VARCHAR(16)  NOT NULL,
+    entity_id  BIGINT       NOT NULL,
+    entity_key VARCHAR(100) NULL,
+    origin     VARCHAR(36)  NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+CREATE INDEX idx_cache_invalidations_created ON cache_invalidations (created_at);
@@ -0,0 +1,15 @@
+-- Outbox transactionnelle : chaque modification de location ou de message y est inscrite dans
+-- la même transaction que l'écriture métier, puis publiée par OutboxDispatcher.
+-- L'identifiant auto-incrémenté fixe l'ordre de publication ; event_id sert de clé de dédoublonnage.
+CREATE TABLE outbox_events (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    event_id       CHAR(36)     NOT NULL,
+    aggregate_type VARCHAR(16)  NOT NULL,
+    aggregate_id   BIGINT       NOT NULL,
+    event_type     VARCHAR(32)  NOT NULL,
+    payload        CLOB         NOT NULL,
+    created_at     TIMESTAMP(6) NOT NULL,
+    published_at   TIMESTAMP(6) NULL,
+    PRIMARY KEY (id)
+);
+CREATE INDEX idx_outbox_events_published ON outbox_events (published_at, id);
@@ -0,0 +1,11 @@
+-- Synchronisation incrémentale des locations (GET /api/rentals/changes) : parcours par (updated_at, id).
+UPDATE rentals SET updated_at = created_at WHERE updated_at IS NULL;
+CREATE INDEX idx_rentals_updated ON rentals (updated_at, id);
+
+-- Locations supprimées, signalées aux clients jusqu'à leur purge.
+CREATE TABLE rental_tombstones (
+    rental_id  BIGINT       NOT NULL,
+    deleted_at TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (rental_id)
+);
+CREATE INDEX idx_rental_tombstones_deleted ON rental_tombstones (deleted_at, rental_id);
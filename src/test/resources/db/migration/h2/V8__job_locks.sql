@@ -0,0 +1,9 @@
+-- Verrous des tâches planifiées partagées entre les instances, équivalent de db/migration/mysql/V8.
+CREATE TABLE job_locks (
+    name         VARCHAR(64)  NOT NULL,
+    owner        VARCHAR(36),
+    locked_until TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (name)
+);
+
+INSERT INTO job_locks (name, locked_until) VALUES ('message-archive', TIMESTAMP '1970-01-01 00:00:00');
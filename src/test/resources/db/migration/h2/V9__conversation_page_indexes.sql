@@ -0,0 +1,6 @@
+-- Index de pagination des conversations, équivalent de db/migration/mysql/V9.
+DROP INDEX idx_conversations_owner_last;
+DROP INDEX idx_conversations_sender_last;
+
+CREATE INDEX idx_conversations_owner_last ON conversations (owner_id, last_message_at DESC, id DESC);
+CREATE INDEX idx_conversations_sender_last ON conversations (sender_id, last_message_at DESC, id DESC);